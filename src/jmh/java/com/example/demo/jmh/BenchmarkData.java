@@ -0,0 +1,86 @@
+package com.example.demo.jmh;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.example.demo.dto.BxGyCouponRequest;
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.dto.CartWiseCouponRequest;
+import com.example.demo.dto.CouponRequestDTO;
+import com.example.demo.dto.ProductWiseCouponRequest;
+import com.example.demo.model.BxGyProductDetail;
+
+/**
+ * Seeded catalogs and carts for the JMH benchmarks. Product 0 is in every cart, and the first
+ * coupon of every catalog targets it, so that each benchmark has a coupon that always applies.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static List<CouponRequestDTO> coupons(CouponMix mix, int count, int products, Random random) {
+        List<CouponRequestDTO> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // Coupon 0 targets product 0 with the loosest conditions
+            long productId = i == 0 ? 0 : random.nextInt(products);
+            String code = "BENCH" + i;
+            requests.add(switch (mix.typeOf(i)) {
+                case CART_WISE -> CartWiseCouponRequest.builder()
+                        .code(code)
+                        .threshold(BigDecimal.valueOf(i == 0 ? 0 : random.nextInt(500)))
+                        .discountPercentage(BigDecimal.valueOf(5 + random.nextInt(20)))
+                        .build();
+                case PRODUCT_WISE -> ProductWiseCouponRequest.builder()
+                        .code(code)
+                        .productId(productId)
+                        .discountPercentage(BigDecimal.valueOf(5 + random.nextInt(30)))
+                        .build();
+                case BXGY -> BxGyCouponRequest.builder()
+                        .code(code)
+                        .buyProducts(List.of(new BxGyProductDetail(productId, 2),
+                                new BxGyProductDetail(i == 0 ? 0 : (long) random.nextInt(products), 1)))
+                        .getProducts(List.of(new BxGyProductDetail(i == 0 ? 0 : (long) random.nextInt(products), 1)))
+                        .repetitionLimit(1 + random.nextInt(3))
+                        .build();
+            });
+        }
+        return requests;
+    }
+
+    /**
+     * A cart of distinct products drawn from the first {@code products} ids, with product 0 on
+     * its first line.
+     */
+    static Cart cart(int lines, int products, Random random) {
+        List<Long> productIds = new ArrayList<>(products - 1);
+        for (long productId = 1; productId < products; productId++) {
+            productIds.add(productId);
+        }
+        Collections.shuffle(productIds, random);
+        List<CartItem> items = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            items.add(CartItem.builder()
+                    .productId(i == 0 ? 0 : productIds.get(i - 1))
+                    .quantity(i == 0 ? 6 : 1 + random.nextInt(3))
+                    .price(BigDecimal.valueOf(100 + random.nextInt(9_900), 2))
+                    .build());
+        }
+        return Cart.builder().items(items).build();
+    }
+
+    /**
+     * A fresh copy of the cart's lines, for operations that write their result into the cart.
+     */
+    static Cart copy(Cart cart) {
+        List<CartItem> items = new ArrayList<>(cart.getItems().size());
+        for (CartItem item : cart.getItems()) {
+            items.add(CartItem.builder().productId(item.getProductId()).quantity(item.getQuantity()).price(item.getPrice()).build());
+        }
+        return Cart.builder().items(items).build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.jmh;
+
+import com.example.demo.model.CouponType;
+
+/**
+ * Which coupon types a generated catalog holds.
+ */
+public enum CouponMix {
+    CART_WISE, PRODUCT_WISE, BXGY,
+    /** 40% cart-wise, 40% product-wise and 20% BxGy. */
+    MIXED;
+
+    CouponType typeOf(int index) {
+        return switch (this) {
+            case CART_WISE -> CouponType.CART_WISE;
+            case PRODUCT_WISE -> CouponType.PRODUCT_WISE;
+            case BXGY -> CouponType.BXGY;
+            case MIXED -> switch (index % 5) {
+                case 0, 1 -> CouponType.CART_WISE;
+                case 2, 3 -> CouponType.PRODUCT_WISE;
+                default -> CouponType.BXGY;
+            };
+        };
+    }
+}
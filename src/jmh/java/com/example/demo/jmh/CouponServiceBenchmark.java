@@ -0,0 +1,108 @@
+package com.example.demo.jmh;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.config.CouponEvaluationProperties;
+import com.example.demo.dto.ApplicableCouponResponse;
+import com.example.demo.dto.Cart;
+import com.example.demo.persistence.InMemoryCouponRepository;
+import com.example.demo.service.ApplicableCouponCache;
+import com.example.demo.service.CatalogSnapshot;
+import com.example.demo.service.CouponEvaluationExecutor;
+import com.example.demo.service.CouponService;
+
+/**
+ * {@link CouponService#getApplicableCoupons(CatalogSnapshot, Cart)} and
+ * {@link CouponService#applyCoupon(CatalogSnapshot, Long, Cart)} over generated catalogs of 1k to
+ * 1M coupons and carts of 1 to 1000 lines. The result cache is disabled, so that every call
+ * evaluates the catalog; evaluations split across the pool as they would with the default
+ * settings. Calls cycle through a few carts of the same size.
+ *
+ * <p>{@code applyCoupon} applies the coupon that targets product 0, which every cart holds. It
+ * writes into its cart, so each call copies the cart first.
+ *
+ * <p>The full grid takes hours; narrow it with {@code -p}, e.g.
+ * {@code -Djmh.args="CouponServiceBenchmark -p catalogSize=100000 -p mix=MIXED"}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class CouponServiceBenchmark {
+
+    private static final int PRODUCTS = 2_000;
+    private static final int CARTS = 16;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int catalogSize;
+
+    @Param({"1", "10", "100", "1000"})
+    private int cartLines;
+
+    @Param({"MIXED", "CART_WISE", "PRODUCT_WISE", "BXGY"})
+    private CouponMix mix;
+
+    private CouponEvaluationExecutor evaluationExecutor;
+    private CouponService couponService;
+    private CatalogSnapshot snapshot;
+    private Long hotCouponId;
+    private Cart[] carts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        evaluationExecutor = new CouponEvaluationExecutor(new CouponEvaluationProperties());
+        CouponCacheProperties cacheProperties = new CouponCacheProperties();
+        cacheProperties.setMaxEntries(0);
+        couponService = new CouponService(evaluationExecutor, new ApplicableCouponCache(cacheProperties, new SimpleMeterRegistry()),
+                new InMemoryCouponRepository(), Clock.systemDefaultZone());
+
+        Random random = new Random(42);
+        hotCouponId = couponService.createCoupons(BenchmarkData.coupons(mix, catalogSize, PRODUCTS, random)).get(0).getId();
+        snapshot = couponService.snapshot();
+        carts = new Cart[CARTS];
+        for (int i = 0; i < CARTS; i++) {
+            carts[i] = BenchmarkData.cart(cartLines, PRODUCTS, random);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        evaluationExecutor.destroy();
+    }
+
+    @Benchmark
+    public List<ApplicableCouponResponse> getApplicableCoupons() {
+        return couponService.getApplicableCoupons(snapshot, nextCart());
+    }
+
+    @Benchmark
+    public Cart applyCoupon() {
+        return couponService.applyCoupon(snapshot, hotCouponId, BenchmarkData.copy(nextCart()));
+    }
+
+    private Cart nextCart() {
+        next = (next + 1) % CARTS;
+        return carts[next];
+    }
+}
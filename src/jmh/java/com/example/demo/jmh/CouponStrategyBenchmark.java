@@ -0,0 +1,109 @@
+package com.example.demo.jmh;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.engine.CartContext;
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.BxGyProductDetail;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponType;
+import com.example.demo.model.ProductWiseCoupon;
+import com.example.demo.strategy.BxGyCouponStrategy;
+import com.example.demo.strategy.CartWiseCouponStrategy;
+import com.example.demo.strategy.CouponStrategy;
+import com.example.demo.strategy.ProductWiseCouponStrategy;
+
+/**
+ * One coupon of each type evaluated by its {@link CouponStrategy} against carts of 1 to 1000
+ * lines. The coupon applies to every cart: the product-wise one targets a line in the middle of
+ * the cart, and the BxGy one buys from its first and middle lines to get its last one free.
+ *
+ * <p>{@code isApplicable} and {@code calculateDiscount} reuse a {@link CartContext} built once.
+ * {@code applyDiscount} writes into its cart, so each call copies the cart and builds the context
+ * afresh, and its time includes both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CouponStrategyBenchmark {
+
+    private static final int PRODUCTS = 2_000;
+
+    @Param({"CART_WISE", "PRODUCT_WISE", "BXGY"})
+    private CouponType couponType;
+
+    @Param({"1", "10", "100", "1000"})
+    private int cartLines;
+
+    private CouponStrategy strategy;
+    private Coupon coupon;
+    private Cart cart;
+    private CartContext context;
+
+    @Setup
+    public void setUp() {
+        cart = BenchmarkData.cart(cartLines, PRODUCTS, new Random(42));
+        context = CartContext.of(cart);
+        long first = cart.getItems().get(0).getProductId();
+        long middle = cart.getItems().get(cartLines / 2).getProductId();
+        long last = cart.getItems().get(cartLines - 1).getProductId();
+        switch (couponType) {
+            case CART_WISE -> {
+                strategy = new CartWiseCouponStrategy();
+                coupon = CartWiseCoupon.builder().id(1L).type(couponType).code("CART")
+                        .threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build();
+            }
+            case PRODUCT_WISE -> {
+                strategy = new ProductWiseCouponStrategy();
+                coupon = ProductWiseCoupon.builder().id(1L).type(couponType).code("PRODUCT")
+                        .productId(middle).discountPercentage(BigDecimal.valueOf(20)).build();
+            }
+            case BXGY -> {
+                strategy = new BxGyCouponStrategy();
+                coupon = BxGyCoupon.builder().id(1L).type(couponType).code("BXGY")
+                        .buyProducts(List.of(new BxGyProductDetail(first, 2), new BxGyProductDetail(middle, 1)))
+                        .getProducts(List.of(new BxGyProductDetail(last, 1)))
+                        .repetitionLimit(3)
+                        .build();
+            }
+        }
+        if (!strategy.isApplicable(context, coupon)) {
+            throw new IllegalStateException(couponType + " coupon does not apply to a cart of " + cartLines + " lines");
+        }
+    }
+
+    @Benchmark
+    public boolean isApplicable() {
+        return strategy.isApplicable(context, coupon);
+    }
+
+    @Benchmark
+    public BigDecimal calculateDiscount() {
+        return strategy.calculateDiscount(context, coupon);
+    }
+
+    @Benchmark
+    public Cart applyDiscount() {
+        return strategy.applyDiscount(CartContext.of(BenchmarkData.copy(cart)), coupon);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "coupon.cache")
+public class CouponCacheProperties {
+    /**
+     * Largest number of cached applicable-coupon results; 0 disables the cache.
+     */
+    private int maxEntries = 10_000;
+
+    /**
+     * Largest total weight of the cached results, where an entry weighs one plus the number of
+     * cart lines in its key plus the number of coupons in its result.
+     */
+    private long maxWeight = 500_000;
+
+    /**
+     * Number of independently locked segments the cache is split into, rounded down to a power
+     * of two; 0 for four per available processor. Both limits are shared out evenly between them.
+     */
+    private int segments = 0;
+}
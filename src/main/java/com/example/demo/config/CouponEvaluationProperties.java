@@ -0,0 +1,24 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "coupon.evaluation")
+public class CouponEvaluationProperties {
+    /**
+     * Number of worker threads in the evaluation ForkJoinPool; 0 uses one per available processor.
+     */
+    private int poolSize = 0;
+
+    /**
+     * Candidate sets smaller than this are evaluated serially on the request thread.
+     */
+    private int parallelThreshold = 4096;
+
+    /**
+     * Largest number of carts accepted by one batch evaluation request.
+     */
+    private int maxBatchSize = 1000;
+}
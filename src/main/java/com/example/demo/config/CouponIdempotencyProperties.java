@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "coupon.idempotency")
+public class CouponIdempotencyProperties {
+    /**
+     * Largest number of idempotency keys remembered at once; 0 disables idempotent replays.
+     */
+    private int maxEntries = 10_000;
+
+    /**
+     * How long the response to a key is replayed after it was first requested.
+     */
+    private Duration ttl = Duration.ofHours(1);
+}
@@ -0,0 +1,24 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "coupon.import")
+public class CouponImportProperties {
+    /**
+     * Coupons published to the catalog per version during a bulk import.
+     */
+    private int batchSize = 5000;
+
+    /**
+     * Line errors listed in an import response; further failures are only counted.
+     */
+    private int maxReportedErrors = 1000;
+
+    /**
+     * Longest line, in characters, read from an import; longer lines fail without being parsed.
+     */
+    private int maxLineLength = 65536;
+}
@@ -0,0 +1,26 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "coupon.reactive")
+public class CouponReactiveProperties {
+    /**
+     * Whether to serve the reactive evaluation API next to the servlet one; off unless opted in,
+     * so that the application opens no second port by default.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Port of the reactive server; the servlet endpoints stay on server.port.
+     */
+    private int port = 8081;
+
+    /**
+     * Carts of a streamed batch evaluated at once, and so read ahead of the response; 0 means
+     * one per evaluation pool worker.
+     */
+    private int batchConcurrency = 0;
+}
@@ -0,0 +1,65 @@
+package com.example.demo.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import com.example.demo.persistence.CouponRepository;
+import com.example.demo.persistence.FileCouponRepository;
+import com.example.demo.persistence.InMemoryCouponRepository;
+import com.example.demo.persistence.JdbcCouponRepository;
+
+/**
+ * Creates the repository chosen by {@code coupon.repository.type}. Only the jdbc backend gets a
+ * DataSource, and it must be given {@code spring.datasource.url}: Boot would otherwise fall back
+ * to an in-memory database whenever an embedded driver is on the classpath, and lose every write
+ * on restart.
+ */
+@Configuration
+public class CouponRepositoryConfig {
+
+    @Bean
+    public CouponRepository couponRepository(CouponRepositoryProperties properties, ObjectProvider<DataSource> dataSource, Clock clock,
+            Environment environment) throws IOException {
+        return switch (properties.getType()) {
+            case MEMORY -> new InMemoryCouponRepository();
+            case FILE -> new FileCouponRepository(Path.of(properties.getDirectory()));
+            case JDBC -> {
+                if (!StringUtils.hasText(environment.getProperty("spring.datasource.url"))) {
+                    throw new IllegalStateException("coupon.repository.type=jdbc needs spring.datasource.url to name the database");
+                }
+                yield new JdbcCouponRepository(dataSource.getObject(), properties.getJdbc().getMaxBatchSize(), clock);
+            }
+        };
+    }
+
+    /**
+     * Reports the repository DOWN, with the error, while it fails every save: the catalog can
+     * still be read, but nothing can be created, changed or redeemed against a limit.
+     */
+    @Bean
+    public HealthIndicator couponRepositoryHealthIndicator(CouponRepository couponRepository) {
+        return () -> couponRepository.failure()
+                .map(failure -> Health.down(failure).build())
+                .orElseGet(() -> Health.up().build());
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "coupon.repository", name = "type", havingValue = "jdbc")
+    @Import(DataSourceAutoConfiguration.class)
+    static class JdbcDataSourceConfig {
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "coupon.repository")
+public class CouponRepositoryProperties {
+    /**
+     * Where the catalog is made durable. Whichever backend is chosen, the catalog is held in
+     * memory and every read is served from there.
+     */
+    private Type type = Type.FILE;
+
+    /**
+     * Directory holding the mutation log segments and catalog checkpoints of the file backend.
+     */
+    private String directory = "data";
+
+    /**
+     * How often a checkpoint of the catalog is written in the background, after which the log
+     * segments it covers are deleted. Only the file backend takes checkpoints.
+     */
+    private Duration checkpointInterval = Duration.ofMinutes(10);
+
+    private Jdbc jdbc = new Jdbc();
+
+    public enum Type {
+        /** Nothing is kept across restarts. */
+        MEMORY,
+        /** A write-ahead log with periodic checkpoints in {@link #directory}. */
+        FILE,
+        /** A table in the database configured by {@code spring.datasource.*}. */
+        JDBC
+    }
+
+    @Data
+    public static class Jdbc {
+        /**
+         * Largest number of mutations written in one transaction when concurrent saves are
+         * batched together; a single larger save still gets a transaction of its own.
+         */
+        private int maxBatchSize = 1000;
+    }
+}
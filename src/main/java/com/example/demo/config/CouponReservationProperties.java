@@ -0,0 +1,28 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+@Data
+@ConfigurationProperties(prefix = "coupon.reservation")
+public class CouponReservationProperties {
+    /**
+     * How long a reservation holds its redemption before it is released unless committed.
+     */
+    private Duration ttl = Duration.ofMinutes(15);
+
+    /**
+     * Granularity of reservation expiry: expired reservations are released at the end of the
+     * tick their expiry falls in.
+     */
+    private Duration tick = Duration.ofSeconds(1);
+
+    /**
+     * Number of ticks in one turn of the expiry timer wheel, rounded up to a power of two.
+     * Reservations expiring further ahead than a turn simply wait for the wheel to come round.
+     */
+    private int wheelSize = 1024;
+}
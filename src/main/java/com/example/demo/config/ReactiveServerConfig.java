@@ -0,0 +1,74 @@
+package com.example.demo.config;
+
+import jakarta.validation.Validator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import com.example.demo.controller.ReactiveCouponHandler;
+import com.example.demo.exception.GlobalExceptionHandler;
+import com.example.demo.service.CouponEvaluationExecutor;
+import com.example.demo.service.CouponService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Serves {@link ReactiveCouponHandler} from its own Netty server on {@code coupon.reactive.port},
+ * when {@code coupon.reactive.enabled} is set.
+ * The application stays a servlet application, so the MVC endpoints keep running on Tomcat and
+ * both share one catalog, evaluation pool and redemption ledger.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "coupon.reactive", name = "enabled", havingValue = "true")
+public class ReactiveServerConfig {
+
+    @Bean
+    public ReactiveCouponHandler reactiveCouponHandler(CouponService couponService, CouponEvaluationExecutor evaluationExecutor,
+            Validator validator, GlobalExceptionHandler exceptionHandler, CouponReactiveProperties properties) {
+        int batchConcurrency = properties.getBatchConcurrency() > 0 ? properties.getBatchConcurrency() : evaluationExecutor.getParallelism();
+        return new ReactiveCouponHandler(couponService, validator, exceptionHandler,
+                Schedulers.fromExecutor(evaluationExecutor.getExecutor()), batchConcurrency);
+    }
+
+    @Bean
+    public SmartLifecycle reactiveCouponServer(ReactiveCouponHandler handler, ObjectMapper objectMapper, CouponReactiveProperties properties) {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                })
+                .build();
+        var server = new NettyReactiveWebServerFactory(properties.getPort())
+                .getWebServer(RouterFunctions.toHttpHandler(handler.routes(), strategies));
+        return new SmartLifecycle() {
+            private volatile boolean running;
+
+            @Override
+            public void start() {
+                server.start();
+                running = true;
+                log.info("Reactive coupon API listening on port {}", server.getPort());
+            }
+
+            @Override
+            public void stop() {
+                server.stop();
+                running = false;
+            }
+
+            @Override
+            public boolean isRunning() {
+                return running;
+            }
+        };
+    }
+}
@@ -1,10 +1,16 @@
 package com.example.demo.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Supplier;
 
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,35 +18,129 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.demo.dto.ApplicableCouponResponse;
 import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartEvaluationResult;
+import com.example.demo.dto.CouponImportResult;
+import com.example.demo.dto.CouponPage;
 import com.example.demo.dto.CouponRequestDTO;
 import com.example.demo.dto.CouponResponseDTO;
+import com.example.demo.dto.ReservationResponse;
+import com.example.demo.engine.CartContext;
+import com.example.demo.engine.CartFingerprint;
+import com.example.demo.exception.InvalidCouponRequestException;
+import com.example.demo.model.CouponType;
+import com.example.demo.service.CatalogSnapshot;
+import com.example.demo.service.CouponImportService;
+import com.example.demo.service.CouponReservationService;
 import com.example.demo.service.CouponService;
+import com.example.demo.service.IdempotencyCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 @RestController
 @RequestMapping("/api/v1/coupons")
 @RequiredArgsConstructor
 public class CouponController {
 
+    private static final String SORT_BY_DISCOUNT = "discount";
+    // Version of the catalog snapshot a read was computed against
+    static final String CATALOG_VERSION_HEADER = "X-Catalog-Version";
+    // Client-chosen key under which an apply-coupon response is replayed to retries
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private static final String NDJSON = "application/x-ndjson";
+    // Coupons written to a stream between explicit flushes; the generator's own buffer flushes
+    // in between whenever it fills
+    private static final int STREAM_FLUSH_INTERVAL = 1000;
+
     private final CouponService couponService;
+    private final CouponImportService couponImportService;
+    private final CouponReservationService couponReservationService;
+    private final IdempotencyCache idempotencyCache;
+    private final ObjectMapper objectMapper;
 
     @PostMapping
     public ResponseEntity<CouponResponseDTO> createCoupon(@Valid @RequestBody CouponRequestDTO request) {
         return new ResponseEntity<>(couponService.createCoupon(request), HttpStatus.CREATED);
     }
 
+    /**
+     * Bulk import of newline-delimited {@link CouponRequestDTO} JSON, streamed from the request
+     * body. Lines that fail to parse or validate are reported and skipped.
+     */
+    @PostMapping(value = "/import", consumes = NDJSON)
+    public ResponseEntity<CouponImportResult> importCoupons(InputStream body) throws IOException {
+        return ResponseEntity.ok(couponImportService.importNdjson(body));
+    }
+
     @GetMapping
     public ResponseEntity<List<CouponResponseDTO>> getAllCoupons() {
-        return ResponseEntity.ok(couponService.getAllCoupons());
+        CatalogSnapshot snapshot = couponService.snapshot();
+        return versioned(snapshot, couponService.getAllCoupons(snapshot));
+    }
+
+    /**
+     * One page of coupons in ascending id order. Pass the returned {@code nextCursor} as
+     * {@code cursor} to fetch the following page.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<CouponPage> getCouponPage(@RequestParam(required = false) Long cursor,
+            @RequestParam(required = false) CouponType type,
+            @RequestParam(defaultValue = "100") int limit) {
+        CatalogSnapshot snapshot = couponService.snapshot();
+        return versioned(snapshot, couponService.getCouponPage(snapshot, cursor, type, limit));
+    }
+
+    /**
+     * Every coupon as newline-delimited JSON in ascending id order, written while the catalog
+     * snapshot is iterated rather than collected first. The output is flushed every
+     * {@value #STREAM_FLUSH_INTERVAL} coupons rather than after each one.
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamCoupons(@RequestParam(required = false) CouponType type) {
+        CatalogSnapshot snapshot = couponService.snapshot();
+        Iterator<CouponResponseDTO> coupons = couponService.streamCoupons(snapshot, type);
+        // Untyped, so that each coupon is written with the serializer of its runtime type
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = output -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                for (int written = 1; coupons.hasNext(); written++) {
+                    writer.writeValue(generator, coupons.next());
+                    generator.writeRaw('\n');
+                    if (written % STREAM_FLUSH_INTERVAL == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .header(CATALOG_VERSION_HEADER, Long.toString(snapshot.getVersion()))
+                .contentType(MediaType.parseMediaType(NDJSON))
+                .body(body);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<CouponResponseDTO> getCouponById(@PathVariable Long id) {
-        return ResponseEntity.ok(couponService.getCouponById(id));
+        CatalogSnapshot snapshot = couponService.snapshot();
+        return versioned(snapshot, couponService.getCouponById(snapshot, id));
+    }
+
+    @GetMapping("/by-code/{code}")
+    public ResponseEntity<CouponResponseDTO> getCouponByCode(@PathVariable String code) {
+        CatalogSnapshot snapshot = couponService.snapshot();
+        return versioned(snapshot, couponService.getCouponByCode(snapshot, code));
     }
 
     @PutMapping("/{id}")
@@ -55,12 +155,115 @@ public class CouponController {
     }
 
     @PostMapping("/applicable-coupons")
-    public ResponseEntity<List<ApplicableCouponResponse>> getApplicableCoupons(@Valid @RequestBody Cart cart) {
-        return ResponseEntity.ok(couponService.getApplicableCoupons(cart));
+    public ResponseEntity<List<ApplicableCouponResponse>> getApplicableCoupons(@Valid @RequestBody Cart cart,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String sort) {
+        if (sort != null && !SORT_BY_DISCOUNT.equals(sort)) {
+            throw new InvalidCouponRequestException("Unsupported sort '" + sort + "', only '" + SORT_BY_DISCOUNT + "' is supported");
+        }
+        CatalogSnapshot snapshot = couponService.snapshot();
+        if (limit == null && sort == null) {
+            return versioned(snapshot, couponService.getApplicableCoupons(snapshot, cart));
+        }
+        // A limit only makes sense against an order, so it implies sort=discount
+        return versioned(snapshot, couponService.getBestCoupons(snapshot, cart, limit != null ? limit : Integer.MAX_VALUE));
+    }
+
+    @PostMapping("/applicable-coupons/batch")
+    public ResponseEntity<List<CartEvaluationResult>> getApplicableCouponsBatch(@RequestBody @NotEmpty List<@Valid Cart> carts) {
+        CatalogSnapshot snapshot = couponService.snapshot();
+        return versioned(snapshot, couponService.getApplicableCoupons(snapshot, carts));
     }
 
+    /**
+     * Applies the coupon to the cart. A request carrying an {@code Idempotency-Key} header is
+     * executed once: retries with the same key, coupon, cart and customer get the first response
+     * back without the coupon being applied or redeemed again.
+     */
     @PostMapping("/apply-coupon/{id}")
-    public ResponseEntity<Cart> applyCoupon(@PathVariable Long id, @Valid @RequestBody Cart cart) {
-        return ResponseEntity.ok(couponService.applyCoupon(id, cart));
+    public ResponseEntity<Cart> applyCoupon(@PathVariable Long id, @Valid @RequestBody Cart cart,
+            @RequestParam(required = false) String customerId,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(idempotencyKey, "id:" + id, cart, customerId, () -> {
+            CatalogSnapshot snapshot = couponService.snapshot();
+            return versioned(snapshot, couponService.applyCoupon(snapshot, id, cart, customerId));
+        });
+    }
+
+    @PostMapping("/apply-coupon/by-code/{code}")
+    public ResponseEntity<Cart> applyCouponByCode(@PathVariable String code, @Valid @RequestBody Cart cart,
+            @RequestParam(required = false) String customerId,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(idempotencyKey, "code:" + CatalogSnapshot.normalizeCode(code), cart, customerId, () -> {
+            CatalogSnapshot snapshot = couponService.snapshot();
+            return versioned(snapshot, couponService.applyCouponByCode(snapshot, code, cart, customerId));
+        });
+    }
+
+    /**
+     * Applies the coupon to the cart and holds one of its redemptions until the returned
+     * reservation is committed after payment, released, or expires. Takes the same body,
+     * {@code customerId} and {@code Idempotency-Key} as applying the coupon.
+     */
+    @PostMapping("/reserve-coupon/{id}")
+    public ResponseEntity<ReservationResponse> reserveCoupon(@PathVariable Long id, @Valid @RequestBody Cart cart,
+            @RequestParam(required = false) String customerId,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(idempotencyKey, "reserve:id:" + id, cart, customerId, () -> {
+            CatalogSnapshot snapshot = couponService.snapshot();
+            return created(snapshot, couponReservationService.reserveCoupon(snapshot, id, cart, customerId));
+        });
+    }
+
+    @PostMapping("/reserve-coupon/by-code/{code}")
+    public ResponseEntity<ReservationResponse> reserveCouponByCode(@PathVariable String code, @Valid @RequestBody Cart cart,
+            @RequestParam(required = false) String customerId,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return idempotent(idempotencyKey, "reserve:code:" + CatalogSnapshot.normalizeCode(code), cart, customerId, () -> {
+            CatalogSnapshot snapshot = couponService.snapshot();
+            return created(snapshot, couponReservationService.reserveCouponByCode(snapshot, code, cart, customerId));
+        });
+    }
+
+    @PostMapping("/reservations/{reservationId}/commit")
+    public ResponseEntity<ReservationResponse> commitReservation(@PathVariable String reservationId) {
+        return ResponseEntity.ok(couponReservationService.commitReservation(reservationId));
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+        couponReservationService.releaseReservation(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // The coupon is named the way the catalog matches it, so that a retry spelling a code
+    // differently still replays rather than conflicting with the key's first use
+    private <T> T idempotent(String key, String coupon, Cart cart, String customerId, Supplier<T> apply) {
+        if (key == null) {
+            return apply.get();
+        }
+        if (key.isBlank() || key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new InvalidCouponRequestException(IDEMPOTENCY_KEY_HEADER + " must be 1 to "
+                    + MAX_IDEMPOTENCY_KEY_LENGTH + " characters long");
+        }
+        ApplyRequest request = new ApplyRequest(coupon, CartFingerprint.of(CartContext.of(cart)), customerId);
+        return idempotencyCache.execute(key, request, apply);
+    }
+
+    private static <T> ResponseEntity<T> versioned(CatalogSnapshot snapshot, T body) {
+        return ResponseEntity.ok()
+                .header(CATALOG_VERSION_HEADER, Long.toString(snapshot.getVersion()))
+                .body(body);
+    }
+
+    private static <T> ResponseEntity<T> created(CatalogSnapshot snapshot, T body) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(CATALOG_VERSION_HEADER, Long.toString(snapshot.getVersion()))
+                .body(body);
+    }
+
+    // What an idempotency key is bound to: the cart is compared by its merged lines, since
+    // applying a coupon fills in the request's totals
+    private record ApplyRequest(String coupon, CartFingerprint cart, String customerId) {
     }
 }
@@ -0,0 +1,207 @@
+package com.example.demo.controller;
+
+import static com.example.demo.controller.CouponController.CATALOG_VERSION_HEADER;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartEvaluationResult;
+import com.example.demo.exception.CouponExpiredException;
+import com.example.demo.exception.CouponNotApplicableException;
+import com.example.demo.exception.CouponNotFoundException;
+import com.example.demo.exception.GlobalExceptionHandler;
+import com.example.demo.exception.InvalidCouponRequestException;
+import com.example.demo.exception.RedemptionLimitReachedException;
+import com.example.demo.service.CatalogSnapshot;
+import com.example.demo.service.CouponService;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Non-blocking variant of the evaluation endpoints of {@link CouponController}, served by
+ * WebFlux on its own port and backed by the same {@link CouponService}. Request bodies are
+ * decoded and responses encoded by the reactive Jackson codecs, and evaluations run on the
+ * given scheduler rather than on the event loop that read the request.
+ *
+ * <p>The batch endpoint streams: carts are decoded one at a time from a JSON array or
+ * newline-delimited JSON, a bounded number are evaluated at once, and each result is written as
+ * soon as the ones before it have been. A slow reader therefore slows down how fast carts are
+ * read rather than letting results pile up, and a batch has no size limit.
+ *
+ * <p>Applying a coupon does not wait for its redemption to be saved on an evaluation thread:
+ * the response is written once the save completes. Idempotency keys are not supported here and
+ * are rejected rather than ignored.
+ */
+public class ReactiveCouponHandler {
+
+    private static final String SORT_BY_DISCOUNT = "discount";
+
+    private final CouponService couponService;
+    private final Validator validator;
+    private final GlobalExceptionHandler exceptionHandler;
+    private final Scheduler evaluation;
+    private final int batchConcurrency;
+
+    public ReactiveCouponHandler(CouponService couponService, Validator validator, GlobalExceptionHandler exceptionHandler,
+            Scheduler evaluation, int batchConcurrency) {
+        this.couponService = couponService;
+        this.validator = validator;
+        this.exceptionHandler = exceptionHandler;
+        this.evaluation = evaluation;
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .path("/api/v1/coupons", coupons -> coupons
+                        .POST("/applicable-coupons/batch", deferred(this::getApplicableCouponsBatch))
+                        .POST("/applicable-coupons", deferred(this::getApplicableCoupons))
+                        .POST("/apply-coupon/by-code/{code}", deferred(this::applyCouponByCode))
+                        .POST("/apply-coupon/{id}", deferred(this::applyCoupon)))
+                .onError(Exception.class, (e, request) -> error(e))
+                .build();
+    }
+
+    // Turns exceptions thrown while a handler reads the request into errors of its response,
+    // so that they reach the error handler too
+    private static HandlerFunction<ServerResponse> deferred(HandlerFunction<ServerResponse> handler) {
+        return request -> Mono.defer(() -> handler.handle(request));
+    }
+
+    Mono<ServerResponse> getApplicableCoupons(ServerRequest request) {
+        Integer limit = request.queryParam("limit").map(Integer::valueOf).orElse(null);
+        String sort = request.queryParam("sort").orElse(null);
+        if (sort != null && !SORT_BY_DISCOUNT.equals(sort)) {
+            throw new InvalidCouponRequestException("Unsupported sort '" + sort + "', only '" + SORT_BY_DISCOUNT + "' is supported");
+        }
+        CatalogSnapshot snapshot = couponService.snapshot();
+        return cart(request)
+                .publishOn(evaluation)
+                // A limit only makes sense against an order, so it implies sort=discount
+                .map(cart -> limit == null && sort == null
+                        ? couponService.getApplicableCoupons(snapshot, cart)
+                        : couponService.getBestCoupons(snapshot, cart, limit != null ? limit : Integer.MAX_VALUE))
+                .flatMap(result -> versioned(snapshot).bodyValue(result));
+    }
+
+    /**
+     * Evaluates a stream of carts against one catalog snapshot, answering newline-delimited JSON
+     * if the client accepts it and a JSON array otherwise. Results are in request order.
+     */
+    Mono<ServerResponse> getApplicableCouponsBatch(ServerRequest request) {
+        CatalogSnapshot snapshot = couponService.snapshot();
+        Flux<CartEvaluationResult> results = request.bodyToFlux(Cart.class)
+                .index()
+                .flatMapSequential(indexed -> Mono.fromCallable(() -> CartEvaluationResult.builder()
+                                .cartIndex(Math.toIntExact(indexed.getT1()))
+                                .applicableCoupons(couponService.getApplicableCoupons(snapshot, validated(indexed.getT2())))
+                                .build())
+                        .subscribeOn(evaluation), batchConcurrency, 1);
+        MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+        return versioned(snapshot).contentType(contentType).body(results, CartEvaluationResult.class);
+    }
+
+    Mono<ServerResponse> applyCoupon(ServerRequest request) {
+        rejectIdempotencyKey(request);
+        Long id = Long.valueOf(request.pathVariable("id"));
+        String customerId = request.queryParam("customerId").orElse(null);
+        CatalogSnapshot snapshot = couponService.snapshot();
+        return cart(request)
+                .publishOn(evaluation)
+                .flatMap(cart -> Mono.fromFuture(couponService.applyCouponAsync(snapshot, id, cart, customerId)))
+                // The redemption completes on the repository's writer, which must not encode responses
+                .publishOn(evaluation)
+                .flatMap(cart -> versioned(snapshot).bodyValue(cart));
+    }
+
+    Mono<ServerResponse> applyCouponByCode(ServerRequest request) {
+        rejectIdempotencyKey(request);
+        String code = request.pathVariable("code");
+        String customerId = request.queryParam("customerId").orElse(null);
+        CatalogSnapshot snapshot = couponService.snapshot();
+        return cart(request)
+                .publishOn(evaluation)
+                .flatMap(cart -> Mono.fromFuture(couponService.applyCouponByCodeAsync(snapshot, code, cart, customerId)))
+                // The redemption completes on the repository's writer, which must not encode responses
+                .publishOn(evaluation)
+                .flatMap(cart -> versioned(snapshot).bodyValue(cart));
+    }
+
+    // Replays are only kept by the servlet endpoints, so a retry here would redeem the coupon again
+    private static void rejectIdempotencyKey(ServerRequest request) {
+        if (request.headers().firstHeader(CouponController.IDEMPOTENCY_KEY_HEADER) != null) {
+            throw new InvalidCouponRequestException("The " + CouponController.IDEMPOTENCY_KEY_HEADER
+                    + " header is not supported by the reactive API, apply the coupon through the servlet API instead");
+        }
+    }
+
+    private Mono<Cart> cart(ServerRequest request) {
+        return request.bodyToMono(Cart.class)
+                .switchIfEmpty(Mono.error(() -> new InvalidCouponRequestException("A cart is required")))
+                .map(this::validated);
+    }
+
+    private Cart validated(Cart cart) {
+        Set<ConstraintViolation<Cart>> violations = validator.validate(cart);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return cart;
+    }
+
+    private static ServerResponse.BodyBuilder versioned(CatalogSnapshot snapshot) {
+        return ServerResponse.ok().header(CATALOG_VERSION_HEADER, Long.toString(snapshot.getVersion()));
+    }
+
+    /**
+     * Answers with the same status and body as the servlet endpoints would for the exception.
+     */
+    private Mono<ServerResponse> error(Exception e) {
+        ResponseEntity<Object> response;
+        if (e instanceof CouponNotFoundException notFound) {
+            response = exceptionHandler.handleCouponNotFoundException(notFound);
+        } else if (e instanceof RedemptionLimitReachedException limitReached) {
+            response = exceptionHandler.handleRedemptionLimitReachedException(limitReached);
+        } else if (e instanceof CouponExpiredException || e instanceof CouponNotApplicableException
+                || e instanceof InvalidCouponRequestException || e instanceof IllegalArgumentException) {
+            response = exceptionHandler.handleBadRequestExceptions((RuntimeException) e);
+        } else if (e instanceof ConstraintViolationException invalid) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("timestamp", LocalDateTime.now());
+            body.put("message", "Validation Error");
+            body.put("errors", invalid.getConstraintViolations().stream().map(ConstraintViolation::getMessage).toList());
+            response = new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);
+        } else if (e instanceof ResponseStatusException status) {
+            // Unreadable bodies and unsupported media types, raised by WebFlux itself
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("timestamp", LocalDateTime.now());
+            body.put("message", status.getReason());
+            response = new ResponseEntity<>(body, status.getStatusCode());
+        } else {
+            response = exceptionHandler.handleAllUncaughtException(e);
+        }
+        return ServerResponse.status(response.getStatusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(response.getBody());
+    }
+}
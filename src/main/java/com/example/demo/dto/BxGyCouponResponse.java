@@ -15,6 +15,8 @@ public class BxGyCouponResponse implements CouponResponseDTO {
     private String code;
     private String description;
     private LocalDate expirationDate;
+    private Long maxRedemptions;
+    private Integer maxRedemptionsPerCustomer;
     private List<BxGyProductDetail> buyProducts;
     private List<BxGyProductDetail> getProducts;
     private Integer repetitionLimit;
@@ -0,0 +1,13 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CartEvaluationResult {
+    private int cartIndex;
+    private List<ApplicableCouponResponse> applicableCoupons;
+}
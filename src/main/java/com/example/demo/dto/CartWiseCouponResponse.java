@@ -14,6 +14,8 @@ public class CartWiseCouponResponse implements CouponResponseDTO {
     private String code;
     private String description;
     private LocalDate expirationDate;
+    private Long maxRedemptions;
+    private Integer maxRedemptionsPerCustomer;
     private BigDecimal threshold;
     private BigDecimal discountPercentage;
     private BigDecimal maxDiscountAmount;
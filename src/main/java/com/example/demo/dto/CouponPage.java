@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class CouponPage {
+    private List<CouponResponseDTO> items;
+    /**
+     * Cursor for the next page, or null when this page is the last one.
+     */
+    private Long nextCursor;
+}
@@ -5,6 +5,7 @@ import java.time.LocalDate;
 import com.fasterxml.jackson.annotation.JsonSubTypes;
 import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import jakarta.validation.constraints.FutureOrPresent;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -25,4 +26,8 @@ public abstract class CouponRequestDTO {
     private String description;
     @FutureOrPresent
     private LocalDate expirationDate;
+    @Min(value = 1)
+    private Long maxRedemptions;
+    @Min(value = 1)
+    private Integer maxRedemptionsPerCustomer;
 }
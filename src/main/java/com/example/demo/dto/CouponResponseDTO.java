@@ -9,4 +9,6 @@ public interface CouponResponseDTO {
     String getCode();
     String getDescription();
     LocalDate getExpirationDate();
+    Long getMaxRedemptions();
+    Integer getMaxRedemptionsPerCustomer();
 }
@@ -14,6 +14,8 @@ public class ProductWiseCouponResponse implements CouponResponseDTO {
     private String code;
     private String description;
     private LocalDate expirationDate;
+    private Long maxRedemptions;
+    private Integer maxRedemptionsPerCustomer;
     private Long productId;
     private BigDecimal discountPercentage;
     private BigDecimal fixedDiscountAmount;
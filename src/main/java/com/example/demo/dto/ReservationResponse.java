@@ -0,0 +1,16 @@
+package com.example.demo.dto;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class ReservationResponse {
+    private String reservationId;
+    private Long couponId;
+    private String customerId;
+    private Cart cart;
+    private Instant expiresAt;
+}
@@ -0,0 +1,39 @@
+package com.example.demo.engine;
+
+import java.util.List;
+
+import com.example.demo.dto.CartItem;
+
+/**
+ * Result of allocating a BxGy coupon to a cart: how many times the offer repeats and which
+ * cart lines receive how many free units.
+ */
+public record BxGyAllocation(int repetitions, long freeUnits, List<LineAllocation> lines) {
+
+    public static final BxGyAllocation NONE = new BxGyAllocation(0, 0, List.of());
+
+    public boolean isEmpty() {
+        return freeUnits == 0;
+    }
+
+    public long discount() {
+        long discount = 0;
+        for (LineAllocation line : lines) {
+            discount += line.discount();
+        }
+        return discount;
+    }
+
+    public record LineAllocation(CartContext.Line line, int freeUnits) {
+        public CartItem item() {
+            return line.item();
+        }
+
+        /**
+         * Value of the free units in minor units.
+         */
+        public long discount() {
+            return Money.times(line.unitPrice(), freeUnits);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.demo.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.example.demo.exception.InvalidCouponRequestException;
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.BxGyProductDetail;
+
+/**
+ * Allocates the free units of a BxGy coupon to a cart.
+ *
+ * <p>Each repetition consumes the buy quantities and grants as many free units as the get
+ * quantities add up to; the free units are taken from the cheapest get-product lines first.
+ * A product that appears in both sets has its buy units reserved before any of its units can
+ * be made free, so the same unit is never counted twice. The number of repetitions is solved
+ * in closed form, so the work depends on the number of distinct products in the coupon and
+ * cart, not on the repetition count.
+ */
+public final class BxGyAllocator {
+
+    private static final Comparator<Candidate> CHEAPEST_FIRST = Comparator.comparingLong(candidate -> candidate.line().unitPrice());
+
+    private final long[] buyProductIds;
+    private final int[] buyQuantities;
+    private final long[] getProductIds;
+    private final int[] getBuyOverlap;
+    private final long freeUnitsPerRepetition;
+    private final long overlapPerRepetition;
+    private final int repetitionLimit;
+
+    private BxGyAllocator(Map<Long, Integer> buy, Map<Long, Integer> get, int repetitionLimit) {
+        this.buyProductIds = buy.keySet().stream().mapToLong(Long::longValue).toArray();
+        this.buyQuantities = buy.values().stream().mapToInt(Integer::intValue).toArray();
+        this.getProductIds = get.keySet().stream().mapToLong(Long::longValue).toArray();
+        this.getBuyOverlap = get.keySet().stream().mapToInt(productId -> buy.getOrDefault(productId, 0)).toArray();
+        this.freeUnitsPerRepetition = get.values().stream().mapToLong(Integer::longValue).sum();
+        this.overlapPerRepetition = get.keySet().stream().mapToLong(productId -> buy.getOrDefault(productId, 0)).sum();
+        this.repetitionLimit = repetitionLimit;
+    }
+
+    public static BxGyAllocator of(BxGyCoupon coupon) {
+        return new BxGyAllocator(
+                aggregate(coupon.getBuyProducts()),
+                aggregate(coupon.getGetProducts()),
+                coupon.getRepetitionLimit() != null ? coupon.getRepetitionLimit() : 0);
+    }
+
+    public BxGyAllocation allocate(CartContext context) {
+        int repetitions = repetitions(context);
+        if (repetitions == 0) {
+            return BxGyAllocation.NONE;
+        }
+
+        // Units of each get product that are left once the buy side of every repetition is reserved
+        long[] capacity = new long[getProductIds.length];
+        long available = 0;
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < getProductIds.length; i++) {
+            CartContext.ProductLine line = context.line(getProductIds[i]);
+            if (line == null) {
+                continue;
+            }
+            capacity[i] = line.getQuantity() - saturatedMultiply(repetitions, getBuyOverlap[i]);
+            available += Math.max(capacity[i], 0);
+            for (CartContext.Line cartLine : line.getLines()) {
+                candidates.add(new Candidate(cartLine, i));
+            }
+        }
+        candidates.sort(CHEAPEST_FIRST);
+
+        // Never more than the cart can give, however large the coupon's get quantities are
+        long remaining = Math.min(available, saturatedMultiply(repetitions, freeUnitsPerRepetition));
+        long freeUnits = 0;
+        List<BxGyAllocation.LineAllocation> lines = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (remaining == 0) {
+                break;
+            }
+            int free = (int) Math.min(remaining, Math.min(candidate.line().quantity(), capacity[candidate.product()]));
+            if (free > 0) {
+                lines.add(new BxGyAllocation.LineAllocation(candidate.line(), free));
+                capacity[candidate.product()] -= free;
+                remaining -= free;
+                freeUnits += free;
+            }
+        }
+        return freeUnits == 0 ? BxGyAllocation.NONE : new BxGyAllocation(repetitions, freeUnits, lines);
+    }
+
+    /**
+     * Bounds the discount without allocating: every repetition the buy side allows frees its
+     * full get quantity at the most expensive get-product price in the cart, and no more than
+     * the get lines are worth in total.
+     */
+    public long discountUpperBound(CartContext context) {
+        int maxRepetitions = maxRepetitions(context);
+        if (maxRepetitions == 0) {
+            return 0;
+        }
+        long maxUnitPrice = 0;
+        long getLinesTotal = 0;
+        for (long productId : getProductIds) {
+            CartContext.ProductLine line = context.line(productId);
+            if (line == null) {
+                continue;
+            }
+            getLinesTotal += line.getLineTotal();
+            for (CartContext.Line cartLine : line.getLines()) {
+                maxUnitPrice = Math.max(maxUnitPrice, cartLine.unitPrice());
+            }
+        }
+        long freeUnits = saturatedMultiply(maxRepetitions, freeUnitsPerRepetition);
+        if (maxUnitPrice > 0 && freeUnits > getLinesTotal / maxUnitPrice) {
+            return getLinesTotal;
+        }
+        return Math.min(getLinesTotal, freeUnits * maxUnitPrice);
+    }
+
+    /**
+     * Picks the repetition count that frees the most units. With {@code r} repetitions the free
+     * units are {@code min(r * G, C - r * O)}, where {@code G} is the free units per repetition,
+     * {@code C} the cart quantity of the get products and {@code O} the buy units per repetition
+     * that come out of those same products. The first term grows and the second shrinks with
+     * {@code r}, so the best count sits next to {@code C / (G + O)}.
+     */
+    private int repetitions(CartContext context) {
+        int maxRepetitions = maxRepetitions(context);
+        if (maxRepetitions == 0) {
+            return 0;
+        }
+
+        long getQuantity = 0;
+        for (long productId : getProductIds) {
+            getQuantity += context.quantityOf(productId);
+        }
+        int balanced = (int) Math.min(maxRepetitions, getQuantity / (freeUnitsPerRepetition + overlapPerRepetition));
+        int best = 0;
+        long bestFreeUnits = 0;
+        for (int candidate = balanced; candidate <= Math.min(maxRepetitions, balanced + 1); candidate++) {
+            long freeUnits = Math.min(saturatedMultiply(candidate, freeUnitsPerRepetition),
+                    getQuantity - saturatedMultiply(candidate, overlapPerRepetition));
+            if (freeUnits > bestFreeUnits) {
+                best = candidate;
+                bestFreeUnits = freeUnits;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The most repetitions the buy side of the cart and the repetition limit allow.
+     */
+    private int maxRepetitions(CartContext context) {
+        if (freeUnitsPerRepetition == 0) {
+            return 0;
+        }
+        int maxRepetitions = repetitionLimit;
+        for (int i = 0; i < buyProductIds.length && maxRepetitions > 0; i++) {
+            maxRepetitions = Math.min(maxRepetitions, context.quantityOf(buyProductIds[i]) / buyQuantities[i]);
+        }
+        return Math.max(maxRepetitions, 0);
+    }
+
+    /**
+     * Product of two non-negative factors, or {@link Long#MAX_VALUE} if it does not fit.
+     */
+    private static long saturatedMultiply(long a, long b) {
+        return Math.multiplyHigh(a, b) == 0 && a * b >= 0 ? a * b : Long.MAX_VALUE;
+    }
+
+    private static Map<Long, Integer> aggregate(List<BxGyProductDetail> details) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        if (details != null) {
+            for (BxGyProductDetail detail : details) {
+                if (detail.getProductId() == null) {
+                    throw new InvalidCouponRequestException("BxGy product details require a productId");
+                }
+                if (detail.getQuantity() != null && detail.getQuantity() > 0) {
+                    quantities.merge(detail.getProductId(), detail.getQuantity(), (a, b) -> (int) Math.min(Integer.MAX_VALUE, (long) a + b));
+                }
+            }
+        }
+        return quantities;
+    }
+
+    private record Candidate(CartContext.Line line, int product) {
+    }
+}
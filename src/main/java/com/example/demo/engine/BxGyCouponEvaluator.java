@@ -0,0 +1,90 @@
+package com.example.demo.engine;
+
+import java.time.LocalDate;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.CouponType;
+
+public final class BxGyCouponEvaluator implements CouponEvaluator {
+
+    private final long couponId;
+    private final LocalDate expirationDate;
+    private final BxGyAllocator allocator;
+
+    BxGyCouponEvaluator(BxGyCoupon coupon) {
+        this.couponId = coupon.getId();
+        this.expirationDate = coupon.getExpirationDate();
+        this.allocator = BxGyAllocator.of(coupon);
+    }
+
+    @Override
+    public long getCouponId() {
+        return couponId;
+    }
+
+    @Override
+    public CouponType getType() {
+        return CouponType.BXGY;
+    }
+
+    @Override
+    public LocalDate getExpirationDate() {
+        return expirationDate;
+    }
+
+    @Override
+    public boolean isApplicable(CartContext context) {
+        return !allocator.allocate(context).isEmpty();
+    }
+
+    @Override
+    public Money calculateDiscount(CartContext context) {
+        return Money.ofMinor(allocator.allocate(context).discount());
+    }
+
+    @Override
+    public long discountUpperBound(CartContext context) {
+        return allocator.discountUpperBound(context);
+    }
+
+    @Override
+    public Cart applyDiscount(CartContext context) {
+        BxGyAllocation allocation = allocator.allocate(context);
+        return allocation.isEmpty() ? context.getCart() : apply(context, allocation);
+    }
+
+    // Allocates once and uses the allocation for both the applicability check and the discount
+    @Override
+    public Money evaluate(CartContext context) {
+        BxGyAllocation allocation = allocator.allocate(context);
+        return allocation.isEmpty() ? null : Money.ofMinor(allocation.discount());
+    }
+
+    @Override
+    public Cart tryApply(CartContext context) {
+        BxGyAllocation allocation = allocator.allocate(context);
+        return allocation.isEmpty() ? null : apply(context, allocation);
+    }
+
+    private static Cart apply(CartContext context, BxGyAllocation allocation) {
+        Cart cart = context.getCart();
+        long totalDiscount = 0;
+        for (BxGyAllocation.LineAllocation allocated : allocation.lines()) {
+            CartItem item = allocated.item();
+            long itemDiscount = Money.toMinor(item.getTotalDiscount()) + allocated.discount();
+            item.setTotalDiscount(Money.ofMinor(itemDiscount).toBigDecimal());
+            item.setFinalPrice(Money.ofMinor(allocated.line().lineTotal() - itemDiscount).toBigDecimal());
+            totalDiscount += allocated.discount();
+        }
+        for (CartContext.Line line : context.getLines()) {
+            if (line.item().getFinalPrice() == null) {
+                line.item().setFinalPrice(Money.ofMinor(line.lineTotal()).toBigDecimal());
+            }
+        }
+        cart.setTotalDiscount(Money.ofMinor(totalDiscount).toBigDecimal());
+        cart.setFinalPrice(Money.ofMinor(context.getTotalOriginalPrice().minorUnits() - totalDiscount).toBigDecimal());
+        return cart;
+    }
+}
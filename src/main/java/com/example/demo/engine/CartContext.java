@@ -0,0 +1,139 @@
+package com.example.demo.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.exception.InvalidCouponRequestException;
+
+/**
+ * Per-request view of a cart, built in a single pass over its items. Lines that repeat a
+ * product are merged into one {@link ProductLine} so that every coupon evaluated against the
+ * cart can look up a product's quantity and line total in constant time. Prices are converted
+ * to {@link Money} here, once per request.
+ */
+public final class CartContext {
+
+    private final Cart cart;
+    private final List<Line> lines;
+    private final Map<Long, ProductLine> productLines;
+    private final Money totalOriginalPrice;
+
+    private CartContext(Cart cart, List<Line> lines, Map<Long, ProductLine> productLines, Money totalOriginalPrice) {
+        this.cart = cart;
+        this.lines = lines;
+        this.productLines = productLines;
+        this.totalOriginalPrice = totalOriginalPrice;
+    }
+
+    /**
+     * Builds the context of the cart, throwing {@link InvalidCouponRequestException} if a price,
+     * line total or the cart total does not fit in a {@code long} of minor units, or a merged
+     * quantity in an {@code int}.
+     */
+    public static CartContext of(Cart cart) {
+        List<Line> lines = new ArrayList<>(cart.getItems().size());
+        Map<Long, ProductLine> productLines = new HashMap<>();
+        long totalOriginalPrice = 0;
+        try {
+            for (CartItem item : cart.getItems()) {
+                Line line = new Line(item, Money.toMinor(item.getPrice()), item.getQuantity());
+                lines.add(line);
+                productLines.computeIfAbsent(item.getProductId(), ProductLine::new).add(line);
+                totalOriginalPrice = Math.addExact(totalOriginalPrice, line.lineTotal());
+            }
+        } catch (ArithmeticException e) {
+            throw new InvalidCouponRequestException("Cart amounts are too large to evaluate");
+        }
+        return new CartContext(cart, lines, productLines, Money.ofMinor(totalOriginalPrice));
+    }
+
+    public Cart getCart() {
+        return cart;
+    }
+
+    public Money getTotalOriginalPrice() {
+        return totalOriginalPrice;
+    }
+
+    /**
+     * Every cart line, in cart order.
+     */
+    public List<Line> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public Set<Long> productIds() {
+        return Collections.unmodifiableSet(productLines.keySet());
+    }
+
+    /**
+     * Returns the merged line for the product, or {@code null} when the product is not in the cart.
+     */
+    public ProductLine line(long productId) {
+        return productLines.get(productId);
+    }
+
+    public int quantityOf(long productId) {
+        ProductLine line = productLines.get(productId);
+        return line == null ? 0 : line.getQuantity();
+    }
+
+    public long lineTotalOf(long productId) {
+        ProductLine line = productLines.get(productId);
+        return line == null ? 0 : line.getLineTotal();
+    }
+
+    /**
+     * One cart item with its unit price and line total in minor units.
+     */
+    public record Line(CartItem item, long unitPrice, int quantity, long lineTotal) {
+        Line(CartItem item, long unitPrice, int quantity) {
+            this(item, unitPrice, quantity, Money.times(unitPrice, quantity));
+        }
+    }
+
+    public static final class ProductLine {
+        private final long productId;
+        private final List<Line> lines = new ArrayList<>(1);
+        private int quantity;
+        private long lineTotal;
+
+        private ProductLine(long productId) {
+            this.productId = productId;
+        }
+
+        private void add(Line line) {
+            lines.add(line);
+            quantity = Math.addExact(quantity, line.quantity());
+            lineTotal = Math.addExact(lineTotal, line.lineTotal());
+        }
+
+        public long getProductId() {
+            return productId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        /**
+         * Merged line total in minor units.
+         */
+        public long getLineTotal() {
+            return lineTotal;
+        }
+
+        /**
+         * The cart lines that were merged into this product, in cart order.
+         */
+        public List<Line> getLines() {
+            return Collections.unmodifiableList(lines);
+        }
+    }
+}
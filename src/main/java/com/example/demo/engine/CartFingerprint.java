@@ -0,0 +1,53 @@
+package com.example.demo.engine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Canonical identity of a cart's contents: its lines as (productId, quantity, unit price in
+ * minor units) tuples, sorted so that two carts holding the same lines in any order have equal
+ * fingerprints. Coupon results depend on nothing else in the cart, so carts with equal
+ * fingerprints get the same applicable coupons from the same catalog version.
+ */
+public final class CartFingerprint {
+
+    private static final Comparator<CartContext.Line> CANONICAL_ORDER = Comparator
+            .comparingLong((CartContext.Line line) -> line.item().getProductId())
+            .thenComparingInt(CartContext.Line::quantity)
+            .thenComparingLong(CartContext.Line::unitPrice);
+
+    private final long[] tuples;
+    private final int hash;
+
+    private CartFingerprint(long[] tuples) {
+        this.tuples = tuples;
+        this.hash = Arrays.hashCode(tuples);
+    }
+
+    public static CartFingerprint of(CartContext context) {
+        List<CartContext.Line> lines = context.getLines().stream().sorted(CANONICAL_ORDER).toList();
+        long[] tuples = new long[lines.size() * 3];
+        int i = 0;
+        for (CartContext.Line line : lines) {
+            tuples[i++] = line.item().getProductId();
+            tuples[i++] = line.quantity();
+            tuples[i++] = line.unitPrice();
+        }
+        return new CartFingerprint(tuples);
+    }
+
+    public int lineCount() {
+        return tuples.length / 3;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof CartFingerprint fingerprint && Arrays.equals(tuples, fingerprint.tuples));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
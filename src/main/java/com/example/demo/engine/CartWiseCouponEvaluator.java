@@ -0,0 +1,70 @@
+package com.example.demo.engine;
+
+import java.time.LocalDate;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.CouponType;
+
+public final class CartWiseCouponEvaluator implements CouponEvaluator {
+
+    private final long couponId;
+    private final LocalDate expirationDate;
+    private final long threshold;
+    private final long rate;
+    private final long maxDiscountAmount;
+    private final boolean capped;
+
+    CartWiseCouponEvaluator(CartWiseCoupon coupon) {
+        this.couponId = coupon.getId();
+        this.expirationDate = coupon.getExpirationDate();
+        this.threshold = Money.toMinor(coupon.getThreshold());
+        this.rate = Money.toRate(coupon.getDiscountPercentage());
+        this.capped = coupon.getMaxDiscountAmount() != null;
+        this.maxDiscountAmount = Money.toMinor(coupon.getMaxDiscountAmount());
+    }
+
+    @Override
+    public long getCouponId() {
+        return couponId;
+    }
+
+    @Override
+    public CouponType getType() {
+        return CouponType.CART_WISE;
+    }
+
+    @Override
+    public LocalDate getExpirationDate() {
+        return expirationDate;
+    }
+
+    @Override
+    public boolean isApplicable(CartContext context) {
+        return context.getTotalOriginalPrice().minorUnits() >= threshold;
+    }
+
+    @Override
+    public Money calculateDiscount(CartContext context) {
+        return Money.ofMinor(discount(context));
+    }
+
+    @Override
+    public long discountUpperBound(CartContext context) {
+        return isApplicable(context) ? discount(context) : 0;
+    }
+
+    @Override
+    public Cart applyDiscount(CartContext context) {
+        long discount = discount(context);
+        Cart cart = context.getCart();
+        cart.setTotalDiscount(Money.ofMinor(discount).toBigDecimal());
+        cart.setFinalPrice(Money.ofMinor(context.getTotalOriginalPrice().minorUnits() - discount).toBigDecimal());
+        return cart;
+    }
+
+    private long discount(CartContext context) {
+        long discount = Money.applyRate(context.getTotalOriginalPrice().minorUnits(), rate);
+        return capped ? Math.min(discount, maxDiscountAmount) : discount;
+    }
+}
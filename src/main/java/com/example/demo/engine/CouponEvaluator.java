@@ -0,0 +1,47 @@
+package com.example.demo.engine;
+
+import java.time.LocalDate;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.model.CouponType;
+
+/**
+ * A coupon compiled into an immutable, type-specific form. Evaluators are built once when a
+ * coupon is created or updated and are then shared by every request that evaluates it.
+ */
+public interface CouponEvaluator {
+    long getCouponId();
+    CouponType getType();
+    LocalDate getExpirationDate();
+    boolean isApplicable(CartContext context);
+    Money calculateDiscount(CartContext context);
+
+    /**
+     * A cheap upper bound, in minor units, on {@link #calculateDiscount} for the cart. Used to
+     * skip exact evaluation of coupons that cannot make a top-K cut.
+     */
+    long discountUpperBound(CartContext context);
+
+    Cart applyDiscount(CartContext context);
+
+    /**
+     * Returns the discount for the cart, or {@code null} if the coupon does not apply to it.
+     * Evaluators whose applicability check does the work of computing the discount override
+     * this to do that work once.
+     */
+    default Money evaluate(CartContext context) {
+        return isApplicable(context) ? calculateDiscount(context) : null;
+    }
+
+    /**
+     * Applies the discount to the cart, or returns {@code null} without touching the cart if the
+     * coupon does not apply to it. Overridden for the same reason as {@link #evaluate}.
+     */
+    default Cart tryApply(CartContext context) {
+        return isApplicable(context) ? applyDiscount(context) : null;
+    }
+
+    default boolean isExpired(LocalDate today) {
+        return getExpirationDate() != null && getExpirationDate().isBefore(today);
+    }
+}
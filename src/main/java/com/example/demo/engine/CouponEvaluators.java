@@ -0,0 +1,24 @@
+package com.example.demo.engine;
+
+import com.example.demo.exception.InvalidCouponRequestException;
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.ProductWiseCoupon;
+
+public final class CouponEvaluators {
+
+    private CouponEvaluators() {
+    }
+
+    public static CouponEvaluator compile(Coupon coupon) {
+        if (coupon instanceof CartWiseCoupon cartWiseCoupon) {
+            return new CartWiseCouponEvaluator(cartWiseCoupon);
+        } else if (coupon instanceof ProductWiseCoupon productWiseCoupon) {
+            return new ProductWiseCouponEvaluator(productWiseCoupon);
+        } else if (coupon instanceof BxGyCoupon bxGyCoupon) {
+            return new BxGyCouponEvaluator(bxGyCoupon);
+        }
+        throw new InvalidCouponRequestException("Unknown coupon type for evaluation");
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money held as a {@code long} count of minor units (cents).
+ *
+ * <p>Rounding policy: amounts entering the engine are rounded half-up to {@value #SCALE}
+ * decimal places, and every percentage discount is rounded half-up to the minor unit once per
+ * cart line. Percentages are held as rates in millionths (four decimal places of a percent),
+ * so applying one is a single multiply and divide on {@code long}s.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+    public static final Money ZERO = new Money(0);
+
+    private static final long RATE_ONE = 1_000_000L;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    public static Money of(BigDecimal amount) {
+        return ofMinor(toMinor(amount));
+    }
+
+    public static long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(SCALE, ROUNDING).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Converts a percentage such as {@code 33.333} into a rate in millionths ({@code 333330}).
+     */
+    public static long toRate(BigDecimal percentage) {
+        if (percentage == null) {
+            return 0;
+        }
+        return percentage.movePointRight(4).setScale(0, ROUNDING).longValueExact();
+    }
+
+    public static long times(long minorUnits, long quantity) {
+        return Math.multiplyExact(minorUnits, quantity);
+    }
+
+    /**
+     * Applies a rate in millionths to an amount of minor units, rounding half-up.
+     */
+    public static long applyRate(long minorUnits, long rate) {
+        long high = Math.multiplyHigh(minorUnits, rate);
+        long product = minorUnits * rate;
+        if ((high == 0 && product >= 0) || (high == -1 && product < 0)) {
+            long half = product >= 0 ? RATE_ONE / 2 : -(RATE_ONE / 2);
+            return (product + half) / RATE_ONE;
+        }
+        return BigDecimal.valueOf(minorUnits).multiply(BigDecimal.valueOf(rate))
+                .divide(BigDecimal.valueOf(RATE_ONE), 0, ROUNDING)
+                .longValueExact();
+    }
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
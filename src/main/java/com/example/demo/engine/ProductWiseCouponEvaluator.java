@@ -0,0 +1,121 @@
+package com.example.demo.engine;
+
+import java.time.LocalDate;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.exception.InvalidCouponRequestException;
+import com.example.demo.model.CouponType;
+import com.example.demo.model.ProductWiseCoupon;
+
+public final class ProductWiseCouponEvaluator implements CouponEvaluator {
+
+    private enum DiscountMode {
+        PERCENTAGE,
+        FIXED_PER_UNIT,
+        NONE
+    }
+
+    private final long couponId;
+    private final LocalDate expirationDate;
+    private final long productId;
+    private final int minQuantity;
+    private final DiscountMode mode;
+    private final long amount;
+
+    ProductWiseCouponEvaluator(ProductWiseCoupon coupon) {
+        this.couponId = coupon.getId();
+        this.expirationDate = coupon.getExpirationDate();
+        if (coupon.getProductId() == null) {
+            throw new InvalidCouponRequestException("Product-wise coupon requires a productId");
+        }
+        this.productId = coupon.getProductId();
+        this.minQuantity = coupon.getMinQuantity() != null ? coupon.getMinQuantity() : 0;
+        if (coupon.getDiscountPercentage() != null) {
+            this.mode = DiscountMode.PERCENTAGE;
+            this.amount = Money.toRate(coupon.getDiscountPercentage());
+        } else if (coupon.getFixedDiscountAmount() != null) {
+            this.mode = DiscountMode.FIXED_PER_UNIT;
+            this.amount = Money.toMinor(coupon.getFixedDiscountAmount());
+        } else {
+            this.mode = DiscountMode.NONE;
+            this.amount = 0;
+        }
+    }
+
+    @Override
+    public long getCouponId() {
+        return couponId;
+    }
+
+    @Override
+    public CouponType getType() {
+        return CouponType.PRODUCT_WISE;
+    }
+
+    @Override
+    public LocalDate getExpirationDate() {
+        return expirationDate;
+    }
+
+    @Override
+    public boolean isApplicable(CartContext context) {
+        CartContext.ProductLine line = context.line(productId);
+        return line != null && line.getQuantity() >= minQuantity;
+    }
+
+    @Override
+    public Money calculateDiscount(CartContext context) {
+        CartContext.ProductLine productLine = context.line(productId);
+        if (productLine == null) {
+            return Money.ZERO;
+        }
+        long totalDiscount = 0;
+        for (CartContext.Line line : productLine.getLines()) {
+            totalDiscount += lineDiscount(line);
+        }
+        return Money.ofMinor(totalDiscount);
+    }
+
+    @Override
+    public long discountUpperBound(CartContext context) {
+        CartContext.ProductLine productLine = context.line(productId);
+        if (productLine == null || productLine.getQuantity() < minQuantity) {
+            return 0;
+        }
+        return switch (mode) {
+            // Each line is rounded on its own, which adds at most one minor unit per line
+            case PERCENTAGE -> Money.applyRate(productLine.getLineTotal(), amount) + productLine.getLines().size();
+            case FIXED_PER_UNIT -> Money.times(amount, productLine.getQuantity());
+            case NONE -> 0;
+        };
+    }
+
+    @Override
+    public Cart applyDiscount(CartContext context) {
+        Cart cart = context.getCart();
+        long totalDiscount = 0;
+        for (CartContext.Line line : context.getLines()) {
+            CartItem item = line.item();
+            if (item.getProductId() == productId) {
+                long discount = lineDiscount(line);
+                item.setTotalDiscount(Money.ofMinor(discount).toBigDecimal());
+                item.setFinalPrice(Money.ofMinor(line.lineTotal() - discount).toBigDecimal());
+                totalDiscount += discount;
+            } else {
+                item.setFinalPrice(Money.ofMinor(line.lineTotal()).toBigDecimal());
+            }
+        }
+        cart.setTotalDiscount(Money.ofMinor(totalDiscount).toBigDecimal());
+        cart.setFinalPrice(Money.ofMinor(context.getTotalOriginalPrice().minorUnits() - totalDiscount).toBigDecimal());
+        return cart;
+    }
+
+    private long lineDiscount(CartContext.Line line) {
+        return switch (mode) {
+            case PERCENTAGE -> Money.applyRate(line.lineTotal(), amount);
+            case FIXED_PER_UNIT -> Money.times(amount, line.quantity());
+            case NONE -> 0;
+        };
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.demo.exception;
+
+public class DuplicateCouponCodeException extends RuntimeException {
+    public DuplicateCouponCodeException(String message) {
+        super(message);
+    }
+}
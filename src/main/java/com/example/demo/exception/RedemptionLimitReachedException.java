@@ -0,0 +1,7 @@
+package com.example.demo.exception;
+
+public class RedemptionLimitReachedException extends RuntimeException {
+    public RedemptionLimitReachedException(String message) {
+        super(message);
+    }
+}
@@ -4,23 +4,21 @@ import java.util.List;
 
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
-import lombok.AllArgsConstructor;
-import lombok.Data;
 import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
-@Data
+@Getter
+@ToString(callSuper = true)
 @EqualsAndHashCode(callSuper = true)
-@NoArgsConstructor
-@AllArgsConstructor
 @SuperBuilder
 public class BxGyCoupon extends Coupon {
-    private List<BxGyProductDetail> buyProducts;
+    private final List<BxGyProductDetail> buyProducts;
 
-    private List<BxGyProductDetail> getProducts;
+    private final List<BxGyProductDetail> getProducts;
 
     @NotNull
     @Min(value = 1)
-    private Integer repetitionLimit;
+    private final Integer repetitionLimit;
 }
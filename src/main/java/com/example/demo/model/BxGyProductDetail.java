@@ -4,18 +4,18 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
-@Data
-@NoArgsConstructor
+@Value
 @AllArgsConstructor
 @Builder
+@Jacksonized
 public class BxGyProductDetail {
     @NotNull
-    private Long productId;
+    Long productId;
 
     @NotNull
     @Min(value = 1)
-    private Integer quantity;
+    Integer quantity;
 }
@@ -4,23 +4,23 @@ import java.math.BigDecimal;
 
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
-import lombok.Data;
 import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
-@Data
+@Getter
+@ToString(callSuper = true)
 @EqualsAndHashCode(callSuper = true)
-@NoArgsConstructor
 @SuperBuilder
 public class CartWiseCoupon extends Coupon {
     @NotNull
     @DecimalMin(value = "0.0", inclusive = false)
-    private BigDecimal threshold;
+    private final BigDecimal threshold;
 
     @NotNull
     @DecimalMin(value = "0.0", inclusive = false)
-    private BigDecimal discountPercentage;
+    private final BigDecimal discountPercentage;
 
-    private BigDecimal maxDiscountAmount;
+    private final BigDecimal maxDiscountAmount;
 }
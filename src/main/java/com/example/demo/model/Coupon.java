@@ -3,25 +3,40 @@ package com.example.demo.model;
 import java.time.LocalDate;
 
 import jakarta.validation.constraints.FutureOrPresent;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
-@Data
-@NoArgsConstructor
+@Getter
+@ToString
+@EqualsAndHashCode
 @SuperBuilder
 public abstract class Coupon {
-    private Long id;
+    private final Long id;
 
     @NotNull
-    private CouponType type;
+    private final CouponType type;
 
     @NotNull
-    private String code;
+    private final String code;
 
-    private String description;
+    private final String description;
 
     @FutureOrPresent
-    private LocalDate expirationDate;
+    private final LocalDate expirationDate;
+
+    /**
+     * Most times the coupon can be redeemed in total; null for no limit.
+     */
+    @Min(value = 1)
+    private final Long maxRedemptions;
+
+    /**
+     * Most times one customer can redeem the coupon; null for no limit.
+     */
+    @Min(value = 1)
+    private final Integer maxRedemptionsPerCustomer;
 }
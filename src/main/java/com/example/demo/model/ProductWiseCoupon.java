@@ -5,25 +5,25 @@ import java.math.BigDecimal;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
-import lombok.Data;
 import lombok.EqualsAndHashCode;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
-@Data
+@Getter
+@ToString(callSuper = true)
 @EqualsAndHashCode(callSuper = true)
-@NoArgsConstructor
 @SuperBuilder
 public class ProductWiseCoupon extends Coupon {
     @NotNull
-    private Long productId;
+    private final Long productId;
 
     @DecimalMin(value = "0.0", inclusive = false)
-    private BigDecimal discountPercentage;
+    private final BigDecimal discountPercentage;
 
     @DecimalMin(value = "0.0", inclusive = false)
-    private BigDecimal fixedDiscountAmount;
+    private final BigDecimal fixedDiscountAmount;
 
     @Min(value = 1)
-    private Integer minQuantity;
+    private final Integer minQuantity;
 }
@@ -0,0 +1,9 @@
+package com.example.demo.persistence;
+
+/**
+ * Identifies a point-in-time copy of the catalog: it reflects every mutation logged before log
+ * segment {@code logSegment}, and no coupon id above {@code lastCouponId} had been handed out
+ * when it was taken.
+ */
+public record CatalogCheckpoint(long logSegment, long lastCouponId) {
+}
@@ -0,0 +1,42 @@
+package com.example.demo.persistence;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.example.demo.model.Coupon;
+
+/**
+ * Keeps point-in-time copies of the whole catalog so that startup only replays the mutation
+ * log written after the newest one.
+ */
+public interface CatalogCheckpointStore {
+
+    /**
+     * A store that keeps nothing: startup replays the whole mutation log.
+     */
+    CatalogCheckpointStore NONE = new CatalogCheckpointStore() {
+        @Override
+        public Optional<CatalogCheckpoint> load(Consumer<CouponMutation> mutations) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void write(CatalogCheckpoint checkpoint, Iterator<Coupon> coupons, List<CouponMutation> redemptions) {
+        }
+    };
+
+    /**
+     * Feeds the newest checkpoint to the consumer, a PUT for each of its coupons followed by its
+     * redemption mutations, and returns it, or returns empty if there is none.
+     */
+    Optional<CatalogCheckpoint> load(Consumer<CouponMutation> mutations);
+
+    /**
+     * Durably stores the coupons and the redemption mutations that total up their committed
+     * redemptions as the newest checkpoint, replacing the older ones. Either the whole
+     * checkpoint becomes visible or none of it does.
+     */
+    void write(CatalogCheckpoint checkpoint, Iterator<Coupon> coupons, List<CouponMutation> redemptions);
+}
@@ -0,0 +1,29 @@
+package com.example.demo.persistence;
+
+import com.example.demo.model.Coupon;
+
+/**
+ * One durable change to the catalog: a coupon stored under its id, replacing any previous
+ * coupon with that id, or the coupon with an id deleted, either on request or by a purge of
+ * expired coupons. A redemption mutation records {@code redemptions} committed redemptions of
+ * the coupon with an id, by a customer or, when {@code customerId} is null, by nobody in
+ * particular; it leaves the catalog itself unchanged and is dropped along with its coupon.
+ */
+public record CouponMutation(Kind kind, long couponId, Coupon coupon, String customerId, long redemptions) {
+
+    public enum Kind {
+        PUT, DELETE, REDEEM
+    }
+
+    public static CouponMutation put(Coupon coupon) {
+        return new CouponMutation(Kind.PUT, coupon.getId(), coupon, null, 0);
+    }
+
+    public static CouponMutation delete(long couponId) {
+        return new CouponMutation(Kind.DELETE, couponId, null, null, 0);
+    }
+
+    public static CouponMutation redeem(long couponId, String customerId, long redemptions) {
+        return new CouponMutation(Kind.REDEEM, couponId, null, customerId, redemptions);
+    }
+}
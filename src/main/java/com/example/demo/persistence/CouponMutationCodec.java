@@ -0,0 +1,303 @@
+package com.example.demo.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.BxGyProductDetail;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponType;
+import com.example.demo.model.ProductWiseCoupon;
+
+/**
+ * Compact binary encoding of a list of {@link CouponMutation}s. Integers are zig-zag varints,
+ * strings are length-prefixed UTF-8, decimals are a scale plus their unscaled two's-complement
+ * bytes, and every nullable value is preceded by a presence flag (or, for strings and lists,
+ * folded into the length as {@code length + 1}). Tag values are fixed here rather than taken
+ * from enum ordinals so that reordering an enum cannot corrupt existing logs.
+ */
+public final class CouponMutationCodec {
+
+    private static final int PUT = 1;
+    private static final int DELETE = 2;
+    private static final int REDEEM = 3;
+
+    private static final int CART_WISE = 1;
+    private static final int PRODUCT_WISE = 2;
+    private static final int BXGY = 3;
+    // Set on the coupon type tag when redemption limits follow the common fields; coupons
+    // written before limits existed never carry it
+    private static final int WITH_LIMITS = 0x10;
+
+    private CouponMutationCodec() {
+    }
+
+    public static byte[] encode(List<CouponMutation> mutations) {
+        Writer out = new Writer();
+        out.varLong(mutations.size());
+        for (CouponMutation mutation : mutations) {
+            if (mutation.kind() == CouponMutation.Kind.DELETE) {
+                out.varLong(DELETE);
+                out.varLong(mutation.couponId());
+            } else if (mutation.kind() == CouponMutation.Kind.REDEEM) {
+                out.varLong(REDEEM);
+                out.varLong(mutation.couponId());
+                out.string(mutation.customerId());
+                out.varLong(mutation.redemptions());
+            } else {
+                out.varLong(PUT);
+                writeCoupon(out, mutation.coupon());
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes an entry written by {@link #encode}, consuming the buffer's remaining bytes.
+     */
+    public static List<CouponMutation> decode(ByteBuffer buffer) {
+        Reader in = new Reader(buffer);
+        int count = Math.toIntExact(in.varLong());
+        List<CouponMutation> mutations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int kind = (int) in.varLong();
+            if (kind == DELETE) {
+                mutations.add(CouponMutation.delete(in.varLong()));
+            } else if (kind == PUT) {
+                mutations.add(CouponMutation.put(readCoupon(in)));
+            } else if (kind == REDEEM) {
+                mutations.add(CouponMutation.redeem(in.varLong(), in.string(), in.varLong()));
+            } else {
+                throw new IllegalArgumentException("Unknown mutation kind " + kind);
+            }
+        }
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException(buffer.remaining() + " unexpected trailing bytes");
+        }
+        return mutations;
+    }
+
+    /**
+     * Encodes one coupon on its own, in the same form a PUT mutation carries it.
+     */
+    public static byte[] encodeCoupon(Coupon coupon) {
+        Writer out = new Writer();
+        writeCoupon(out, coupon);
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a coupon written by {@link #encodeCoupon}, consuming the buffer's remaining bytes.
+     */
+    public static Coupon decodeCoupon(ByteBuffer buffer) {
+        Coupon coupon = readCoupon(new Reader(buffer));
+        if (buffer.hasRemaining()) {
+            throw new IllegalArgumentException(buffer.remaining() + " unexpected trailing bytes");
+        }
+        return coupon;
+    }
+
+    private static void writeCoupon(Writer out, Coupon coupon) {
+        if (coupon instanceof CartWiseCoupon cartWise) {
+            writeCommon(out, CART_WISE, coupon);
+            out.decimal(cartWise.getThreshold());
+            out.decimal(cartWise.getDiscountPercentage());
+            out.decimal(cartWise.getMaxDiscountAmount());
+        } else if (coupon instanceof ProductWiseCoupon productWise) {
+            writeCommon(out, PRODUCT_WISE, coupon);
+            out.nullableLong(productWise.getProductId());
+            out.decimal(productWise.getDiscountPercentage());
+            out.decimal(productWise.getFixedDiscountAmount());
+            out.nullableLong(productWise.getMinQuantity() == null ? null : productWise.getMinQuantity().longValue());
+        } else if (coupon instanceof BxGyCoupon bxGy) {
+            writeCommon(out, BXGY, coupon);
+            writeDetails(out, bxGy.getBuyProducts());
+            writeDetails(out, bxGy.getGetProducts());
+            out.nullableLong(bxGy.getRepetitionLimit() == null ? null : bxGy.getRepetitionLimit().longValue());
+        } else {
+            throw new IllegalArgumentException("Unknown coupon type " + coupon.getClass().getName());
+        }
+    }
+
+    private static void writeCommon(Writer out, int type, Coupon coupon) {
+        boolean limited = coupon.getMaxRedemptions() != null || coupon.getMaxRedemptionsPerCustomer() != null;
+        out.varLong(limited ? type | WITH_LIMITS : type);
+        out.varLong(coupon.getId());
+        out.string(coupon.getCode());
+        out.string(coupon.getDescription());
+        out.nullableLong(coupon.getExpirationDate() == null ? null : coupon.getExpirationDate().toEpochDay());
+        if (limited) {
+            out.nullableLong(coupon.getMaxRedemptions());
+            out.nullableLong(coupon.getMaxRedemptionsPerCustomer() == null ? null : coupon.getMaxRedemptionsPerCustomer().longValue());
+        }
+    }
+
+    private static void writeDetails(Writer out, List<BxGyProductDetail> details) {
+        if (details == null) {
+            out.varLong(0);
+            return;
+        }
+        out.varLong(details.size() + 1L);
+        for (BxGyProductDetail detail : details) {
+            out.nullableLong(detail.getProductId());
+            out.nullableLong(detail.getQuantity() == null ? null : detail.getQuantity().longValue());
+        }
+    }
+
+    private static Coupon readCoupon(Reader in) {
+        int tag = (int) in.varLong();
+        boolean limited = (tag & WITH_LIMITS) != 0;
+        int type = tag & ~WITH_LIMITS;
+        switch (type) {
+            case CART_WISE -> {
+                CartWiseCoupon.CartWiseCouponBuilder<?, ?> builder = CartWiseCoupon.builder().type(CouponType.CART_WISE);
+                readCommon(in, limited, builder);
+                return builder
+                        .threshold(in.decimal())
+                        .discountPercentage(in.decimal())
+                        .maxDiscountAmount(in.decimal())
+                        .build();
+            }
+            case PRODUCT_WISE -> {
+                ProductWiseCoupon.ProductWiseCouponBuilder<?, ?> builder = ProductWiseCoupon.builder().type(CouponType.PRODUCT_WISE);
+                readCommon(in, limited, builder);
+                return builder
+                        .productId(in.nullableLong())
+                        .discountPercentage(in.decimal())
+                        .fixedDiscountAmount(in.decimal())
+                        .minQuantity(in.nullableInt())
+                        .build();
+            }
+            case BXGY -> {
+                BxGyCoupon.BxGyCouponBuilder<?, ?> builder = BxGyCoupon.builder().type(CouponType.BXGY);
+                readCommon(in, limited, builder);
+                return builder
+                        .buyProducts(readDetails(in))
+                        .getProducts(readDetails(in))
+                        .repetitionLimit(in.nullableInt())
+                        .build();
+            }
+            default -> throw new IllegalArgumentException("Unknown coupon type " + tag);
+        }
+    }
+
+    private static void readCommon(Reader in, boolean limited, Coupon.CouponBuilder<?, ?> builder) {
+        builder.id(in.varLong())
+                .code(in.string())
+                .description(in.string());
+        Long epochDay = in.nullableLong();
+        builder.expirationDate(epochDay == null ? null : LocalDate.ofEpochDay(epochDay));
+        if (limited) {
+            builder.maxRedemptions(in.nullableLong())
+                    .maxRedemptionsPerCustomer(in.nullableInt());
+        }
+    }
+
+    private static List<BxGyProductDetail> readDetails(Reader in) {
+        long sizePlusOne = in.varLong();
+        if (sizePlusOne == 0) {
+            return null;
+        }
+        List<BxGyProductDetail> details = new ArrayList<>(Math.toIntExact(sizePlusOne - 1));
+        for (long i = 1; i < sizePlusOne; i++) {
+            details.add(BxGyProductDetail.builder().productId(in.nullableLong()).quantity(in.nullableInt()).build());
+        }
+        return Collections.unmodifiableList(details);
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        void varLong(long value) {
+            long zigZag = (value << 1) ^ (value >> 63);
+            while ((zigZag & ~0x7FL) != 0) {
+                write((int) ((zigZag & 0x7F) | 0x80));
+                zigZag >>>= 7;
+            }
+            write((int) zigZag);
+        }
+
+        void nullableLong(Long value) {
+            write(value == null ? 0 : 1);
+            if (value != null) {
+                varLong(value);
+            }
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varLong(bytes.length + 1L);
+            writeBytes(bytes);
+        }
+
+        void decimal(BigDecimal value) {
+            write(value == null ? 0 : 1);
+            if (value != null) {
+                varLong(value.scale());
+                byte[] unscaled = value.unscaledValue().toByteArray();
+                varLong(unscaled.length);
+                writeBytes(unscaled);
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer buffer;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        long varLong() {
+            long zigZag = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer.get();
+                zigZag |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return (zigZag >>> 1) ^ -(zigZag & 1);
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        Long nullableLong() {
+            return buffer.get() == 0 ? null : varLong();
+        }
+
+        Integer nullableInt() {
+            Long value = nullableLong();
+            return value == null ? null : Math.toIntExact(value);
+        }
+
+        String string() {
+            long lengthPlusOne = varLong();
+            if (lengthPlusOne == 0) {
+                return null;
+            }
+            byte[] bytes = new byte[Math.toIntExact(lengthPlusOne - 1)];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        BigDecimal decimal() {
+            if (buffer.get() == 0) {
+                return null;
+            }
+            int scale = Math.toIntExact(varLong());
+            byte[] unscaled = new byte[Math.toIntExact(varLong())];
+            buffer.get(unscaled);
+            return new BigDecimal(new BigInteger(unscaled), scale);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.persistence;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Durable, append-only record of catalog mutations, replayed on startup to rebuild the catalog.
+ * The log is divided into numbered segments so that the part a {@link CatalogCheckpoint}
+ * already covers can be skipped on replay and then discarded.
+ */
+public interface CouponMutationLog {
+
+    /**
+     * Feeds every mutation logged in segment {@code fromSegment} or later to the consumer in the
+     * order it was appended. Must be called once, before the first {@link #append}.
+     */
+    void replay(long fromSegment, Consumer<CouponMutation> mutations);
+
+    /**
+     * Appends the mutations as one atomic entry: after a crash either all of them are replayed
+     * or none are. Entries are logged in call order; the returned future completes once the
+     * entry is durable.
+     */
+    CompletableFuture<Void> append(List<CouponMutation> mutations);
+
+    /**
+     * Starts a new segment and returns its number. Entries appended before the call are in
+     * earlier segments and entries appended after it in this one or later, so callers must
+     * order this call with their appends.
+     */
+    long rotate();
+
+    /**
+     * Deletes the segments numbered below {@code segment}, once everything in them is covered
+     * by a durable checkpoint.
+     */
+    void discardBefore(long segment);
+}
@@ -0,0 +1,72 @@
+package com.example.demo.persistence;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import com.example.demo.model.Coupon;
+
+/**
+ * Durable storage behind the catalog. The catalog itself always lives in memory and serves every
+ * read; a repository is read once on startup to rebuild it, and is then only written to. Along
+ * with the coupons it keeps the redemptions committed against their limits, saved as
+ * {@link CouponMutation.Kind#REDEEM} mutations, so that a restart does not hand them out again.
+ */
+public interface CouponRepository {
+
+    /**
+     * Feeds the consumer, in order, mutations that rebuild the stored catalog from an empty one,
+     * and returns the highest coupon id ever stored, including ids of coupons deleted since, or
+     * 0 if there is none. Redemption mutations may be fed as saved or totalled up per coupon and
+     * customer, and may name coupons that are no longer stored. Must be called once, before the
+     * first {@link #save}.
+     */
+    long load(Consumer<CouponMutation> mutations);
+
+    /**
+     * Stores the mutations as one atomic write: after a crash either all of them survive or none
+     * do. Writes are applied in call order; the returned future completes once the write is
+     * durable. Once a write fails, every later write must fail too, because the caller applied
+     * it before they were made.
+     */
+    CompletableFuture<Void> save(List<CouponMutation> mutations);
+
+    /**
+     * The error that fails every save since a write failed, or empty while saves can succeed.
+     */
+    default Optional<Exception> failure() {
+        return Optional.empty();
+    }
+
+    /**
+     * Lets saves made after this call succeed again once the caller has rolled back every write
+     * built on the failed one, so that none of them can build on a write that was lost. Ordered
+     * with {@link #save}: saves made before the call still fail. Backends that cannot tell what
+     * part of a failed write survived keep failing.
+     */
+    default void clearFailure() {
+    }
+
+    /**
+     * Starts a checkpoint of the catalog as it stands after every write saved so far, for
+     * backends whose startup cost grows with the number of writes made. Must be ordered with
+     * {@link #save} in the same way. The returned checkpoint is written with the coupons of that
+     * catalog and the redemptions saved by then, without holding up further saves; empty if the
+     * backend needs no checkpoints.
+     */
+    default Optional<Checkpoint> startCheckpoint(long lastCouponId) {
+        return Optional.empty();
+    }
+
+    interface Checkpoint {
+
+        /**
+         * Durably stores the coupons, and the redemption mutations that total up the
+         * redemptions saved so far, as the new starting point for {@link #load} and drops
+         * whatever it supersedes.
+         */
+        void write(Iterator<Coupon> coupons, List<CouponMutation> redemptions);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Framing shared by the mutation log and catalog checkpoints: after a fixed-size file header,
+ * a file is a sequence of entries framed as {@code [int length][int CRC32C][payload]}.
+ */
+final class EntryFiles {
+
+    static final int ENTRY_HEADER_SIZE = 8;
+    static final int REGION_SIZE = 64 * 1024 * 1024;
+
+    private EntryFiles() {
+    }
+
+    static ByteBuffer frame(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return ByteBuffer.allocate(ENTRY_HEADER_SIZE + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .flip();
+    }
+
+    /**
+     * Maps the file read-only in regions of up to {@value #REGION_SIZE} bytes, each grown to fit
+     * the next entry if that is larger, and feeds the payload of every intact entry from
+     * {@code position} on to the consumer. Stops at the first entry that is incomplete or fails
+     * its checksum and returns the offset it starts at, or the file size if there is none.
+     */
+    static long readEntries(FileChannel channel, long position, Consumer<ByteBuffer> payloads) throws IOException {
+        long size = channel.size();
+        ByteBuffer lengthField = ByteBuffer.allocate(Integer.BYTES);
+        while (size - position >= ENTRY_HEADER_SIZE) {
+            lengthField.clear();
+            channel.read(lengthField, position);
+            long regionSize = Math.max(REGION_SIZE, (long) ENTRY_HEADER_SIZE + Math.max(0, lengthField.flip().getInt()));
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(regionSize, size - position));
+            int consumed = readRegion(region, payloads);
+            if (consumed == 0) {
+                return position; // The next entry is incomplete or corrupt
+            }
+            position += consumed;
+        }
+        return position;
+    }
+
+    /**
+     * Forces a directory so that files just created, renamed or deleted in it survive a crash.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static int readRegion(ByteBuffer region, Consumer<ByteBuffer> payloads) {
+        while (region.remaining() >= ENTRY_HEADER_SIZE) {
+            int start = region.position();
+            int length = region.getInt();
+            int checksum = region.getInt();
+            if (length < 0 || length > region.remaining()) {
+                return start;
+            }
+            ByteBuffer payload = region.slice(region.position(), length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                return start;
+            }
+            payloads.accept(payload);
+            region.position(region.position() + length);
+        }
+        return region.position();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.demo.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import com.example.demo.model.Coupon;
+
+/**
+ * {@link CatalogCheckpointStore} kept as {@code checkpoint-<segment>.bin} files next to the
+ * mutation log.
+ *
+ * <p>A checkpoint file has a 24-byte header (magic, format version, log segment and last coupon
+ * id) followed by {@link EntryFiles framed} chunks of up to {@value #COUPONS_PER_CHUNK} mutations
+ * encoded by {@link CouponMutationCodec}: a PUT for each coupon, then the redemption mutations.
+ * It is written to a temporary
+ * file, forced and renamed into place, so a crash never leaves a partial checkpoint behind, and
+ * is loaded through memory-mapped regions.
+ */
+public class FileCatalogCheckpointStore implements CatalogCheckpointStore {
+
+    static final int COUPONS_PER_CHUNK = 1024;
+
+    private static final int MAGIC = 0x43504E53; // "CPNS"
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 24;
+    private static final Pattern CHECKPOINT_NAME = Pattern.compile("checkpoint-(\\d+)\\.bin");
+
+    private final Path directory;
+
+    public FileCatalogCheckpointStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public Optional<CatalogCheckpoint> load(Consumer<CouponMutation> mutations) {
+        try {
+            List<Long> checkpoints = checkpoints();
+            if (checkpoints.isEmpty()) {
+                return Optional.empty();
+            }
+            Path path = checkpointPath(checkpoints.get(checkpoints.size() - 1));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+                channel.read(header, 0);
+                header.flip();
+                if (header.remaining() < FILE_HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                    throw new IOException(path + " is not a catalog checkpoint of format version " + FORMAT_VERSION);
+                }
+                CatalogCheckpoint checkpoint = new CatalogCheckpoint(header.getLong(), header.getLong());
+                long end = EntryFiles.readEntries(channel, FILE_HEADER_SIZE,
+                        payload -> CouponMutationCodec.decode(payload).forEach(mutations));
+                if (end != channel.size()) {
+                    throw new IOException(path + " is damaged at offset " + end);
+                }
+                return Optional.of(checkpoint);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load the catalog checkpoint in " + directory, e);
+        }
+    }
+
+    @Override
+    public void write(CatalogCheckpoint checkpoint, Iterator<Coupon> coupons, List<CouponMutation> redemptions) {
+        Path target = checkpointPath(checkpoint.logSegment());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE)) {
+                writeFully(channel, ByteBuffer.allocate(FILE_HEADER_SIZE)
+                        .putInt(MAGIC)
+                        .putInt(FORMAT_VERSION)
+                        .putLong(checkpoint.logSegment())
+                        .putLong(checkpoint.lastCouponId())
+                        .flip());
+                List<CouponMutation> chunk = new ArrayList<>(COUPONS_PER_CHUNK);
+                Iterator<CouponMutation> redeemed = redemptions.iterator();
+                while (coupons.hasNext() || redeemed.hasNext()) {
+                    chunk.add(coupons.hasNext() ? CouponMutation.put(coupons.next()) : redeemed.next());
+                    if (chunk.size() == COUPONS_PER_CHUNK || !(coupons.hasNext() || redeemed.hasNext())) {
+                        writeFully(channel, EntryFiles.frame(CouponMutationCodec.encode(chunk)));
+                        chunk.clear();
+                    }
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            EntryFiles.forceDirectory(directory);
+            for (long older : checkpoints()) {
+                if (older < checkpoint.logSegment()) {
+                    Files.delete(checkpointPath(older));
+                }
+            }
+            EntryFiles.forceDirectory(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write the catalog checkpoint " + target, e);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private List<Long> checkpoints() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> CHECKPOINT_NAME.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path checkpointPath(long segment) {
+        return directory.resolve(String.format("checkpoint-%020d.bin", segment));
+    }
+}
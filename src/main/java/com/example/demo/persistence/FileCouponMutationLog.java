@@ -0,0 +1,341 @@
+package com.example.demo.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link CouponMutationLog} kept as numbered segment files, {@code coupons-<segment>.log}, in
+ * one directory.
+ *
+ * <p>Each segment starts with an 8-byte header (magic and format version) followed by
+ * {@link EntryFiles framed} entries whose payload is encoded by {@link CouponMutationCodec}.
+ * One entry holds every mutation of one catalog write, so a torn write loses the whole entry
+ * and never half of it.
+ *
+ * <p>Appends, rotations and discards are handed to a single writer thread and carried out in
+ * call order. Each time it wakes it takes every entry queued so far, writes them with one
+ * gathering write and makes them durable with one {@code force}, so concurrent writers share
+ * the cost of an fsync (group commit).
+ *
+ * <p>Replay reads the segments through memory-mapped regions. A torn or corrupt entry at the end
+ * of the newest segment is what a crash leaves behind and is truncated before appends resume;
+ * anywhere else it means the log is damaged, and replay fails rather than skip mutations.
+ */
+@Slf4j
+public class FileCouponMutationLog implements CouponMutationLog, Closeable {
+
+    private static final int MAGIC = 0x43504E4C; // "CPNL"
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("coupons-(\\d+)\\.log");
+
+    private final Path directory;
+    private final BlockingQueue<Command> queue = new LinkedBlockingQueue<>();
+    private FileChannel channel;
+    private long currentSegment;
+    private long latestSegment;
+    private Thread writer;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private long syncCount;
+
+    public FileCouponMutationLog(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    @Override
+    public synchronized void replay(long fromSegment, Consumer<CouponMutation> mutations) {
+        if (writer != null) {
+            throw new IllegalStateException("The log has already been replayed");
+        }
+        try {
+            List<Long> segments = segments().stream().filter(segment -> segment >= fromSegment).toList();
+            for (int i = 0; i < segments.size(); i++) {
+                replaySegment(segments.get(i), i == segments.size() - 1, mutations);
+            }
+            currentSegment = segments.isEmpty() ? Math.max(1, fromSegment) : segments.get(segments.size() - 1);
+            if (channel == null) {
+                channel = openSegment(currentSegment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay the coupon log in " + directory, e);
+        }
+        latestSegment = currentSegment;
+        writer = new Thread(this::writeLoop, "coupon-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public CompletableFuture<Void> append(List<CouponMutation> mutations) {
+        return submit(new Command(Command.Kind.APPEND, EntryFiles.frame(CouponMutationCodec.encode(mutations)), 0));
+    }
+
+    @Override
+    public synchronized long rotate() {
+        latestSegment++;
+        submit(new Command(Command.Kind.ROTATE, null, latestSegment));
+        return latestSegment;
+    }
+
+    @Override
+    public void discardBefore(long segment) {
+        submit(new Command(Command.Kind.DISCARD, null, segment));
+    }
+
+    /**
+     * The error that failed a write and fails every append since, or empty while appends can
+     * succeed. A write that failed may have left part of an entry in the segment, so appends
+     * keep failing until the log is replayed again by a restart.
+     */
+    public Optional<Exception> failure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * Number of times a segment has been forced to disk, for observing group commit.
+     */
+    public synchronized long syncCount() {
+        return syncCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (writer != null) {
+            queue.add(Command.CLOSE);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private CompletableFuture<Void> submit(Command command) {
+        if (writer == null) {
+            command.done().completeExceptionally(new IllegalStateException("The log must be replayed before it is appended to"));
+        } else if (closed) {
+            command.done().completeExceptionally(new IllegalStateException("The log is closed"));
+        } else if (failure != null) {
+            command.done().completeExceptionally(failure);
+        } else {
+            queue.add(command);
+        }
+        return command.done();
+    }
+
+    private void replaySegment(long segment, boolean newest, Consumer<CouponMutation> mutations) throws IOException {
+        Path path = segmentPath(segment);
+        FileChannel segmentChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long validEnd;
+            if (segmentChannel.size() < FILE_HEADER_SIZE && newest) {
+                validEnd = initialize(segmentChannel);
+            } else {
+                checkHeader(segmentChannel, path);
+                validEnd = EntryFiles.readEntries(segmentChannel, FILE_HEADER_SIZE,
+                        payload -> CouponMutationCodec.decode(payload).forEach(mutations));
+            }
+            if (validEnd < segmentChannel.size()) {
+                if (!newest) {
+                    throw new IOException(path + " is damaged at offset " + validEnd + " and is not the newest segment");
+                }
+                log.warn("Truncating {} bytes of incomplete or corrupt entries from the end of {}", segmentChannel.size() - validEnd, path);
+                segmentChannel.truncate(validEnd);
+                segmentChannel.force(true);
+            }
+            segmentChannel.position(validEnd);
+        } catch (IOException | RuntimeException e) {
+            segmentChannel.close();
+            throw e;
+        }
+        if (newest) {
+            channel = segmentChannel;
+        } else {
+            segmentChannel.close();
+        }
+    }
+
+    private FileChannel openSegment(long segment) throws IOException {
+        FileChannel segmentChannel = FileChannel.open(segmentPath(segment),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentChannel.position(initialize(segmentChannel));
+        EntryFiles.forceDirectory(directory);
+        return segmentChannel;
+    }
+
+    private static long initialize(FileChannel segmentChannel) throws IOException {
+        segmentChannel.truncate(0);
+        segmentChannel.write(ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).flip(), 0);
+        segmentChannel.force(true);
+        return FILE_HEADER_SIZE;
+    }
+
+    private static void checkHeader(FileChannel segmentChannel, Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        segmentChannel.read(header, 0);
+        header.flip();
+        if (header.remaining() < FILE_HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+            throw new IOException(path + " is not a coupon log segment of format version " + FORMAT_VERSION);
+        }
+    }
+
+    private List<Long> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> SEGMENT_NAME.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("coupons-%020d.log", segment));
+    }
+
+    private void writeLoop() {
+        List<Command> batch = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+            int closeAt = batch.indexOf(Command.CLOSE);
+            if (closeAt >= 0) {
+                closing = true;
+                refuse(batch.subList(closeAt, batch.size()));
+                batch.subList(closeAt, batch.size()).clear();
+            }
+            execute(batch);
+            batch.clear();
+        }
+        // Anything queued after close was requested is refused rather than silently dropped
+        List<Command> refused = new ArrayList<>();
+        queue.drainTo(refused);
+        refuse(refused);
+    }
+
+    /**
+     * Carries out the commands in order, writing each run of consecutive appends with one
+     * gathering write and one force.
+     */
+    private void execute(List<Command> batch) {
+        int start = 0;
+        while (start < batch.size()) {
+            int end = start;
+            while (end < batch.size() && batch.get(end).kind() == Command.Kind.APPEND) {
+                end++;
+            }
+            if (end > start) {
+                run(batch.subList(start, end), this::writeEntries);
+                start = end;
+            } else {
+                Command command = batch.get(start);
+                run(List.of(command), commands -> {
+                    if (command.kind() == Command.Kind.ROTATE) {
+                        switchTo(command.segment());
+                    } else {
+                        discard(command.segment());
+                    }
+                });
+                start++;
+            }
+        }
+    }
+
+    private void run(List<Command> commands, IoAction<List<Command>> action) {
+        if (failure == null) {
+            try {
+                action.run(commands);
+            } catch (IOException e) {
+                log.error("Could not write to the coupon log in {}; further writes will fail", directory, e);
+                failure = e;
+            }
+        }
+        for (Command command : commands) {
+            if (failure == null) {
+                command.done().complete(null);
+            } else {
+                command.done().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void writeEntries(List<Command> appends) throws IOException {
+        ByteBuffer[] buffers = appends.stream().map(Command::entry).toArray(ByteBuffer[]::new);
+        long remaining = appends.stream().mapToLong(command -> command.entry().remaining()).sum();
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        channel.force(false);
+        synchronized (this) {
+            syncCount++;
+        }
+    }
+
+    private void switchTo(long segment) throws IOException {
+        FileChannel next = openSegment(segment);
+        channel.close();
+        channel = next;
+        currentSegment = segment;
+    }
+
+    private void discard(long segment) throws IOException {
+        for (long existing : segments()) {
+            if (existing < segment && existing < currentSegment) {
+                Files.delete(segmentPath(existing));
+            }
+        }
+        EntryFiles.forceDirectory(directory);
+    }
+
+    private static void refuse(List<Command> commands) {
+        commands.stream().filter(command -> command != Command.CLOSE)
+                .forEach(command -> command.done().completeExceptionally(new IllegalStateException("The log is closed")));
+    }
+
+    @FunctionalInterface
+    private interface IoAction<T> {
+        void run(T argument) throws IOException;
+    }
+
+    private record Command(Kind kind, ByteBuffer entry, long segment, CompletableFuture<Void> done) {
+
+        static final Command CLOSE = new Command(Kind.CLOSE, null, 0);
+
+        Command(Kind kind, ByteBuffer entry, long segment) {
+            this(kind, entry, segment, new CompletableFuture<>());
+        }
+
+        enum Kind {
+            APPEND, ROTATE, DISCARD, CLOSE
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.demo.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * {@link CouponRepository} kept in a local directory as a {@link FileCouponMutationLog} of every
+ * write plus {@link FileCatalogCheckpointStore checkpoints} of the whole catalog. Loading reads
+ * the newest checkpoint and replays only the log segments written after it; a checkpoint
+ * rotates the log and, once written, discards the segments it covers.
+ */
+public class FileCouponRepository implements CouponRepository, Closeable {
+
+    private final FileCouponMutationLog log;
+    private final CatalogCheckpointStore checkpoints;
+
+    public FileCouponRepository(Path directory) throws IOException {
+        this(new FileCouponMutationLog(directory), new FileCatalogCheckpointStore(directory));
+    }
+
+    public FileCouponRepository(FileCouponMutationLog log, CatalogCheckpointStore checkpoints) {
+        this.log = log;
+        this.checkpoints = checkpoints;
+    }
+
+    @Override
+    public long load(Consumer<CouponMutation> mutations) {
+        Optional<CatalogCheckpoint> checkpoint = checkpoints.load(mutations);
+        AtomicLong lastCouponId = new AtomicLong(checkpoint.map(CatalogCheckpoint::lastCouponId).orElse(0L));
+        log.replay(checkpoint.map(CatalogCheckpoint::logSegment).orElse(0L), mutation -> {
+            mutations.accept(mutation);
+            lastCouponId.accumulateAndGet(mutation.couponId(), Math::max);
+        });
+        return lastCouponId.get();
+    }
+
+    @Override
+    public CompletableFuture<Void> save(List<CouponMutation> mutations) {
+        return log.append(mutations);
+    }
+
+    @Override
+    public Optional<Exception> failure() {
+        return log.failure();
+    }
+
+    @Override
+    public Optional<Checkpoint> startCheckpoint(long lastCouponId) {
+        CatalogCheckpoint checkpoint = new CatalogCheckpoint(log.rotate(), lastCouponId);
+        return Optional.of((coupons, redemptions) -> {
+            checkpoints.write(checkpoint, coupons, redemptions);
+            log.discardBefore(checkpoint.logSegment());
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.persistence;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * {@link CouponRepository} that keeps nothing beyond the in-memory catalog: every write is
+ * accepted at once and the catalog starts out empty after a restart.
+ */
+public class InMemoryCouponRepository implements CouponRepository {
+
+    @Override
+    public long load(Consumer<CouponMutation> mutations) {
+        return 0;
+    }
+
+    @Override
+    public CompletableFuture<Void> save(List<CouponMutation> mutations) {
+        return CompletableFuture.completedFuture(null);
+    }
+}
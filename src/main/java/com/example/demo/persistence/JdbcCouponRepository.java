@@ -0,0 +1,382 @@
+package com.example.demo.persistence;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import com.example.demo.model.Coupon;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link CouponRepository} kept in a relational database: one {@code coupon} row per coupon,
+ * holding the coupon encoded by {@link CouponMutationCodec} next to a few plain columns for ad-hoc
+ * queries, a one-row {@code coupon_id_watermark} table with the highest id ever stored, and a
+ * {@code coupon_redemption} table of committed redemptions per coupon and customer. The tables
+ * are created on {@link #load} if they are missing, using standard SQL types. Expiry purges
+ * reach the table as deletes; {@link #load} also deletes, rather than loads, the rows of coupons
+ * that have expired by the clock's current day, such as ones that expired while the application
+ * was down. Deleting a coupon deletes its redemptions.
+ *
+ * <p>Saves are handed to a single writer thread. Each time it wakes it takes every save queued
+ * so far, up to {@code maxBatchSize} mutations, keeps only the last change to each coupon, adds
+ * up the redemptions of each coupon and customer, and writes them with batched statements in one
+ * transaction, so concurrent writers share a commit. Redemptions are appended as new rows rather
+ * than updating a count, which needs no vendor-specific upsert; {@link #load} totals them up and
+ * replaces the rows of any coupon and customer that had more than one with their total. A failed
+ * transaction is rolled back and fails every later save too, so the table never skips a write
+ * that the catalog has already applied. Since a rolled-back transaction leaves nothing behind,
+ * {@link #clearFailure} lets saves succeed again once the catalog has rolled back with it.
+ */
+@Slf4j
+public class JdbcCouponRepository implements CouponRepository, Closeable {
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS coupon (id BIGINT PRIMARY KEY, type VARCHAR(32) NOT NULL, code VARCHAR(255),"
+                    + " expiration_date DATE, payload VARBINARY(1000000) NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS coupon_id_watermark (last_coupon_id BIGINT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS coupon_redemption (coupon_id BIGINT NOT NULL, customer_id VARCHAR(255),"
+                    + " redemptions BIGINT NOT NULL)"
+    };
+    private static final int FETCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private final int maxBatchSize;
+    private final Clock clock;
+    private final BlockingQueue<Save> queue = new LinkedBlockingQueue<>();
+    private Thread writer;
+    private volatile SQLException failure;
+    private volatile boolean closed;
+    private long commitCount;
+
+    public JdbcCouponRepository(DataSource dataSource, int maxBatchSize) {
+        this(dataSource, maxBatchSize, Clock.systemDefaultZone());
+    }
+
+    public JdbcCouponRepository(DataSource dataSource, int maxBatchSize, Clock clock) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.dataSource = dataSource;
+        this.maxBatchSize = maxBatchSize;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized long load(Consumer<CouponMutation> mutations) {
+        if (writer != null) {
+            throw new IllegalStateException("The repository has already been loaded");
+        }
+        long lastCouponId;
+        try (Connection connection = dataSource.getConnection()) {
+            createSchema(connection);
+            lastCouponId = lastCouponId(connection);
+            connection.setAutoCommit(false); // Some drivers only honour the fetch size inside a transaction
+            try (PreparedStatement expired = connection.prepareStatement("DELETE FROM coupon WHERE expiration_date < ?")) {
+                expired.setDate(1, Date.valueOf(LocalDate.now(clock)));
+                int purged = expired.executeUpdate();
+                if (purged > 0) {
+                    log.info("Deleted {} coupons that expired while the catalog was not loaded", purged);
+                }
+            }
+            try (Statement orphans = connection.createStatement()) {
+                orphans.executeUpdate("DELETE FROM coupon_redemption WHERE coupon_id NOT IN (SELECT id FROM coupon)");
+            }
+            try (PreparedStatement select = connection.prepareStatement("SELECT payload FROM coupon ORDER BY id")) {
+                select.setFetchSize(FETCH_SIZE);
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        mutations.accept(CouponMutation.put(CouponMutationCodec.decodeCoupon(ByteBuffer.wrap(rows.getBytes(1)))));
+                    }
+                }
+            }
+            loadRedemptions(connection, mutations);
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not load the coupon catalog from the database", e);
+        }
+        writer = new Thread(this::writeLoop, "coupon-jdbc-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return lastCouponId;
+    }
+
+    @Override
+    public CompletableFuture<Void> save(List<CouponMutation> mutations) {
+        Save save = new Save(mutations, new CompletableFuture<>());
+        if (writer == null) {
+            save.done().completeExceptionally(new IllegalStateException("The repository must be loaded before it is saved to"));
+        } else if (closed) {
+            save.done().completeExceptionally(new IllegalStateException("The repository is closed"));
+        } else {
+            // Failed by the writer if the failure is still set when it gets there
+            queue.add(save);
+        }
+        return save.done();
+    }
+
+    @Override
+    public Optional<Exception> failure() {
+        return Optional.ofNullable(failure);
+    }
+
+    @Override
+    public void clearFailure() {
+        if (writer != null && !closed) {
+            queue.add(new Save(List.of(), new CompletableFuture<>(), true));
+        }
+    }
+
+    /**
+     * Number of transactions committed, for observing how saves are batched.
+     */
+    public synchronized long commitCount() {
+        return commitCount;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (writer != null) {
+            queue.add(Save.CLOSE);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<Save> pending = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                pending.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(pending);
+            int closeAt = pending.indexOf(Save.CLOSE);
+            if (closeAt >= 0) {
+                closing = true;
+                refuse(pending.subList(closeAt + 1, pending.size()));
+                pending.subList(closeAt, pending.size()).clear();
+            }
+            int start = 0;
+            while (start < pending.size()) {
+                if (pending.get(start).clearsFailure()) {
+                    failure = null;
+                    pending.get(start++).done().complete(null);
+                    continue;
+                }
+                // A save is never split, so one larger than maxBatchSize gets a transaction of its own
+                int end = start + 1;
+                int size = pending.get(start).mutations().size();
+                while (end < pending.size() && !pending.get(end).clearsFailure()
+                        && size + pending.get(end).mutations().size() <= maxBatchSize) {
+                    size += pending.get(end++).mutations().size();
+                }
+                commit(pending.subList(start, end));
+                start = end;
+            }
+            pending.clear();
+        }
+        List<Save> refused = new ArrayList<>();
+        queue.drainTo(refused);
+        refuse(refused);
+    }
+
+    private void commit(List<Save> saves) {
+        if (failure == null) {
+            try {
+                write(saves);
+            } catch (SQLException e) {
+                log.error("Could not write to the coupon table; further writes will fail", e);
+                failure = e;
+            }
+        }
+        for (Save save : saves) {
+            if (failure == null) {
+                save.done().complete(null);
+            } else {
+                save.done().completeExceptionally(failure);
+            }
+        }
+    }
+
+    private void write(List<Save> saves) throws SQLException {
+        Map<Long, CouponMutation> latest = new LinkedHashMap<>();
+        Map<RedemptionKey, Long> redeemed = new LinkedHashMap<>();
+        long lastCouponId = 0;
+        for (Save save : saves) {
+            for (CouponMutation mutation : save.mutations()) {
+                if (mutation.kind() == CouponMutation.Kind.REDEEM) {
+                    redeemed.merge(new RedemptionKey(mutation.couponId(), mutation.customerId()), mutation.redemptions(), Long::sum);
+                    continue;
+                }
+                latest.put(mutation.couponId(), mutation);
+                lastCouponId = Math.max(lastCouponId, mutation.couponId());
+            }
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                // Every touched row is deleted and the surviving coupons inserted again, which
+                // needs no vendor-specific upsert
+                try (PreparedStatement delete = connection.prepareStatement("DELETE FROM coupon WHERE id = ?")) {
+                    for (Long id : latest.keySet()) {
+                        delete.setLong(1, id);
+                        delete.addBatch();
+                    }
+                    delete.executeBatch();
+                }
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO coupon (id, type, code, expiration_date, payload) VALUES (?, ?, ?, ?, ?)")) {
+                    for (CouponMutation mutation : latest.values()) {
+                        if (mutation.kind() == CouponMutation.Kind.PUT) {
+                            bind(insert, mutation.coupon());
+                            insert.addBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+                try (PreparedStatement forget = connection.prepareStatement("DELETE FROM coupon_redemption WHERE coupon_id = ?")) {
+                    for (CouponMutation mutation : latest.values()) {
+                        if (mutation.kind() == CouponMutation.Kind.DELETE) {
+                            forget.setLong(1, mutation.couponId());
+                            forget.addBatch();
+                        }
+                    }
+                    forget.executeBatch();
+                }
+                insertRedemptions(connection, redeemed);
+                try (PreparedStatement watermark = connection.prepareStatement(
+                        "UPDATE coupon_id_watermark SET last_coupon_id = ? WHERE last_coupon_id < ?")) {
+                    watermark.setLong(1, lastCouponId);
+                    watermark.setLong(2, lastCouponId);
+                    watermark.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        synchronized (this) {
+            commitCount++;
+        }
+    }
+
+    private static void bind(PreparedStatement insert, Coupon coupon) throws SQLException {
+        insert.setLong(1, coupon.getId());
+        insert.setString(2, coupon.getType().name());
+        insert.setString(3, coupon.getCode());
+        if (coupon.getExpirationDate() != null) {
+            insert.setDate(4, Date.valueOf(coupon.getExpirationDate()));
+        } else {
+            insert.setNull(4, Types.DATE);
+        }
+        insert.setBytes(5, CouponMutationCodec.encodeCoupon(coupon));
+    }
+
+    /**
+     * Feeds the total redemptions of each coupon and customer to the consumer, and replaces the
+     * rows they were added up from with their totals if there was more than one.
+     */
+    private static void loadRedemptions(Connection connection, Consumer<CouponMutation> mutations) throws SQLException {
+        Map<RedemptionKey, Long> totals = new LinkedHashMap<>();
+        boolean compact = false;
+        try (Statement select = connection.createStatement()) {
+            select.setFetchSize(FETCH_SIZE);
+            try (ResultSet rows = select.executeQuery("SELECT coupon_id, customer_id, SUM(redemptions), COUNT(*)"
+                    + " FROM coupon_redemption GROUP BY coupon_id, customer_id ORDER BY coupon_id")) {
+                while (rows.next()) {
+                    RedemptionKey key = new RedemptionKey(rows.getLong(1), rows.getString(2));
+                    totals.put(key, rows.getLong(3));
+                    compact |= rows.getLong(4) > 1;
+                    mutations.accept(CouponMutation.redeem(key.couponId(), key.customerId(), rows.getLong(3)));
+                }
+            }
+        }
+        if (compact) {
+            try (Statement delete = connection.createStatement()) {
+                delete.executeUpdate("DELETE FROM coupon_redemption");
+            }
+            insertRedemptions(connection, totals);
+        }
+    }
+
+    private static void insertRedemptions(Connection connection, Map<RedemptionKey, Long> redemptions) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO coupon_redemption (coupon_id, customer_id, redemptions) VALUES (?, ?, ?)")) {
+            for (Map.Entry<RedemptionKey, Long> entry : redemptions.entrySet()) {
+                insert.setLong(1, entry.getKey().couponId());
+                if (entry.getKey().customerId() != null) {
+                    insert.setString(2, entry.getKey().customerId());
+                } else {
+                    insert.setNull(2, Types.VARCHAR);
+                }
+                insert.setLong(3, entry.getValue());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.execute(ddl);
+            }
+        }
+    }
+
+    private static long lastCouponId(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery("SELECT last_coupon_id FROM coupon_id_watermark")) {
+            if (rows.next()) {
+                return rows.getLong(1);
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO coupon_id_watermark (last_coupon_id) VALUES (0)");
+        }
+        return 0;
+    }
+
+    private static void refuse(List<Save> saves) {
+        saves.forEach(save -> save.done().completeExceptionally(new IllegalStateException("The repository is closed")));
+    }
+
+    private record RedemptionKey(long couponId, String customerId) {
+    }
+
+    private record Save(List<CouponMutation> mutations, CompletableFuture<Void> done, boolean clearsFailure) {
+
+        static final Save CLOSE = new Save(List.of(), new CompletableFuture<>());
+
+        Save(List<CouponMutation> mutations, CompletableFuture<Void> done) {
+            this(mutations, done, false);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.demo.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.dto.ApplicableCouponResponse;
+import com.example.demo.engine.CartFingerprint;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Bounded LRU cache of applicable-coupon results keyed by cart fingerprint, valid for a single
+ * catalog version. The first access for a newer version drops every entry; lookups against an
+ * older snapshot that a request still has pinned bypass the cache. Entries are evicted in
+ * least-recently-used order once either the entry count or the total weight exceeds its limit.
+ *
+ * <p>The cache is split by fingerprint hash into segments, each an LRU map with its own lock
+ * and an equal share of both limits, so that concurrent requests for different carts rarely
+ * wait on each other. Recency is therefore tracked per segment rather than across the whole
+ * cache. Small caches get fewer segments, so that no segment holds fewer than
+ * {@value #MIN_SEGMENT_CAPACITY} entries' worth.
+ *
+ * <p>Hits, misses, puts and evictions are published as the standard Micrometer {@code cache.*}
+ * meters tagged {@code cache=applicable-coupons}.
+ */
+@Component
+public class ApplicableCouponCache {
+
+    static final String CACHE_NAME = "applicable-coupons";
+    static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final boolean enabled;
+    private final Segment[] segments;
+    // Newest catalog version seen; a segment still holding an older one is emptied on its next access
+    private final AtomicLong latestVersion = new AtomicLong(-1);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter puts;
+    private final Counter evictions;
+
+    public ApplicableCouponCache(CouponCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.getMaxEntries() > 0;
+        int count = segmentCount(properties);
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(ceilDiv(properties.getMaxEntries(), count), ceilDiv(properties.getMaxWeight(), count));
+        }
+        Tags tags = Tags.of("cache", CACHE_NAME);
+        this.hits = meterRegistry.counter("cache.gets", tags.and("result", "hit"));
+        this.misses = meterRegistry.counter("cache.gets", tags.and("result", "miss"));
+        this.puts = meterRegistry.counter("cache.puts", tags);
+        this.evictions = meterRegistry.counter("cache.evictions", tags);
+        Gauge.builder("cache.size", this, ApplicableCouponCache::size).tags(tags).register(meterRegistry);
+        Gauge.builder("cache.weight", this, ApplicableCouponCache::weight).tags(tags).register(meterRegistry);
+    }
+
+    /**
+     * The cached result for the cart in the given catalog version, or null.
+     */
+    public List<ApplicableCouponResponse> get(long catalogVersion, CartFingerprint fingerprint) {
+        if (!enabled) {
+            return null;
+        }
+        Segment segment = segmentFor(fingerprint);
+        Entry entry;
+        segment.lock.lock();
+        try {
+            entry = segment.advanceTo(catalogVersion, observe(catalogVersion)) ? segment.entries.get(fingerprint) : null;
+        } finally {
+            segment.lock.unlock();
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.result();
+    }
+
+    /**
+     * Caches an unmodifiable copy of the result and returns it.
+     */
+    public List<ApplicableCouponResponse> put(long catalogVersion, CartFingerprint fingerprint, List<ApplicableCouponResponse> result) {
+        List<ApplicableCouponResponse> cached = List.copyOf(result);
+        if (!enabled) {
+            return cached;
+        }
+        Segment segment = segmentFor(fingerprint);
+        Entry entry = new Entry(cached, 1L + fingerprint.lineCount() + cached.size());
+        if (entry.weight() > segment.maxWeight) {
+            return cached;
+        }
+        int evicted = 0;
+        segment.lock.lock();
+        try {
+            if (!segment.advanceTo(catalogVersion, observe(catalogVersion))) {
+                return cached;
+            }
+            Entry previous = segment.entries.put(fingerprint, entry);
+            if (previous != null) {
+                segment.weight -= previous.weight();
+            }
+            segment.weight += entry.weight();
+
+            Iterator<Entry> eldest = segment.entries.values().iterator();
+            while (segment.entries.size() > segment.maxEntries || segment.weight > segment.maxWeight) {
+                segment.weight -= eldest.next().weight();
+                eldest.remove();
+                evicted++;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+        puts.increment();
+        if (evicted > 0) {
+            evictions.increment(evicted);
+        }
+        return cached;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.version == latestVersion.get() ? segment.entries.size() : 0;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    public long weight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                weight += segment.version == latestVersion.get() ? segment.weight : 0;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Records the catalog version as seen and returns the newest version seen so far.
+     */
+    private long observe(long catalogVersion) {
+        long latest = latestVersion.get();
+        return catalogVersion > latest ? latestVersion.accumulateAndGet(catalogVersion, Math::max) : latest;
+    }
+
+    private Segment segmentFor(CartFingerprint fingerprint) {
+        int hash = fingerprint.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * The configured number of segments (by default four per available processor), rounded down
+     * to a power of two and lowered until each segment holds at least
+     * {@value #MIN_SEGMENT_CAPACITY} entries and as much weight.
+     */
+    private static int segmentCount(CouponCacheProperties properties) {
+        int requested = properties.getSegments() > 0 ? properties.getSegments() : 4 * Runtime.getRuntime().availableProcessors();
+        long fitting = Math.min(properties.getMaxEntries(), properties.getMaxWeight()) / MIN_SEGMENT_CAPACITY;
+        int count = (int) Math.max(1, Math.min(requested, fitting));
+        return Integer.highestOneBit(count);
+    }
+
+    private static long ceilDiv(long limit, int parts) {
+        return (limit + parts - 1) / parts;
+    }
+
+    private static final class Segment {
+        // A lock rather than a monitor, so that a virtual thread waiting on it does not pin its carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<CartFingerprint, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxEntries;
+        private final long maxWeight;
+        private long version = -1;
+        private long weight;
+
+        private Segment(long maxEntries, long maxWeight) {
+            this.maxEntries = maxEntries;
+            this.maxWeight = maxWeight;
+        }
+
+        /**
+         * Moves the segment to the given catalog version, dropping every entry if it is newer.
+         * Returns false if the version is older than the newest one the cache or the segment has
+         * seen.
+         */
+        private boolean advanceTo(long catalogVersion, long latest) {
+            if (catalogVersion < latest || catalogVersion < version) {
+                return false;
+            }
+            if (catalogVersion != version) {
+                entries.clear();
+                weight = 0;
+                version = catalogVersion;
+            }
+            return true;
+        }
+    }
+
+    private record Entry(List<ApplicableCouponResponse> result, long weight) {
+    }
+}
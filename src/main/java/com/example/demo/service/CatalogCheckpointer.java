@@ -0,0 +1,27 @@
+package com.example.demo.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically writes a checkpoint of the catalog for repositories that take them, so that
+ * startup replays only the mutations logged since and the log does not grow without bound.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CatalogCheckpointer {
+
+    private final CouponService couponService;
+
+    @Scheduled(initialDelayString = "${coupon.repository.checkpoint-interval:PT10M}", fixedDelayString = "${coupon.repository.checkpoint-interval:PT10M}")
+    public void checkpoint() {
+        long started = System.nanoTime();
+        if (couponService.checkpoint()) {
+            log.info("Wrote a catalog checkpoint in {} ms", (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+}
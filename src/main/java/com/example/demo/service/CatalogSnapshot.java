@@ -0,0 +1,324 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.example.demo.engine.CartContext;
+import com.example.demo.engine.CouponEvaluator;
+import com.example.demo.engine.CouponEvaluators;
+import com.example.demo.exception.DuplicateCouponCodeException;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponType;
+
+/**
+ * An immutable, versioned view of the coupon catalog: the stored coupons, kept per type in id
+ * order so that they can be paged through with a cursor, a case-insensitive index from coupon
+ * code to id that keeps codes unique, the evaluators and
+ * index entries of the ones that are live on {@link #getToday()}, and the expiry index that
+ * decides when they stop being live.
+ *
+ * <p>Readers pin one snapshot for a whole request and never lock. Writers derive the next
+ * snapshot through a {@link Builder} and publish it in one step. Every structure is a
+ * {@link PersistentSortedMap} or built from them, so the next snapshot shares all but the
+ * O(log n) nodes each change touches with the previous one.
+ */
+public final class CatalogSnapshot {
+
+    private final long version;
+    private final LocalDate today;
+    private final Map<CouponType, PersistentSortedMap<Long, Coupon>> couponsByType;
+    private final int size;
+    private final PersistentSortedMap<String, Long> idsByCode;
+    // Live set: only coupons that have not expired as of today have an evaluator and index entries
+    private final PersistentSortedMap<Long, CouponEvaluator> evaluators;
+    private final CouponIndex couponIndex;
+    private final CouponExpiryIndex expiryIndex;
+
+    private CatalogSnapshot(long version, LocalDate today, Map<CouponType, PersistentSortedMap<Long, Coupon>> couponsByType, int size,
+            PersistentSortedMap<String, Long> idsByCode, PersistentSortedMap<Long, CouponEvaluator> evaluators, CouponIndex couponIndex,
+            CouponExpiryIndex expiryIndex) {
+        this.version = version;
+        this.today = today;
+        this.couponsByType = couponsByType;
+        this.size = size;
+        this.idsByCode = idsByCode;
+        this.evaluators = evaluators;
+        this.couponIndex = couponIndex;
+        this.expiryIndex = expiryIndex;
+    }
+
+    public static CatalogSnapshot empty(LocalDate today) {
+        Map<CouponType, PersistentSortedMap<Long, Coupon>> couponsByType = new EnumMap<>(CouponType.class);
+        for (CouponType type : CouponType.values()) {
+            couponsByType.put(type, PersistentSortedMap.empty());
+        }
+        return new CatalogSnapshot(0, today, couponsByType, 0, PersistentSortedMap.empty(), PersistentSortedMap.empty(), new CouponIndex(),
+                new CouponExpiryIndex());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDate getToday() {
+        return today;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Coupon coupon(long id) {
+        return find(couponsByType, id);
+    }
+
+    /**
+     * The coupon whose code matches {@code code} ignoring case and surrounding whitespace, or null.
+     */
+    public Coupon couponByCode(String code) {
+        Long id = idsByCode.get(normalizeCode(code));
+        return id != null ? coupon(id) : null;
+    }
+
+    /**
+     * The form in which codes are compared: stripped and upper-cased.
+     */
+    public static String normalizeCode(String code) {
+        return code == null ? null : code.strip().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Iterates lazily, in ascending id order, over the coupons with an id greater than
+     * {@code afterId}, restricted to one type unless {@code type} is null.
+     */
+    public Iterator<Coupon> couponsAfter(long afterId, CouponType type) {
+        if (type != null) {
+            return couponsByType.get(type).valuesAfter(afterId);
+        }
+        List<Iterator<Coupon>> iterators = new ArrayList<>(couponsByType.size());
+        for (PersistentSortedMap<Long, Coupon> coupons : couponsByType.values()) {
+            iterators.add(coupons.valuesAfter(afterId));
+        }
+        return new IdOrderIterator(iterators);
+    }
+
+    /**
+     * The evaluator of a coupon that is live in this snapshot, or null.
+     */
+    public CouponEvaluator evaluator(long id) {
+        return evaluators.get(id);
+    }
+
+    /**
+     * Evaluators of the live coupons that could apply to the cart, ordered by coupon id.
+     */
+    public List<CouponEvaluator> candidates(CartContext context) {
+        List<CouponEvaluator> candidates = new ArrayList<>();
+        for (Long candidateId : couponIndex.candidateIds(context.productIds(), context.getTotalOriginalPrice().minorUnits())) {
+            candidates.add(evaluators.get(candidateId));
+        }
+        return candidates;
+    }
+
+    private static Coupon find(Map<CouponType, PersistentSortedMap<Long, Coupon>> couponsByType, long id) {
+        for (PersistentSortedMap<Long, Coupon> coupons : couponsByType.values()) {
+            Coupon coupon = coupons.get(id);
+            if (coupon != null) {
+                return coupon;
+            }
+        }
+        return null;
+    }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    /**
+     * Accumulates changes on top of a base snapshot. Not thread-safe; writers are expected to
+     * serialize on the catalog they publish to.
+     */
+    public static final class Builder {
+        private final CatalogSnapshot base;
+        private LocalDate today;
+        private Map<CouponType, PersistentSortedMap<Long, Coupon>> couponsByType;
+        private int size;
+        private PersistentSortedMap<String, Long> idsByCode;
+        private PersistentSortedMap<Long, CouponEvaluator> evaluators;
+        private CouponIndex couponIndex;
+        private CouponExpiryIndex expiryIndex;
+        private boolean changed;
+
+        private Builder(CatalogSnapshot base) {
+            this.base = base;
+            this.today = base.today;
+            this.couponsByType = base.couponsByType;
+            this.size = base.size;
+            this.idsByCode = base.idsByCode;
+            this.evaluators = base.evaluators;
+            this.couponIndex = base.couponIndex;
+            this.expiryIndex = base.expiryIndex;
+        }
+
+        public LocalDate getToday() {
+            return today;
+        }
+
+        public Coupon coupon(long id) {
+            return find(couponsByType, id);
+        }
+
+        /**
+         * Adds the coupon, replacing any coupon with the same id, and makes it live unless it
+         * has already expired. Throws if another coupon already has the same code.
+         */
+        public void put(Coupon coupon) {
+            String code = normalizeCode(coupon.getCode());
+            Long owner = code != null ? idsByCode.get(code) : null;
+            if (owner != null && !owner.equals(coupon.getId())) {
+                throw new DuplicateCouponCodeException("Coupon code '" + coupon.getCode() + "' is already in use by coupon " + owner);
+            }
+            remove(coupon.getId());
+            ownedCouponsByType().put(coupon.getType(), couponsByType.get(coupon.getType()).put(coupon.getId(), coupon));
+            size++;
+            changed = true;
+            if (code != null) {
+                idsByCode = idsByCode.put(code, coupon.getId());
+            }
+            ownedExpiryIndex().add(coupon.getId(), coupon.getExpirationDate());
+            CouponEvaluator evaluator = CouponEvaluators.compile(coupon);
+            if (!evaluator.isExpired(today)) {
+                evaluators = evaluators.put(coupon.getId(), evaluator);
+                ownedCouponIndex().add(coupon);
+            }
+        }
+
+        /**
+         * Adds the coupon like {@link #put}, but first removes any other coupon with the same
+         * code. For replaying writes that were accepted in this order, where the earlier holder
+         * of the code has since been purged: logs and checkpoints written before purges were
+         * saved still hold it.
+         */
+        public void restore(Coupon coupon) {
+            Long owner = coupon.getCode() != null ? idsByCode.get(normalizeCode(coupon.getCode())) : null;
+            if (owner != null && !owner.equals(coupon.getId())) {
+                remove(owner);
+            }
+            put(coupon);
+        }
+
+        public Coupon remove(long id) {
+            Coupon removed = coupon(id);
+            if (removed == null) {
+                return null;
+            }
+            ownedCouponsByType().put(removed.getType(), couponsByType.get(removed.getType()).remove(id));
+            size--;
+            changed = true;
+            if (removed.getCode() != null) {
+                idsByCode = idsByCode.remove(normalizeCode(removed.getCode()));
+            }
+            if (evaluators.containsKey(id)) {
+                evaluators = evaluators.remove(id);
+                ownedCouponIndex().remove(removed);
+            }
+            ownedExpiryIndex().remove(id, removed.getExpirationDate());
+            return removed;
+        }
+
+        /**
+         * Moves the catalog to the given day and drops every coupon that has expired by it.
+         * Returns the ids of the coupons removed, earliest expiry first.
+         */
+        public List<Long> advanceTo(LocalDate day) {
+            if (!day.equals(today)) {
+                today = day;
+                changed = true;
+            }
+            List<Long> expired = expiryIndex.expiredBefore(day);
+            for (Long id : expired) {
+                remove(id);
+            }
+            return expired;
+        }
+
+        /**
+         * Returns the next snapshot, or the base snapshot itself if nothing changed.
+         */
+        public CatalogSnapshot build() {
+            if (!changed) {
+                return base;
+            }
+            return new CatalogSnapshot(base.version + 1, today, couponsByType, size, idsByCode, evaluators, couponIndex, expiryIndex);
+        }
+
+        private Map<CouponType, PersistentSortedMap<Long, Coupon>> ownedCouponsByType() {
+            if (couponsByType == base.couponsByType) {
+                couponsByType = new EnumMap<>(base.couponsByType);
+            }
+            return couponsByType;
+        }
+
+        private CouponIndex ownedCouponIndex() {
+            if (couponIndex == base.couponIndex) {
+                couponIndex = base.couponIndex.copy();
+            }
+            return couponIndex;
+        }
+
+        private CouponExpiryIndex ownedExpiryIndex() {
+            if (expiryIndex == base.expiryIndex) {
+                expiryIndex = base.expiryIndex.copy();
+            }
+            return expiryIndex;
+        }
+    }
+
+    /**
+     * Merges iterators that are each in ascending id order into one.
+     */
+    private static final class IdOrderIterator implements Iterator<Coupon> {
+        private final List<Iterator<Coupon>> iterators;
+        private final Coupon[] heads;
+
+        private IdOrderIterator(List<Iterator<Coupon>> iterators) {
+            this.iterators = iterators;
+            this.heads = new Coupon[iterators.size()];
+            for (int i = 0; i < heads.length; i++) {
+                heads[i] = iterators.get(i).hasNext() ? iterators.get(i).next() : null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (Coupon head : heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Coupon next() {
+            int smallest = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (smallest < 0 || heads[i].getId() < heads[smallest].getId())) {
+                    smallest = i;
+                }
+            }
+            if (smallest < 0) {
+                throw new NoSuchElementException();
+            }
+            Coupon next = heads[smallest];
+            heads[smallest] = iterators.get(smallest).hasNext() ? iterators.get(smallest).next() : null;
+            return next;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.config.CouponEvaluationProperties;
+import com.example.demo.engine.CouponEvaluator;
+
+/**
+ * Runs an evaluation over a candidate coupon set, serially on the calling thread for small sets
+ * and split across a dedicated ForkJoinPool once the set reaches the configured threshold. Each
+ * fork-join leaf collects into its own list and the lists are concatenated on join, so results
+ * keep candidate order and no locking is needed. The same pool evaluates the carts of a batch
+ * request in parallel.
+ */
+@Component
+public class CouponEvaluationExecutor implements DisposableBean {
+
+    private static final int MIN_LEAF_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final int maxBatchSize;
+
+    public CouponEvaluationExecutor(CouponEvaluationProperties properties) {
+        int poolSize = properties.getPoolSize() > 0 ? properties.getPoolSize() : Runtime.getRuntime().availableProcessors();
+        this.pool = new ForkJoinPool(poolSize);
+        this.parallelThreshold = Math.max(1, properties.getParallelThreshold());
+        this.maxBatchSize = properties.getMaxBatchSize();
+    }
+
+    /**
+     * Applies the evaluation to every candidate and returns the non-null results in candidate order.
+     */
+    public <R> List<R> evaluate(List<CouponEvaluator> candidates, Function<CouponEvaluator, R> evaluation) {
+        if (candidates.size() < parallelThreshold) {
+            return evaluateRange(candidates, 0, candidates.size(), evaluation);
+        }
+        int leafSize = Math.max(MIN_LEAF_SIZE, candidates.size() / (pool.getParallelism() * 4));
+        return pool.invoke(new EvaluationTask<>(candidates, 0, candidates.size(), leafSize, evaluation));
+    }
+
+    /**
+     * Applies a coarse-grained task, such as evaluating one cart, to every item in parallel and
+     * returns the non-null results in item order. Tasks may themselves call {@link #evaluate}.
+     */
+    public <T, R> List<R> evaluateEach(List<T> items, Function<T, R> task) {
+        if (items.size() < 2) {
+            return evaluateRange(items, 0, items.size(), task);
+        }
+        return pool.invoke(new EvaluationTask<>(items, 0, items.size(), 1, task));
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * The evaluation pool, for callers that must not block, such as an event loop, to run a
+     * whole evaluation on. An evaluation running on the pool helps with its own subtasks rather
+     * than waiting for them.
+     */
+    public Executor getExecutor() {
+        return pool;
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdown();
+    }
+
+    private static <T, R> List<R> evaluateRange(List<T> items, int from, int to, Function<T, R> evaluation) {
+        List<R> results = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            R result = evaluation.apply(items.get(i));
+            if (result != null) {
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private static final class EvaluationTask<T, R> extends RecursiveTask<List<R>> {
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final Function<T, R> evaluation;
+
+        private EvaluationTask(List<T> items, int from, int to, int leafSize, Function<T, R> evaluation) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.evaluation = evaluation;
+        }
+
+        @Override
+        protected List<R> compute() {
+            if (to - from <= leafSize) {
+                return evaluateRange(items, from, to, evaluation);
+            }
+            int middle = (from + to) >>> 1;
+            EvaluationTask<T, R> right = new EvaluationTask<>(items, middle, to, leafSize, evaluation);
+            right.fork();
+            List<R> results = new EvaluationTask<>(items, from, middle, leafSize, evaluation).compute();
+            results.addAll(right.join());
+            return results;
+        }
+    }
+}
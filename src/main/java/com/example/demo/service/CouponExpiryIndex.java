@@ -0,0 +1,60 @@
+package com.example.demo.service;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Coupon ids ordered by expiration date, so that the coupons that have expired by a given day
+ * are always a prefix of the index. Coupons without an expiration date are never indexed. Like
+ * {@link CouponIndex}, it is read-only once published in a {@link CatalogSnapshot}, and its
+ * {@link #copy()} shares the entries with the original rather than copying them.
+ */
+public class CouponExpiryIndex {
+
+    private static final Comparator<ExpiryEntry> EXPIRY_ORDER = Comparator
+            .comparing(ExpiryEntry::expirationDate)
+            .thenComparingLong(ExpiryEntry::couponId);
+
+    // Valued by the coupon id, so that the expired prefix maps straight to ids
+    private PersistentSortedMap<ExpiryEntry, Long> byExpiration;
+
+    public CouponExpiryIndex() {
+        this(PersistentSortedMap.empty(EXPIRY_ORDER));
+    }
+
+    private CouponExpiryIndex(PersistentSortedMap<ExpiryEntry, Long> byExpiration) {
+        this.byExpiration = byExpiration;
+    }
+
+    public CouponExpiryIndex copy() {
+        return new CouponExpiryIndex(byExpiration);
+    }
+
+    public void add(long couponId, LocalDate expirationDate) {
+        if (expirationDate != null) {
+            byExpiration = byExpiration.put(new ExpiryEntry(expirationDate, couponId), couponId);
+        }
+    }
+
+    public void remove(long couponId, LocalDate expirationDate) {
+        if (expirationDate != null) {
+            byExpiration = byExpiration.remove(new ExpiryEntry(expirationDate, couponId));
+        }
+    }
+
+    /**
+     * Returns the ids of the coupons whose expiration date is before the given day, earliest
+     * first.
+     */
+    public List<Long> expiredBefore(LocalDate today) {
+        return byExpiration.valuesBefore(new ExpiryEntry(today, Long.MIN_VALUE), false);
+    }
+
+    public int size() {
+        return byExpiration.size();
+    }
+
+    private record ExpiryEntry(LocalDate expirationDate, long couponId) {
+    }
+}
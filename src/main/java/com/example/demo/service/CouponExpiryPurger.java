@@ -0,0 +1,27 @@
+package com.example.demo.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Periodically moves expired coupons out of the live catalog. Each run also advances the
+ * service's notion of the current day, so request paths never read the clock themselves.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CouponExpiryPurger {
+
+    private final CouponService couponService;
+
+    @Scheduled(fixedDelayString = "${coupon.expiry.purge-interval:PT1M}")
+    public void purgeExpired() {
+        int purged = couponService.purgeExpired();
+        if (purged > 0) {
+            log.info("Purged {} expired coupons", purged);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.demo.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.CouponImportProperties;
+import com.example.demo.dto.CouponImportResult;
+import com.example.demo.dto.CouponRequestDTO;
+import com.example.demo.exception.DuplicateCouponCodeException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Imports coupons from newline-delimited JSON, one {@link CouponRequestDTO} per line. The
+ * payload is read a line at a time and each line is parsed with its own streaming parser, so
+ * memory use is bounded by the batch size and the maximum line length rather than the payload,
+ * and a malformed or overlong line only fails that line. Valid coupons are published to the
+ * catalog a batch at a time; a batch that cannot be saved fails its lines and the import goes on.
+ */
+@Service
+public class CouponImportService {
+
+    private final CouponService couponService;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader requestReader;
+    private final Validator validator;
+    private final CouponImportProperties properties;
+
+    public CouponImportService(CouponService couponService, ObjectMapper objectMapper, Validator validator,
+            CouponImportProperties properties) {
+        this.couponService = couponService;
+        this.objectMapper = objectMapper;
+        this.requestReader = objectMapper.readerFor(CouponRequestDTO.class);
+        this.validator = validator;
+        this.properties = properties;
+    }
+
+    public CouponImportResult importNdjson(InputStream input) throws IOException {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        Batch batch = new Batch(batchSize);
+        Progress progress = new Progress(properties.getMaxReportedErrors());
+
+        LineReader reader = new LineReader(new InputStreamReader(input, StandardCharsets.UTF_8), Math.max(1, properties.getMaxLineLength()));
+        long lineNumber = 0;
+        while (reader.next()) {
+            lineNumber++;
+            if (reader.isTooLong()) {
+                progress.fail(lineNumber, "Line is longer than " + reader.maxLength + " characters");
+                continue;
+            }
+            String line = reader.line();
+            if (line.isBlank()) {
+                continue;
+            }
+            String error;
+            try {
+                CouponRequestDTO request = parse(line);
+                error = validate(request);
+                if (error == null && !batch.codes.add(CatalogSnapshot.normalizeCode(request.getCode()))) {
+                    error = "Coupon code '" + request.getCode() + "' appears earlier in the same batch";
+                }
+                if (error == null) {
+                    batch.add(lineNumber, request);
+                }
+            } catch (JsonProcessingException e) {
+                error = "Malformed coupon: " + e.getOriginalMessage();
+            }
+            if (error != null) {
+                progress.fail(lineNumber, error);
+            }
+            if (batch.requests.size() == batchSize) {
+                publish(batch, progress);
+            }
+        }
+        publish(batch, progress);
+
+        return CouponImportResult.builder()
+                .imported(progress.imported)
+                .failed(progress.failed)
+                .errors(progress.errors)
+                .build();
+    }
+
+    private CouponRequestDTO parse(String line) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(line)) {
+            CouponRequestDTO request = requestReader.readValue(parser);
+            if (request == null) {
+                throw new InvalidLineException("Line is not a coupon object");
+            }
+            if (parser.nextToken() != null) {
+                throw new InvalidLineException("Unexpected content after the coupon object");
+            }
+            return request;
+        }
+    }
+
+    private String validate(CouponRequestDTO request) {
+        Set<ConstraintViolation<CouponRequestDTO>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        try {
+            couponService.validate(request);
+            return null;
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    private void publish(Batch batch, Progress progress) {
+        if (batch.requests.isEmpty()) {
+            return;
+        }
+        try {
+            progress.imported += couponService.createCoupons(batch.requests).size();
+        } catch (DuplicateCouponCodeException e) {
+            // A concurrent write took one of the codes after it was validated; publish the
+            // batch coupon by coupon so that only the conflicting lines fail
+            for (int i = 0; i < batch.requests.size(); i++) {
+                try {
+                    couponService.createCoupon(batch.requests.get(i));
+                    progress.imported++;
+                } catch (DuplicateCouponCodeException | IllegalStateException failure) {
+                    progress.fail(batch.lines.get(i), failure.getMessage());
+                }
+            }
+        } catch (IllegalStateException e) {
+            // The batch could not be saved and was rolled back, so none of its lines were
+            // imported; later batches are still tried, as the repository may take them again
+            batch.lines.forEach(line -> progress.fail(line, e.getMessage()));
+        }
+        batch.clear();
+    }
+
+    /**
+     * Reads lines ended by {@code \n}, {@code \r} or {@code \r\n}, like
+     * {@link java.io.BufferedReader#readLine}, but keeps at most {@code maxLength} characters of
+     * each: the rest of a longer line is skipped, so a payload without line breaks cannot
+     * exhaust memory.
+     */
+    private static final class LineReader {
+        private final Reader reader;
+        private final int maxLength;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+        private boolean tooLong;
+        private boolean skipLineFeed;
+
+        private LineReader(Reader reader, int maxLength) {
+            this.reader = reader;
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Moves to the next line, returning false at the end of the input.
+         */
+        private boolean next() throws IOException {
+            line.setLength(0);
+            tooLong = false;
+            boolean read = false;
+            while (true) {
+                if (position == limit) {
+                    limit = Math.max(reader.read(buffer), 0);
+                    position = 0;
+                    if (limit == 0) {
+                        return read;
+                    }
+                }
+                char c = buffer[position++];
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+                read = true;
+                if (c == '\n' || c == '\r') {
+                    skipLineFeed = c == '\r';
+                    return true;
+                }
+                if (line.length() < maxLength) {
+                    line.append(c);
+                } else {
+                    tooLong = true;
+                }
+            }
+        }
+
+        private String line() {
+            return line.toString();
+        }
+
+        private boolean isTooLong() {
+            return tooLong;
+        }
+    }
+
+    private static final class Batch {
+        private final List<CouponRequestDTO> requests;
+        private final List<Long> lines;
+        private final Set<String> codes = new HashSet<>();
+
+        private Batch(int capacity) {
+            this.requests = new ArrayList<>(capacity);
+            this.lines = new ArrayList<>(capacity);
+        }
+
+        private void add(long line, CouponRequestDTO request) {
+            requests.add(request);
+            lines.add(line);
+        }
+
+        private void clear() {
+            requests.clear();
+            lines.clear();
+            codes.clear();
+        }
+    }
+
+    private static final class Progress {
+        private final int maxReportedErrors;
+        private final List<CouponImportResult.LineError> errors = new ArrayList<>();
+        private long imported;
+        private long failed;
+
+        private Progress(int maxReportedErrors) {
+            this.maxReportedErrors = maxReportedErrors;
+        }
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new CouponImportResult.LineError(line, message));
+            }
+        }
+    }
+
+    private static final class InvalidLineException extends JsonProcessingException {
+        private InvalidLineException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.service;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.example.demo.engine.Money;
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.BxGyProductDetail;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.ProductWiseCoupon;
+
+/**
+ * Inverted index from product id to the ids of the coupons that reference that product,
+ * plus the cart-wise coupons ordered by threshold so that the ones a cart total qualifies
+ * for are a single range query.
+ *
+ * <p>An index is modified only before it is published in a {@link CatalogSnapshot} and is
+ * read-only afterwards. Its entries are held in {@link PersistentSortedMap}s, so {@link #copy()}
+ * takes constant time and each change copies only the O(log n) nodes it touches.
+ */
+public class CouponIndex {
+
+    private static final Comparator<ThresholdEntry> THRESHOLD_ORDER = Comparator
+            .comparingLong(ThresholdEntry::threshold)
+            .thenComparingLong(ThresholdEntry::couponId);
+
+    // Per product, the ids of its coupons, each keyed and valued by the coupon id
+    private PersistentSortedMap<Long, PersistentSortedMap<Long, Long>> couponIdsByProduct;
+    private PersistentSortedMap<ThresholdEntry, Long> cartWiseByThreshold;
+
+    public CouponIndex() {
+        this(PersistentSortedMap.empty(), PersistentSortedMap.empty(THRESHOLD_ORDER));
+    }
+
+    private CouponIndex(PersistentSortedMap<Long, PersistentSortedMap<Long, Long>> couponIdsByProduct,
+            PersistentSortedMap<ThresholdEntry, Long> cartWiseByThreshold) {
+        this.couponIdsByProduct = couponIdsByProduct;
+        this.cartWiseByThreshold = cartWiseByThreshold;
+    }
+
+    /**
+     * Returns an index with the same entries that can be modified without affecting this one.
+     */
+    public CouponIndex copy() {
+        return new CouponIndex(couponIdsByProduct, cartWiseByThreshold);
+    }
+
+    public void add(Coupon coupon) {
+        if (coupon instanceof CartWiseCoupon cartWiseCoupon) {
+            cartWiseByThreshold = cartWiseByThreshold.put(ThresholdEntry.of(cartWiseCoupon), coupon.getId());
+            return;
+        }
+        for (Long productId : productIds(coupon)) {
+            PersistentSortedMap<Long, Long> ids = couponIdsByProduct.get(productId);
+            if (ids == null) {
+                ids = PersistentSortedMap.empty();
+            }
+            couponIdsByProduct = couponIdsByProduct.put(productId, ids.put(coupon.getId(), coupon.getId()));
+        }
+    }
+
+    public void remove(Coupon coupon) {
+        if (coupon instanceof CartWiseCoupon cartWiseCoupon) {
+            cartWiseByThreshold = cartWiseByThreshold.remove(ThresholdEntry.of(cartWiseCoupon));
+            return;
+        }
+        for (Long productId : productIds(coupon)) {
+            PersistentSortedMap<Long, Long> ids = couponIdsByProduct.get(productId);
+            if (ids != null) {
+                ids = ids.remove(coupon.getId());
+                couponIdsByProduct = ids.isEmpty() ? couponIdsByProduct.remove(productId) : couponIdsByProduct.put(productId, ids);
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the cart-wise coupons whose threshold is at most the given cart total
+     * in minor units, in ascending threshold order.
+     */
+    public List<Long> eligibleCartWiseIds(long cartTotal) {
+        return cartWiseByThreshold.valuesBefore(new ThresholdEntry(cartTotal, Long.MAX_VALUE), true);
+    }
+
+    /**
+     * Returns the ids of every coupon that could apply to a cart containing the given products
+     * with the given total in minor units, ordered by coupon id.
+     */
+    public Set<Long> candidateIds(Collection<Long> productIds, long cartTotal) {
+        Set<Long> candidates = new TreeSet<>(eligibleCartWiseIds(cartTotal));
+        for (Long productId : productIds) {
+            PersistentSortedMap<Long, Long> ids = couponIdsByProduct.get(productId);
+            if (ids != null) {
+                ids.valuesAfter(null).forEachRemaining(candidates::add);
+            }
+        }
+        return candidates;
+    }
+
+    private static Set<Long> productIds(Coupon coupon) {
+        Set<Long> productIds = new TreeSet<>();
+        if (coupon instanceof ProductWiseCoupon productWiseCoupon) {
+            if (productWiseCoupon.getProductId() != null) {
+                productIds.add(productWiseCoupon.getProductId());
+            }
+        } else if (coupon instanceof BxGyCoupon bxGyCoupon) {
+            addProductIds(productIds, bxGyCoupon.getBuyProducts());
+            addProductIds(productIds, bxGyCoupon.getGetProducts());
+        }
+        return productIds;
+    }
+
+    private static void addProductIds(Set<Long> productIds, List<BxGyProductDetail> details) {
+        if (details == null) {
+            return;
+        }
+        for (BxGyProductDetail detail : details) {
+            if (detail.getProductId() != null) {
+                productIds.add(detail.getProductId());
+            }
+        }
+    }
+
+    private record ThresholdEntry(long threshold, long couponId) {
+        static ThresholdEntry of(CartWiseCoupon coupon) {
+            return new ThresholdEntry(Money.toMinor(coupon.getThreshold()), coupon.getId());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Advances the reservation expiry wheel once per tick, releasing the redemptions of
+ * reservations that were neither committed nor released in time.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CouponReservationReaper {
+
+    private final CouponReservationService reservationService;
+
+    @Scheduled(fixedRateString = "${coupon.reservation.tick:PT1S}")
+    public void expireReservations() {
+        int expired = reservationService.expireReservations();
+        if (expired > 0) {
+            log.debug("Released {} expired coupon reservations", expired);
+        }
+    }
+}
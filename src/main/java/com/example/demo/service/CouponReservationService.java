@@ -0,0 +1,154 @@
+package com.example.demo.service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.stereotype.Service;
+
+import com.example.demo.config.CouponReservationProperties;
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.ReservationResponse;
+import com.example.demo.exception.ReservationNotFoundException;
+
+/**
+ * Two-phase redemption: reserving a coupon applies it to the cart and takes a redemption like
+ * applying it does, but holds it only until the reservation is committed, released or expires.
+ * Committing keeps the redemption and saves it as applying does, while releasing or expiring
+ * gives it back to the coupon's limits. Only committed redemptions survive a restart.
+ *
+ * <p>Reserving, committing and releasing touch the coupon's counters only through their
+ * compare-and-set operations and take no lock. Expiries are kept in a {@link HashedTimerWheel}
+ * advanced once per tick by {@link CouponReservationReaper}, so finding the reservations that
+ * have run out costs nothing per request and no scan of those still pending.
+ */
+@Service
+public class CouponReservationService {
+
+    private final CouponService couponService;
+    private final Clock clock;
+    private final long ttlMillis;
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final HashedTimerWheel<Reservation> expiries;
+    // Only touched while the wheel is advanced, under the lock of expireReservations
+    private int expired;
+
+    public CouponReservationService(CouponService couponService, CouponReservationProperties properties, Clock clock) {
+        this.couponService = couponService;
+        this.clock = clock;
+        this.ttlMillis = properties.getTtl().toMillis();
+        this.expiries = new HashedTimerWheel<>(properties.getTick().toMillis(), properties.getWheelSize(), clock.millis(),
+                this::expire);
+    }
+
+    /**
+     * Applies the coupon to the cart and holds one of its redemptions for the customer until the
+     * reservation is committed, released or expires. Throws like applying the coupon does if it
+     * does not apply or a redemption limit has been reached.
+     */
+    public ReservationResponse reserveCoupon(CatalogSnapshot snapshot, Long couponId, Cart cart, String customerId) {
+        return hold(couponService.redeem(snapshot, couponId, cart, customerId), customerId);
+    }
+
+    public ReservationResponse reserveCouponByCode(CatalogSnapshot snapshot, String code, Cart cart, String customerId) {
+        return hold(couponService.redeemByCode(snapshot, code, cart, customerId), customerId);
+    }
+
+    /**
+     * Keeps the reservation's redemption for good, once it is durable. A reservation that has
+     * expired can no longer be committed, even if its redemption has not been released yet.
+     */
+    public ReservationResponse commitReservation(String reservationId) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null || reservation.expiresAt <= clock.millis() || !reservation.settle()) {
+            throw notFound(reservationId);
+        }
+        reservations.remove(reservationId, reservation);
+        couponService.commitRedemption(reservation.redeemed);
+        return toResponse(reservation);
+    }
+
+    /**
+     * Gives the reservation's redemption back before it expires.
+     */
+    public void releaseReservation(String reservationId) {
+        Reservation reservation = reservations.get(reservationId);
+        if (reservation == null || !reservation.settle()) {
+            throw notFound(reservationId);
+        }
+        reservations.remove(reservationId, reservation);
+        reservation.redeemed.redemption().release();
+    }
+
+    /**
+     * Releases every reservation that has expired and was not settled in time, returning how
+     * many were released.
+     */
+    public synchronized int expireReservations() {
+        expired = 0;
+        expiries.advance(clock.millis());
+        return expired;
+    }
+
+    /**
+     * Reservations neither committed, released nor yet reclaimed by expiry.
+     */
+    public int pendingCount() {
+        return reservations.size();
+    }
+
+    private ReservationResponse hold(CouponService.Redeemed redeemed, String customerId) {
+        Reservation reservation = new Reservation(UUID.randomUUID().toString(), redeemed, customerId,
+                clock.millis() + ttlMillis);
+        reservations.put(reservation.id, reservation);
+        expiries.schedule(reservation, reservation.expiresAt);
+        return toResponse(reservation);
+    }
+
+    private void expire(Reservation reservation) {
+        // Loses the race to a commit or release that got there first, in which case there is
+        // nothing left to give back
+        if (reservation.settle()) {
+            reservations.remove(reservation.id, reservation);
+            reservation.redeemed.redemption().release();
+            expired++;
+        }
+    }
+
+    private static ReservationNotFoundException notFound(String reservationId) {
+        return new ReservationNotFoundException("Reservation " + reservationId + " not found or has expired");
+    }
+
+    private static ReservationResponse toResponse(Reservation reservation) {
+        return ReservationResponse.builder()
+                .reservationId(reservation.id)
+                .couponId(reservation.redeemed.couponId())
+                .customerId(reservation.customerId)
+                .cart(reservation.redeemed.cart())
+                .expiresAt(Instant.ofEpochMilli(reservation.expiresAt))
+                .build();
+    }
+
+    private static final class Reservation {
+        private final String id;
+        private final CouponService.Redeemed redeemed;
+        private final String customerId;
+        private final long expiresAt;
+        // Set once by whichever of commit, release and expiry comes first
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        Reservation(String id, CouponService.Redeemed redeemed, String customerId, long expiresAt) {
+            this.id = id;
+            this.redeemed = redeemed;
+            this.customerId = customerId;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+    }
+}
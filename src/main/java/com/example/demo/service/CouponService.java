@@ -1,14 +1,27 @@
 package com.example.demo.service;
 
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.springframework.stereotype.Service;
 
@@ -16,182 +29,421 @@ import com.example.demo.dto.ApplicableCouponResponse;
 import com.example.demo.dto.BxGyCouponRequest;
 import com.example.demo.dto.BxGyCouponResponse;
 import com.example.demo.dto.Cart;
-import com.example.demo.dto.CartItem;
+import com.example.demo.dto.CartEvaluationResult;
 import com.example.demo.dto.CartWiseCouponRequest;
 import com.example.demo.dto.CartWiseCouponResponse;
+import com.example.demo.dto.CouponPage;
 import com.example.demo.dto.CouponRequestDTO;
 import com.example.demo.dto.CouponResponseDTO;
 import com.example.demo.dto.ProductWiseCouponRequest;
 import com.example.demo.dto.ProductWiseCouponResponse;
+import com.example.demo.engine.CartContext;
+import com.example.demo.engine.CartFingerprint;
+import com.example.demo.engine.CouponEvaluator;
+import com.example.demo.engine.CouponEvaluators;
+import com.example.demo.engine.Money;
 import com.example.demo.exception.CouponExpiredException;
 import com.example.demo.exception.CouponNotApplicableException;
 import com.example.demo.exception.CouponNotFoundException;
+import com.example.demo.exception.DuplicateCouponCodeException;
 import com.example.demo.exception.InvalidCouponRequestException;
 import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.BxGyProductDetail;
 import com.example.demo.model.CartWiseCoupon;
 import com.example.demo.model.Coupon;
 import com.example.demo.model.CouponType;
 import com.example.demo.model.ProductWiseCoupon;
-import com.example.demo.strategy.CouponStrategy;
-
-import lombok.RequiredArgsConstructor;
+import com.example.demo.persistence.CouponMutation;
+import com.example.demo.persistence.CouponRepository;
 
 @Service
-@RequiredArgsConstructor
 public class CouponService {
 
-    private final Map<Long, Coupon> coupons = new ConcurrentHashMap<>();
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final AtomicLong idCounter = new AtomicLong();
-    private final CouponStrategyFactory couponStrategyFactory;
+    // The published catalog: every change in it is durable
+    private final AtomicReference<CatalogSnapshot> catalog;
+    // The catalog with every change applied, ahead of the published one while the newest changes
+    // are being made durable, the save that head waits on and the newest save of any kind; all
+    // guarded by this
+    private CatalogSnapshot head;
+    private CompletableFuture<Void> headSave = CompletableFuture.completedFuture(null);
+    private CompletableFuture<Void> lastSave = CompletableFuture.completedFuture(null);
+    private final CouponEvaluationExecutor evaluationExecutor;
+    private final ApplicableCouponCache resultCache;
+    private final CouponRepository repository;
+    private final Clock clock;
+    private final RedemptionLedger redemptions = new RedemptionLedger();
+    // Redemptions saved so far per coupon and customer (null for none), written out with each
+    // checkpoint because it drops the log they were saved to; guarded by this
+    private final Map<Long, Map<String, Long>> savedRedemptions = new HashMap<>();
+    // A lock rather than a monitor, so that a checkpoint written from a virtual thread does not
+    // pin its carrier thread for the whole write
+    private final Lock checkpointLock = new ReentrantLock();
+    private long checkpointedVersion = -1;
+
+    public CouponService(CouponEvaluationExecutor evaluationExecutor, ApplicableCouponCache resultCache,
+            CouponRepository repository, Clock clock) {
+        this.evaluationExecutor = evaluationExecutor;
+        this.resultCache = resultCache;
+        this.repository = repository;
+        this.clock = clock;
+        this.head = recover(LocalDate.now(clock));
+        this.catalog = new AtomicReference<>(head);
+    }
+
+    private static final Comparator<RankedCoupon> WORST_FIRST = Comparator
+            .comparingLong(RankedCoupon::discount)
+            .thenComparing(coupon -> coupon.evaluator().getCouponId(), Comparator.reverseOrder());
 
     public CouponResponseDTO createCoupon(CouponRequestDTO request) {
-        Coupon coupon;
-        Long newId = idCounter.incrementAndGet();
+        Coupon coupon = toCoupon(idCounter.incrementAndGet(), request);
+        publish(builder -> builder.put(coupon), List.of(CouponMutation.put(coupon)));
+        return convertToDto(coupon);
+    }
 
-        if (request instanceof CartWiseCouponRequest cartWiseRequest) {
-            coupon = CartWiseCoupon.builder()
-                    .id(newId)
-                    .type(CouponType.CART_WISE)
-                    .code(cartWiseRequest.getCode())
-                    .description(cartWiseRequest.getDescription())
-                    .expirationDate(cartWiseRequest.getExpirationDate())
-                    .threshold(cartWiseRequest.getThreshold())
-                    .discountPercentage(cartWiseRequest.getDiscountPercentage())
-                    .maxDiscountAmount(cartWiseRequest.getMaxDiscountAmount())
-                    .build();
-        } else if (request instanceof ProductWiseCouponRequest productWiseRequest) {
-            coupon = ProductWiseCoupon.builder()
-                    .id(newId)
-                    .type(CouponType.PRODUCT_WISE)
-                    .code(productWiseRequest.getCode())
-                    .description(productWiseRequest.getDescription())
-                    .expirationDate(productWiseRequest.getExpirationDate())
-                    .productId(productWiseRequest.getProductId())
-                    .discountPercentage(productWiseRequest.getDiscountPercentage())
-                    .fixedDiscountAmount(productWiseRequest.getFixedDiscountAmount())
-                    .minQuantity(productWiseRequest.getMinQuantity())
-                    .build();
-        } else if (request instanceof BxGyCouponRequest bxGyRequest) {
-            coupon = BxGyCoupon.builder()
-                    .id(newId)
-                    .type(CouponType.BXGY)
-                    .code(bxGyRequest.getCode())
-                    .description(bxGyRequest.getDescription())
-                    .expirationDate(bxGyRequest.getExpirationDate())
-                    .buyProducts(bxGyRequest.getBuyProducts())
-                    .getProducts(bxGyRequest.getGetProducts())
-                    .repetitionLimit(bxGyRequest.getRepetitionLimit())
-                    .build();
-        } else {
-            throw new InvalidCouponRequestException("Unknown coupon request type");
+    /**
+     * Creates every coupon in one catalog version, saved as one batch of mutations rather than
+     * one per coupon.
+     */
+    public List<CouponResponseDTO> createCoupons(List<? extends CouponRequestDTO> requests) {
+        List<Coupon> created = new ArrayList<>(requests.size());
+        for (CouponRequestDTO request : requests) {
+            created.add(toCoupon(idCounter.incrementAndGet(), request));
         }
+        publish(builder -> created.forEach(builder::put), created.stream().map(CouponMutation::put).toList());
+        return created.stream().map(this::convertToDto).collect(Collectors.toList());
+    }
 
+    /**
+     * Throws if the request cannot be turned into an evaluable coupon, or if its code is already
+     * taken in the current catalog. Nothing is published.
+     */
+    public void validate(CouponRequestDTO request) {
+        CouponEvaluators.compile(toCoupon(0L, request));
+        Coupon existing = snapshot().couponByCode(request.getCode());
+        if (existing != null) {
+            throw new DuplicateCouponCodeException("Coupon code '" + request.getCode() + "' is already in use by coupon " + existing.getId());
+        }
+    }
 
-        coupons.put(newId, coupon);
-        return convertToDto(coupon);
+    /**
+     * The current catalog version. Callers that need several reads to agree pin it once and
+     * pass it to the snapshot-taking overloads.
+     */
+    public CatalogSnapshot snapshot() {
+        return catalog.get();
     }
 
     public CouponResponseDTO getCouponById(Long id) {
-        return Optional.ofNullable(coupons.get(id))
+        return getCouponById(snapshot(), id);
+    }
+
+    public CouponResponseDTO getCouponById(CatalogSnapshot snapshot, Long id) {
+        return Optional.ofNullable(snapshot.coupon(id))
                 .map(this::convertToDto)
                 .orElseThrow(() -> new CouponNotFoundException("Coupon with id " + id + " not found"));
     }
 
+    public CouponResponseDTO getCouponByCode(CatalogSnapshot snapshot, String code) {
+        return convertToDto(findByCode(snapshot, code));
+    }
+
     public List<CouponResponseDTO> getAllCoupons() {
-        return coupons.values().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return getAllCoupons(snapshot());
+    }
+
+    public List<CouponResponseDTO> getAllCoupons(CatalogSnapshot snapshot) {
+        List<CouponResponseDTO> all = new ArrayList<>(snapshot.size());
+        streamCoupons(snapshot, null).forEachRemaining(all::add);
+        return all;
+    }
+
+    /**
+     * Returns up to {@code limit} coupons in ascending id order, starting after the coupon
+     * whose id is {@code cursor} (from the first coupon when null), optionally of one type.
+     */
+    public CouponPage getCouponPage(CatalogSnapshot snapshot, Long cursor, CouponType type, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidCouponRequestException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Iterator<Coupon> coupons = snapshot.couponsAfter(cursor != null ? cursor : Long.MIN_VALUE, type);
+        List<CouponResponseDTO> items = new ArrayList<>(limit);
+        while (items.size() < limit && coupons.hasNext()) {
+            items.add(convertToDto(coupons.next()));
+        }
+        return CouponPage.builder()
+                .items(items)
+                .nextCursor(coupons.hasNext() ? items.get(items.size() - 1).getId() : null)
+                .build();
+    }
+
+    /**
+     * Lazily converts the snapshot's coupons, in ascending id order and optionally of one type,
+     * so that a caller can write them out without materializing the catalog.
+     */
+    public Iterator<CouponResponseDTO> streamCoupons(CatalogSnapshot snapshot, CouponType type) {
+        Iterator<Coupon> coupons = snapshot.couponsAfter(Long.MIN_VALUE, type);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return coupons.hasNext();
+            }
+
+            @Override
+            public CouponResponseDTO next() {
+                return convertToDto(coupons.next());
+            }
+        };
     }
 
     public CouponResponseDTO updateCoupon(Long id, CouponRequestDTO request) {
-        Coupon existingCoupon = coupons.get(id);
-        if (existingCoupon == null) {
-            throw new CouponNotFoundException("Coupon with id " + id + " not found");
-        }
-
-        // Update common fields
-        existingCoupon.setCode(request.getCode());
-        existingCoupon.setDescription(request.getDescription());
-        existingCoupon.setExpirationDate(request.getExpirationDate());
-
-        if (request instanceof CartWiseCouponRequest cartWiseRequest && existingCoupon instanceof CartWiseCoupon) {
-            CartWiseCoupon coupon = (CartWiseCoupon) existingCoupon;
-            coupon.setThreshold(cartWiseRequest.getThreshold());
-            coupon.setDiscountPercentage(cartWiseRequest.getDiscountPercentage());
-            coupon.setMaxDiscountAmount(cartWiseRequest.getMaxDiscountAmount());
-        } else if (request instanceof ProductWiseCouponRequest productWiseRequest && existingCoupon instanceof ProductWiseCoupon) {
-            ProductWiseCoupon coupon = (ProductWiseCoupon) existingCoupon;
-            coupon.setProductId(productWiseRequest.getProductId());
-            coupon.setDiscountPercentage(productWiseRequest.getDiscountPercentage());
-            coupon.setFixedDiscountAmount(productWiseRequest.getFixedDiscountAmount());
-            coupon.setMinQuantity(productWiseRequest.getMinQuantity());
-        } else if (request instanceof BxGyCouponRequest bxGyRequest && existingCoupon instanceof BxGyCoupon) {
-            BxGyCoupon coupon = (BxGyCoupon) existingCoupon;
-            coupon.setBuyProducts(bxGyRequest.getBuyProducts());
-            coupon.setGetProducts(bxGyRequest.getGetProducts());
-            coupon.setRepetitionLimit(bxGyRequest.getRepetitionLimit());
-        } else {
-            throw new InvalidCouponRequestException("Mismatched coupon type for update or unknown request type");
-        }
-
-        coupons.put(id, existingCoupon); // Re-put to ensure thread safety if ConcurrentHashMap is used
-        return convertToDto(existingCoupon);
+        // Coupons are never modified in place: the update replaces the coupon in a new catalog version
+        Coupon updated = toCoupon(id, request);
+        publish(builder -> {
+            Coupon existingCoupon = builder.coupon(id);
+            if (existingCoupon == null) {
+                throw new CouponNotFoundException("Coupon with id " + id + " not found");
+            }
+            if (!isSameCouponType(request, existingCoupon)) {
+                throw new InvalidCouponRequestException("Mismatched coupon type for update or unknown request type");
+            }
+            builder.put(updated);
+        }, List.of(CouponMutation.put(updated)));
+        return convertToDto(updated);
     }
 
     public void deleteCoupon(Long id) {
-        if (!coupons.containsKey(id)) {
-            throw new CouponNotFoundException("Coupon with id " + id + " not found");
+        publish(builder -> {
+            if (builder.remove(id) == null) {
+                throw new CouponNotFoundException("Coupon with id " + id + " not found");
+            }
+        }, List.of(CouponMutation.delete(id)));
+        redemptions.forget(id);
+        synchronized (this) {
+            savedRedemptions.remove(id);
+        }
+    }
+
+    /**
+     * Advances the catalog's current day from the clock and drops every coupon that has expired
+     * by it, saving a delete for each. Returns the number of coupons removed.
+     */
+    public int purgeExpired() {
+        LocalDate today = LocalDate.now(clock);
+        // Saved so that a restart cannot bring a purged coupon back next to a newer coupon that
+        // reuses its code; filled in by the changes, which run before the mutations are saved
+        List<CouponMutation> deletes = new ArrayList<>();
+        publish(builder -> builder.advanceTo(today).forEach(id -> deletes.add(CouponMutation.delete(id))), deletes);
+        if (!deletes.isEmpty()) {
+            redemptions.retainCatalog(snapshot());
+            synchronized (this) {
+                deletes.forEach(delete -> savedRedemptions.remove(delete.couponId()));
+            }
+        }
+        return deletes.size();
+    }
+
+    /**
+     * Writes a checkpoint of the current catalog to the repository, if its backend takes them.
+     * Only pinning the snapshot and starting the checkpoint happen under the writer lock; the
+     * checkpoint is written from the immutable snapshot, once every change in it is durable,
+     * while writers carry on. Returns false if no checkpoint was written, because nothing has
+     * changed since the last one, the backend needs none or a change in the snapshot could not
+     * be made durable.
+     */
+    public boolean checkpoint() {
+        checkpointLock.lock();
+        try {
+            CatalogSnapshot snapshot;
+            CompletableFuture<Void> saved;
+            Optional<CouponRepository.Checkpoint> checkpoint;
+            List<CouponMutation> redeemed = new ArrayList<>();
+            synchronized (this) {
+                snapshot = head;
+                saved = lastSave;
+                if (snapshot.getVersion() == checkpointedVersion) {
+                    return false;
+                }
+                checkpoint = repository.startCheckpoint(idCounter.get());
+                if (checkpoint.isPresent()) {
+                    savedRedemptions.forEach((couponId, byCustomer) -> byCustomer.forEach(
+                            (customerId, count) -> redeemed.add(CouponMutation.redeem(couponId, customerId, count))));
+                }
+            }
+            if (checkpoint.isEmpty() || saved.handle((ignored, failure) -> failure == null).join() == Boolean.FALSE) {
+                return false;
+            }
+            checkpoint.get().write(snapshot.couponsAfter(Long.MIN_VALUE, null), redeemed);
+            checkpointedVersion = snapshot.getVersion();
+            return true;
+        } finally {
+            checkpointLock.unlock();
         }
-        coupons.remove(id);
     }
 
     public List<ApplicableCouponResponse> getApplicableCoupons(Cart cart) {
-        // Calculate totalOriginalPrice for the cart
-        cart.setTotalOriginalPrice(cart.getItems().stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        return getApplicableCoupons(snapshot(), cart);
+    }
 
-        List<ApplicableCouponResponse> applicableCoupons = new ArrayList<>();
-        for (Coupon coupon : coupons.values()) {
-            if (coupon.getExpirationDate() != null && coupon.getExpirationDate().isBefore(LocalDate.now())) {
-                continue; // Skip expired coupons
+    public List<ApplicableCouponResponse> getApplicableCoupons(CatalogSnapshot snapshot, Cart cart) {
+        // Merge lines and calculate totalOriginalPrice for the cart once for every coupon
+        CartContext context = CartContext.of(cart);
+        cart.setTotalOriginalPrice(context.getTotalOriginalPrice().toBigDecimal());
+
+        // Identical carts get identical results from the same catalog version
+        CartFingerprint fingerprint = CartFingerprint.of(context);
+        List<ApplicableCouponResponse> cached = resultCache.get(snapshot.getVersion(), fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+        List<ApplicableCouponResponse> applicable = evaluationExecutor.evaluate(snapshot.candidates(context), evaluator -> {
+            Money discount = evaluator.evaluate(context);
+            if (discount == null) {
+                return null;
             }
+            return ApplicableCouponResponse.builder()
+                    .couponId(evaluator.getCouponId())
+                    .type(evaluator.getType())
+                    .discountAmount(discount.toBigDecimal())
+                    .build();
+        });
+        return resultCache.put(snapshot.getVersion(), fingerprint, applicable);
+    }
+
+    /**
+     * Evaluates every cart against the same catalog snapshot, with the carts spread across the
+     * evaluation pool. Results are in request order.
+     */
+    public List<CartEvaluationResult> getApplicableCoupons(CatalogSnapshot snapshot, List<Cart> carts) {
+        if (carts.size() > evaluationExecutor.getMaxBatchSize()) {
+            throw new InvalidCouponRequestException("A batch may contain at most " + evaluationExecutor.getMaxBatchSize() + " carts");
+        }
+        List<Integer> cartIndexes = IntStream.range(0, carts.size()).boxed().toList();
+        return evaluationExecutor.evaluateEach(cartIndexes, cartIndex -> CartEvaluationResult.builder()
+                .cartIndex(cartIndex)
+                .applicableCoupons(getApplicableCoupons(snapshot, carts.get(cartIndex)))
+                .build());
+    }
+
+    /**
+     * Returns the {@code limit} applicable coupons with the largest discounts, largest first and
+     * then by coupon id. Candidates are visited in descending order of their discount upper
+     * bound, and the exact discount is only computed while a candidate could still displace the
+     * smallest of the best {@code limit} found so far.
+     */
+    public List<ApplicableCouponResponse> getBestCoupons(Cart cart, int limit) {
+        return getBestCoupons(snapshot(), cart, limit);
+    }
+
+    public List<ApplicableCouponResponse> getBestCoupons(CatalogSnapshot snapshot, Cart cart, int limit) {
+        if (limit < 1) {
+            throw new InvalidCouponRequestException("limit must be at least 1");
+        }
+        CartContext context = CartContext.of(cart);
+        cart.setTotalOriginalPrice(context.getTotalOriginalPrice().toBigDecimal());
 
-            CouponStrategy strategy = couponStrategyFactory.getStrategy(coupon.getType());
-            if (strategy.isApplicable(cart, coupon)) {
-                BigDecimal discountAmount = strategy.calculateDiscount(cart, coupon);
-                applicableCoupons.add(ApplicableCouponResponse.builder()
-                        .couponId(coupon.getId())
-                        .type(coupon.getType())
-                        .discountAmount(discountAmount)
-                        .build());
+        List<BoundedCandidate> bounded = new ArrayList<>();
+        for (CouponEvaluator evaluator : snapshot.candidates(context)) {
+            bounded.add(new BoundedCandidate(evaluator, evaluator.discountUpperBound(context)));
+        }
+        // Heapified in linear time; only the candidates actually examined are polled
+        PriorityQueue<BoundedCandidate> byBound = new PriorityQueue<>(bounded);
+        PriorityQueue<RankedCoupon> best = new PriorityQueue<>(Math.min(limit, bounded.size()) + 1, WORST_FIRST);
+        while (!byBound.isEmpty()) {
+            BoundedCandidate candidate = byBound.poll();
+            if (best.size() == limit && candidate.upperBound() < best.peek().discount()) {
+                break; // Neither this candidate nor any later one can beat the current top K
+            }
+            CouponEvaluator evaluator = candidate.evaluator();
+            Money discount = evaluator.evaluate(context);
+            if (discount == null) {
+                continue;
+            }
+            best.offer(new RankedCoupon(evaluator, discount.minorUnits()));
+            if (best.size() > limit) {
+                best.poll();
             }
         }
-        return applicableCoupons;
+
+        ApplicableCouponResponse[] ranked = new ApplicableCouponResponse[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            RankedCoupon coupon = best.poll();
+            ranked[i] = ApplicableCouponResponse.builder()
+                    .couponId(coupon.evaluator().getCouponId())
+                    .type(coupon.evaluator().getType())
+                    .discountAmount(Money.ofMinor(coupon.discount()).toBigDecimal())
+                    .build();
+        }
+        return Arrays.asList(ranked);
     }
 
     public Cart applyCoupon(Long couponId, Cart cart) {
-        Coupon coupon = coupons.get(couponId);
-        if (coupon == null) {
+        return applyCoupon(snapshot(), couponId, cart);
+    }
+
+    public Cart applyCoupon(CatalogSnapshot snapshot, Long couponId, Cart cart) {
+        return applyCoupon(snapshot, couponId, cart, null);
+    }
+
+    /**
+     * Applies the coupon to the cart and counts it as redeemed by the customer, who may be null
+     * unless the coupon limits redemptions per customer. Throws without counting anything if the
+     * coupon does not apply or a redemption limit has been reached.
+     */
+    public Cart applyCoupon(CatalogSnapshot snapshot, Long couponId, Cart cart, String customerId) {
+        Redeemed redeemed = redeem(snapshot, couponId, cart, customerId);
+        commitRedemption(redeemed);
+        return redeemed.cart();
+    }
+
+    /**
+     * Applies the coupon like {@link #applyCoupon(CatalogSnapshot, Long, Cart, String)} without
+     * waiting for the redemption to be durable: the returned future completes with the cart once
+     * it is, and completes exceptionally if it could not be saved. Checks that fail still throw.
+     */
+    public CompletableFuture<Cart> applyCouponAsync(CatalogSnapshot snapshot, Long couponId, Cart cart, String customerId) {
+        Redeemed redeemed = redeem(snapshot, couponId, cart, customerId);
+        return saveRedemption(redeemed).thenApply(durable -> redeemed.cart());
+    }
+
+    public CompletableFuture<Cart> applyCouponByCodeAsync(CatalogSnapshot snapshot, String code, Cart cart, String customerId) {
+        return applyCouponAsync(snapshot, findByCode(snapshot, code).getId(), cart, customerId);
+    }
+
+    public Cart applyCouponByCode(CatalogSnapshot snapshot, String code, Cart cart) {
+        return applyCouponByCode(snapshot, code, cart, null);
+    }
+
+    public Cart applyCouponByCode(CatalogSnapshot snapshot, String code, Cart cart, String customerId) {
+        return applyCoupon(snapshot, findByCode(snapshot, code).getId(), cart, customerId);
+    }
+
+    /**
+     * Applies the coupon like {@link #applyCoupon(CatalogSnapshot, Long, Cart, String)},
+     * returning the redemption taken along with the cart so that it can be given back.
+     */
+    Redeemed redeem(CatalogSnapshot snapshot, Long couponId, Cart cart, String customerId) {
+        CouponEvaluator evaluator = snapshot.evaluator(couponId);
+        if (evaluator == null) {
+            if (snapshot.coupon(couponId) != null) {
+                // Stored but not live: expired and waiting for the next purge
+                throw new CouponExpiredException("Coupon with id " + couponId + " has expired");
+            }
             throw new CouponNotFoundException("Coupon with id " + couponId + " not found");
         }
-        if (coupon.getExpirationDate() != null && coupon.getExpirationDate().isBefore(LocalDate.now())) {
-            throw new CouponExpiredException("Coupon with id " + couponId + " has expired");
-        }
 
-        // Calculate totalOriginalPrice for the cart
-        cart.setTotalOriginalPrice(cart.getItems().stream()
-                .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add));
+        // Merge lines and calculate totalOriginalPrice for the cart
+        CartContext context = CartContext.of(cart);
+        cart.setTotalOriginalPrice(context.getTotalOriginalPrice().toBigDecimal());
 
-        CouponStrategy strategy = couponStrategyFactory.getStrategy(coupon.getType());
-        if (!strategy.isApplicable(cart, coupon)) {
+        // Apply discount and update cart totals
+        Cart updatedCart = evaluator.tryApply(context);
+        if (updatedCart == null) {
             throw new CouponNotApplicableException("Coupon with id " + couponId + " is not applicable to the cart");
         }
 
-        // Apply discount and update cart totals
-        Cart updatedCart = strategy.applyDiscount(cart, coupon);
-
         // Ensure finalPrice and totalDiscount are set even if strategy doesn't fully set them
         if (updatedCart.getTotalDiscount() == null) {
             updatedCart.setTotalDiscount(BigDecimal.ZERO);
@@ -200,7 +452,229 @@ public class CouponService {
             updatedCart.setFinalPrice(updatedCart.getTotalOriginalPrice().subtract(updatedCart.getTotalDiscount()));
         }
 
-        return updatedCart;
+        // Limits come from the current catalog, so that a request still pinned to an older
+        // version cannot resize the counters back to a limit that has since been updated
+        Coupon current = snapshot().coupon(couponId);
+        RedemptionLedger.Redemption redemption = redemptions.redeem(current != null ? current : snapshot.coupon(couponId), customerId);
+        return new Redeemed(couponId, updatedCart, redemption);
+    }
+
+    /**
+     * Saves a redemption taken by {@link #redeem} as committed, so that it still counts against
+     * the coupon's limits after a restart, and waits until it is durable. Redemptions that no
+     * limit counted are not saved. If the save fails, the redemption is given back and the call
+     * throws.
+     */
+    void commitRedemption(Redeemed redeemed) {
+        try {
+            saveRedemption(redeemed).join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    /**
+     * Saves a redemption like {@link #commitRedemption} without waiting for it: the returned
+     * future completes once it is durable, or exceptionally with an {@link IllegalStateException}
+     * once it has been given back.
+     */
+    CompletableFuture<Void> saveRedemption(Redeemed redeemed) {
+        RedemptionLedger.Redemption redemption = redeemed.redemption();
+        if (!redemption.isCounted()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> durable;
+        synchronized (this) {
+            durable = repository.save(List.of(CouponMutation.redeem(redeemed.couponId(), redemption.customerId(), 1)));
+            lastSave = durable;
+            savedRedemptions.computeIfAbsent(redeemed.couponId(), id -> new HashMap<>()).merge(redemption.customerId(), 1L, Long::sum);
+        }
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        durable.whenComplete((result, failure) -> {
+            if (failure == null) {
+                committed.complete(null);
+                return;
+            }
+            synchronized (this) {
+                Map<String, Long> byCustomer = savedRedemptions.get(redeemed.couponId());
+                if (byCustomer != null) {
+                    byCustomer.computeIfPresent(redemption.customerId(), (customerId, count) -> count > 1 ? count - 1 : null);
+                }
+                clearRepositoryFailureOnceRolledBack();
+            }
+            redemption.release();
+            Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            committed.completeExceptionally(new IllegalStateException("Coupon redemption could not be made durable and was given back", cause));
+        });
+        return committed;
+    }
+
+    Redeemed redeemByCode(CatalogSnapshot snapshot, String code, Cart cart, String customerId) {
+        return redeem(snapshot, findByCode(snapshot, code).getId(), cart, customerId);
+    }
+
+    private static Coupon findByCode(CatalogSnapshot snapshot, String code) {
+        Coupon coupon = snapshot.couponByCode(code);
+        if (coupon == null) {
+            throw new CouponNotFoundException("Coupon with code " + code + " not found");
+        }
+        return coupon;
+    }
+
+    /**
+     * Applies the changes on top of every change made so far, saves the mutations that describe
+     * them and, once they are durable, publishes the result as the next version. Writers are
+     * serialized and save their mutations in version order; if the changes throw, nothing is
+     * saved. The wait for durability happens outside the lock, so concurrent writers share the
+     * repository's fsyncs or commits, and readers never see a version before it is durable.
+     *
+     * <p>If the save fails, the change is rolled back: the next writer starts again from the
+     * version it was made on. The repository fails every later save too, so the writers that
+     * built on it roll back with it, and the published catalog stays the last durable one. Once
+     * the head is back on a durable version, the repository is told it may take saves again.
+     */
+    private void publish(Consumer<CatalogSnapshot.Builder> changes, List<CouponMutation> mutations) {
+        CatalogSnapshot base;
+        CatalogSnapshot next;
+        CompletableFuture<Void> baseSave;
+        CompletableFuture<Void> durable;
+        synchronized (this) {
+            base = head;
+            baseSave = headSave;
+            CatalogSnapshot.Builder builder = base.toBuilder();
+            changes.accept(builder);
+            next = builder.build();
+            if (next == base) {
+                return;
+            }
+            // A change with nothing to save, like a new day, still waits for the changes under it
+            durable = mutations.isEmpty() ? lastSave : repository.save(mutations);
+            head = next;
+            headSave = durable;
+            lastSave = durable;
+        }
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            synchronized (this) {
+                if (head.getVersion() >= next.getVersion()) {
+                    head = base;
+                    headSave = baseSave;
+                }
+                clearRepositoryFailureOnceRolledBack();
+            }
+            throw new IllegalStateException("Coupon change could not be made durable and was rolled back", e.getCause());
+        }
+        // Writers may get here out of order; a later version already published includes this one
+        catalog.accumulateAndGet(next, (current, candidate) -> candidate.getVersion() > current.getVersion() ? candidate : current);
+    }
+
+    /**
+     * Lets the repository take saves again once the head no longer builds on a failed save.
+     * Saves complete in order, so by the time one has failed, the head's save has either
+     * completed normally, making every change in the head durable, or is among those that
+     * failed, in which case a later rollback clears the failure instead. Saves made from here on
+     * build on a durable head, while those made before, which may build on the failed one, still
+     * fail. Must be called holding this.
+     */
+    private void clearRepositoryFailureOnceRolledBack() {
+        if (headSave.isDone() && !headSave.isCompletedExceptionally()) {
+            lastSave = headSave;
+            repository.clearFailure();
+        }
+    }
+
+    /**
+     * Rebuilds the catalog from the repository, along with the redemption counts of the coupons
+     * still in it, and moves the id counter past every id handed out, including ids of coupons
+     * deleted since.
+     */
+    private CatalogSnapshot recover(LocalDate today) {
+        CatalogSnapshot.Builder builder = CatalogSnapshot.empty(today).toBuilder();
+        Map<Long, Map<String, Long>> redeemed = new HashMap<>();
+        idCounter.set(repository.load(mutation -> {
+            switch (mutation.kind()) {
+                case PUT -> builder.restore(mutation.coupon());
+                case DELETE -> {
+                    builder.remove(mutation.couponId());
+                    redeemed.remove(mutation.couponId());
+                }
+                case REDEEM -> redeemed.computeIfAbsent(mutation.couponId(), id -> new HashMap<>())
+                        .merge(mutation.customerId(), mutation.redemptions(), Long::sum);
+            }
+        }));
+        builder.advanceTo(today);
+        CatalogSnapshot recovered = builder.build();
+        redeemed.forEach((couponId, byCustomer) -> {
+            Coupon coupon = recovered.coupon(couponId);
+            if (coupon != null) {
+                redemptions.restore(coupon, byCustomer);
+                savedRedemptions.put(couponId, byCustomer);
+            }
+        });
+        return recovered;
+    }
+
+    private Coupon toCoupon(Long id, CouponRequestDTO request) {
+        if (request instanceof CartWiseCouponRequest cartWiseRequest) {
+            return CartWiseCoupon.builder()
+                    .id(id)
+                    .type(CouponType.CART_WISE)
+                    .code(cartWiseRequest.getCode())
+                    .description(cartWiseRequest.getDescription())
+                    .expirationDate(cartWiseRequest.getExpirationDate())
+                    .maxRedemptions(cartWiseRequest.getMaxRedemptions())
+                    .maxRedemptionsPerCustomer(cartWiseRequest.getMaxRedemptionsPerCustomer())
+                    .threshold(cartWiseRequest.getThreshold())
+                    .discountPercentage(cartWiseRequest.getDiscountPercentage())
+                    .maxDiscountAmount(cartWiseRequest.getMaxDiscountAmount())
+                    .build();
+        } else if (request instanceof ProductWiseCouponRequest productWiseRequest) {
+            return ProductWiseCoupon.builder()
+                    .id(id)
+                    .type(CouponType.PRODUCT_WISE)
+                    .code(productWiseRequest.getCode())
+                    .description(productWiseRequest.getDescription())
+                    .expirationDate(productWiseRequest.getExpirationDate())
+                    .maxRedemptions(productWiseRequest.getMaxRedemptions())
+                    .maxRedemptionsPerCustomer(productWiseRequest.getMaxRedemptionsPerCustomer())
+                    .productId(productWiseRequest.getProductId())
+                    .discountPercentage(productWiseRequest.getDiscountPercentage())
+                    .fixedDiscountAmount(productWiseRequest.getFixedDiscountAmount())
+                    .minQuantity(productWiseRequest.getMinQuantity())
+                    .build();
+        } else if (request instanceof BxGyCouponRequest bxGyRequest) {
+            return BxGyCoupon.builder()
+                    .id(id)
+                    .type(CouponType.BXGY)
+                    .code(bxGyRequest.getCode())
+                    .description(bxGyRequest.getDescription())
+                    .expirationDate(bxGyRequest.getExpirationDate())
+                    .maxRedemptions(bxGyRequest.getMaxRedemptions())
+                    .maxRedemptionsPerCustomer(bxGyRequest.getMaxRedemptionsPerCustomer())
+                    .buyProducts(copyOf(bxGyRequest.getBuyProducts()))
+                    .getProducts(copyOf(bxGyRequest.getGetProducts()))
+                    .repetitionLimit(bxGyRequest.getRepetitionLimit())
+                    .build();
+        }
+        throw new InvalidCouponRequestException("Unknown coupon request type");
+    }
+
+    private static List<BxGyProductDetail> copyOf(List<BxGyProductDetail> details) {
+        if (details == null) {
+            return null;
+        }
+        List<BxGyProductDetail> copy = new ArrayList<>(details.size());
+        for (BxGyProductDetail detail : details) {
+            copy.add(BxGyProductDetail.builder().productId(detail.getProductId()).quantity(detail.getQuantity()).build());
+        }
+        return Collections.unmodifiableList(copy);
+    }
+
+    private boolean isSameCouponType(CouponRequestDTO request, Coupon coupon) {
+        return (request instanceof CartWiseCouponRequest && coupon instanceof CartWiseCoupon)
+                || (request instanceof ProductWiseCouponRequest && coupon instanceof ProductWiseCoupon)
+                || (request instanceof BxGyCouponRequest && coupon instanceof BxGyCoupon);
     }
 
     private CouponResponseDTO convertToDto(Coupon coupon) {
@@ -211,6 +685,8 @@ public class CouponService {
             dto.setCode(cartWiseCoupon.getCode());
             dto.setDescription(cartWiseCoupon.getDescription());
             dto.setExpirationDate(cartWiseCoupon.getExpirationDate());
+            dto.setMaxRedemptions(cartWiseCoupon.getMaxRedemptions());
+            dto.setMaxRedemptionsPerCustomer(cartWiseCoupon.getMaxRedemptionsPerCustomer());
             dto.setThreshold(cartWiseCoupon.getThreshold());
             dto.setDiscountPercentage(cartWiseCoupon.getDiscountPercentage());
             dto.setMaxDiscountAmount(cartWiseCoupon.getMaxDiscountAmount());
@@ -222,6 +698,8 @@ public class CouponService {
             dto.setCode(productWiseCoupon.getCode());
             dto.setDescription(productWiseCoupon.getDescription());
             dto.setExpirationDate(productWiseCoupon.getExpirationDate());
+            dto.setMaxRedemptions(productWiseCoupon.getMaxRedemptions());
+            dto.setMaxRedemptionsPerCustomer(productWiseCoupon.getMaxRedemptionsPerCustomer());
             dto.setProductId(productWiseCoupon.getProductId());
             dto.setDiscountPercentage(productWiseCoupon.getDiscountPercentage());
             dto.setFixedDiscountAmount(productWiseCoupon.getFixedDiscountAmount());
@@ -234,6 +712,8 @@ public class CouponService {
             dto.setCode(bxGyCoupon.getCode());
             dto.setDescription(bxGyCoupon.getDescription());
             dto.setExpirationDate(bxGyCoupon.getExpirationDate());
+            dto.setMaxRedemptions(bxGyCoupon.getMaxRedemptions());
+            dto.setMaxRedemptionsPerCustomer(bxGyCoupon.getMaxRedemptionsPerCustomer());
             dto.setBuyProducts(bxGyCoupon.getBuyProducts());
             dto.setGetProducts(bxGyCoupon.getGetProducts());
             dto.setRepetitionLimit(bxGyCoupon.getRepetitionLimit());
@@ -241,4 +721,20 @@ public class CouponService {
         }
         throw new InvalidCouponRequestException("Unknown coupon type for DTO conversion");
     }
+
+    private record BoundedCandidate(CouponEvaluator evaluator, long upperBound) implements Comparable<BoundedCandidate> {
+        @Override
+        public int compareTo(BoundedCandidate other) {
+            return Long.compare(other.upperBound, upperBound);
+        }
+    }
+
+    private record RankedCoupon(CouponEvaluator evaluator, long discount) {
+    }
+
+    /**
+     * A coupon applied to a cart, with the redemption it was counted as.
+     */
+    record Redeemed(Long couponId, Cart cart, RedemptionLedger.Redemption redemption) {
+    }
 }
@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Fires timeouts in ticks of a fixed length, costing a constant amount of work to schedule one
+ * and per tick to advance, however many are pending.
+ *
+ * <p>Timeouts live in a ring of buckets, the one for tick {@code t} being {@code t % wheelSize};
+ * a deadline more than a full turn away waits in its bucket until the wheel has come round
+ * enough times. Scheduling only appends to a lock-free queue, so callers never contend with each
+ * other or with the tick. {@link #advance} is called from a single thread: it moves newly
+ * scheduled timeouts into their buckets and fires those that are due. A timeout fires at the
+ * end of the tick its deadline falls in, and never before the deadline.
+ */
+final class HashedTimerWheel<T> {
+
+    private final long tickMillis;
+    private final Queue<Timeout<T>>[] buckets;
+    private final int mask;
+    private final Queue<Timeout<T>> scheduled = new ConcurrentLinkedQueue<>();
+    private final Consumer<T> onTimeout;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    HashedTimerWheel(long tickMillis, int wheelSize, long startMillis, Consumer<T> onTimeout) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        int size = Integer.highestOneBit(wheelSize * 2 - 1);
+        this.tickMillis = tickMillis;
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.tick = startMillis / tickMillis;
+        this.onTimeout = onTimeout;
+    }
+
+    /**
+     * Schedules the item to be handed to the timeout callback once the deadline has passed.
+     * Safe to call from any thread.
+     */
+    void schedule(T item, long deadlineMillis) {
+        // Rounded up, so that it never fires before the deadline
+        scheduled.add(new Timeout<>(item, Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis)));
+    }
+
+    /**
+     * Runs every tick that has ended by the given time, returning the number of timeouts fired.
+     * Must only be called from one thread at a time.
+     */
+    int advance(long nowMillis) {
+        int fired = 0;
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        while (tick < target) {
+            tick++;
+            transferScheduled();
+            Queue<Timeout<T>> bucket = buckets[(int) (tick & mask)];
+            for (int i = bucket.size(); i > 0; i--) {
+                Timeout<T> timeout = bucket.poll();
+                if (timeout.deadlineTick() <= tick) {
+                    onTimeout.accept(timeout.item());
+                    fired++;
+                } else {
+                    bucket.add(timeout);
+                }
+            }
+        }
+        return fired;
+    }
+
+    private void transferScheduled() {
+        Timeout<T> timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            // Already due: fire it in the tick being run rather than a full turn from now
+            long due = Math.max(timeout.deadlineTick(), tick);
+            buckets[(int) (due & mask)].add(timeout);
+        }
+    }
+
+    private record Timeout<T>(T item, long deadlineTick) {
+    }
+}
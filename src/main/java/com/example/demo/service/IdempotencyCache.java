@@ -0,0 +1,140 @@
+package com.example.demo.service;
+
+import java.time.Clock;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.example.demo.config.CouponIdempotencyProperties;
+import com.example.demo.exception.IdempotencyKeyReusedException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+/**
+ * Remembers the response to each client-supplied idempotency key for a fixed time, so that a
+ * retried request gets the original response instead of being executed again. Concurrent
+ * requests with the same key wait for the first one's computation rather than starting their
+ * own. A computation that throws is not remembered: its waiters see the same exception and the
+ * next request with the key runs again.
+ *
+ * <p>Keys are held in the order they were first seen, which with a single TTL is also the order
+ * they expire in; once more than the maximum number are held the oldest is dropped early.
+ * Replays, first executions and evictions are published as the standard Micrometer
+ * {@code cache.*} meters tagged {@code cache=idempotency-keys}.
+ */
+@Component
+public class IdempotencyCache {
+
+    static final String CACHE_NAME = "idempotency-keys";
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public IdempotencyCache(CouponIdempotencyProperties properties, Clock clock, MeterRegistry meterRegistry) {
+        this.maxEntries = properties.getMaxEntries();
+        this.ttlMillis = properties.getTtl().toMillis();
+        this.clock = clock;
+        Tags tags = Tags.of("cache", CACHE_NAME);
+        this.hits = meterRegistry.counter("cache.gets", tags.and("result", "hit"));
+        this.misses = meterRegistry.counter("cache.gets", tags.and("result", "miss"));
+        this.evictions = meterRegistry.counter("cache.evictions", tags);
+        Gauge.builder("cache.size", this, IdempotencyCache::size).tags(tags).register(meterRegistry);
+    }
+
+    /**
+     * Returns the remembered result for the key, or computes and remembers it. The request is
+     * compared with the one the key was first used for; a key reused for a different request is
+     * refused rather than replayed.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Object request, Supplier<T> computation) {
+        if (maxEntries <= 0) {
+            return computation.get();
+        }
+        Entry entry;
+        boolean first = false;
+        synchronized (this) {
+            long now = clock.millis();
+            expire(now);
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(request, new CompletableFuture<>(), now + ttlMillis);
+                entries.put(key, entry);
+                first = true;
+                misses.increment();
+                evictOverflow();
+            } else {
+                hits.increment();
+            }
+        }
+        if (!entry.request().equals(request)) {
+            throw new IdempotencyKeyReusedException("Idempotency key '" + key + "' was already used for a different request");
+        }
+        if (first) {
+            return compute(key, entry, computation);
+        }
+        try {
+            return (T) entry.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private <T> T compute(String key, Entry entry, Supplier<T> computation) {
+        T result;
+        try {
+            result = computation.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.result().completeExceptionally(e);
+            throw e;
+        }
+        entry.result().complete(result);
+        return result;
+    }
+
+    private void expire(long now) {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (eldest.hasNext() && eldest.next().expiresAt() <= now) {
+            eldest.remove();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private record Entry(Object request, CompletableFuture<Object> result, long expiresAt) {
+    }
+}
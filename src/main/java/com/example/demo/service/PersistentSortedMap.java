@@ -0,0 +1,216 @@
+package com.example.demo.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * An immutable sorted map whose updates return a new map that shares every node with this one
+ * except the O(log n) on the path to the changed key, so that a {@link CatalogSnapshot} can be
+ * derived from the previous one without copying it.
+ *
+ * <p>It is a treap: nodes are ordered by key and heap-ordered by a random priority, which keeps
+ * the expected depth logarithmic whatever order keys are added in. Keys and values may not be
+ * null.
+ */
+final class PersistentSortedMap<K, V> {
+
+    private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(null, 0, null);
+
+    private final Comparator<? super K> comparator;
+    private final int size;
+    private final Node<K, V> root;
+
+    private PersistentSortedMap(Comparator<? super K> comparator, int size, Node<K, V> root) {
+        this.comparator = comparator;
+        this.size = size;
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+        return (PersistentSortedMap<K, V>) EMPTY;
+    }
+
+    static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentSortedMap<>(comparator, 0, null);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = compare(key, node.key);
+            if (cmp == 0) {
+                return node.value;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with the key mapped to the value, or this map if it already was.
+     */
+    PersistentSortedMap<K, V> put(K key, V value) {
+        V existing = get(key);
+        if (existing == value) {
+            return this;
+        }
+        int priority = ThreadLocalRandom.current().nextInt();
+        return new PersistentSortedMap<>(comparator, existing == null ? size + 1 : size, insert(root, key, value, priority));
+    }
+
+    /**
+     * Returns a map without the key, or this map if it has no such key.
+     */
+    PersistentSortedMap<K, V> remove(K key) {
+        if (!containsKey(key)) {
+            return this;
+        }
+        return new PersistentSortedMap<>(comparator, size - 1, delete(root, key));
+    }
+
+    /**
+     * Iterates lazily, in ascending key order, over the values whose key is greater than
+     * {@code after}, or over every value when it is null.
+     */
+    Iterator<V> valuesAfter(K after) {
+        return new NodeIterator<>(this, after, node -> node.value);
+    }
+
+    Iterator<K> keysAfter(K after) {
+        return new NodeIterator<>(this, after, node -> node.key);
+    }
+
+    /**
+     * Returns, in ascending key order, the values whose key is less than {@code bound}, or at
+     * most {@code bound} if {@code inclusive}.
+     */
+    List<V> valuesBefore(K bound, boolean inclusive) {
+        List<V> values = new ArrayList<>();
+        NodeIterator<K, V, Node<K, V>> nodes = new NodeIterator<>(this, null, Function.identity());
+        while (nodes.hasNext()) {
+            Node<K, V> node = nodes.next();
+            int cmp = compare(node.key, bound);
+            if (cmp > 0 || (cmp == 0 && !inclusive)) {
+                break;
+            }
+            values.add(node.value);
+        }
+        return values;
+    }
+
+    private Node<K, V> insert(Node<K, V> node, K key, V value, int priority) {
+        if (node == null) {
+            return new Node<>(key, value, priority, null, null);
+        }
+        int cmp = compare(key, node.key);
+        if (cmp == 0) {
+            return new Node<>(key, value, node.priority, node.left, node.right);
+        }
+        if (cmp < 0) {
+            Node<K, V> left = insert(node.left, key, value, priority);
+            // Rotate the new node up while it outranks its parent
+            return left.priority > node.priority ? left.withRight(node.withLeft(left.right)) : node.withLeft(left);
+        }
+        Node<K, V> right = insert(node.right, key, value, priority);
+        return right.priority > node.priority ? right.withLeft(node.withRight(right.left)) : node.withRight(right);
+    }
+
+    private Node<K, V> delete(Node<K, V> node, K key) {
+        int cmp = compare(key, node.key);
+        if (cmp < 0) {
+            return node.withLeft(delete(node.left, key));
+        }
+        if (cmp > 0) {
+            return node.withRight(delete(node.right, key));
+        }
+        return merge(node.left, node.right);
+    }
+
+    /**
+     * Joins two treaps whose keys are all smaller in the first than in the second.
+     */
+    private static <K, V> Node<K, V> merge(Node<K, V> smaller, Node<K, V> larger) {
+        if (smaller == null) {
+            return larger;
+        }
+        if (larger == null) {
+            return smaller;
+        }
+        return smaller.priority > larger.priority
+                ? smaller.withRight(merge(smaller.right, larger))
+                : larger.withLeft(merge(smaller, larger.left));
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(K a, K b) {
+        return comparator != null ? comparator.compare(a, b) : ((Comparable<? super K>) a).compareTo(b);
+    }
+
+    private record Node<K, V>(K key, V value, int priority, Node<K, V> left, Node<K, V> right) {
+        Node<K, V> withLeft(Node<K, V> newLeft) {
+            return new Node<>(key, value, priority, newLeft, right);
+        }
+
+        Node<K, V> withRight(Node<K, V> newRight) {
+            return new Node<>(key, value, priority, left, newRight);
+        }
+    }
+
+    /**
+     * In-order traversal that keeps the path of nodes still to visit on a stack.
+     */
+    private static final class NodeIterator<K, V, T> implements Iterator<T> {
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+        private final Function<Node<K, V>, T> extract;
+
+        private NodeIterator(PersistentSortedMap<K, V> map, K after, Function<Node<K, V>, T> extract) {
+            this.extract = extract;
+            Node<K, V> node = map.root;
+            while (node != null) {
+                if (after == null || map.compare(node.key, after) > 0) {
+                    path.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = path.pop();
+            for (Node<K, V> next = node.right; next != null; next = next.left) {
+                path.push(next);
+            }
+            return extract.apply(node);
+        }
+    }
+}
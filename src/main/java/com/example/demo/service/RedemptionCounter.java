@@ -0,0 +1,142 @@
+package com.example.demo.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The redemptions a coupon has left, split across stripes so that concurrent redemptions of a
+ * hot coupon do not all contend on one counter.
+ *
+ * <p>The limit is dealt out across the stripes up front. A redemption takes a permit from its
+ * thread's home stripe with a compare-and-set, and only when that stripe is empty moves on to
+ * the others. Permits are never created by a redemption, so the limit cannot be overshot; a
+ * redemption is refused once it has found every stripe empty. Each stripe sits on its own cache
+ * line, so threads working on different stripes do not invalidate each other's caches.
+ *
+ * <p>Releases and raised limits add their permits to the first stripe, and lowering the limit
+ * below the redemptions already made leaves that stripe negative, owing the difference. A
+ * release therefore pays back the debt and refills the counter in one atomic add, so no release
+ * can race a resize into handing out a permit the lower limit has taken away. Every other
+ * stripe only ever shrinks once dealt out, so it is empty whenever the first one owes.
+ */
+public final class RedemptionCounter {
+
+    // 16 longs = 128 bytes between stripes, enough to keep them off each other's cache lines
+    // even with adjacent-line prefetching
+    private static final int PADDING = 16;
+
+    // The first stripe goes negative while a lowered limit is owed redemptions
+    private final AtomicLongArray permits;
+    private final int mask;
+    private volatile long limit;
+
+    public RedemptionCounter(long limit) {
+        this(limit, Runtime.getRuntime().availableProcessors());
+    }
+
+    public RedemptionCounter(long limit, int parallelism) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        int stripes = Integer.highestOneBit(Math.max(1, Math.min(parallelism, 64)) * 2 - 1);
+        this.permits = new AtomicLongArray(stripes * PADDING);
+        this.mask = stripes - 1;
+        this.limit = limit;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            permits.set(stripe * PADDING, limit / stripes + (stripe < limit % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Takes one redemption, returning false if the limit has been reached.
+     */
+    public boolean tryAcquire() {
+        int home = homeStripe();
+        for (int i = 0; i <= mask; i++) {
+            int index = ((home + i) & mask) * PADDING;
+            long available = permits.get(index);
+            while (available > 0) {
+                if (permits.compareAndSet(index, available, available - 1)) {
+                    return true;
+                }
+                available = permits.get(index);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives back a redemption taken by {@link #tryAcquire}.
+     */
+    public void release() {
+        permits.incrementAndGet(0);
+    }
+
+    public long limit() {
+        return limit;
+    }
+
+    /**
+     * Redemptions left. Exact when nothing is being redeemed concurrently, otherwise a value
+     * the counter held at some point during the call.
+     */
+    public long remaining() {
+        long remaining = 0;
+        for (int stripe = 0; stripe <= mask; stripe++) {
+            remaining += permits.get(stripe * PADDING);
+        }
+        return Math.max(0, remaining);
+    }
+
+    /**
+     * Changes the limit while keeping the redemptions already made. Lowering it below them
+     * leaves no redemptions until enough have been released.
+     */
+    public synchronized void resize(long newLimit) {
+        if (newLimit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+        long delta = newLimit - limit;
+        limit = newLimit;
+        if (delta > 0) {
+            // Pays back whatever the first stripe owes before any of it can be taken
+            permits.addAndGet(0, delta);
+        } else if (delta < 0) {
+            takePermits(-delta);
+        }
+    }
+
+    /**
+     * Counts redemptions made before the counter was created, such as ones recovered on startup,
+     * whatever the limit. Any beyond it leave no redemptions until enough have been released.
+     */
+    public synchronized void restore(long redeemed) {
+        if (redeemed < 0) {
+            throw new IllegalArgumentException("redeemed must not be negative");
+        }
+        takePermits(redeemed);
+    }
+
+    // Only called while holding the monitor, so that concurrent resizes do not interleave.
+    // Whatever the stripes cannot cover is owed by the first one, in the same word releases add to
+    private void takePermits(long count) {
+        for (int stripe = 0; stripe <= mask && count > 0; stripe++) {
+            int index = stripe * PADDING;
+            long available = permits.get(index);
+            while (available > 0 && count > 0) {
+                long taken = Math.min(available, count);
+                if (permits.compareAndSet(index, available, available - taken)) {
+                    count -= taken;
+                }
+                available = permits.get(index);
+            }
+        }
+        if (count > 0) {
+            permits.addAndGet(0, -count);
+        }
+    }
+
+    private int homeStripe() {
+        // Fibonacci hashing spreads consecutive thread ids across the stripes
+        return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+}
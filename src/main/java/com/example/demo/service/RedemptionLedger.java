@@ -0,0 +1,169 @@
+package com.example.demo.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.example.demo.exception.InvalidCouponRequestException;
+import com.example.demo.exception.RedemptionLimitReachedException;
+import com.example.demo.model.Coupon;
+
+/**
+ * Counts the redemptions of coupons that limit them, in memory. A coupon's total limit is kept
+ * by a {@link RedemptionCounter}; its per-customer limit by one counter per customer, which
+ * sees far less contention than the total. The counts of committed redemptions are saved by
+ * {@link CouponService} and {@link #restore restored} on startup.
+ */
+class RedemptionLedger {
+
+    private final Map<Long, Redemptions> redemptions = new ConcurrentHashMap<>();
+
+    /**
+     * Records one redemption of the coupon by the customer, or throws if either limit has been
+     * reached. Coupons without limits are not tracked at all.
+     */
+    Redemption redeem(Coupon coupon, String customerId) {
+        if (coupon.getMaxRedemptions() == null && coupon.getMaxRedemptionsPerCustomer() == null) {
+            return Redemption.NONE;
+        }
+        if (coupon.getMaxRedemptionsPerCustomer() != null && customerId == null) {
+            throw new InvalidCouponRequestException("A customerId is required to redeem coupon " + coupon.getId()
+                    + ", which limits redemptions per customer");
+        }
+        Redemptions counts = redemptions.computeIfAbsent(coupon.getId(), id -> new Redemptions());
+        // The customer's count goes first: it is rarely contended, and undoing it is cheap if
+        // the total turns out to be exhausted
+        AtomicInteger customerCount = null;
+        if (coupon.getMaxRedemptionsPerCustomer() != null) {
+            customerCount = counts.byCustomer.computeIfAbsent(customerId, id -> new AtomicInteger());
+            if (!tryIncrement(customerCount, coupon.getMaxRedemptionsPerCustomer())) {
+                throw new RedemptionLimitReachedException("Customer " + customerId + " has already redeemed coupon "
+                        + coupon.getId() + " the maximum of " + coupon.getMaxRedemptionsPerCustomer() + " times");
+            }
+        }
+        RedemptionCounter total = coupon.getMaxRedemptions() != null ? counts.total(coupon.getMaxRedemptions()) : null;
+        if (total != null && !total.tryAcquire()) {
+            if (customerCount != null) {
+                customerCount.decrementAndGet();
+            }
+            throw new RedemptionLimitReachedException("Coupon " + coupon.getId() + " has reached its limit of "
+                    + coupon.getMaxRedemptions() + " redemptions");
+        }
+        return new Redemption(total, customerCount, customerCount != null ? customerId : null);
+    }
+
+    /**
+     * Starts the coupon's counts from redemptions made before a restart, per customer or, under
+     * a null key, by nobody in particular. Those beyond a limit leave none until enough are
+     * released.
+     */
+    void restore(Coupon coupon, Map<String, Long> redeemed) {
+        if (coupon.getMaxRedemptions() == null && coupon.getMaxRedemptionsPerCustomer() == null) {
+            return;
+        }
+        Redemptions counts = redemptions.computeIfAbsent(coupon.getId(), id -> new Redemptions());
+        if (coupon.getMaxRedemptions() != null) {
+            counts.total(coupon.getMaxRedemptions()).restore(redeemed.values().stream().mapToLong(Long::longValue).sum());
+        }
+        if (coupon.getMaxRedemptionsPerCustomer() != null) {
+            redeemed.forEach((customerId, count) -> {
+                if (customerId != null) {
+                    counts.byCustomer.computeIfAbsent(customerId, id -> new AtomicInteger())
+                            .addAndGet((int) Math.min(count, Integer.MAX_VALUE));
+                }
+            });
+        }
+    }
+
+    void forget(long couponId) {
+        redemptions.remove(couponId);
+    }
+
+    /**
+     * Drops the counts of every coupon the catalog no longer holds.
+     */
+    void retainCatalog(CatalogSnapshot snapshot) {
+        redemptions.keySet().removeIf(id -> snapshot.coupon(id) == null);
+    }
+
+    private static boolean tryIncrement(AtomicInteger count, int limit) {
+        int current = count.get();
+        while (current < limit) {
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+            current = count.get();
+        }
+        return false;
+    }
+
+    /**
+     * One redemption, which can be given back to the counters it was taken from. Releasing a
+     * redemption of a coupon that has since been forgotten has no effect on its new counts.
+     */
+    static final class Redemption {
+        static final Redemption NONE = new Redemption(null, null, null);
+
+        private final RedemptionCounter total;
+        private final AtomicInteger customerCount;
+        private final String customerId;
+
+        private Redemption(RedemptionCounter total, AtomicInteger customerCount, String customerId) {
+            this.total = total;
+            this.customerCount = customerCount;
+            this.customerId = customerId;
+        }
+
+        /**
+         * Whether the redemption was counted against any limit, and so needs saving once
+         * committed.
+         */
+        boolean isCounted() {
+            return total != null || customerCount != null;
+        }
+
+        /**
+         * The customer it was counted against, or null if it was only counted against the total.
+         */
+        String customerId() {
+            return customerId;
+        }
+
+        /**
+         * Makes the redemption available again. Must be called at most once.
+         */
+        void release() {
+            if (total != null) {
+                total.release();
+            }
+            if (customerCount != null) {
+                customerCount.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Redemptions {
+        private final Map<String, AtomicInteger> byCustomer = new ConcurrentHashMap<>();
+        private volatile RedemptionCounter total;
+
+        /**
+         * The total counter, created on first use and resized when the coupon has been updated
+         * with a different limit since.
+         */
+        RedemptionCounter total(long limit) {
+            RedemptionCounter counter = total;
+            if (counter == null || counter.limit() != limit) {
+                synchronized (this) {
+                    counter = total;
+                    if (counter == null) {
+                        counter = new RedemptionCounter(limit);
+                        total = counter;
+                    } else if (counter.limit() != limit) {
+                        counter.resize(limit);
+                    }
+                }
+            }
+            return counter;
+        }
+    }
+}
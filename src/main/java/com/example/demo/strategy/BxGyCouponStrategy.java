@@ -1,16 +1,15 @@
 package com.example.demo.strategy;
 
 import java.math.BigDecimal;
-import java.util.Map;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Component;
 
 import com.example.demo.dto.Cart;
 import com.example.demo.dto.CartItem;
+import com.example.demo.engine.BxGyAllocation;
+import com.example.demo.engine.BxGyAllocator;
+import com.example.demo.engine.CartContext;
 import com.example.demo.model.BxGyCoupon;
-import com.example.demo.model.BxGyProductDetail;
 import com.example.demo.model.Coupon;
 import com.example.demo.model.CouponType;
 
@@ -23,80 +22,37 @@ public class BxGyCouponStrategy implements CouponStrategy {
     }
 
     @Override
-    public boolean isApplicable(Cart cart, Coupon coupon) {
-        BxGyCoupon bxGyCoupon = (BxGyCoupon) coupon;
-        Map<Long, Integer> cartProductQuantities = cart.getItems().stream()
-                .collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity));
-
-        for (BxGyProductDetail buyProduct : bxGyCoupon.getBuyProducts()) {
-            if (!cartProductQuantities.containsKey(buyProduct.getProductId()) ||
-                    cartProductQuantities.get(buyProduct.getProductId()) < buyProduct.getQuantity()) {
-                return false;
-            }
-        }
-        for (BxGyProductDetail getProduct : bxGyCoupon.getGetProducts()) {
-            if (!cartProductQuantities.containsKey(getProduct.getProductId()) ||
-                    cartProductQuantities.get(getProduct.getProductId()) < getProduct.getQuantity()) {
-                return false;
-            }
-        }
-        return true;
+    public boolean isApplicable(CartContext context, Coupon coupon) {
+        return !BxGyAllocator.of((BxGyCoupon) coupon).allocate(context).isEmpty();
     }
 
     @Override
-    public BigDecimal calculateDiscount(Cart cart, Coupon coupon) {
-        if (!isApplicable(cart, coupon)) {
-            return BigDecimal.ZERO;
-        }
-
-        BxGyCoupon bxGyCoupon = (BxGyCoupon) coupon;
-        Map<Long, CartItem> cartItemsMap = cart.getItems().stream()
-                .collect(Collectors.toMap(CartItem::getProductId, Function.identity()));
-
-        int maxRepetitions = bxGyCoupon.getRepetitionLimit();
-
-        for (BxGyProductDetail buyProduct : bxGyCoupon.getBuyProducts()) {
-            int repetitions = cartItemsMap.get(buyProduct.getProductId()).getQuantity() / buyProduct.getQuantity();
-            maxRepetitions = Math.min(maxRepetitions, repetitions);
-        }
+    public BigDecimal calculateDiscount(CartContext context, Coupon coupon) {
+        BxGyAllocation allocation = BxGyAllocator.of((BxGyCoupon) coupon).allocate(context);
 
         BigDecimal totalDiscount = BigDecimal.ZERO;
-        for (int i = 0; i < maxRepetitions; i++) {
-            for (BxGyProductDetail getProduct : bxGyCoupon.getGetProducts()) {
-                CartItem item = cartItemsMap.get(getProduct.getProductId());
-                totalDiscount = totalDiscount.add(item.getPrice().multiply(BigDecimal.valueOf(getProduct.getQuantity())));
-            }
+        for (BxGyAllocation.LineAllocation line : allocation.lines()) {
+            totalDiscount = totalDiscount.add(line.item().getPrice().multiply(BigDecimal.valueOf(line.freeUnits())));
         }
-
         return totalDiscount;
     }
 
     @Override
-    public Cart applyDiscount(Cart cart, Coupon coupon) {
-        if (!isApplicable(cart, coupon)) {
+    public Cart applyDiscount(CartContext context, Coupon coupon) {
+        Cart cart = context.getCart();
+        BxGyAllocation allocation = BxGyAllocator.of((BxGyCoupon) coupon).allocate(context);
+        if (allocation.isEmpty()) {
             return cart;
         }
 
-        BxGyCoupon bxGyCoupon = (BxGyCoupon) coupon;
-        Map<Long, CartItem> cartItemsMap = cart.getItems().stream()
-                .collect(Collectors.toMap(CartItem::getProductId, Function.identity()));
-
-        int maxRepetitions = bxGyCoupon.getRepetitionLimit();
-
-        for (BxGyProductDetail buyProduct : bxGyCoupon.getBuyProducts()) {
-            int repetitions = cartItemsMap.get(buyProduct.getProductId()).getQuantity() / buyProduct.getQuantity();
-            maxRepetitions = Math.min(maxRepetitions, repetitions);
-        }
-
         BigDecimal totalDiscount = BigDecimal.ZERO;
-        for (int i = 0; i < maxRepetitions; i++) {
-            for (BxGyProductDetail getProduct : bxGyCoupon.getGetProducts()) {
-                CartItem item = cartItemsMap.get(getProduct.getProductId());
-                BigDecimal discount = item.getPrice().multiply(BigDecimal.valueOf(getProduct.getQuantity()));
-                item.setTotalDiscount(item.getTotalDiscount().add(discount));
-                item.setFinalPrice(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())).subtract(item.getTotalDiscount()));
-                totalDiscount = totalDiscount.add(discount);
-            }
+        for (BxGyAllocation.LineAllocation line : allocation.lines()) {
+            CartItem item = line.item();
+            BigDecimal discount = item.getPrice().multiply(BigDecimal.valueOf(line.freeUnits()));
+            BigDecimal previousDiscount = item.getTotalDiscount() != null ? item.getTotalDiscount() : BigDecimal.ZERO;
+            item.setTotalDiscount(previousDiscount.add(discount));
+            item.setFinalPrice(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())).subtract(item.getTotalDiscount()));
+            totalDiscount = totalDiscount.add(discount);
         }
 
         for (CartItem item : cart.getItems()) {
@@ -106,7 +62,7 @@ public class BxGyCouponStrategy implements CouponStrategy {
         }
 
         cart.setTotalDiscount(totalDiscount);
-        cart.setFinalPrice(cart.getTotalOriginalPrice().subtract(totalDiscount));
+        cart.setFinalPrice(context.getTotalOriginalPrice().toBigDecimal().subtract(totalDiscount));
         return cart;
     }
 }
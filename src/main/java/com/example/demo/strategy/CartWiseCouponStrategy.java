@@ -5,6 +5,7 @@ import java.math.BigDecimal;
 import org.springframework.stereotype.Component;
 
 import com.example.demo.dto.Cart;
+import com.example.demo.engine.CartContext;
 import com.example.demo.model.CartWiseCoupon;
 import com.example.demo.model.Coupon;
 import com.example.demo.model.CouponType;
@@ -18,15 +19,15 @@ public class CartWiseCouponStrategy implements CouponStrategy {
     }
 
     @Override
-    public boolean isApplicable(Cart cart, Coupon coupon) {
+    public boolean isApplicable(CartContext context, Coupon coupon) {
         CartWiseCoupon cartWiseCoupon = (CartWiseCoupon) coupon;
-        return cart.getTotalOriginalPrice().compareTo(cartWiseCoupon.getThreshold()) >= 0;
+        return context.getTotalOriginalPrice().toBigDecimal().compareTo(cartWiseCoupon.getThreshold()) >= 0;
     }
 
     @Override
-    public BigDecimal calculateDiscount(Cart cart, Coupon coupon) {
+    public BigDecimal calculateDiscount(CartContext context, Coupon coupon) {
         CartWiseCoupon cartWiseCoupon = (CartWiseCoupon) coupon;
-        BigDecimal discount = cart.getTotalOriginalPrice()
+        BigDecimal discount = context.getTotalOriginalPrice().toBigDecimal()
                 .multiply(cartWiseCoupon.getDiscountPercentage())
                 .divide(BigDecimal.valueOf(100));
         if (cartWiseCoupon.getMaxDiscountAmount() != null && discount.compareTo(cartWiseCoupon.getMaxDiscountAmount()) > 0) {
@@ -36,10 +37,11 @@ public class CartWiseCouponStrategy implements CouponStrategy {
     }
 
     @Override
-    public Cart applyDiscount(Cart cart, Coupon coupon) {
-        BigDecimal discount = calculateDiscount(cart, coupon);
+    public Cart applyDiscount(CartContext context, Coupon coupon) {
+        BigDecimal discount = calculateDiscount(context, coupon);
+        Cart cart = context.getCart();
         cart.setTotalDiscount(discount);
-        cart.setFinalPrice(cart.getTotalOriginalPrice().subtract(discount));
+        cart.setFinalPrice(context.getTotalOriginalPrice().toBigDecimal().subtract(discount));
         return cart;
     }
 }
@@ -3,12 +3,25 @@ package com.example.demo.strategy;
 import java.math.BigDecimal;
 
 import com.example.demo.dto.Cart;
+import com.example.demo.engine.CartContext;
 import com.example.demo.model.Coupon;
 import com.example.demo.model.CouponType;
 
 public interface CouponStrategy {
     CouponType getCouponType();
-    boolean isApplicable(Cart cart, Coupon coupon);
-    BigDecimal calculateDiscount(Cart cart, Coupon coupon);
-    Cart applyDiscount(Cart cart, Coupon coupon);
+    boolean isApplicable(CartContext context, Coupon coupon);
+    BigDecimal calculateDiscount(CartContext context, Coupon coupon);
+    Cart applyDiscount(CartContext context, Coupon coupon);
+
+    default boolean isApplicable(Cart cart, Coupon coupon) {
+        return isApplicable(CartContext.of(cart), coupon);
+    }
+
+    default BigDecimal calculateDiscount(Cart cart, Coupon coupon) {
+        return calculateDiscount(CartContext.of(cart), coupon);
+    }
+
+    default Cart applyDiscount(Cart cart, Coupon coupon) {
+        return applyDiscount(CartContext.of(cart), coupon);
+    }
 }
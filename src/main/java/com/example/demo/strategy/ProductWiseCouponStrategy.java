@@ -6,6 +6,7 @@ import org.springframework.stereotype.Component;
 
 import com.example.demo.dto.Cart;
 import com.example.demo.dto.CartItem;
+import com.example.demo.engine.CartContext;
 import com.example.demo.model.Coupon;
 import com.example.demo.model.CouponType;
 import com.example.demo.model.ProductWiseCoupon;
@@ -19,33 +20,35 @@ public class ProductWiseCouponStrategy implements CouponStrategy {
     }
 
     @Override
-    public boolean isApplicable(Cart cart, Coupon coupon) {
+    public boolean isApplicable(CartContext context, Coupon coupon) {
         ProductWiseCoupon productWiseCoupon = (ProductWiseCoupon) coupon;
-        return cart.getItems().stream()
-                .anyMatch(item -> item.getProductId().equals(productWiseCoupon.getProductId()) &&
-                        (productWiseCoupon.getMinQuantity() == null || item.getQuantity() >= productWiseCoupon.getMinQuantity()));
+        CartContext.ProductLine line = context.line(productWiseCoupon.getProductId());
+        return line != null &&
+                (productWiseCoupon.getMinQuantity() == null || line.getQuantity() >= productWiseCoupon.getMinQuantity());
     }
 
     @Override
-    public BigDecimal calculateDiscount(Cart cart, Coupon coupon) {
+    public BigDecimal calculateDiscount(CartContext context, Coupon coupon) {
         ProductWiseCoupon productWiseCoupon = (ProductWiseCoupon) coupon;
-        BigDecimal totalDiscount = BigDecimal.ZERO;
-        for (CartItem item : cart.getItems()) {
-            if (item.getProductId().equals(productWiseCoupon.getProductId())) {
-                if (productWiseCoupon.getDiscountPercentage() != null) {
-                    totalDiscount = totalDiscount.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()))
-                            .multiply(productWiseCoupon.getDiscountPercentage()).divide(BigDecimal.valueOf(100)));
-                } else if (productWiseCoupon.getFixedDiscountAmount() != null) {
-                    totalDiscount = totalDiscount.add(productWiseCoupon.getFixedDiscountAmount().multiply(BigDecimal.valueOf(item.getQuantity())));
-                }
-            }
+        CartContext.ProductLine line = context.line(productWiseCoupon.getProductId());
+        if (line == null) {
+            return BigDecimal.ZERO;
+        }
+        if (productWiseCoupon.getDiscountPercentage() != null) {
+            BigDecimal lineTotal = line.getLines().stream()
+                    .map(cartLine -> cartLine.item().getPrice().multiply(BigDecimal.valueOf(cartLine.quantity())))
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            return lineTotal.multiply(productWiseCoupon.getDiscountPercentage()).divide(BigDecimal.valueOf(100));
+        } else if (productWiseCoupon.getFixedDiscountAmount() != null) {
+            return productWiseCoupon.getFixedDiscountAmount().multiply(BigDecimal.valueOf(line.getQuantity()));
         }
-        return totalDiscount;
+        return BigDecimal.ZERO;
     }
 
     @Override
-    public Cart applyDiscount(Cart cart, Coupon coupon) {
+    public Cart applyDiscount(CartContext context, Coupon coupon) {
         ProductWiseCoupon productWiseCoupon = (ProductWiseCoupon) coupon;
+        Cart cart = context.getCart();
         BigDecimal totalDiscount = BigDecimal.ZERO;
         for (CartItem item : cart.getItems()) {
             if (item.getProductId().equals(productWiseCoupon.getProductId())) {
@@ -64,7 +67,7 @@ public class ProductWiseCouponStrategy implements CouponStrategy {
             }
         }
         cart.setTotalDiscount(totalDiscount);
-        cart.setFinalPrice(cart.getTotalOriginalPrice().subtract(totalDiscount));
+        cart.setFinalPrice(context.getTotalOriginalPrice().toBigDecimal().subtract(totalDiscount));
         return cart;
     }
 }
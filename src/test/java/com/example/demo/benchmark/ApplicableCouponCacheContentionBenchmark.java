@@ -0,0 +1,159 @@
+package com.example.demo.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.dto.ApplicableCouponResponse;
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.engine.CartContext;
+import com.example.demo.engine.CartFingerprint;
+import com.example.demo.model.CouponType;
+import com.example.demo.service.ApplicableCouponCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compares a single-lock LRU map, as the result cache used to be, with the segmented
+ * {@link ApplicableCouponCache} while many threads look up carts at once. Each thread draws
+ * fingerprints with Zipf popularity from a pool larger than the cache and puts the result on a
+ * miss, as {@code getApplicableCoupons} does, so the mix is mostly hits with some evictions.
+ *
+ * <p>The numbers only mean something on a machine with at least as many cores as threads.
+ *
+ * <p>Run with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.ApplicableCouponCacheContentionBenchmark}.
+ */
+public class ApplicableCouponCacheContentionBenchmark {
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final int FINGERPRINTS = 40_000;
+    private static final int LOOKUPS_PER_THREAD = 500_000;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%d available processors%n", Runtime.getRuntime().availableProcessors());
+        CartFingerprint[] fingerprints = new CartFingerprint[FINGERPRINTS];
+        for (int i = 0; i < FINGERPRINTS; i++) {
+            CartItem item = CartItem.builder().productId((long) i).quantity(1).price(BigDecimal.TEN).build();
+            fingerprints[i] = CartFingerprint.of(CartContext.of(Cart.builder().items(List.of(item)).build()));
+        }
+        List<ApplicableCouponResponse> result = List.of(ApplicableCouponResponse.builder()
+                .couponId(1L).type(CouponType.CART_WISE).discountAmount(BigDecimal.ONE).build());
+        SyntheticCatalog.Zipf popularity = new SyntheticCatalog.Zipf(FINGERPRINTS, 1.1);
+
+        for (int threads : new int[] {1, 4, 16, 64}) {
+            run("single-lock LRU", threads, fingerprints, popularity, result, () -> new LockedLruCache(MAX_ENTRIES));
+            run("segmented ApplicableCouponCache", threads, fingerprints, popularity, result, () -> {
+                CouponCacheProperties properties = new CouponCacheProperties();
+                properties.setMaxEntries(MAX_ENTRIES);
+                ApplicableCouponCache cache = new ApplicableCouponCache(properties, new SimpleMeterRegistry());
+                return new Cache() {
+                    @Override
+                    public List<ApplicableCouponResponse> get(CartFingerprint fingerprint) {
+                        return cache.get(1, fingerprint);
+                    }
+
+                    @Override
+                    public void put(CartFingerprint fingerprint, List<ApplicableCouponResponse> value) {
+                        cache.put(1, fingerprint, value);
+                    }
+                };
+            });
+        }
+    }
+
+    private static void run(String name, int threads, CartFingerprint[] fingerprints, SyntheticCatalog.Zipf popularity,
+            List<ApplicableCouponResponse> result, Supplier<Cache> caches) throws InterruptedException {
+        long best = Long.MAX_VALUE;
+        long hits = 0;
+        for (int i = 0; i <= ITERATIONS; i++) {
+            Cache cache = caches.get();
+            long[] threadHits = new long[threads];
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int worker = t;
+                // Drawn up front so that sampling is not timed
+                Random random = new Random(worker);
+                int[] draws = new int[LOOKUPS_PER_THREAD];
+                for (int d = 0; d < draws.length; d++) {
+                    draws[d] = popularity.sample(random);
+                }
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long found = 0;
+                    for (int draw : draws) {
+                        CartFingerprint fingerprint = fingerprints[draw];
+                        if (cache.get(fingerprint) != null) {
+                            found++;
+                        } else {
+                            cache.put(fingerprint, result);
+                        }
+                    }
+                    threadHits[worker] = found;
+                });
+                thread.start();
+                workers.add(thread);
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long elapsed = System.nanoTime() - started;
+            if (i > 0) { // The first run is warmup
+                best = Math.min(best, elapsed);
+                hits = 0;
+                for (long threadHit : threadHits) {
+                    hits += threadHit;
+                }
+            }
+        }
+        long lookups = (long) threads * LOOKUPS_PER_THREAD;
+        System.out.printf("%-32s %3d threads %8.1f ns/lookup %6.1f%% hits%n", name, threads, best / (double) lookups,
+                100.0 * hits / lookups);
+    }
+
+    private interface Cache {
+        List<ApplicableCouponResponse> get(CartFingerprint fingerprint);
+
+        void put(CartFingerprint fingerprint, List<ApplicableCouponResponse> result);
+    }
+
+    private static final class LockedLruCache implements Cache {
+        private final int maxEntries;
+        private final Map<CartFingerprint, List<ApplicableCouponResponse>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        LockedLruCache(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        public synchronized List<ApplicableCouponResponse> get(CartFingerprint fingerprint) {
+            return entries.get(fingerprint);
+        }
+
+        @Override
+        public synchronized void put(CartFingerprint fingerprint, List<ApplicableCouponResponse> result) {
+            entries.put(fingerprint, List.copyOf(result));
+            Iterator<List<ApplicableCouponResponse>> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+}
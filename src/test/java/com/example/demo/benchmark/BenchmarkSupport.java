@@ -0,0 +1,41 @@
+package com.example.demo.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Minimal timing and allocation harness for the {@code *Benchmark} mains in this package.
+ * Allocation is read from the HotSpot per-thread allocation counter, so each measured body
+ * must run on the calling thread.
+ */
+final class BenchmarkSupport {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private BenchmarkSupport() {
+    }
+
+    static Result measure(String name, int warmupIterations, int iterations, Runnable body) {
+        for (int i = 0; i < warmupIterations; i++) {
+            body.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            body.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+        Result result = new Result(name, elapsed / (double) iterations, bytes / (double) iterations);
+        System.out.println(result);
+        return result;
+    }
+
+    record Result(String name, double nanosPerOp, double bytesPerOp) {
+        @Override
+        public String toString() {
+            return String.format("%-40s %12.1f us/op %14.1f B/op", name, nanosPerOp / 1_000, bytesPerOp);
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.example.demo.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartWiseCouponRequest;
+
+/**
+ * Open-model load test of the {@code CouponController} endpoints of a running instance. It seeds
+ * the instance's catalog with a {@link SyntheticCatalog} through the import endpoint, then sends
+ * a weighted mix of generated requests at a fixed arrival rate, whether or not earlier ones have
+ * answered.
+ *
+ * <p>Each request's latency is measured from the moment the schedule said it should be sent,
+ * not from when it actually was. A server that stalls therefore shows the whole queue that built
+ * up behind the stall in its percentiles, instead of holding the load generator back and hiding
+ * it (coordinated omission). If the generator itself falls behind its schedule, that also counts
+ * against the latencies, and the largest such lag is printed so it can be told apart.
+ *
+ * <p>Full-catalog dumps ({@code GET /} and its NDJSON stream) and updates and deletes, which
+ * would change the catalog the traffic is drawn from, are left out of the mix. The import is
+ * timed once while seeding. Commits and releases are only sent for reservations that an earlier
+ * reserve has returned, and are counted as skipped when there is none yet.
+ *
+ * <p>Start the application, ideally with {@code --coupon.repository.type=memory}, then run with
+ * {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.EndpointLoadBenchmark
+ * -Dexec.args="http://localhost:8080 500 60 100000 5000 42"}: base URL, requests per second,
+ * measured seconds, coupons, products and seed.
+ */
+public class EndpointLoadBenchmark {
+
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final String JSON = "application/json";
+    private static final int BATCH_SIZE = 10;
+    private static final int CUSTOMERS = 10_000;
+    private static final Pattern RESERVATION_ID = Pattern.compile("\"reservationId\":\"([^\"]+)\"");
+
+    private enum Endpoint {
+        APPLICABLE("POST /applicable-coupons", 30),
+        BEST("POST /applicable-coupons?limit=5", 10),
+        BATCH("POST /applicable-coupons/batch", 3),
+        APPLY("POST /apply-coupon/{id}", 12),
+        APPLY_BY_CODE("POST /apply-coupon/by-code/{code}", 12),
+        RESERVE("POST /reserve-coupon/{id}", 3),
+        RESERVE_BY_CODE("POST /reserve-coupon/by-code/{code}", 3),
+        COMMIT("POST /reservations/{id}/commit", 4),
+        RELEASE("DELETE /reservations/{id}", 2),
+        GET("GET /{id}", 10),
+        GET_BY_CODE("GET /by-code/{code}", 6),
+        PAGE("GET /page", 3),
+        CREATE("POST /", 2);
+
+        private final String label;
+        private final int weight;
+
+        Endpoint(String label, int weight) {
+            this.label = label;
+            this.weight = weight;
+        }
+    }
+
+    private final HttpClient http;
+    private final URI api;
+    private final SyntheticCatalog catalog;
+    private final Map<String, Long> ids;
+    private final Random random;
+    private final Endpoint[] weighted;
+    private final Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+    private final Queue<String> reservations = new ConcurrentLinkedQueue<>();
+    private long created;
+    private volatile Throwable firstFailure;
+
+    private EndpointLoadBenchmark(HttpClient http, URI api, SyntheticCatalog catalog, Map<String, Long> ids, Random random) {
+        this.http = http;
+        this.api = api;
+        this.catalog = catalog;
+        this.ids = ids;
+        this.random = random;
+        this.weighted = Arrays.stream(Endpoint.values())
+                .flatMap(endpoint -> Stream.generate(() -> endpoint).limit(endpoint.weight))
+                .toArray(Endpoint[]::new);
+        for (Endpoint endpoint : Endpoint.values()) {
+            recorders.put(endpoint, new Recorder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        double rate = args.length > 1 ? Double.parseDouble(args[1]) : 500;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 60);
+        int coupons = args.length > 3 ? Integer.parseInt(args[3]) : 100_000;
+        int products = args.length > 4 ? Integer.parseInt(args[4]) : 5_000;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42;
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        HttpClient http = HttpLoadSupport.client(executor);
+        URI api = URI.create(baseUrl + "/api/v1/coupons");
+        String prefix = "SYN" + Long.toString(System.currentTimeMillis(), 36);
+        SyntheticCatalog catalog = new SyntheticCatalog(prefix, coupons, products, seed);
+        seed(http, api, catalog);
+        Map<String, Long> ids = couponIds(http, api, prefix);
+        System.out.printf("Resolved %d coupon ids%n", ids.size());
+
+        new EndpointLoadBenchmark(http, api, catalog, ids, new Random(seed)).run(rate, duration);
+        executor.shutdown();
+    }
+
+    private static void seed(HttpClient http, URI api, SyntheticCatalog catalog) throws IOException, InterruptedException {
+        Path ndjson = Files.createTempFile("synthetic-catalog", ".ndjson");
+        try {
+            try (Writer out = Files.newBufferedWriter(ndjson)) {
+                catalog.writeNdjson(out);
+            }
+            long started = System.nanoTime();
+            HttpResponse<String> imported = http.send(HttpRequest.newBuilder(URI.create(api + "/import"))
+                    .header("Content-Type", "application/x-ndjson")
+                    .POST(HttpRequest.BodyPublishers.ofFile(ndjson))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            JsonNode result = SyntheticCatalog.JSON.readTree(imported.body());
+            System.out.printf("POST /import of %d coupons: %d imported, %d failed in %.1f s%n", catalog.coupons().size(),
+                    result.path("imported").asLong(), result.path("failed").asLong(), (System.nanoTime() - started) / 1e9);
+        } finally {
+            Files.deleteIfExists(ndjson);
+        }
+    }
+
+    /**
+     * Pages through the catalog to find the ids the import gave the generated coupons.
+     */
+    private static Map<String, Long> couponIds(HttpClient http, URI api, String prefix) throws IOException, InterruptedException {
+        Map<String, Long> ids = new HashMap<>();
+        String cursor = null;
+        do {
+            URI page = URI.create(api + "/page?limit=1000" + (cursor != null ? "&cursor=" + cursor : ""));
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(page).GET().build(), HttpResponse.BodyHandlers.ofString());
+            JsonNode body = SyntheticCatalog.JSON.readTree(response.body());
+            for (JsonNode item : body.get("items")) {
+                String code = item.get("code").asText();
+                if (code.startsWith(prefix)) {
+                    ids.put(code, item.get("id").asLong());
+                }
+            }
+            cursor = body.path("nextCursor").isNumber() ? body.get("nextCursor").asText() : null;
+        } while (cursor != null);
+        return ids;
+    }
+
+    private void run(double rate, Duration duration) {
+        System.out.printf("%.0f requests/s for %s after a %s warmup%n", rate, duration, WARMUP);
+        long start = System.nanoTime();
+        long measureFrom = start + WARMUP.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        long maxLag = 0;
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * 1e9 / rate);
+            if (intended >= stopAt) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Endpoint endpoint = weighted[random.nextInt(weighted.length)];
+            HttpRequest request = request(endpoint);
+            boolean measured = intended >= measureFrom;
+            if (request == null) {
+                if (measured) {
+                    recorders.get(endpoint).skip();
+                }
+                continue;
+            }
+            if (measured) {
+                maxLag = Math.max(maxLag, System.nanoTime() - intended);
+            }
+            inFlight.add(http.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, failure) -> {
+                        long latency = System.nanoTime() - intended;
+                        if (failure != null && firstFailure == null) {
+                            firstFailure = failure;
+                        }
+                        if (failure == null && response.statusCode() == 201
+                                && (endpoint == Endpoint.RESERVE || endpoint == Endpoint.RESERVE_BY_CODE)) {
+                            Matcher reservationId = RESERVATION_ID.matcher(response.body());
+                            if (reservationId.find()) {
+                                reservations.add(reservationId.group(1));
+                            }
+                        }
+                        if (measured) {
+                            recorders.get(endpoint).record(latency, failure == null ? response.statusCode() : -1);
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).exceptionally(failure -> null).join();
+        report(duration, maxLag);
+    }
+
+    /**
+     * The next request for the endpoint, or null if there is nothing to send it about yet.
+     */
+    private HttpRequest request(Endpoint endpoint) {
+        Cart cart = catalog.cart(random);
+        String customer = "?customerId=customer-" + random.nextInt(CUSTOMERS);
+        return switch (endpoint) {
+            case APPLICABLE -> post("/applicable-coupons", SyntheticCatalog.json(cart));
+            case BEST -> post("/applicable-coupons?limit=5&sort=discount", SyntheticCatalog.json(cart));
+            case BATCH -> {
+                List<Cart> carts = new ArrayList<>(BATCH_SIZE);
+                carts.add(cart);
+                while (carts.size() < BATCH_SIZE) {
+                    carts.add(catalog.cart(random));
+                }
+                yield post("/applicable-coupons/batch", SyntheticCatalog.json(carts));
+            }
+            case APPLY -> post("/apply-coupon/" + ids.get(catalog.couponCodeFor(cart, random)) + customer, SyntheticCatalog.json(cart));
+            case APPLY_BY_CODE -> post("/apply-coupon/by-code/" + catalog.couponCodeFor(cart, random) + customer, SyntheticCatalog.json(cart));
+            case RESERVE -> reserve("/reserve-coupon/" + ids.get(catalog.couponCodeFor(cart, random)) + customer, cart);
+            case RESERVE_BY_CODE -> reserve("/reserve-coupon/by-code/" + catalog.couponCodeFor(cart, random) + customer, cart);
+            case COMMIT -> {
+                String reservationId = reservations.poll();
+                yield reservationId == null ? null : post("/reservations/" + reservationId + "/commit", "");
+            }
+            case RELEASE -> {
+                String reservationId = reservations.poll();
+                yield reservationId == null ? null : request("/reservations/" + reservationId).DELETE().build();
+            }
+            case GET -> request("/" + ids.get(catalog.popularCouponCode(random))).GET().build();
+            case GET_BY_CODE -> request("/by-code/" + catalog.popularCouponCode(random)).GET().build();
+            case PAGE -> request("/page?limit=100&cursor=" + ids.get(catalog.popularCouponCode(random))).GET().build();
+            case CREATE -> post("", SyntheticCatalog.json(CartWiseCouponRequest.builder()
+                    .code(catalog.coupons().get(0).getCode() + "-NEW-" + created++)
+                    .threshold(BigDecimal.valueOf(100))
+                    .discountPercentage(BigDecimal.TEN)
+                    .build()));
+        };
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(api + path)).timeout(TIMEOUT);
+    }
+
+    private HttpRequest post(String path, String body) {
+        return request(path).header("Content-Type", JSON).POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private HttpRequest reserve(String path, Cart cart) {
+        return request(path)
+                .header("Content-Type", JSON)
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(HttpRequest.BodyPublishers.ofString(SyntheticCatalog.json(cart)))
+                .build();
+    }
+
+    private void report(Duration duration, long maxLag) {
+        double seconds = duration.toNanos() / 1e9;
+        System.out.printf("%-38s %8s %9s %9s %9s %9s %9s %9s %7s %7s %7s %7s%n", "endpoint", "req/s", "p50 ms", "p90 ms",
+                "p99 ms", "p99.9 ms", "max ms", "2xx", "4xx", "5xx", "failed", "skipped");
+        Recorder total = new Recorder();
+        for (Endpoint endpoint : Endpoint.values()) {
+            Recorder recorder = recorders.get(endpoint);
+            print(endpoint.label, recorder, seconds);
+            total.add(recorder);
+        }
+        print("all", total, seconds);
+        System.out.printf("Largest lag behind the send schedule: %.1f ms%n", maxLag / 1e6);
+        if (firstFailure != null) {
+            System.out.println("First failure: " + firstFailure);
+        }
+    }
+
+    private static void print(String label, Recorder recorder, double seconds) {
+        long[] sorted = recorder.sortedLatencies();
+        System.out.printf("%-38s %8.1f %9.1f %9.1f %9.1f %9.1f %9.1f %9d %7d %7d %7d %7d%n", label, sorted.length / seconds,
+                HttpLoadSupport.percentile(sorted, 0.50), HttpLoadSupport.percentile(sorted, 0.90),
+                HttpLoadSupport.percentile(sorted, 0.99), HttpLoadSupport.percentile(sorted, 0.999),
+                HttpLoadSupport.percentile(sorted, 1.0),
+                recorder.successes, recorder.clientErrors, recorder.serverErrors, recorder.failures, recorder.skipped);
+    }
+
+    /**
+     * Latencies of every answered request to one endpoint, whatever its status, and counts by
+     * outcome. Written by the HTTP client's threads as responses arrive.
+     */
+    private static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int count;
+        private long successes;
+        private long clientErrors;
+        private long serverErrors;
+        private long failures;
+        private long skipped;
+
+        synchronized void record(long latency, int status) {
+            if (status < 0) {
+                failures++;
+                return;
+            }
+            if (status >= 500) {
+                serverErrors++;
+            } else if (status >= 400) {
+                clientErrors++;
+            } else {
+                successes++;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+
+        synchronized void skip() {
+            skipped++;
+        }
+
+        synchronized void add(Recorder other) {
+            synchronized (other) {
+                for (int i = 0; i < other.count; i++) {
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = other.latencies[i];
+                }
+                successes += other.successes;
+                clientErrors += other.clientErrors;
+                serverErrors += other.serverErrors;
+                failures += other.failures;
+                skipped += other.skipped;
+            }
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Closed-model HTTP load for the benchmarks in this package that run against a live server: a
+ * fixed number of clients each keep exactly one request in flight, sending the next as soon as
+ * the previous one answers. The clients are chained callbacks on the JDK's asynchronous
+ * {@link HttpClient}, so the load generator itself needs only a handful of threads.
+ */
+final class HttpLoadSupport {
+
+    private HttpLoadSupport() {
+    }
+
+    static HttpClient client(Executor executor) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .executor(executor)
+                .build();
+    }
+
+    static HttpRequest post(URI uri, String contentType, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", contentType)
+                .timeout(Duration.ofMinutes(2))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Runs the clients for the warmup and then the measured duration, and returns what was
+     * measured. Only requests started after the warmup are counted.
+     */
+    static Result run(String name, HttpClient http, Supplier<HttpRequest> requests, int clients, Duration warmup, Duration duration) {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        Client[] running = new Client[clients];
+        CompletableFuture<?>[] done = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            running[i] = new Client(http, requests, measureFrom, stopAt);
+            done[i] = running[i].run();
+        }
+        CompletableFuture.allOf(done).join();
+
+        long[] latencies = Arrays.stream(running).flatMapToLong(c -> Arrays.stream(c.latencies, 0, c.count)).sorted().toArray();
+        long errors = Arrays.stream(running).mapToLong(c -> c.errors).sum();
+        Result result = new Result(name, clients, latencies.length / (duration.toNanos() / 1e9),
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 1.0), errors);
+        System.out.println(result);
+        return result;
+    }
+
+    static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    record Result(String name, int clients, double requestsPerSecond, double p50Millis, double p99Millis, double maxMillis,
+            long errors) {
+        @Override
+        public String toString() {
+            return String.format("%-32s %5d clients %9.0f requests/s  p50 %8.1f ms  p99 %8.1f ms  max %8.1f ms  %d errors",
+                    name, clients, requestsPerSecond, p50Millis, p99Millis, maxMillis, errors);
+        }
+    }
+
+    /**
+     * One client's chain of requests. Each response sends the next request, so the fields are
+     * only ever touched by one callback at a time.
+     */
+    private static final class Client {
+        private final HttpClient http;
+        private final Supplier<HttpRequest> requests;
+        private final long measureFrom;
+        private final long stopAt;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        Client(HttpClient http, Supplier<HttpRequest> requests, long measureFrom, long stopAt) {
+            this.http = http;
+            this.requests = requests;
+            this.measureFrom = measureFrom;
+            this.stopAt = stopAt;
+        }
+
+        CompletableFuture<Void> run() {
+            sendNext();
+            return done;
+        }
+
+        private void sendNext() {
+            long started = System.nanoTime();
+            if (started >= stopAt) {
+                done.complete(null);
+                return;
+            }
+            http.sendAsync(requests.get(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        if (started >= measureFrom) {
+                            record(System.nanoTime() - started, failure != null || response.statusCode() >= 300);
+                        }
+                        sendNext();
+                    });
+        }
+
+        private void record(long latency, boolean failed) {
+            if (failed) {
+                errors++;
+                return;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+}
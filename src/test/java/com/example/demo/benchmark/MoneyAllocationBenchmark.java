@@ -0,0 +1,91 @@
+package com.example.demo.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.engine.CartContext;
+import com.example.demo.engine.CouponEvaluator;
+import com.example.demo.engine.CouponEvaluators;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponType;
+import com.example.demo.model.ProductWiseCoupon;
+import com.example.demo.strategy.CartWiseCouponStrategy;
+import com.example.demo.strategy.CouponStrategy;
+import com.example.demo.strategy.ProductWiseCouponStrategy;
+
+/**
+ * Compares the bytes allocated by one applicable-coupons pass over a catalog when discounts are
+ * computed with the BigDecimal reference strategies and with the long-cents evaluators. Both
+ * sides evaluate the same coupons against the same {@link CartContext}, so the difference is
+ * the arithmetic.
+ *
+ * <p>Run with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.MoneyAllocationBenchmark}.
+ */
+public class MoneyAllocationBenchmark {
+
+    private static final int COUPONS = 10_000;
+    private static final int PRODUCTS = 20;
+
+    private static volatile Object blackhole;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<Coupon> coupons = new ArrayList<>();
+        for (long id = 1; id <= COUPONS; id++) {
+            if (id % 2 == 0) {
+                coupons.add(CartWiseCoupon.builder()
+                        .id(id).type(CouponType.CART_WISE)
+                        .threshold(BigDecimal.valueOf(random.nextInt(500)))
+                        .discountPercentage(new BigDecimal("12.5"))
+                        .maxDiscountAmount(id % 4 == 0 ? BigDecimal.valueOf(40) : null)
+                        .build());
+            } else {
+                coupons.add(ProductWiseCoupon.builder()
+                        .id(id).type(CouponType.PRODUCT_WISE)
+                        .productId((long) random.nextInt(PRODUCTS))
+                        .discountPercentage(new BigDecimal("33.333"))
+                        .build());
+            }
+        }
+        List<CouponEvaluator> evaluators = coupons.stream().map(CouponEvaluators::compile).toList();
+        CouponStrategy cartWise = new CartWiseCouponStrategy();
+        CouponStrategy productWise = new ProductWiseCouponStrategy();
+
+        List<CartItem> items = new ArrayList<>();
+        for (long productId = 0; productId < PRODUCTS; productId += 2) {
+            items.add(CartItem.builder().productId(productId).quantity(1 + random.nextInt(3))
+                    .price(new BigDecimal("19.99")).totalDiscount(BigDecimal.ZERO).build());
+        }
+        CartContext context = CartContext.of(Cart.builder().items(items).build());
+
+        BenchmarkSupport.measure("reference strategies (BigDecimal)", 200, 500, () -> {
+            BigDecimal sink = BigDecimal.ZERO;
+            for (Coupon coupon : coupons) {
+                CouponStrategy strategy = coupon.getType() == CouponType.CART_WISE ? cartWise : productWise;
+                if (strategy.isApplicable(context, coupon)) {
+                    sink = strategy.calculateDiscount(context, coupon);
+                }
+            }
+            consume(sink);
+        });
+        BenchmarkSupport.measure("compiled evaluators (Money)", 200, 500, () -> {
+            BigDecimal sink = BigDecimal.ZERO;
+            for (CouponEvaluator evaluator : evaluators) {
+                if (evaluator.isApplicable(context)) {
+                    sink = evaluator.calculateDiscount(context).toBigDecimal();
+                }
+            }
+            consume(sink);
+        });
+    }
+
+    private static void consume(Object value) {
+        blackhole = value;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.config.CouponEvaluationProperties;
+import com.example.demo.dto.ApplicableCouponResponse;
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.dto.CartWiseCouponRequest;
+import com.example.demo.dto.CouponRequestDTO;
+import com.example.demo.dto.ProductWiseCouponRequest;
+import com.example.demo.persistence.InMemoryCouponRepository;
+import com.example.demo.service.ApplicableCouponCache;
+import com.example.demo.service.CouponEvaluationExecutor;
+import com.example.demo.service.CouponService;
+
+/**
+ * Compares {@code getApplicableCoupons} latency over a catalog where the indexes prune almost
+ * nothing, once with the serial loop (threshold above the catalog size) and once split across
+ * the evaluation ForkJoinPool. Only wall-clock time is meaningful here: the allocation column
+ * covers the calling thread alone and so under-reports the parallel run. Both run with the
+ * result cache disabled; a third run repeats the same cart with it enabled to show the cost of a
+ * cache hit.
+ *
+ * <p>Run with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.ParallelEvaluationBenchmark}.
+ */
+public class ParallelEvaluationBenchmark {
+
+    private static final int COUPONS = 200_000;
+    private static final int PRODUCTS = 20;
+
+    private static volatile Object blackhole;
+
+    public static void main(String[] args) {
+        System.out.printf("available processors: %d%n", Runtime.getRuntime().availableProcessors());
+        CouponEvaluationExecutor serialExecutor = executor(Integer.MAX_VALUE);
+        CouponEvaluationExecutor parallelExecutor = executor(4096);
+        try {
+            CouponService serial = populate(new CouponService(serialExecutor, cache(0), new InMemoryCouponRepository(), Clock.systemDefaultZone()));
+            CouponService parallel = populate(new CouponService(parallelExecutor, cache(0), new InMemoryCouponRepository(), Clock.systemDefaultZone()));
+            CouponService cached = populate(new CouponService(serialExecutor, cache(10_000), new InMemoryCouponRepository(), Clock.systemDefaultZone()));
+
+            BenchmarkSupport.measure("serial loop", 20, 50, () -> consume(serial.getApplicableCoupons(cart())));
+            BenchmarkSupport.measure("fork-join evaluation", 20, 50, () -> consume(parallel.getApplicableCoupons(cart())));
+            BenchmarkSupport.measure("result cache hit", 20, 50, () -> consume(cached.getApplicableCoupons(cart())));
+        } finally {
+            serialExecutor.destroy();
+            parallelExecutor.destroy();
+        }
+    }
+
+    private static CouponEvaluationExecutor executor(int parallelThreshold) {
+        CouponEvaluationProperties properties = new CouponEvaluationProperties();
+        properties.setParallelThreshold(parallelThreshold);
+        return new CouponEvaluationExecutor(properties);
+    }
+
+    private static ApplicableCouponCache cache(int maxEntries) {
+        CouponCacheProperties properties = new CouponCacheProperties();
+        properties.setMaxEntries(maxEntries);
+        return new ApplicableCouponCache(properties, new SimpleMeterRegistry());
+    }
+
+    private static CouponService populate(CouponService service) {
+        Random random = new Random(42);
+        List<CouponRequestDTO> requests = new ArrayList<>(COUPONS);
+        for (int i = 0; i < COUPONS; i++) {
+            if (i % 2 == 0) {
+                requests.add(CartWiseCouponRequest.builder()
+                        .code("CART" + i)
+                        .threshold(BigDecimal.valueOf(random.nextInt(100)))
+                        .discountPercentage(new BigDecimal("12.5"))
+                        .build());
+            } else {
+                requests.add(ProductWiseCouponRequest.builder()
+                        .code("PRODUCT" + i)
+                        .productId((long) random.nextInt(PRODUCTS))
+                        .minQuantity(random.nextInt(3))
+                        .discountPercentage(new BigDecimal("33.333"))
+                        .build());
+            }
+        }
+        service.createCoupons(requests);
+        return service;
+    }
+
+    private static Cart cart() {
+        List<CartItem> items = new ArrayList<>();
+        for (long productId = 0; productId < PRODUCTS; productId++) {
+            items.add(CartItem.builder().productId(productId).quantity(2).price(new BigDecimal("19.99")).build());
+        }
+        return Cart.builder().items(items).build();
+    }
+
+    private static void consume(List<ApplicableCouponResponse> value) {
+        blackhole = value;
+    }
+}
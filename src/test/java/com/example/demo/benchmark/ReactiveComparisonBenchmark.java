@@ -0,0 +1,112 @@
+package com.example.demo.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the same evaluation workloads side by side against the servlet endpoints and the
+ * reactive ones of one running instance, which share its catalog:
+ * <ul>
+ * <li>{@code applicable}: {@code POST /applicable-coupons} with a random cart, so that most
+ * requests miss the result cache;</li>
+ * <li>{@code apply}: {@code POST /apply-coupon/{id}} of a cart-wise coupon;</li>
+ * <li>{@code batch}: {@code POST /applicable-coupons/batch} with 100 random carts, sent as a JSON
+ * array to the servlet endpoint and as newline-delimited JSON to the streaming one.</li>
+ * </ul>
+ * The catalog is first seeded with 2000 coupons through the import endpoint.
+ *
+ * <p>Start the application with {@code --coupon.reactive.enabled=true}, which serves the reactive
+ * API on port 8081, then run with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.ReactiveComparisonBenchmark
+ * -Dexec.args="http://localhost:8080 http://localhost:8081 256 20"}.
+ */
+public class ReactiveComparisonBenchmark {
+
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final int COUPONS = 2000;
+    private static final int PRODUCTS = 500;
+    private static final int BATCH_SIZE = 100;
+
+    public static void main(String[] args) throws Exception {
+        String servletUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        String reactiveUrl = args.length > 1 ? args[1] : "http://localhost:8081";
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        Duration duration = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 20);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        HttpClient client = HttpLoadSupport.client(executor);
+        long cartWiseId = seed(client, servletUrl);
+
+        for (String workload : new String[] {"applicable", "apply", "batch"}) {
+            for (String baseUrl : new String[] {servletUrl, reactiveUrl}) {
+                String name = workload + (baseUrl.equals(servletUrl) ? " (servlet)" : " (reactive)");
+                URI coupons = URI.create(baseUrl + "/api/v1/coupons");
+                Supplier<HttpRequest> requests = switch (workload) {
+                    case "applicable" -> () -> HttpLoadSupport.post(URI.create(coupons + "/applicable-coupons"),
+                            "application/json", randomCart());
+                    case "apply" -> () -> HttpLoadSupport.post(URI.create(coupons + "/apply-coupon/" + cartWiseId),
+                            "application/json", randomCart());
+                    default -> baseUrl.equals(servletUrl)
+                            ? () -> HttpLoadSupport.post(URI.create(coupons + "/applicable-coupons/batch"),
+                                    "application/json", "[" + carts(",") + "]")
+                            : () -> HttpLoadSupport.post(URI.create(coupons + "/applicable-coupons/batch"),
+                                    "application/x-ndjson", carts("\n") + "\n");
+                };
+                HttpLoadSupport.run(name, client, requests, clients, WARMUP, duration);
+            }
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Imports the catalog and returns the id of a cart-wise coupon that every random cart
+     * qualifies for.
+     */
+    private static long seed(HttpClient client, String servletUrl) throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < COUPONS; i++) {
+            if (i % 10 == 0) {
+                ndjson.append("{\"type\":\"CART_WISE\",\"code\":\"CMP-").append(runId).append('-').append(i)
+                        .append("\",\"threshold\":").append(i % 200).append(",\"discountPercentage\":5}\n");
+            } else {
+                ndjson.append("{\"type\":\"PRODUCT_WISE\",\"code\":\"CMP-").append(runId).append('-').append(i)
+                        .append("\",\"productId\":").append(i % PRODUCTS).append(",\"discountPercentage\":").append(1 + i % 30).append("}\n");
+            }
+        }
+        HttpResponse<String> imported = client.send(HttpLoadSupport.post(URI.create(servletUrl + "/api/v1/coupons/import"),
+                "application/x-ndjson", ndjson.toString()), HttpResponse.BodyHandlers.ofString());
+        System.out.println("Seeded catalog: " + imported.body());
+        HttpResponse<String> first = client.send(HttpRequest.newBuilder(URI.create(servletUrl + "/api/v1/coupons/by-code/CMP-" + runId + "-0"))
+                .GET().build(), HttpResponse.BodyHandlers.ofString());
+        return Long.parseLong(first.body().replaceAll(".*\"id\":(\\d+).*", "$1"));
+    }
+
+    private static String carts(String delimiter) {
+        return IntStream.range(0, BATCH_SIZE).mapToObj(i -> randomCart()).collect(Collectors.joining(delimiter));
+    }
+
+    private static String randomCart() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder cart = new StringBuilder("{\"items\":[");
+        int lines = 1 + random.nextInt(4);
+        for (int i = 0; i < lines; i++) {
+            if (i > 0) {
+                cart.append(',');
+            }
+            cart.append("{\"productId\":").append(random.nextInt(PRODUCTS))
+                    .append(",\"quantity\":").append(1 + random.nextInt(5))
+                    .append(",\"price\":").append(200 + random.nextInt(800)).append('}');
+        }
+        return cart.append("]}").toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongFunction;
+
+import com.example.demo.service.RedemptionCounter;
+
+/**
+ * Compares ways of enforcing one hot coupon's redemption limit while many threads redeem it at
+ * once: a lock around a plain counter, one shared {@link AtomicLong} decremented with
+ * compare-and-set, and the striped {@link RedemptionCounter}. Every thread keeps redeeming until
+ * the limit is reached, and each run checks that exactly the limit was handed out.
+ *
+ * <p>The numbers only mean something on a machine with at least as many cores as threads.
+ *
+ * <p>Run with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.RedemptionContentionBenchmark}.
+ */
+public class RedemptionContentionBenchmark {
+
+    private static final long REDEMPTIONS_PER_THREAD = 2_000_000;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        System.out.printf("%d available processors%n", Runtime.getRuntime().availableProcessors());
+        for (int threads : new int[] {1, 4, 16, 64}) {
+            long limit = threads * REDEMPTIONS_PER_THREAD;
+            run("synchronized", threads, limit, capacity -> {
+                LockedCounter counter = new LockedCounter(capacity);
+                return counter::tryAcquire;
+            });
+            run("single AtomicLong", threads, limit, capacity -> {
+                AtomicLong remaining = new AtomicLong(capacity);
+                return () -> {
+                    long available = remaining.get();
+                    while (available > 0) {
+                        if (remaining.compareAndSet(available, available - 1)) {
+                            return true;
+                        }
+                        available = remaining.get();
+                    }
+                    return false;
+                };
+            });
+            run("striped RedemptionCounter", threads, limit, capacity -> {
+                RedemptionCounter counter = new RedemptionCounter(capacity, threads);
+                return counter::tryAcquire;
+            });
+        }
+    }
+
+    private static void run(String name, int threads, long limit, LongFunction<BooleanSupplier> counters) throws InterruptedException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i <= ITERATIONS; i++) {
+            BooleanSupplier tryAcquire = counters.apply(limit);
+            LongAdder granted = new LongAdder();
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long count = 0;
+                    while (tryAcquire.getAsBoolean()) {
+                        count++;
+                    }
+                    granted.add(count);
+                });
+                worker.start();
+                workers.add(worker);
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            long elapsed = System.nanoTime() - started;
+            if (granted.sum() != limit) {
+                throw new IllegalStateException(name + " granted " + granted.sum() + " redemptions against a limit of " + limit);
+            }
+            if (i > 0) { // The first run is warmup
+                best = Math.min(best, elapsed);
+            }
+        }
+        System.out.printf("%-28s %3d threads %8.1f ns/redemption%n", name, threads, best / (double) limit);
+    }
+
+    private static final class LockedCounter {
+        private long remaining;
+
+        LockedCounter(long limit) {
+            this.remaining = limit;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Closed-model load test against a running server, used to compare it on Tomcat's
+ * platform-thread pool with {@code spring.threads.virtual.enabled=true} once the clients
+ * outnumber the pool's 200 threads.
+ *
+ * <p>Two workloads: {@code create} posts a new coupon per request, each of which blocks its
+ * request thread until the file repository has forced it to disk; {@code apply} applies one
+ * coupon to a cart, which never blocks.
+ *
+ * <p>Start the server on JDK 21 ({@code mvn -B package -DskipTests} there activates the
+ * {@code jdk21} profile), once as is and once with {@code --spring.threads.virtual.enabled=true},
+ * then run with {@code mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.RequestConcurrencyBenchmark
+ * -Dexec.args="http://localhost:8080 create 2000 30"}.
+ */
+public class RequestConcurrencyBenchmark {
+
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final String JSON = "application/json";
+    private static final AtomicLong CODES = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        String workload = args.length > 1 ? args[1] : "create";
+        int clients = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        Duration duration = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 30);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        HttpClient client = HttpLoadSupport.client(executor);
+        URI coupons = URI.create(baseUrl + "/api/v1/coupons");
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        Supplier<HttpRequest> requests = switch (workload) {
+            case "create" -> () -> HttpLoadSupport.post(coupons, JSON, "{\"type\":\"CART_WISE\",\"code\":\"LOAD-" + runId + "-"
+                    + CODES.incrementAndGet() + "\",\"threshold\":10,\"discountPercentage\":5}");
+            case "apply" -> {
+                HttpResponse<String> created = client.send(HttpLoadSupport.post(coupons, JSON, "{\"type\":\"CART_WISE\",\"code\":\"LOAD-"
+                        + runId + "\",\"threshold\":10,\"discountPercentage\":5}"), HttpResponse.BodyHandlers.ofString());
+                String id = created.body().replaceAll(".*\"id\":(\\d+).*", "$1");
+                HttpRequest apply = HttpLoadSupport.post(URI.create(coupons + "/apply-coupon/" + id), JSON,
+                        "{\"items\":[{\"productId\":1,\"quantity\":2,\"price\":50}]}");
+                yield () -> apply;
+            }
+            default -> throw new IllegalArgumentException("Unknown workload " + workload + ", expected create or apply");
+        };
+
+        System.out.printf("%s against %s for %s after a %s warmup%n", workload, baseUrl, duration, WARMUP);
+        HttpLoadSupport.run(workload, client, requests, clients, WARMUP, duration);
+        executor.shutdown();
+    }
+}
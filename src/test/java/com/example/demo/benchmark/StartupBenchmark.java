@@ -0,0 +1,176 @@
+package com.example.demo.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.config.CouponEvaluationProperties;
+import com.example.demo.dto.CartWiseCouponRequest;
+import com.example.demo.dto.CouponRequestDTO;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponType;
+import com.example.demo.model.ProductWiseCoupon;
+import com.example.demo.persistence.CatalogCheckpointStore;
+import com.example.demo.persistence.CouponMutation;
+import com.example.demo.persistence.FileCatalogCheckpointStore;
+import com.example.demo.persistence.FileCouponMutationLog;
+import com.example.demo.persistence.FileCouponRepository;
+import com.example.demo.service.ApplicableCouponCache;
+import com.example.demo.service.CouponEvaluationExecutor;
+import com.example.demo.service.CouponService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures how long {@link CouponService} takes to recover a catalog of 1M coupons, each created
+ * and then updated {@value #UPDATE_PASSES} times: once by replaying that whole mutation history,
+ * once from a checkpoint with an empty log tail, and once from a checkpoint followed by a log
+ * tail of 10k further coupons.
+ *
+ * <p>Run with {@code MAVEN_OPTS=-Xmx3g mvn -q test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.StartupBenchmark}.
+ */
+public class StartupBenchmark {
+
+    private static final int COUPONS = 1_000_000;
+    private static final int TAIL = 10_000;
+    private static final int UPDATE_PASSES = 4;
+    private static final int BATCH = 5_000;
+    private static final int TAIL_BATCH = 100;
+
+    private static volatile Object blackhole;
+
+    public static void main(String[] args) throws IOException {
+        Path logOnly = Files.createTempDirectory("coupon-startup-log");
+        Path checkpointed = Files.createTempDirectory("coupon-startup-checkpoint");
+        CouponEvaluationExecutor executor = new CouponEvaluationExecutor(new CouponEvaluationProperties());
+        try {
+            writeHistory(logOnly);
+            writeHistory(checkpointed);
+            checkpoint(executor, checkpointed);
+            System.out.printf("log only: %d MB, checkpointed: %d MB%n", sizeInMb(logOnly), sizeInMb(checkpointed));
+
+            BenchmarkSupport.measure("replay the full log", 1, 3, () -> recover(executor, logOnly, false));
+            BenchmarkSupport.measure("load checkpoint", 1, 3, () -> recover(executor, checkpointed, true));
+
+            appendTail(executor, checkpointed);
+            BenchmarkSupport.measure("load checkpoint + 10k tail", 1, 3, () -> recover(executor, checkpointed, true));
+        } finally {
+            executor.destroy();
+            delete(logOnly);
+            delete(checkpointed);
+        }
+    }
+
+    /**
+     * Logs every coupon being created and then updated, as imports and edits would, without
+     * going through the service so that the history is quick to produce.
+     */
+    private static void writeHistory(Path directory) throws IOException {
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            log.replay(0, mutation -> { });
+            for (int pass = 0; pass <= UPDATE_PASSES; pass++) {
+                Random random = new Random(pass);
+                List<CouponMutation> batch = new ArrayList<>(BATCH);
+                for (int i = 0; i < COUPONS; i++) {
+                    batch.add(CouponMutation.put(coupon(i + 1L, pass, random)));
+                    if (batch.size() == BATCH) {
+                        log.append(List.copyOf(batch)).join();
+                        batch.clear();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void checkpoint(CouponEvaluationExecutor executor, Path directory) throws IOException {
+        try (FileCouponRepository repository = repository(directory, true)) {
+            service(executor, repository).checkpoint();
+        }
+    }
+
+    private static void appendTail(CouponEvaluationExecutor executor, Path directory) throws IOException {
+        Random random = new Random(7);
+        try (FileCouponRepository repository = repository(directory, true)) {
+            CouponService service = service(executor, repository);
+            List<CouponRequestDTO> batch = new ArrayList<>(TAIL_BATCH);
+            for (int i = 0; i < TAIL; i++) {
+                batch.add(request(i, random));
+                if (batch.size() == TAIL_BATCH) {
+                    service.createCoupons(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private static void recover(CouponEvaluationExecutor executor, Path directory, boolean checkpoint) {
+        try (FileCouponRepository repository = repository(directory, checkpoint)) {
+            blackhole = service(executor, repository);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static FileCouponRepository repository(Path directory, boolean checkpoint) throws IOException {
+        CatalogCheckpointStore checkpoints = checkpoint ? new FileCatalogCheckpointStore(directory) : CatalogCheckpointStore.NONE;
+        return new FileCouponRepository(new FileCouponMutationLog(directory), checkpoints);
+    }
+
+    private static CouponService service(CouponEvaluationExecutor executor, FileCouponRepository repository) {
+        CouponCacheProperties cacheProperties = new CouponCacheProperties();
+        cacheProperties.setMaxEntries(0);
+        return new CouponService(executor, new ApplicableCouponCache(cacheProperties, new SimpleMeterRegistry()), repository,
+                Clock.systemDefaultZone());
+    }
+
+    private static Coupon coupon(long id, int pass, Random random) {
+        if (id % 2 == 0) {
+            return CartWiseCoupon.builder()
+                    .id(id).type(CouponType.CART_WISE).code("CART" + id)
+                    .description("Revision " + pass)
+                    .threshold(BigDecimal.valueOf(random.nextInt(100)))
+                    .discountPercentage(new BigDecimal("12.5"))
+                    .build();
+        }
+        return ProductWiseCoupon.builder()
+                .id(id).type(CouponType.PRODUCT_WISE).code("PRODUCT" + id)
+                .description("Revision " + pass)
+                .productId((long) random.nextInt(10_000))
+                .minQuantity(random.nextInt(3) + 1)
+                .discountPercentage(new BigDecimal("33.333"))
+                .build();
+    }
+
+    private static CouponRequestDTO request(int i, Random random) {
+        return CartWiseCouponRequest.builder()
+                .code("TAIL" + i)
+                .threshold(BigDecimal.valueOf(random.nextInt(100)))
+                .discountPercentage(new BigDecimal("12.5"))
+                .build();
+    }
+
+    private static long sizeInMb(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(path -> path.toFile().length()).sum() / (1024 * 1024);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.demo.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import com.example.demo.dto.BxGyCouponRequest;
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.dto.CartWiseCouponRequest;
+import com.example.demo.dto.CouponRequestDTO;
+import com.example.demo.dto.ProductWiseCouponRequest;
+import com.example.demo.model.BxGyProductDetail;
+
+/**
+ * Seeded generator of catalogs and carts that look like production traffic rather than uniform
+ * noise. Which products land in carts follows a Zipf distribution with exponent 1.1, so a few
+ * products make up most cart lines. Which products coupons target follows a flatter Zipf
+ * distribution with exponent 0.5: popular products carry more coupons, without the top ones each
+ * carrying thousands. The catalog holds:
+ * <ul>
+ * <li>0.1% site-wide promotions: cart-wise coupons with a low threshold, some capped;</li>
+ * <li>1% cart-wise coupons with thresholds of 50 to 500;</li>
+ * <li>79% product-wise coupons, by percentage or a fixed amount;</li>
+ * <li>20% BxGy coupons that buy two to four products to get one or two of a second set.</li>
+ * </ul>
+ * Cart-wise coupons apply to every cart above their threshold, so they are kept rare, as in a
+ * real catalog; otherwise every evaluation would return a large share of the catalog.
+ * A third of the coupons never expire; the rest expire on a day spread evenly over the next 90.
+ * One in ten has a total redemption limit, and one in twenty a per-customer one.
+ *
+ * <p>Run as a main to write the catalog as NDJSON for the import endpoint, e.g. {@code mvn -q
+ * test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.demo.benchmark.SyntheticCatalog -Dexec.args="100000 5000 42
+ * catalog.ndjson"}, then {@code curl -H 'Content-Type: application/x-ndjson' --data-binary
+ * @catalog.ndjson localhost:8080/api/v1/coupons/import}.
+ */
+public final class SyntheticCatalog {
+
+    static final ObjectMapper JSON = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .build();
+
+    private static final double CART_EXPONENT = 1.1;
+    private static final double COUPON_EXPONENT = 0.5;
+
+    private final int products;
+    private final Zipf popularity;
+    private final Zipf targeting;
+    private final Zipf couponPopularity;
+    private final BigDecimal[] prices;
+    private final List<CouponRequestDTO> coupons;
+    private final List<String> promotionCodes = new ArrayList<>();
+    private final List<List<String>> productCouponCodes;
+
+    SyntheticCatalog(String codePrefix, int coupons, int products, long seed) {
+        Random random = new Random(seed);
+        this.products = products;
+        this.popularity = new Zipf(products, CART_EXPONENT);
+        this.targeting = new Zipf(products, COUPON_EXPONENT);
+        this.couponPopularity = new Zipf(coupons, CART_EXPONENT);
+        this.prices = new BigDecimal[products];
+        for (int i = 0; i < products; i++) {
+            // Log-uniform between 1 and 500
+            prices[i] = BigDecimal.valueOf(Math.round(100 * Math.exp(random.nextDouble() * Math.log(500))), 2);
+        }
+        this.productCouponCodes = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            productCouponCodes.add(new ArrayList<>(0));
+        }
+        this.coupons = new ArrayList<>(coupons);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < coupons; i++) {
+            CouponRequestDTO coupon = coupon(codePrefix + "-" + i, i, coupons, random);
+            if (random.nextInt(3) > 0) {
+                coupon.setExpirationDate(today.plusDays(1 + random.nextInt(90)));
+            }
+            if (random.nextInt(10) == 0) {
+                coupon.setMaxRedemptions((long) (100 + random.nextInt(10_000)));
+            }
+            if (random.nextInt(20) == 0) {
+                coupon.setMaxRedemptionsPerCustomer(1 + random.nextInt(3));
+            }
+            this.coupons.add(coupon);
+        }
+    }
+
+    private CouponRequestDTO coupon(String code, int index, int count, Random random) {
+        int kind = random.nextInt(100);
+        if (index < Math.max(1, count / 1000)) {
+            promotionCodes.add(code);
+            return CartWiseCouponRequest.builder()
+                    .code(code)
+                    .description("Site-wide promotion")
+                    .threshold(BigDecimal.valueOf(random.nextInt(50)))
+                    .discountPercentage(BigDecimal.valueOf(5 + random.nextInt(11)))
+                    .maxDiscountAmount(random.nextBoolean() ? BigDecimal.valueOf(25 + random.nextInt(75)) : null)
+                    .build();
+        } else if (kind < 1) {
+            return CartWiseCouponRequest.builder()
+                    .code(code)
+                    .threshold(BigDecimal.valueOf(50 + random.nextInt(451)))
+                    .discountPercentage(BigDecimal.valueOf(5 + random.nextInt(21)))
+                    .build();
+        } else if (kind < 80) {
+            int productId = targeting.sample(random);
+            productCouponCodes.get(productId).add(code);
+            ProductWiseCouponRequest.ProductWiseCouponRequestBuilder<?, ?> builder = ProductWiseCouponRequest.builder()
+                    .code(code)
+                    .productId((long) productId)
+                    .minQuantity(random.nextInt(4) == 0 ? 2 : null);
+            return random.nextInt(4) == 0
+                    ? builder.fixedDiscountAmount(prices[productId].movePointLeft(1).setScale(2, RoundingMode.HALF_UP).max(BigDecimal.ONE)).build()
+                    : builder.discountPercentage(BigDecimal.valueOf(5 + random.nextInt(46))).build();
+        } else {
+            return BxGyCouponRequest.builder()
+                    .code(code)
+                    .buyProducts(productDetails(2 + random.nextInt(3), random))
+                    .getProducts(productDetails(1 + random.nextInt(2), random))
+                    .repetitionLimit(1 + random.nextInt(3))
+                    .build();
+        }
+    }
+
+    private List<BxGyProductDetail> productDetails(int count, Random random) {
+        List<BxGyProductDetail> details = new ArrayList<>(count);
+        for (long productId : distinctProducts(targeting, count, random)) {
+            details.add(new BxGyProductDetail(productId, 1 + random.nextInt(2)));
+        }
+        return details;
+    }
+
+    List<CouponRequestDTO> coupons() {
+        return coupons;
+    }
+
+    /**
+     * A cart of one to eight lines of distinct, popularity-weighted products at their list price.
+     */
+    Cart cart(Random random) {
+        int lines = 1 + (int) Math.min(7, -Math.log(1 - random.nextDouble()) * 2.5);
+        List<CartItem> items = new ArrayList<>(lines);
+        for (long productId : distinctProducts(popularity, lines, random)) {
+            items.add(CartItem.builder()
+                    .productId(productId)
+                    .quantity(1 + random.nextInt(3))
+                    .price(prices[(int) productId])
+                    .build());
+        }
+        return Cart.builder().items(items).build();
+    }
+
+    /**
+     * The code of a coupon a shopper would plausibly try on the cart: a product-wise coupon for
+     * one of its products if there is one, and a site-wide promotion otherwise.
+     */
+    String couponCodeFor(Cart cart, Random random) {
+        CartItem item = cart.getItems().get(random.nextInt(cart.getItems().size()));
+        List<String> codes = productCouponCodes.get(item.getProductId().intValue());
+        return codes.isEmpty()
+                ? promotionCodes.get(random.nextInt(promotionCodes.size()))
+                : codes.get(random.nextInt(codes.size()));
+    }
+
+    /**
+     * A coupon code drawn with Zipf popularity over the catalog's order, for lookups.
+     */
+    String popularCouponCode(Random random) {
+        return coupons.get(couponPopularity.sample(random)).getCode();
+    }
+
+    private Set<Long> distinctProducts(Zipf distribution, int count, Random random) {
+        Set<Long> productIds = new LinkedHashSet<>();
+        while (productIds.size() < Math.min(count, products)) {
+            productIds.add((long) distribution.sample(random));
+        }
+        return productIds;
+    }
+
+    static String json(Object value) {
+        try {
+            return JSON.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void writeNdjson(Writer out) throws IOException {
+        for (CouponRequestDTO coupon : coupons) {
+            out.write(json(coupon));
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Zipf distribution over ranks {@code 0..n-1}, rank 0 the most likely, sampled by binary
+     * search of its cumulative distribution.
+     */
+    static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 0; rank < n; rank++) {
+                sum += 1 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = sum;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            double u = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulative[mid] < u) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int coupons = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int products = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        SyntheticCatalog catalog = new SyntheticCatalog("SYN" + seed, coupons, products, seed);
+        try (Writer out = args.length > 3
+                ? Files.newBufferedWriter(Path.of(args[3]))
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            catalog.writeNdjson(out);
+        }
+    }
+}
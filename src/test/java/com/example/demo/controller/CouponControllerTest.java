@@ -0,0 +1,75 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.config.CouponEvaluationProperties;
+import com.example.demo.config.CouponIdempotencyProperties;
+import com.example.demo.config.CouponReservationProperties;
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.dto.CartWiseCouponRequest;
+import com.example.demo.persistence.InMemoryCouponRepository;
+import com.example.demo.service.ApplicableCouponCache;
+import com.example.demo.service.CouponEvaluationExecutor;
+import com.example.demo.service.CouponReservationService;
+import com.example.demo.service.CouponService;
+import com.example.demo.service.IdempotencyCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CouponControllerTest {
+
+    private CouponEvaluationExecutor evaluationExecutor;
+    private CouponController controller;
+
+    @BeforeEach
+    void setUp() {
+        evaluationExecutor = new CouponEvaluationExecutor(new CouponEvaluationProperties());
+        CouponService couponService = new CouponService(evaluationExecutor,
+                new ApplicableCouponCache(new CouponCacheProperties(), new SimpleMeterRegistry()), new InMemoryCouponRepository(),
+                Clock.systemDefaultZone());
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("SUMMER").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptions(1L).build());
+        controller = new CouponController(couponService, null,
+                new CouponReservationService(couponService, new CouponReservationProperties(), Clock.systemDefaultZone()),
+                new IdempotencyCache(new CouponIdempotencyProperties(), Clock.systemDefaultZone(), new SimpleMeterRegistry()),
+                new ObjectMapper());
+    }
+
+    @AfterEach
+    void tearDown() {
+        evaluationExecutor.destroy();
+    }
+
+    @Test
+    void applyCouponByCode_shouldReplayARetryThatSpellsTheCodeDifferently() {
+        Cart applied = controller.applyCouponByCode("summer", cart(), null, "order-1").getBody();
+        // The coupon's only redemption is taken, so a second application would be refused
+        Cart retried = controller.applyCouponByCode(" SUMMER ", cart(), null, "order-1").getBody();
+
+        assertEquals(0, applied.getFinalPrice().compareTo(retried.getFinalPrice()));
+    }
+
+    @Test
+    void reserveCouponByCode_shouldReplayARetryThatSpellsTheCodeDifferently() {
+        String reservationId = controller.reserveCouponByCode("Summer", cart(), null, "order-1").getBody().getReservationId();
+
+        assertEquals(reservationId, controller.reserveCouponByCode("SUMMER", cart(), null, "order-1").getBody().getReservationId());
+    }
+
+    private static Cart cart() {
+        return Cart.builder()
+                .items(List.of(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(150)).build()))
+                .build();
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.demo.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.List;
+
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.config.CouponEvaluationProperties;
+import com.example.demo.dto.ApplicableCouponResponse;
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartEvaluationResult;
+import com.example.demo.dto.CartItem;
+import com.example.demo.dto.CartWiseCouponRequest;
+import com.example.demo.dto.ProductWiseCouponRequest;
+import com.example.demo.exception.GlobalExceptionHandler;
+import com.example.demo.persistence.InMemoryCouponRepository;
+import com.example.demo.service.ApplicableCouponCache;
+import com.example.demo.service.CouponEvaluationExecutor;
+import com.example.demo.service.CouponService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.scheduler.Schedulers;
+
+class ReactiveCouponHandlerTest {
+
+    private CouponEvaluationExecutor evaluationExecutor;
+    private CouponService couponService;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        evaluationExecutor = new CouponEvaluationExecutor(new CouponEvaluationProperties());
+        couponService = new CouponService(evaluationExecutor, new ApplicableCouponCache(new CouponCacheProperties(), new SimpleMeterRegistry()),
+                new InMemoryCouponRepository(), Clock.systemDefaultZone());
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("CART10").threshold(BigDecimal.valueOf(100)).discountPercentage(BigDecimal.TEN).build()); // ID 1
+        couponService.createCoupon(ProductWiseCouponRequest.builder()
+                .code("PROD1").productId(1L).discountPercentage(BigDecimal.valueOf(20)).build()); // ID 2
+        ReactiveCouponHandler handler = new ReactiveCouponHandler(couponService,
+                Validation.buildDefaultValidatorFactory().getValidator(), new GlobalExceptionHandler(),
+                Schedulers.fromExecutor(evaluationExecutor.getExecutor()), 2);
+        client = WebTestClient.bindToRouterFunction(handler.routes()).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        evaluationExecutor.destroy();
+    }
+
+    @Test
+    void getApplicableCoupons_shouldEvaluateTheCartAgainstTheCatalog() {
+        List<ApplicableCouponResponse> coupons = client.post().uri("/api/v1/coupons/applicable-coupons")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(1L, 150))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(CouponController.CATALOG_VERSION_HEADER, Long.toString(couponService.snapshot().getVersion()))
+                .expectBodyList(ApplicableCouponResponse.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(List.of(1L, 2L), coupons.stream().map(ApplicableCouponResponse::getCouponId).toList());
+    }
+
+    @Test
+    void getApplicableCoupons_shouldRankByDiscountWhenALimitIsGiven() {
+        List<ApplicableCouponResponse> coupons = client.post().uri("/api/v1/coupons/applicable-coupons?limit=1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(1L, 150))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ApplicableCouponResponse.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(1, coupons.size());
+        assertEquals(2L, coupons.get(0).getCouponId());
+    }
+
+    @Test
+    void getApplicableCouponsBatch_shouldStreamNdjsonResultsInRequestOrder() {
+        String carts = "{\"items\":[{\"productId\":1,\"quantity\":1,\"price\":150}]}\n"
+                + "{\"items\":[{\"productId\":9,\"quantity\":1,\"price\":10}]}\n"
+                + "{\"items\":[{\"productId\":9,\"quantity\":1,\"price\":150}]}\n";
+
+        List<CartEvaluationResult> results = client.post().uri("/api/v1/coupons/applicable-coupons/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(carts)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(CartEvaluationResult.class)
+                .getResponseBody().collectList().block();
+
+        assertEquals(List.of(0, 1, 2), results.stream().map(CartEvaluationResult::getCartIndex).toList());
+        assertEquals(2, results.get(0).getApplicableCoupons().size());
+        assertTrue(results.get(1).getApplicableCoupons().isEmpty());
+        assertEquals(1L, results.get(2).getApplicableCoupons().get(0).getCouponId());
+    }
+
+    @Test
+    void getApplicableCouponsBatch_shouldAcceptAJsonArray() {
+        client.post().uri("/api/v1/coupons/applicable-coupons/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(cart(1L, 150), cart(9L, 10)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].cartIndex").isEqualTo(0)
+                .jsonPath("$[1].applicableCoupons.length()").isEqualTo(0);
+    }
+
+    @Test
+    void applyCoupon_shouldReturnTheDiscountedCart() {
+        Cart applied = client.post().uri("/api/v1/coupons/apply-coupon/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(9L, 150))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Cart.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(0, BigDecimal.valueOf(15).compareTo(applied.getTotalDiscount()));
+        assertEquals(0, BigDecimal.valueOf(135).compareTo(applied.getFinalPrice()));
+    }
+
+    @Test
+    void applyCoupon_shouldAnswerLikeTheServletEndpointsOnErrors() {
+        client.post().uri("/api/v1/coupons/apply-coupon/99")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(9L, 150))
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("Coupon with id 99 not found");
+
+        client.post().uri("/api/v1/coupons/apply-coupon/by-code/CART10")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(9L, 10))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.post().uri("/api/v1/coupons/apply-coupon/abc")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(9L, 150))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.post().uri("/api/v1/coupons/apply-coupon/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"items\":[]}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Validation Error");
+    }
+
+    @Test
+    void applyCoupon_shouldCountTheRedemptionOnceItHasBeenSaved() {
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("ONCE").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptions(1L).build()); // ID 3
+
+        client.post().uri("/api/v1/coupons/apply-coupon/by-code/ONCE")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(9L, 150))
+                .exchange()
+                .expectStatus().isOk();
+
+        client.post().uri("/api/v1/coupons/apply-coupon/3")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(9L, 150))
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void applyCoupon_shouldRejectAnIdempotencyKeyRatherThanIgnoreIt() {
+        client.post().uri("/api/v1/coupons/apply-coupon/1")
+                .header(CouponController.IDEMPOTENCY_KEY_HEADER, "retry-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(9L, 150))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").value(message -> assertTrue(((String) message).contains("Idempotency-Key")));
+
+        client.post().uri("/api/v1/coupons/apply-coupon/by-code/CART10")
+                .header(CouponController.IDEMPOTENCY_KEY_HEADER, "retry-2")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(cart(9L, 150))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void applyCoupon_shouldAnswerBadRequestWhenTheCartTotalOverflows() {
+        client.post().uri("/api/v1/coupons/apply-coupon/1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"items\":[{\"productId\":1,\"quantity\":2000000000,\"price\":100000000}]}")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Cart amounts are too large to evaluate");
+    }
+
+    private static Cart cart(long productId, int price) {
+        return Cart.builder()
+                .items(List.of(CartItem.builder().productId(productId).quantity(1).price(BigDecimal.valueOf(price)).build()))
+                .build();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.demo.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.BxGyProductDetail;
+import com.example.demo.model.CouponType;
+
+class BxGyAllocatorTest {
+
+    @Test
+    void allocate_shouldRespectRepetitionLimit() {
+        CartItem buy = item(1L, 6, 50);
+        CartItem get = item(2L, 3, 100);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 2)), List.of(detail(2L, 1)), 2));
+
+        BxGyAllocation allocation = allocator.allocate(context(buy, get));
+
+        assertEquals(2, allocation.repetitions());
+        assertEquals(2, allocation.freeUnits());
+        assertEquals(List.of(get), allocatedItems(allocation));
+        assertEquals(2, allocation.lines().get(0).freeUnits());
+    }
+
+    @Test
+    void allocate_shouldNotFreeMoreUnitsThanTheCartHolds() {
+        CartItem buy = item(1L, 6, 50);
+        CartItem get = item(2L, 1, 100);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 2)), List.of(detail(2L, 1)), 3));
+
+        BxGyAllocation allocation = allocator.allocate(context(buy, get));
+
+        assertEquals(1, allocation.repetitions());
+        assertEquals(1, allocation.freeUnits());
+    }
+
+    @Test
+    void allocate_shouldFreeCheapestUnitsAcrossGetSet() {
+        CartItem buy = item(1L, 4, 50);
+        CartItem expensive = item(2L, 2, 100);
+        CartItem cheap = item(3L, 1, 20);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 2)), List.of(detail(2L, 1), detail(3L, 1)), 1));
+
+        BxGyAllocation allocation = allocator.allocate(context(buy, expensive, cheap));
+
+        assertEquals(2, allocation.freeUnits());
+        assertEquals(List.of(cheap, expensive), allocatedItems(allocation));
+        assertEquals(2_000L + 10_000L, allocation.discount());
+    }
+
+    // Unlike the original strategy, which required every get product in the cart with at least
+    // its get quantity, the get set is one pool: whatever part of it the cart holds is made free
+    @Test
+    void allocate_shouldApplyWhenTheCartHoldsOnlyPartOfTheGetSet() {
+        CartItem buy = item(1L, 2, 50);
+        CartItem get = item(2L, 1, 100);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 2)), List.of(detail(2L, 2), detail(3L, 1)), 1));
+
+        BxGyAllocation allocation = allocator.allocate(context(buy, get));
+
+        assertFalse(allocation.isEmpty());
+        assertEquals(1, allocation.freeUnits());
+        assertEquals(10_000L, allocation.discount());
+    }
+
+    @Test
+    void allocate_shouldPoolFreeUnitsAcrossGetProducts() {
+        CartItem buy = item(1L, 2, 50);
+        CartItem get = item(3L, 3, 20);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 2)), List.of(detail(2L, 1), detail(3L, 1)), 1));
+
+        BxGyAllocation allocation = allocator.allocate(context(buy, get));
+
+        assertEquals(2, allocation.freeUnits());
+        assertEquals(List.of(get), allocatedItems(allocation));
+        assertEquals(4_000L, allocation.discount());
+    }
+
+    @Test
+    void allocate_shouldNotCountOverlappingUnitsTwice() {
+        // Buy 2 of product 1, get 1 of product 1 free: six units are two full repetitions
+        CartItem item = item(1L, 6, 30);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 2)), List.of(detail(1L, 1)), 5));
+
+        BxGyAllocation allocation = allocator.allocate(context(item));
+
+        assertEquals(2, allocation.repetitions());
+        assertEquals(2, allocation.freeUnits());
+    }
+
+    @Test
+    void allocate_shouldReturnNoneWhenOverlapLeavesNothingFree() {
+        CartItem item = item(1L, 2, 30);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 2)), List.of(detail(1L, 1)), 1));
+
+        assertTrue(allocator.allocate(context(item)).isEmpty());
+    }
+
+    @Test
+    void allocate_shouldFreeCheapestLinesOfOverlappingProduct() {
+        CartItem expensive = item(1L, 2, 40);
+        CartItem cheap = item(1L, 1, 10);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 2)), List.of(detail(1L, 1)), 1));
+
+        BxGyAllocation allocation = allocator.allocate(context(expensive, cheap));
+
+        assertEquals(List.of(cheap), allocatedItems(allocation));
+        assertEquals(1_000L, allocation.discount());
+    }
+
+    @Test
+    void allocate_shouldHandleLargeRepetitionCountsWithoutLooping() {
+        CartItem buy = item(1L, 2_000_000, 1);
+        CartItem get = item(2L, 1_000_000, 1);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 2)), List.of(detail(2L, 1)), 1_000_000));
+
+        BxGyAllocation allocation = allocator.allocate(context(buy, get));
+
+        assertEquals(1_000_000, allocation.repetitions());
+        assertEquals(1_000_000, allocation.freeUnits());
+    }
+
+    @Test
+    void allocate_shouldNotOverflowWhenRepetitionsTimesGetQuantityExceedsAnInt() {
+        // Two repetitions of 1.5 billion free units would wrap an int; the cart holds 2 billion
+        CartItem buy = item(1L, 2, 1);
+        CartItem get = item(2L, 2_000_000_000, 1);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 1)), List.of(detail(2L, 1_500_000_000)), 2));
+
+        BxGyAllocation allocation = allocator.allocate(context(buy, get));
+
+        assertEquals(2, allocation.repetitions());
+        assertEquals(2_000_000_000L, allocation.freeUnits());
+        assertEquals(2_000_000_000L * 100, allocation.discount());
+    }
+
+    @Test
+    void allocate_shouldNotOverflowWhenGetQuantitiesSumPastAnInt() {
+        CartItem buy = item(1L, 3, 1);
+        CartItem first = item(2L, 5, 1);
+        CartItem second = item(3L, 5, 2);
+        BxGyAllocator allocator = BxGyAllocator.of(coupon(List.of(detail(1L, 1)),
+                List.of(detail(2L, Integer.MAX_VALUE), detail(3L, Integer.MAX_VALUE)), 3));
+
+        BxGyAllocation allocation = allocator.allocate(context(buy, first, second));
+
+        assertEquals(10, allocation.freeUnits());
+        assertEquals(List.of(first, second), allocatedItems(allocation));
+        assertTrue(allocator.discountUpperBound(context(buy, first, second)) >= allocation.discount());
+    }
+
+    private static List<CartItem> allocatedItems(BxGyAllocation allocation) {
+        return allocation.lines().stream().map(BxGyAllocation.LineAllocation::item).toList();
+    }
+
+    private static CartContext context(CartItem... items) {
+        return CartContext.of(Cart.builder().items(Arrays.asList(items)).build());
+    }
+
+    private static CartItem item(long productId, int quantity, int price) {
+        return CartItem.builder().productId(productId).quantity(quantity).price(BigDecimal.valueOf(price)).build();
+    }
+
+    private static BxGyProductDetail detail(long productId, int quantity) {
+        return BxGyProductDetail.builder().productId(productId).quantity(quantity).build();
+    }
+
+    private static BxGyCoupon coupon(List<BxGyProductDetail> buy, List<BxGyProductDetail> get, int repetitionLimit) {
+        return BxGyCoupon.builder()
+                .id(1L)
+                .type(CouponType.BXGY)
+                .buyProducts(buy)
+                .getProducts(get)
+                .repetitionLimit(repetitionLimit)
+                .build();
+    }
+}
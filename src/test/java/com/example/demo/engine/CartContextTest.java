@@ -0,0 +1,75 @@
+package com.example.demo.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.exception.InvalidCouponRequestException;
+
+class CartContextTest {
+
+    @Test
+    void of_shouldComputeLineTotalsAndOrderTotal() {
+        Cart cart = Cart.builder()
+                .items(Arrays.asList(
+                        CartItem.builder().productId(1L).quantity(3).price(BigDecimal.valueOf(25)).build(),
+                        CartItem.builder().productId(2L).quantity(1).price(BigDecimal.valueOf(50)).build()))
+                .build();
+
+        CartContext context = CartContext.of(cart);
+
+        assertSame(cart, context.getCart());
+        assertEquals(Set.of(1L, 2L), context.productIds());
+        assertEquals(3, context.quantityOf(1L));
+        assertEquals(7_500L, context.lineTotalOf(1L));
+        assertEquals(Money.ofMinor(12_500L), context.getTotalOriginalPrice());
+    }
+
+    @Test
+    void of_shouldMergeDuplicateProductLines() {
+        CartItem first = CartItem.builder().productId(1L).quantity(2).price(BigDecimal.valueOf(10)).build();
+        CartItem second = CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(12)).build();
+        Cart cart = Cart.builder().items(Arrays.asList(first, second)).build();
+
+        CartContext context = CartContext.of(cart);
+
+        assertEquals(Set.of(1L), context.productIds());
+        assertEquals(3, context.quantityOf(1L));
+        assertEquals(3_200L, context.lineTotalOf(1L));
+        assertEquals(Arrays.asList(first, second), context.line(1L).getLines().stream().map(CartContext.Line::item).toList());
+    }
+
+    @Test
+    void lookups_shouldReturnEmptyValuesForMissingProduct() {
+        Cart cart = Cart.builder()
+                .items(Arrays.asList(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.ONE).build()))
+                .build();
+
+        CartContext context = CartContext.of(cart);
+
+        assertNull(context.line(9L));
+        assertEquals(0, context.quantityOf(9L));
+        assertEquals(0L, context.lineTotalOf(9L));
+    }
+
+    @Test
+    void of_shouldRejectCartsWhoseAmountsOverflow() {
+        CartItem huge = CartItem.builder().productId(1L).quantity(2_000_000_000).price(BigDecimal.valueOf(100_000_000)).build();
+        CartItem large = CartItem.builder().productId(1L).quantity(Integer.MAX_VALUE).price(BigDecimal.ONE).build();
+        CartItem overpriced = CartItem.builder().productId(1L).quantity(1).price(new BigDecimal("1E30")).build();
+
+        for (Cart cart : Arrays.asList(
+                Cart.builder().items(Arrays.asList(huge)).build(),
+                Cart.builder().items(Arrays.asList(large, large)).build(),
+                Cart.builder().items(Arrays.asList(overpriced)).build())) {
+            InvalidCouponRequestException e = assertThrows(InvalidCouponRequestException.class, () -> CartContext.of(cart));
+            assertEquals("Cart amounts are too large to evaluate", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+
+class CartFingerprintTest {
+
+    @Test
+    void of_shouldNotDependOnLineOrder() {
+        CartItem apple = item(1L, 2, "1.50");
+        CartItem pear = item(2L, 1, "3.00");
+
+        CartFingerprint first = fingerprint(apple, pear);
+        CartFingerprint second = fingerprint(pear, apple);
+
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertEquals(2, first.lineCount());
+    }
+
+    @Test
+    void of_shouldDistinguishQuantitiesPricesAndSplitLines() {
+        CartFingerprint base = fingerprint(item(1L, 2, "1.50"));
+
+        assertNotEquals(base, fingerprint(item(1L, 3, "1.50")));
+        assertNotEquals(base, fingerprint(item(1L, 2, "1.51")));
+        assertNotEquals(base, fingerprint(item(2L, 2, "1.50")));
+        assertNotEquals(base, fingerprint(item(1L, 1, "1.50"), item(1L, 1, "1.50")));
+        assertEquals(base, fingerprint(item(1L, 2, "1.500")));
+    }
+
+    private static CartFingerprint fingerprint(CartItem... items) {
+        return CartFingerprint.of(CartContext.of(Cart.builder().items(List.of(items)).build()));
+    }
+
+    private static CartItem item(long productId, int quantity, String price) {
+        return CartItem.builder().productId(productId).quantity(quantity).price(new BigDecimal(price)).build();
+    }
+}
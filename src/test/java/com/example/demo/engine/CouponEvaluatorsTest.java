@@ -0,0 +1,150 @@
+package com.example.demo.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.BxGyProductDetail;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.Coupon;
+import com.example.demo.model.CouponType;
+import com.example.demo.model.ProductWiseCoupon;
+import com.example.demo.strategy.BxGyCouponStrategy;
+import com.example.demo.strategy.CartWiseCouponStrategy;
+import com.example.demo.strategy.CouponStrategy;
+import com.example.demo.strategy.ProductWiseCouponStrategy;
+
+class CouponEvaluatorsTest {
+
+    @Test
+    void compile_shouldPickEvaluatorForCouponType() {
+        assertTrue(CouponEvaluators.compile(cartWise(null)) instanceof CartWiseCouponEvaluator);
+        assertTrue(CouponEvaluators.compile(productWisePercentage()) instanceof ProductWiseCouponEvaluator);
+        assertTrue(CouponEvaluators.compile(bxGy(1)) instanceof BxGyCouponEvaluator);
+    }
+
+    @Test
+    void cartWiseEvaluator_shouldMatchReferenceStrategy() {
+        assertMatchesReference(new CartWiseCouponStrategy(), cartWise(null));
+        assertMatchesReference(new CartWiseCouponStrategy(), cartWise(BigDecimal.valueOf(5)));
+    }
+
+    @Test
+    void productWiseEvaluator_shouldMatchReferenceStrategy() {
+        assertMatchesReference(new ProductWiseCouponStrategy(), productWisePercentage());
+        assertMatchesReference(new ProductWiseCouponStrategy(), ProductWiseCoupon.builder()
+                .id(2L).type(CouponType.PRODUCT_WISE).productId(2L).fixedDiscountAmount(BigDecimal.valueOf(7)).minQuantity(2).build());
+    }
+
+    @Test
+    void bxGyEvaluator_shouldMatchReferenceStrategy() {
+        assertMatchesReference(new BxGyCouponStrategy(), bxGy(1));
+        assertMatchesReference(new BxGyCouponStrategy(), bxGy(3));
+    }
+
+    @Test
+    void discountUpperBound_shouldNeverBeBelowExactDiscount() {
+        List<Coupon> coupons = List.of(cartWise(null), cartWise(BigDecimal.valueOf(5)), productWisePercentage(), bxGy(1), bxGy(3),
+                ProductWiseCoupon.builder().id(2L).type(CouponType.PRODUCT_WISE).productId(2L).fixedDiscountAmount(BigDecimal.valueOf(7)).build());
+        Cart oddPrices = Cart.builder().items(Arrays.asList(
+                CartItem.builder().productId(1L).quantity(3).price(new BigDecimal("0.05")).build(),
+                CartItem.builder().productId(1L).quantity(1).price(new BigDecimal("0.15")).build(),
+                CartItem.builder().productId(2L).quantity(5).price(new BigDecimal("19.99")).build())).build();
+
+        for (Cart cart : List.of(cart(), oddPrices)) {
+            CartContext context = CartContext.of(cart);
+            for (Coupon coupon : coupons) {
+                CouponEvaluator evaluator = CouponEvaluators.compile(coupon);
+                long exact = evaluator.isApplicable(context) ? evaluator.calculateDiscount(context).minorUnits() : 0;
+                assertTrue(evaluator.discountUpperBound(context) >= exact, coupon.getType() + " bound below " + exact);
+            }
+        }
+    }
+
+    private static void assertMatchesReference(CouponStrategy strategy, Coupon coupon) {
+        CouponEvaluator evaluator = CouponEvaluators.compile(coupon);
+
+        assertEquals(strategy.isApplicable(cart(), coupon), evaluator.isApplicable(CartContext.of(cart())));
+        assertEquals(0, strategy.calculateDiscount(cart(), coupon).compareTo(evaluator.calculateDiscount(CartContext.of(cart())).toBigDecimal()));
+
+        Cart expected = strategy.applyDiscount(cart(), coupon);
+        Cart actual = evaluator.applyDiscount(CartContext.of(cart()));
+        assertEquals(0, expected.getTotalDiscount().compareTo(actual.getTotalDiscount()));
+        assertEquals(0, expected.getFinalPrice().compareTo(actual.getFinalPrice()));
+        assertEquals(finalPrices(expected), finalPrices(actual));
+
+        // The single-pass variants agree with the separate calls
+        assertEquals(evaluator.calculateDiscount(CartContext.of(cart())), evaluator.evaluate(CartContext.of(cart())));
+        Cart applied = evaluator.tryApply(CartContext.of(cart()));
+        assertEquals(0, expected.getFinalPrice().compareTo(applied.getFinalPrice()));
+        assertEquals(finalPrices(expected), finalPrices(applied));
+    }
+
+    @Test
+    void evaluateAndTryApply_shouldReturnNullWhenTheCouponDoesNotApply() {
+        Cart cart = Cart.builder()
+                .items(Arrays.asList(CartItem.builder().productId(3L).quantity(2).price(BigDecimal.valueOf(25)).build()))
+                .build();
+
+        for (Coupon coupon : List.of(productWisePercentage(), bxGy(1))) {
+            CouponEvaluator evaluator = CouponEvaluators.compile(coupon);
+            assertNull(evaluator.evaluate(CartContext.of(cart)));
+            assertNull(evaluator.tryApply(CartContext.of(cart)));
+            assertNull(cart.getItems().get(0).getFinalPrice());
+        }
+    }
+
+    private static List<BigDecimal> finalPrices(Cart cart) {
+        return cart.getItems().stream()
+                .map(item -> item.getFinalPrice() == null ? null : item.getFinalPrice().stripTrailingZeros())
+                .collect(Collectors.toList());
+    }
+
+    private static Cart cart() {
+        return Cart.builder()
+                .items(Arrays.asList(
+                        CartItem.builder().productId(1L).quantity(6).price(BigDecimal.valueOf(50)).totalDiscount(BigDecimal.ZERO).build(),
+                        CartItem.builder().productId(2L).quantity(3).price(BigDecimal.valueOf(30)).totalDiscount(BigDecimal.ZERO).build(),
+                        CartItem.builder().productId(3L).quantity(2).price(BigDecimal.valueOf(25)).totalDiscount(BigDecimal.ZERO).build()))
+                .totalOriginalPrice(BigDecimal.valueOf(440))
+                .build();
+    }
+
+    private static CartWiseCoupon cartWise(BigDecimal maxDiscountAmount) {
+        return CartWiseCoupon.builder()
+                .id(1L)
+                .type(CouponType.CART_WISE)
+                .threshold(BigDecimal.valueOf(100))
+                .discountPercentage(BigDecimal.valueOf(10))
+                .maxDiscountAmount(maxDiscountAmount)
+                .build();
+    }
+
+    private static ProductWiseCoupon productWisePercentage() {
+        return ProductWiseCoupon.builder()
+                .id(2L)
+                .type(CouponType.PRODUCT_WISE)
+                .productId(1L)
+                .discountPercentage(BigDecimal.valueOf(15))
+                .build();
+    }
+
+    private static BxGyCoupon bxGy(int repetitionLimit) {
+        return BxGyCoupon.builder()
+                .id(3L)
+                .type(CouponType.BXGY)
+                .buyProducts(Collections.singletonList(BxGyProductDetail.builder().productId(1L).quantity(2).build()))
+                .getProducts(Collections.singletonList(BxGyProductDetail.builder().productId(3L).quantity(1).build()))
+                .repetitionLimit(repetitionLimit)
+                .build();
+    }
+}
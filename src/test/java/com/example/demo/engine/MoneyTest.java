@@ -0,0 +1,57 @@
+package com.example.demo.engine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+
+    @Test
+    void of_shouldRoundHalfUpToMinorUnits() {
+        assertEquals(1999L, Money.of(new BigDecimal("19.99")).minorUnits());
+        assertEquals(2000L, Money.of(new BigDecimal("19.995")).minorUnits());
+        assertEquals(1999L, Money.of(new BigDecimal("19.994")).minorUnits());
+        assertEquals(10_000L, Money.of(BigDecimal.valueOf(100)).minorUnits());
+    }
+
+    @Test
+    void toBigDecimal_shouldUseScaleTwo() {
+        assertEquals(new BigDecimal("12.50"), Money.ofMinor(1250).toBigDecimal());
+        assertEquals(new BigDecimal("0.00"), Money.ZERO.toBigDecimal());
+    }
+
+    @Test
+    void toRate_shouldKeepFourDecimalPlacesOfPercentage() {
+        assertEquals(100_000L, Money.toRate(BigDecimal.TEN));
+        assertEquals(333_330L, Money.toRate(new BigDecimal("33.333")));
+        assertEquals(0L, Money.toRate(null));
+    }
+
+    @Test
+    void applyRate_shouldRoundHalfUp() {
+        // 33.333% of 100.00 is 33.333, which rounds to 33.33
+        assertEquals(3333L, Money.applyRate(10_000L, Money.toRate(new BigDecimal("33.333"))));
+        // 15% of 0.10 is 0.015, which rounds to 0.02
+        assertEquals(2L, Money.applyRate(10L, Money.toRate(BigDecimal.valueOf(15))));
+        assertEquals(1000L, Money.applyRate(10_000L, Money.toRate(BigDecimal.TEN)));
+    }
+
+    @Test
+    void applyRate_shouldFallBackToExactArithmeticOnOverflow() {
+        long amount = Long.MAX_VALUE / 10 + 1; // odd, so half of it rounds up
+
+        assertEquals(amount / 2 + 1, Money.applyRate(amount, Money.toRate(BigDecimal.valueOf(50))));
+    }
+
+    @Test
+    void arithmetic_shouldStayInMinorUnits() {
+        Money price = Money.ofMinor(1999);
+
+        assertEquals(Money.ofMinor(3998), price.plus(price));
+        assertEquals(Money.ZERO, price.minus(price));
+        assertEquals(5997L, Money.times(price.minorUnits(), 3));
+        assertTrue(Money.ofMinor(1).compareTo(Money.ZERO) > 0);
+    }
+}
@@ -43,6 +43,78 @@ class GlobalExceptionHandlerTest {
         assertNotNull(body.get("timestamp"));
     }
 
+    @Test
+    void testHandleDuplicateCouponCodeException() {
+        // Arrange
+        String exceptionMessage = "Coupon code 'SAVE10' is already in use by coupon 7";
+        DuplicateCouponCodeException exception = new DuplicateCouponCodeException(exceptionMessage);
+
+        // Act
+        ResponseEntity<Object> response = globalExceptionHandler.handleDuplicateCouponCodeException(exception);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertEquals(exceptionMessage, body.get("message"));
+        assertNotNull(body.get("timestamp"));
+    }
+
+    @Test
+    void testHandleRedemptionLimitReachedException() {
+        // Arrange
+        String exceptionMessage = "Coupon 7 has reached its limit of 10000 redemptions";
+        RedemptionLimitReachedException exception = new RedemptionLimitReachedException(exceptionMessage);
+
+        // Act
+        ResponseEntity<Object> response = globalExceptionHandler.handleRedemptionLimitReachedException(exception);
+
+        // Assert
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertEquals(exceptionMessage, body.get("message"));
+        assertNotNull(body.get("timestamp"));
+    }
+
+    @Test
+    void testHandleReservationNotFoundException() {
+        // Arrange
+        String exceptionMessage = "Reservation 0b7e not found or has expired";
+        ReservationNotFoundException exception = new ReservationNotFoundException(exceptionMessage);
+
+        // Act
+        ResponseEntity<Object> response = globalExceptionHandler.handleReservationNotFoundException(exception);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertEquals(exceptionMessage, body.get("message"));
+        assertNotNull(body.get("timestamp"));
+    }
+
+    @Test
+    void testHandleIdempotencyKeyReusedException() {
+        // Arrange
+        String exceptionMessage = "Idempotency key 'order-42' was already used for a different request";
+        IdempotencyKeyReusedException exception = new IdempotencyKeyReusedException(exceptionMessage);
+
+        // Act
+        ResponseEntity<Object> response = globalExceptionHandler.handleIdempotencyKeyReusedException(exception);
+
+        // Assert
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, response.getStatusCode());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> body = (Map<String, Object>) response.getBody();
+        assertEquals(exceptionMessage, body.get("message"));
+        assertNotNull(body.get("timestamp"));
+    }
+
     @Test
     void testHandleCouponExpiredException() {
         // Arrange
@@ -2,6 +2,7 @@ package com.example.demo.model;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
@@ -37,26 +38,13 @@ class ProductWiseCouponTest {
     }
 
     @Test
-    void testProductWiseCouponGetterSetters() {
-        // Arrange
-        ProductWiseCoupon coupon = ProductWiseCoupon.builder()
-            .productId(100L)
-            .discountPercentage(BigDecimal.valueOf(10))
-            .build();
-
-        // Act
-        coupon.setId(2L);
-        coupon.setProductId(200L);
-        coupon.setDiscountPercentage(BigDecimal.valueOf(15));
-        coupon.setFixedDiscountAmount(BigDecimal.valueOf(75));
-        coupon.setMinQuantity(10);
-
-        // Assert
-        assertEquals(2L, coupon.getId());
-        assertEquals(200L, coupon.getProductId());
-        assertEquals(0, BigDecimal.valueOf(15).compareTo(coupon.getDiscountPercentage()));
-        assertEquals(0, BigDecimal.valueOf(75).compareTo(coupon.getFixedDiscountAmount()));
-        assertEquals(Integer.valueOf(10), coupon.getMinQuantity());
+    void testProductWiseCouponIsImmutable() {
+        // Assert - Coupons are shared by every catalog snapshot that holds them
+        for (Class<?> type = ProductWiseCoupon.class; type != Object.class; type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                assertFalse(method.getName().startsWith("set"), method.toString());
+            }
+        }
     }
 
     @Test
@@ -140,7 +128,7 @@ class ProductWiseCouponTest {
     @Test
     void testProductWiseCouponDefaultValues() {
         // Arrange & Act
-        ProductWiseCoupon coupon = new ProductWiseCoupon();
+        ProductWiseCoupon coupon = ProductWiseCoupon.builder().build();
 
         // Assert
         assertNull(coupon.getId());
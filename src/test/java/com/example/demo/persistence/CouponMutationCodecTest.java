@@ -0,0 +1,92 @@
+package com.example.demo.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.BxGyProductDetail;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.CouponType;
+import com.example.demo.model.ProductWiseCoupon;
+
+class CouponMutationCodecTest {
+
+    @Test
+    void decode_shouldRestoreEveryCouponTypeExactly() {
+        List<CouponMutation> mutations = List.of(
+                CouponMutation.put(CartWiseCoupon.builder()
+                        .id(1L).type(CouponType.CART_WISE).code("CART10").description("10% off, über €50")
+                        .expirationDate(LocalDate.of(2030, 1, 31))
+                        .threshold(new BigDecimal("50.00")).discountPercentage(new BigDecimal("12.5"))
+                        .maxDiscountAmount(new BigDecimal("-0.01"))
+                        .build()),
+                CouponMutation.put(ProductWiseCoupon.builder()
+                        .id(Long.MAX_VALUE).type(CouponType.PRODUCT_WISE).code("PROD")
+                        .productId(-7L).fixedDiscountAmount(new BigDecimal("123456789012345678901234.5")).minQuantity(3)
+                        .build()),
+                CouponMutation.put(BxGyCoupon.builder()
+                        .id(3L).type(CouponType.BXGY).code("B2G1")
+                        .buyProducts(List.of(BxGyProductDetail.builder().productId(1L).quantity(2).build()))
+                        .getProducts(List.of())
+                        .repetitionLimit(4)
+                        .build()),
+                CouponMutation.delete(2L),
+                CouponMutation.redeem(3L, "alice", 2),
+                CouponMutation.redeem(3L, null, 1));
+
+        List<CouponMutation> decoded = CouponMutationCodec.decode(ByteBuffer.wrap(CouponMutationCodec.encode(mutations)));
+
+        assertEquals(mutations, decoded);
+        assertNull(((ProductWiseCoupon) decoded.get(1).coupon()).getDiscountPercentage());
+        assertNull(((BxGyCoupon) decoded.get(2).coupon()).getExpirationDate());
+    }
+
+    @Test
+    void encode_shouldBeCompact() {
+        CartWiseCoupon coupon = CartWiseCoupon.builder()
+                .id(42L).type(CouponType.CART_WISE).code("CART10")
+                .threshold(new BigDecimal("50.00")).discountPercentage(BigDecimal.TEN)
+                .build();
+
+        assertTrue(CouponMutationCodec.encode(List.of(CouponMutation.put(coupon))).length <= 24);
+    }
+
+    @Test
+    void decode_shouldRejectTrailingBytes() {
+        byte[] encoded = CouponMutationCodec.encode(List.of(CouponMutation.delete(1L)));
+        ByteBuffer padded = ByteBuffer.allocate(encoded.length + 1).put(encoded).put((byte) 0).flip();
+
+        assertThrows(IllegalArgumentException.class, () -> CouponMutationCodec.decode(padded));
+    }
+
+    @Test
+    void decodeCoupon_shouldRestoreACouponEncodedOnItsOwn() {
+        CartWiseCoupon coupon = CartWiseCoupon.builder()
+                .id(7L).type(CouponType.CART_WISE).code("CART7").expirationDate(LocalDate.of(2030, 1, 31))
+                .threshold(new BigDecimal("50.00")).discountPercentage(BigDecimal.TEN)
+                .build();
+
+        assertEquals(coupon, CouponMutationCodec.decodeCoupon(ByteBuffer.wrap(CouponMutationCodec.encodeCoupon(coupon))));
+    }
+
+    @Test
+    void decode_shouldRestoreRedemptionLimits() {
+        List<CouponMutation> mutations = List.of(
+                CouponMutation.put(CartWiseCoupon.builder()
+                        .id(1L).type(CouponType.CART_WISE).code("FIRST10K").maxRedemptions(10_000L)
+                        .threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN)
+                        .build()),
+                CouponMutation.put(ProductWiseCoupon.builder()
+                        .id(2L).type(CouponType.PRODUCT_WISE).code("ONCE").maxRedemptionsPerCustomer(1)
+                        .productId(5L).discountPercentage(BigDecimal.TEN)
+                        .build()));
+
+        assertEquals(mutations, CouponMutationCodec.decode(ByteBuffer.wrap(CouponMutationCodec.encode(mutations))));
+    }
+}
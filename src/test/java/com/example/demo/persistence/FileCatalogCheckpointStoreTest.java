@@ -0,0 +1,74 @@
+package com.example.demo.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.model.Coupon;
+
+class FileCatalogCheckpointStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void load_shouldReturnEmptyWithoutACheckpoint() throws IOException {
+        assertTrue(new FileCatalogCheckpointStore(directory).load(mutation -> fail("There are no coupons")).isEmpty());
+    }
+
+    @Test
+    void load_shouldReturnTheNewestCheckpointAcrossSeveralChunks() throws IOException {
+        FileCatalogCheckpointStore store = new FileCatalogCheckpointStore(directory);
+        store.write(new CatalogCheckpoint(2, 10), coupons(1, 10).iterator(), List.of());
+        List<Coupon> written = coupons(1, FileCatalogCheckpointStore.COUPONS_PER_CHUNK * 2L + 5);
+        List<CouponMutation> redeemed = List.of(CouponMutation.redeem(3, null, 7), CouponMutation.redeem(3, "alice", 2));
+        store.write(new CatalogCheckpoint(7, 9000), written.iterator(), redeemed);
+
+        List<CouponMutation> loaded = new ArrayList<>();
+        Optional<CatalogCheckpoint> checkpoint = new FileCatalogCheckpointStore(directory).load(loaded::add);
+
+        assertEquals(Optional.of(new CatalogCheckpoint(7, 9000)), checkpoint);
+        List<CouponMutation> expected = new ArrayList<>(written.stream().map(CouponMutation::put).toList());
+        expected.addAll(redeemed);
+        assertEquals(expected, loaded);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(String.format("checkpoint-%020d.bin", 7)), files.map(path -> path.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    void write_shouldStoreAnEmptyCatalog() throws IOException {
+        FileCatalogCheckpointStore store = new FileCatalogCheckpointStore(directory);
+        store.write(new CatalogCheckpoint(3, 42), Collections.emptyIterator(), List.of());
+
+        assertEquals(Optional.of(new CatalogCheckpoint(3, 42)), store.load(mutation -> fail("The catalog is empty")));
+    }
+
+    @Test
+    void load_shouldFailOnADamagedCheckpoint() throws IOException {
+        FileCatalogCheckpointStore store = new FileCatalogCheckpointStore(directory);
+        store.write(new CatalogCheckpoint(1, 3), coupons(1, 3).iterator(), List.of());
+        Path checkpoint = directory.resolve(String.format("checkpoint-%020d.bin", 1));
+        byte[] bytes = Files.readAllBytes(checkpoint);
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(checkpoint, bytes);
+
+        assertThrows(UncheckedIOException.class, () -> store.load(mutation -> { }));
+    }
+
+    private static List<Coupon> coupons(long fromId, long toId) {
+        return LongStream.rangeClosed(fromId, toId).mapToObj(id -> FileCouponMutationLogTest.put(id).coupon()).toList();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.demo.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.CouponType;
+
+class FileCouponMutationLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replay_shouldReturnEveryAppendedEntryInOrderAfterReopening() throws IOException {
+        Path nested = directory.resolve("nested");
+        try (FileCouponMutationLog log = new FileCouponMutationLog(nested)) {
+            log.replay(0, mutation -> fail("A new log is empty"));
+            log.append(List.of(put(1L), put(2L))).join();
+            log.append(List.of(CouponMutation.delete(1L))).join();
+        }
+
+        assertEquals(List.of(put(1L), put(2L), CouponMutation.delete(1L)), replay(nested, 0));
+    }
+
+    @Test
+    void replay_shouldDropATornTailAndKeepAppendingAfterIt() throws IOException {
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            log.replay(0, mutation -> { });
+            log.append(List.of(put(1L))).join();
+            log.append(List.of(put(2L), put(3L))).join();
+        }
+        try (FileChannel channel = FileChannel.open(segment(1), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            List<CouponMutation> replayed = new ArrayList<>();
+            log.replay(0, replayed::add);
+            assertEquals(List.of(put(1L)), replayed);
+            log.append(List.of(put(4L))).join();
+        }
+
+        assertEquals(List.of(put(1L), put(4L)), replay(directory, 0));
+    }
+
+    @Test
+    void replay_shouldStopAtAnEntryThatFailsItsChecksum() throws IOException {
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            log.replay(0, mutation -> { });
+            log.append(List.of(put(1L))).join();
+            log.append(List.of(put(2L))).join();
+        }
+        byte[] bytes = Files.readAllBytes(segment(1));
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(segment(1), bytes);
+
+        assertEquals(List.of(put(1L)), replay(directory, 0));
+    }
+
+    @Test
+    void replay_shouldFailOnDamageBeforeTheNewestSegment() throws IOException {
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            log.replay(0, mutation -> { });
+            log.append(List.of(put(1L))).join();
+            log.rotate();
+            log.append(List.of(put(2L))).join();
+        }
+        byte[] bytes = Files.readAllBytes(segment(1));
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(segment(1), bytes);
+
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            assertThrows(UncheckedIOException.class, () -> log.replay(0, mutation -> { }));
+        }
+    }
+
+    @Test
+    void rotate_shouldSplitTheLogSoThatReplayCanStartAtASegment() throws IOException {
+        long second;
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            log.replay(0, mutation -> { });
+            log.append(List.of(put(1L))).join();
+            second = log.rotate();
+            log.append(List.of(put(2L))).join();
+            log.discardBefore(second);
+            log.append(List.of(put(3L))).join();
+        }
+
+        assertEquals(2, second);
+        assertFalse(Files.exists(segment(1)));
+        assertEquals(List.of(put(2L), put(3L)), replay(directory, second));
+    }
+
+    @Test
+    void replay_shouldStartANewSegmentWhenACheckpointCoversEveryExistingOne() throws IOException {
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            log.replay(0, mutation -> { });
+            log.append(List.of(put(1L))).join();
+        }
+
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            log.replay(5, mutation -> fail("Segment 1 is covered"));
+            log.append(List.of(put(2L))).join();
+        }
+
+        assertTrue(Files.exists(segment(5)));
+        assertEquals(List.of(put(2L)), replay(directory, 5));
+    }
+
+    @Test
+    void append_shouldKeepEveryConcurrentWriterDurableAndInOrder() throws Exception {
+        int writers = 8;
+        int appendsPerWriter = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            log.replay(0, mutation -> { });
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                long base = w * 1000L;
+                futures.add(executor.submit(() -> {
+                    for (long i = 1; i <= appendsPerWriter; i++) {
+                        log.append(List.of(put(base + i))).join();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertTrue(log.syncCount() >= 1);
+        } finally {
+            executor.shutdown();
+        }
+
+        List<CouponMutation> replayed = replay(directory, 0);
+        assertEquals(writers * appendsPerWriter, replayed.size());
+        for (int w = 0; w < writers; w++) {
+            long base = w * 1000L;
+            // Each writer's own appends are replayed in the order it made them
+            List<Long> ids = replayed.stream().map(CouponMutation::couponId).filter(id -> id > base && id <= base + appendsPerWriter).toList();
+            assertEquals(appendsPerWriter, ids.size());
+            for (int i = 1; i < ids.size(); i++) {
+                assertTrue(ids.get(i - 1) < ids.get(i));
+            }
+        }
+    }
+
+    @Test
+    void append_shouldFailBeforeReplayAndAfterClose() throws IOException {
+        FileCouponMutationLog log = new FileCouponMutationLog(directory);
+        CompletableFuture<Void> beforeReplay = log.append(List.of(put(1L)));
+        log.replay(0, mutation -> { });
+        log.close();
+        CompletableFuture<Void> afterClose = log.append(List.of(put(2L)));
+
+        assertTrue(beforeReplay.isCompletedExceptionally());
+        assertTrue(afterClose.isCompletedExceptionally());
+    }
+
+    @Test
+    void replay_shouldRejectASegmentThatIsNotACouponLog() throws IOException {
+        Files.writeString(segment(1), "not a coupon log");
+
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            assertThrows(UncheckedIOException.class, () -> log.replay(0, mutation -> { }));
+        }
+    }
+
+    private Path segment(long number) {
+        return directory.resolve(String.format("coupons-%020d.log", number));
+    }
+
+    private static List<CouponMutation> replay(Path directory, long fromSegment) throws IOException {
+        List<CouponMutation> replayed = new ArrayList<>();
+        try (FileCouponMutationLog log = new FileCouponMutationLog(directory)) {
+            log.replay(fromSegment, replayed::add);
+        }
+        return replayed;
+    }
+
+    static CouponMutation put(long id) {
+        return CouponMutation.put(CartWiseCoupon.builder()
+                .id(id).type(CouponType.CART_WISE).code("CART" + id)
+                .threshold(BigDecimal.TEN).discountPercentage(BigDecimal.ONE)
+                .build());
+    }
+}
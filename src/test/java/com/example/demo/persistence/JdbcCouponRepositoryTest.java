@@ -0,0 +1,211 @@
+package com.example.demo.persistence;
+
+import static com.example.demo.persistence.FileCouponMutationLogTest.put;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.CouponType;
+
+class JdbcCouponRepositoryTest {
+
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+    }
+
+    @Test
+    void load_shouldRestoreTheSavedCatalogAndTheHighestIdEverStored() {
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000)) {
+            assertEquals(0, repository.load(mutation -> fail("A new table is empty")));
+            repository.save(List.of(put(1L), put(2L), put(3L))).join();
+            repository.save(List.of(CouponMutation.delete(3L))).join();
+            repository.save(List.of(put(1L))).join();
+        }
+
+        List<CouponMutation> loaded = new ArrayList<>();
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000)) {
+            assertEquals(3, repository.load(loaded::add));
+        }
+        assertEquals(List.of(put(1L), put(2L)), loaded);
+    }
+
+    @Test
+    void load_shouldDeleteRatherThanLoadCouponsThatHaveExpired() throws SQLException {
+        LocalDate today = LocalDate.of(2026, 10, 17);
+        Clock clock = Clock.fixed(today.atStartOfDay(ZoneId.systemDefault()).toInstant(), ZoneId.systemDefault());
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000, clock)) {
+            repository.load(mutation -> fail("A new table is empty"));
+            repository.save(List.of(expiring(1L, today.minusDays(1)), expiring(2L, today), put(3L))).join();
+        }
+
+        List<CouponMutation> loaded = new ArrayList<>();
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000, clock)) {
+            assertEquals(3, repository.load(loaded::add));
+        }
+        assertEquals(List.of(expiring(2L, today), put(3L)), loaded);
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery("SELECT id FROM coupon ORDER BY id")) {
+            List<Long> ids = new ArrayList<>();
+            while (rows.next()) {
+                ids.add(rows.getLong(1));
+            }
+            assertEquals(List.of(2L, 3L), ids);
+        }
+    }
+
+    @Test
+    void load_shouldTotalUpTheRedemptionsOfCouponsStillStored() throws SQLException {
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000)) {
+            repository.load(mutation -> fail("A new table is empty"));
+            repository.save(List.of(put(1L), put(2L))).join();
+            repository.save(List.of(CouponMutation.redeem(1L, "alice", 1), CouponMutation.redeem(1L, null, 1))).join();
+            repository.save(List.of(CouponMutation.redeem(1L, "alice", 1))).join();
+            repository.save(List.of(CouponMutation.redeem(2L, "bob", 1))).join();
+            repository.save(List.of(CouponMutation.delete(2L))).join();
+        }
+
+        List<CouponMutation> loaded = new ArrayList<>();
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000)) {
+            repository.load(loaded::add);
+        }
+        assertEquals(put(1L), loaded.get(0));
+        assertEquals(Set.of(CouponMutation.redeem(1L, "alice", 2), CouponMutation.redeem(1L, null, 1)), Set.copyOf(loaded.subList(1, loaded.size())));
+        // The rows were replaced with their totals
+        try (Connection connection = dataSource.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM coupon_redemption")) {
+            assertTrue(rows.next());
+            assertEquals(2, rows.getLong(1));
+        }
+    }
+
+    @Test
+    void save_shouldKeepEveryConcurrentWriterDurable() throws Exception {
+        int writers = 8;
+        int savesPerWriter = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000)) {
+            repository.load(mutation -> { });
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                long base = w * 1000L;
+                futures.add(executor.submit(() -> {
+                    for (long i = 1; i <= savesPerWriter; i++) {
+                        repository.save(List.of(put(base + i))).join();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            assertTrue(repository.commitCount() >= 1);
+            assertTrue(repository.commitCount() <= writers * savesPerWriter);
+        } finally {
+            executor.shutdown();
+        }
+
+        List<CouponMutation> loaded = new ArrayList<>();
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000)) {
+            assertEquals((writers - 1) * 1000L + savesPerWriter, repository.load(loaded::add));
+        }
+        assertEquals(writers * savesPerWriter, loaded.size());
+    }
+
+    @Test
+    void save_shouldNeverSplitASaveLargerThanTheBatchSize() {
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 2)) {
+            repository.load(mutation -> { });
+            repository.save(List.of(put(1L), put(2L), put(3L), put(4L), put(5L))).join();
+
+            assertEquals(1, repository.commitCount());
+        }
+    }
+
+    @Test
+    void save_shouldFailEveryLaterSaveOnceATransactionFails() throws SQLException {
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000)) {
+            repository.load(mutation -> { });
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE coupon");
+            }
+
+            assertThrows(CompletionException.class, () -> repository.save(List.of(put(1L))).join());
+            assertThrows(CompletionException.class, () -> repository.save(List.of(put(2L))).join());
+        }
+    }
+
+    @Test
+    void clearFailure_shouldOnlyLetSavesMadeAfterItSucceed() throws SQLException {
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000)) {
+            repository.load(mutation -> { });
+            execute("ALTER TABLE coupon RENAME TO coupon_moved");
+            assertThrows(CompletionException.class, () -> repository.save(List.of(put(1L))).join());
+            assertTrue(repository.failure().isPresent());
+            execute("ALTER TABLE coupon_moved RENAME TO coupon");
+
+            CompletableFuture<Void> before = repository.save(List.of(put(2L)));
+            repository.clearFailure();
+            CompletableFuture<Void> after = repository.save(List.of(put(3L)));
+
+            assertThrows(CompletionException.class, before::join);
+            after.join();
+            assertTrue(repository.failure().isEmpty());
+        }
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000)) {
+            List<Long> loaded = new ArrayList<>();
+            repository.load(mutation -> loaded.add(mutation.couponId()));
+            assertEquals(List.of(3L), loaded);
+        }
+    }
+
+    @Test
+    void save_shouldFailBeforeLoadAndAfterClose() {
+        JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000);
+        CompletableFuture<Void> beforeLoad = repository.save(List.of(put(1L)));
+        repository.load(mutation -> { });
+        repository.close();
+        CompletableFuture<Void> afterClose = repository.save(List.of(put(2L)));
+
+        assertTrue(beforeLoad.isCompletedExceptionally());
+        assertTrue(afterClose.isCompletedExceptionally());
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static CouponMutation expiring(long id, LocalDate expirationDate) {
+        return CouponMutation.put(CartWiseCoupon.builder()
+                .id(id).type(CouponType.CART_WISE).code("CART" + id).expirationDate(expirationDate)
+                .threshold(BigDecimal.TEN).discountPercentage(BigDecimal.ONE)
+                .build());
+    }
+}
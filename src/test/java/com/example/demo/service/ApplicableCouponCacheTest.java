@@ -0,0 +1,169 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.dto.ApplicableCouponResponse;
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.engine.CartContext;
+import com.example.demo.engine.CartFingerprint;
+import com.example.demo.model.CouponType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ApplicableCouponCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CouponCacheProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new CouponCacheProperties();
+    }
+
+    @Test
+    void get_shouldReturnWhatWasPutForTheSameVersion() {
+        ApplicableCouponCache cache = new ApplicableCouponCache(properties, meterRegistry);
+        List<ApplicableCouponResponse> result = coupons(2);
+
+        assertNull(cache.get(1, fingerprint(1L)));
+        List<ApplicableCouponResponse> cached = cache.put(1, fingerprint(1L), result);
+
+        assertEquals(result, cached);
+        assertSame(cached, cache.get(1, fingerprint(1L)));
+        assertThrows(UnsupportedOperationException.class, () -> cached.add(null));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void get_shouldDropEveryEntryOnceANewerVersionIsSeen() {
+        ApplicableCouponCache cache = new ApplicableCouponCache(properties, meterRegistry);
+        cache.put(1, fingerprint(1L), coupons(1));
+
+        assertNull(cache.get(2, fingerprint(1L)));
+        assertEquals(0, cache.size());
+
+        // A request still pinned to the old version neither reads nor repopulates the cache
+        cache.put(2, fingerprint(1L), coupons(1));
+        cache.put(1, fingerprint(2L), coupons(1));
+        assertNull(cache.get(1, fingerprint(1L)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsedEntriesBeyondTheEntryLimit() {
+        properties.setMaxEntries(2);
+        ApplicableCouponCache cache = new ApplicableCouponCache(properties, meterRegistry);
+        cache.put(1, fingerprint(1L), coupons(0));
+        cache.put(1, fingerprint(2L), coupons(0));
+        cache.get(1, fingerprint(1L));
+
+        cache.put(1, fingerprint(3L), coupons(0));
+
+        assertNotNull(cache.get(1, fingerprint(1L)));
+        assertNull(cache.get(1, fingerprint(2L)));
+        assertNotNull(cache.get(1, fingerprint(3L)));
+        assertEquals(1.0, meterRegistry.get("cache.evictions").counter().count());
+    }
+
+    @Test
+    void put_shouldEvictBeyondTheWeightLimitAndSkipOversizedResults() {
+        properties.setMaxWeight(10);
+        ApplicableCouponCache cache = new ApplicableCouponCache(properties, meterRegistry);
+        cache.put(1, fingerprint(1L), coupons(3)); // 1 + 1 line + 3 coupons
+        cache.put(1, fingerprint(2L), coupons(3));
+
+        cache.put(1, fingerprint(3L), coupons(1));
+
+        assertNull(cache.get(1, fingerprint(1L)));
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.weight());
+        assertEquals(8.0, meterRegistry.get("cache.weight").gauge().value());
+
+        cache.put(1, fingerprint(4L), coupons(9));
+        assertNull(cache.get(1, fingerprint(4L)));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void segmentedCache_shouldDropEveryEntryOnceANewerVersionIsSeenInAnySegment() {
+        properties.setSegments(8);
+        ApplicableCouponCache cache = new ApplicableCouponCache(properties, meterRegistry);
+        for (long productId = 1; productId <= 100; productId++) {
+            cache.put(1, fingerprint(productId), coupons(1));
+        }
+        assertEquals(100, cache.size());
+
+        assertNull(cache.get(2, fingerprint(1L)));
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+        for (long productId = 1; productId <= 100; productId++) {
+            assertNull(cache.get(1, fingerprint(productId)));
+        }
+    }
+
+    @Test
+    void segmentedCache_shouldStayWithinItsLimitsUnderConcurrentPuts() throws InterruptedException {
+        properties.setSegments(4);
+        properties.setMaxEntries(256);
+        ApplicableCouponCache cache = new ApplicableCouponCache(properties, meterRegistry);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long offset = t * 10_000L;
+            Thread thread = new Thread(() -> {
+                for (long productId = 0; productId < 2_000; productId++) {
+                    CartFingerprint fingerprint = fingerprint(offset + productId);
+                    if (cache.get(1, fingerprint) == null) {
+                        cache.put(1, fingerprint, coupons(1));
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(cache.size() <= 256, "size " + cache.size());
+        assertEquals(3L * cache.size(), cache.weight());
+        assertEquals(8_000.0, meterRegistry.get("cache.puts").counter().count());
+        assertEquals(8_000.0 - cache.size(), meterRegistry.get("cache.evictions").counter().count());
+    }
+
+    @Test
+    void maxEntriesZero_shouldDisableTheCache() {
+        properties.setMaxEntries(0);
+        ApplicableCouponCache cache = new ApplicableCouponCache(properties, meterRegistry);
+
+        cache.put(1, fingerprint(1L), coupons(1));
+
+        assertNull(cache.get(1, fingerprint(1L)));
+        assertEquals(0, cache.size());
+    }
+
+    private static CartFingerprint fingerprint(long productId) {
+        CartItem item = CartItem.builder().productId(productId).quantity(1).price(BigDecimal.TEN).build();
+        return CartFingerprint.of(CartContext.of(Cart.builder().items(Collections.singletonList(item)).build()));
+    }
+
+    private static List<ApplicableCouponResponse> coupons(int count) {
+        List<ApplicableCouponResponse> coupons = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            coupons.add(ApplicableCouponResponse.builder().couponId(id).type(CouponType.CART_WISE).discountAmount(BigDecimal.ONE).build());
+        }
+        return coupons;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.CouponEvaluationProperties;
+import com.example.demo.engine.CouponEvaluator;
+import com.example.demo.engine.CouponEvaluators;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.CouponType;
+
+class CouponEvaluationExecutorTest {
+
+    private CouponEvaluationExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    void evaluate_shouldStayOnCallingThreadBelowThreshold() {
+        executor = executor(4, 100);
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+        List<Long> results = executor.evaluate(candidates(99), evaluator -> {
+            threads.add(Thread.currentThread());
+            return evaluator.getCouponId();
+        });
+
+        assertEquals(99, results.size());
+        assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+
+    @Test
+    void evaluate_shouldKeepCandidateOrderAndDropNullsWhenParallel() {
+        executor = executor(4, 100);
+
+        List<Long> results = executor.evaluate(candidates(10_000),
+                evaluator -> evaluator.getCouponId() % 3 == 0 ? null : evaluator.getCouponId());
+
+        List<Long> expected = LongStream.rangeClosed(1, 10_000).filter(id -> id % 3 != 0).boxed().toList();
+        assertEquals(expected, results);
+    }
+
+    @Test
+    void evaluateEach_shouldRunNestedEvaluationsAndKeepItemOrder() {
+        executor = executor(2, 100);
+        List<CouponEvaluator> candidates = candidates(1_000);
+
+        List<Integer> results = executor.evaluateEach(List.of(1, 2, 3, 4, 5),
+                divisor -> executor.evaluate(candidates, evaluator -> evaluator.getCouponId() % divisor == 0 ? evaluator : null).size());
+
+        assertEquals(List.of(1_000, 500, 333, 250, 200), results);
+    }
+
+    private static CouponEvaluationExecutor executor(int poolSize, int parallelThreshold) {
+        CouponEvaluationProperties properties = new CouponEvaluationProperties();
+        properties.setPoolSize(poolSize);
+        properties.setParallelThreshold(parallelThreshold);
+        return new CouponEvaluationExecutor(properties);
+    }
+
+    private static List<CouponEvaluator> candidates(int count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(id -> CouponEvaluators.compile(CartWiseCoupon.builder()
+                        .id(id)
+                        .type(CouponType.CART_WISE)
+                        .threshold(BigDecimal.ONE)
+                        .discountPercentage(BigDecimal.TEN)
+                        .build()))
+                .toList();
+    }
+}
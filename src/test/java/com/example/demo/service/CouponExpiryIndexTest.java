@@ -0,0 +1,54 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CouponExpiryIndexTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 6, 15);
+
+    private CouponExpiryIndex expiryIndex;
+
+    @BeforeEach
+    void setUp() {
+        expiryIndex = new CouponExpiryIndex();
+    }
+
+    @Test
+    void expiredBefore_shouldReturnOnlyCouponsExpiredBeforeTheDayEarliestFirst() {
+        expiryIndex.add(1L, TODAY.minusDays(1));
+        expiryIndex.add(2L, TODAY);
+        expiryIndex.add(3L, TODAY.minusDays(10));
+        expiryIndex.add(4L, null);
+
+        assertEquals(List.of(3L, 1L), expiryIndex.expiredBefore(TODAY));
+        assertEquals(3, expiryIndex.size());
+        assertEquals(List.of(3L, 1L, 2L), expiryIndex.expiredBefore(TODAY.plusDays(1)));
+    }
+
+    @Test
+    void copy_shouldNotSeeLaterChangesToTheOriginal() {
+        expiryIndex.add(1L, TODAY.minusDays(1));
+        CouponExpiryIndex copy = expiryIndex.copy();
+
+        copy.remove(1L, TODAY.minusDays(1));
+        copy.add(2L, TODAY.minusDays(2));
+
+        assertEquals(List.of(1L), expiryIndex.expiredBefore(TODAY));
+        assertEquals(List.of(2L), copy.expiredBefore(TODAY));
+    }
+
+    @Test
+    void remove_shouldDropTheEntryForTheGivenDate() {
+        expiryIndex.add(1L, TODAY.minusDays(1));
+
+        expiryIndex.remove(1L, TODAY.minusDays(1));
+
+        assertTrue(expiryIndex.expiredBefore(TODAY).isEmpty());
+    }
+}
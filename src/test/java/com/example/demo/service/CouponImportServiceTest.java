@@ -0,0 +1,159 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.config.CouponEvaluationProperties;
+import com.example.demo.config.CouponImportProperties;
+import com.example.demo.dto.CouponImportResult;
+import com.example.demo.dto.CouponResponseDTO;
+import com.example.demo.persistence.CouponMutation;
+import com.example.demo.persistence.InMemoryCouponRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.validation.Validation;
+
+class CouponImportServiceTest {
+
+    private CouponService couponService;
+    private CouponImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        couponService = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), new ApplicableCouponCache(new CouponCacheProperties(), new SimpleMeterRegistry()), new InMemoryCouponRepository(), Clock.systemDefaultZone());
+        CouponImportProperties properties = new CouponImportProperties();
+        properties.setBatchSize(2);
+        importService = new CouponImportService(couponService, new ObjectMapper().findAndRegisterModules(),
+                Validation.buildDefaultValidatorFactory().getValidator(), properties);
+    }
+
+    @Test
+    void importNdjson_shouldCreateEveryValidLineInBatches() throws IOException {
+        long versionBefore = couponService.snapshot().getVersion();
+
+        CouponImportResult result = importService.importNdjson(ndjson(
+                "{\"type\":\"CART_WISE\",\"code\":\"C1\",\"threshold\":100,\"discountPercentage\":10}",
+                "",
+                "{\"type\":\"PRODUCT_WISE\",\"code\":\"P1\",\"productId\":1,\"discountPercentage\":20}",
+                "{\"type\":\"BXGY\",\"code\":\"B1\",\"buyProducts\":[{\"productId\":1,\"quantity\":2}],"
+                        + "\"getProducts\":[{\"productId\":2,\"quantity\":1}],\"repetitionLimit\":1}"));
+
+        assertEquals(3, result.getImported());
+        assertEquals(0, result.getFailed());
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(List.of("C1", "P1", "B1"), couponService.getAllCoupons().stream()
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .map(CouponResponseDTO::getCode)
+                .toList());
+        assertEquals(versionBefore + 2, couponService.snapshot().getVersion());
+    }
+
+    @Test
+    void importNdjson_shouldReportFailingLinesAndKeepGoing() throws IOException {
+        CouponImportResult result = importService.importNdjson(ndjson(
+                "{\"type\":\"CART_WISE\",\"code\":\"C1\",\"threshold\":100,\"discountPercentage\":10}",
+                "{\"type\":\"CART_WISE\",\"code\":",
+                "{\"type\":\"CART_WISE\",\"threshold\":100,\"discountPercentage\":10}",
+                "{\"type\":\"UNKNOWN\",\"code\":\"X\"}",
+                "{\"type\":\"PRODUCT_WISE\",\"code\":\"P1\",\"discountPercentage\":20}",
+                "[1, 2]",
+                "{\"type\":\"CART_WISE\",\"code\":\"C2\",\"threshold\":100,\"discountPercentage\":10}"));
+
+        assertEquals(2, result.getImported());
+        assertEquals(5, result.getFailed());
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L), result.getErrors().stream().map(CouponImportResult.LineError::getLine).toList());
+        assertEquals("code must not be null", result.getErrors().get(1).getMessage());
+        assertEquals("Product-wise coupon requires a productId", result.getErrors().get(3).getMessage());
+        assertEquals(2, couponService.getAllCoupons().size());
+    }
+
+    @Test
+    void importNdjson_shouldRejectCodesAlreadyInTheCatalogOrTheBatch() throws IOException {
+        importService.importNdjson(ndjson("{\"type\":\"CART_WISE\",\"code\":\"TAKEN\",\"threshold\":100,\"discountPercentage\":10}"));
+
+        CouponImportResult result = importService.importNdjson(ndjson(
+                "{\"type\":\"CART_WISE\",\"code\":\"taken\",\"threshold\":100,\"discountPercentage\":10}",
+                "{\"type\":\"CART_WISE\",\"code\":\"NEW\",\"threshold\":100,\"discountPercentage\":10}",
+                "{\"type\":\"CART_WISE\",\"code\":\" new \",\"threshold\":100,\"discountPercentage\":10}"));
+
+        assertEquals(1, result.getImported());
+        assertEquals(List.of(1L, 3L), result.getErrors().stream().map(CouponImportResult.LineError::getLine).toList());
+        assertEquals(2, couponService.getAllCoupons().size());
+    }
+
+    @Test
+    void importNdjson_shouldCapReportedErrors() throws IOException {
+        CouponImportProperties properties = new CouponImportProperties();
+        properties.setMaxReportedErrors(1);
+        CouponImportService service = new CouponImportService(couponService, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), properties);
+
+        CouponImportResult result = service.importNdjson(ndjson("not json", "still not json"));
+
+        assertEquals(2, result.getFailed());
+        assertEquals(1, result.getErrors().size());
+    }
+
+    @Test
+    void importNdjson_shouldFailLinesLongerThanTheLimitWithoutKeepingThem() throws IOException {
+        CouponImportProperties properties = new CouponImportProperties();
+        properties.setMaxLineLength(100);
+        CouponImportService service = new CouponImportService(couponService, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), properties);
+
+        CouponImportResult result = service.importNdjson(new ByteArrayInputStream((
+                "{\"type\":\"CART_WISE\",\"code\":\"C1\",\"threshold\":100,\"discountPercentage\":10}\r\n"
+                        + "{\"type\":\"CART_WISE\",\"description\":\"" + "x".repeat(100_000) + "\"}\r\n"
+                        + "{\"type\":\"CART_WISE\",\"code\":\"C2\",\"threshold\":100,\"discountPercentage\":10}")
+                .getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2L, result.getErrors().get(0).getLine());
+        assertEquals("Line is longer than 100 characters", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    void importNdjson_shouldFailTheLinesOfABatchThatCannotBeSavedAndGoOn() throws IOException {
+        CouponService failing = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()),
+                new ApplicableCouponCache(new CouponCacheProperties(), new SimpleMeterRegistry()), new InMemoryCouponRepository() {
+                    @Override
+                    public CompletableFuture<Void> save(List<CouponMutation> mutations) {
+                        return mutations.stream().anyMatch(mutation -> "BROKEN".equals(mutation.coupon().getCode()))
+                                ? CompletableFuture.failedFuture(new IOException("No space left on device"))
+                                : super.save(mutations);
+                    }
+                }, Clock.systemDefaultZone());
+        CouponImportProperties properties = new CouponImportProperties();
+        properties.setBatchSize(2);
+        CouponImportService service = new CouponImportService(failing, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator(), properties);
+
+        CouponImportResult result = service.importNdjson(ndjson(
+                "{\"type\":\"CART_WISE\",\"code\":\"C1\",\"threshold\":100,\"discountPercentage\":10}",
+                "{\"type\":\"CART_WISE\",\"code\":\"BROKEN\",\"threshold\":100,\"discountPercentage\":10}",
+                "{\"type\":\"CART_WISE\",\"code\":\"C2\",\"threshold\":100,\"discountPercentage\":10}"));
+
+        assertEquals(1, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(List.of(1L, 2L), result.getErrors().stream().map(CouponImportResult.LineError::getLine).toList());
+        assertEquals("Coupon change could not be made durable and was rolled back", result.getErrors().get(0).getMessage());
+        assertEquals(List.of("C2"), failing.getAllCoupons().stream().map(CouponResponseDTO::getCode).toList());
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+}
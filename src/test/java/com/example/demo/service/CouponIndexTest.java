@@ -0,0 +1,118 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.model.BxGyCoupon;
+import com.example.demo.model.BxGyProductDetail;
+import com.example.demo.model.CartWiseCoupon;
+import com.example.demo.model.CouponType;
+import com.example.demo.model.ProductWiseCoupon;
+
+class CouponIndexTest {
+
+    private CouponIndex couponIndex;
+
+    @BeforeEach
+    void setUp() {
+        couponIndex = new CouponIndex();
+    }
+
+    @Test
+    void candidateIds_shouldIncludeCartWiseCouponsWhoseThresholdIsMet() {
+        couponIndex.add(CartWiseCoupon.builder().id(1L).type(CouponType.CART_WISE).threshold(BigDecimal.TEN).build());
+        couponIndex.add(CartWiseCoupon.builder().id(2L).type(CouponType.CART_WISE).threshold(BigDecimal.valueOf(500)).build());
+
+        assertEquals(Set.of(1L), couponIndex.candidateIds(Collections.emptyList(), 10_000L));
+        assertEquals(Set.of(1L, 2L), couponIndex.candidateIds(List.of(42L), 50_000L));
+        assertTrue(couponIndex.candidateIds(List.of(42L), 999L).isEmpty());
+    }
+
+    @Test
+    void eligibleCartWiseIds_shouldReturnCouponsInThresholdOrder() {
+        couponIndex.add(CartWiseCoupon.builder().id(1L).type(CouponType.CART_WISE).threshold(BigDecimal.valueOf(300)).build());
+        couponIndex.add(CartWiseCoupon.builder().id(2L).type(CouponType.CART_WISE).threshold(BigDecimal.valueOf(100)).build());
+        couponIndex.add(CartWiseCoupon.builder().id(3L).type(CouponType.CART_WISE).threshold(new BigDecimal("100.00")).build());
+        couponIndex.add(CartWiseCoupon.builder().id(4L).type(CouponType.CART_WISE).threshold(BigDecimal.valueOf(900)).build());
+
+        assertEquals(List.of(2L, 3L, 1L), couponIndex.eligibleCartWiseIds(30_000L));
+    }
+
+    @Test
+    void remove_shouldDropCartWiseCouponFromThresholdIndex() {
+        CartWiseCoupon coupon = CartWiseCoupon.builder().id(1L).type(CouponType.CART_WISE).threshold(BigDecimal.TEN).build();
+        couponIndex.add(coupon);
+
+        couponIndex.remove(coupon);
+
+        assertTrue(couponIndex.eligibleCartWiseIds(100_000L).isEmpty());
+    }
+
+    @Test
+    void candidateIds_shouldOnlyReturnProductWiseCouponsForProductsInCart() {
+        couponIndex.add(ProductWiseCoupon.builder().id(1L).type(CouponType.PRODUCT_WISE).productId(10L).build());
+        couponIndex.add(ProductWiseCoupon.builder().id(2L).type(CouponType.PRODUCT_WISE).productId(20L).build());
+
+        assertEquals(Set.of(1L), couponIndex.candidateIds(List.of(10L, 30L), 0L));
+    }
+
+    @Test
+    void candidateIds_shouldIndexBxGyBuyAndGetProducts() {
+        couponIndex.add(BxGyCoupon.builder()
+                .id(3L)
+                .type(CouponType.BXGY)
+                .buyProducts(Collections.singletonList(BxGyProductDetail.builder().productId(1L).quantity(2).build()))
+                .getProducts(Collections.singletonList(BxGyProductDetail.builder().productId(2L).quantity(1).build()))
+                .repetitionLimit(1)
+                .build());
+
+        assertEquals(Set.of(3L), couponIndex.candidateIds(List.of(1L), 0L));
+        assertEquals(Set.of(3L), couponIndex.candidateIds(List.of(2L), 0L));
+        assertTrue(couponIndex.candidateIds(List.of(5L), 0L).isEmpty());
+    }
+
+    @Test
+    void remove_shouldDropCouponFromEveryProduct() {
+        BxGyCoupon coupon = BxGyCoupon.builder()
+                .id(3L)
+                .type(CouponType.BXGY)
+                .buyProducts(Arrays.asList(
+                        BxGyProductDetail.builder().productId(1L).quantity(2).build(),
+                        BxGyProductDetail.builder().productId(2L).quantity(2).build()))
+                .getProducts(Collections.singletonList(BxGyProductDetail.builder().productId(3L).quantity(1).build()))
+                .repetitionLimit(1)
+                .build();
+        couponIndex.add(coupon);
+
+        couponIndex.remove(coupon);
+
+        assertTrue(couponIndex.candidateIds(List.of(1L, 2L, 3L), 0L).isEmpty());
+    }
+
+    @Test
+    void copy_shouldShareNothingThatEitherSideModifies() {
+        ProductWiseCoupon productWise = ProductWiseCoupon.builder().id(1L).type(CouponType.PRODUCT_WISE).productId(10L).build();
+        CartWiseCoupon cartWise = CartWiseCoupon.builder().id(2L).type(CouponType.CART_WISE).threshold(BigDecimal.TEN).build();
+        couponIndex.add(productWise);
+        couponIndex.add(cartWise);
+
+        CouponIndex copy = couponIndex.copy();
+        copy.remove(productWise);
+        copy.remove(cartWise);
+        copy.add(ProductWiseCoupon.builder().id(3L).type(CouponType.PRODUCT_WISE).productId(10L).build());
+
+        assertEquals(Set.of(1L, 2L), couponIndex.candidateIds(List.of(10L), 100_000L));
+        assertEquals(Set.of(3L), copy.candidateIds(List.of(10L), 100_000L));
+
+        couponIndex.add(ProductWiseCoupon.builder().id(4L).type(CouponType.PRODUCT_WISE).productId(10L).build());
+        assertEquals(Set.of(3L), copy.candidateIds(List.of(10L), 100_000L));
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.config.CouponEvaluationProperties;
+import com.example.demo.config.CouponReservationProperties;
+import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartItem;
+import com.example.demo.dto.CartWiseCouponRequest;
+import com.example.demo.dto.ReservationResponse;
+import com.example.demo.exception.RedemptionLimitReachedException;
+import com.example.demo.exception.ReservationNotFoundException;
+import com.example.demo.persistence.FileCouponRepository;
+import com.example.demo.persistence.InMemoryCouponRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CouponReservationServiceTest {
+
+    private MutableClock clock;
+    private CouponService couponService;
+    private CouponReservationService reservationService;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+        couponService = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()),
+                new ApplicableCouponCache(new CouponCacheProperties(), new SimpleMeterRegistry()), new InMemoryCouponRepository(), clock);
+        reservationService = new CouponReservationService(couponService, properties(), clock);
+    }
+
+    @Test
+    void reserveCoupon_shouldApplyTheCouponAndHoldARedemption() {
+        createLimitedCoupon(1L); // ID 1
+
+        ReservationResponse reservation = reservationService.reserveCoupon(couponService.snapshot(), 1L, cart(), "alice");
+
+        assertNotNull(reservation.getReservationId());
+        assertEquals(1L, reservation.getCouponId());
+        assertEquals("alice", reservation.getCustomerId());
+        assertEquals(0, BigDecimal.valueOf(90).compareTo(reservation.getCart().getFinalPrice()));
+        assertEquals(Instant.parse("2025-01-01T00:05:00Z"), reservation.getExpiresAt());
+        assertThrows(RedemptionLimitReachedException.class,
+                () -> reservationService.reserveCoupon(couponService.snapshot(), 1L, cart(), "bob"));
+        assertThrows(RedemptionLimitReachedException.class,
+                () -> couponService.applyCoupon(couponService.snapshot(), 1L, cart(), "bob"));
+    }
+
+    @Test
+    void releaseReservation_shouldGiveTheRedemptionBack() {
+        createLimitedCoupon(1L); // ID 1
+        ReservationResponse reservation = reservationService.reserveCoupon(couponService.snapshot(), 1L, cart(), null);
+
+        reservationService.releaseReservation(reservation.getReservationId());
+
+        assertEquals(0, reservationService.pendingCount());
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.commitReservation(reservation.getReservationId()));
+        couponService.applyCoupon(couponService.snapshot(), 1L, cart(), null);
+    }
+
+    @Test
+    void commitReservation_shouldKeepTheRedemptionPastTheTtl() {
+        createLimitedCoupon(1L); // ID 1
+        ReservationResponse reservation = reservationService.reserveCoupon(couponService.snapshot(), 1L, cart(), null);
+
+        ReservationResponse committed = reservationService.commitReservation(reservation.getReservationId());
+        clock.advance(Duration.ofMinutes(10));
+
+        assertEquals(reservation.getReservationId(), committed.getReservationId());
+        assertEquals(0, reservationService.expireReservations());
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.commitReservation(reservation.getReservationId()));
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.releaseReservation(reservation.getReservationId()));
+        assertThrows(RedemptionLimitReachedException.class,
+                () -> couponService.applyCoupon(couponService.snapshot(), 1L, cart(), null));
+    }
+
+    @Test
+    void expireReservations_shouldReleaseReservationsNotSettledInTime() {
+        createLimitedCoupon(1L); // ID 1
+        ReservationResponse reservation = reservationService.reserveCoupon(couponService.snapshot(), 1L, cart(), null);
+
+        clock.advance(Duration.ofMinutes(4));
+        assertEquals(0, reservationService.expireReservations());
+        clock.advance(Duration.ofMinutes(1));
+        // Expired but not yet reclaimed: too late to commit all the same
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.commitReservation(reservation.getReservationId()));
+
+        assertEquals(1, reservationService.expireReservations());
+        assertEquals(0, reservationService.pendingCount());
+        couponService.applyCoupon(couponService.snapshot(), 1L, cart(), null);
+    }
+
+    @Test
+    void reserveCoupon_shouldNeverHoldMoreThanTheLimitUnderContention() throws Exception {
+        int threads = 8;
+        int attemptsPerThread = 6_250;
+        createLimitedCoupon(40_000L); // ID 1
+        CatalogSnapshot snapshot = couponService.snapshot();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> reserved = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                reserved.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        try {
+                            reservationService.reserveCoupon(snapshot, 1L, cart(), null);
+                            count++;
+                        } catch (RedemptionLimitReachedException e) {
+                            // Expected once the limit is held
+                        }
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> future : reserved) {
+                total += future.get();
+            }
+
+            assertEquals(40_000, total);
+            assertEquals(40_000, reservationService.pendingCount());
+        } finally {
+            executor.shutdown();
+        }
+
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(40_000, reservationService.expireReservations());
+        assertEquals(0, reservationService.pendingCount());
+        couponService.applyCoupon(couponService.snapshot(), 1L, cart(), null);
+    }
+
+    @Test
+    void commitReservation_shouldKeepTheRedemptionAcrossARestart(@TempDir Path directory) throws IOException {
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            couponService = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()),
+                    new ApplicableCouponCache(new CouponCacheProperties(), new SimpleMeterRegistry()), repository, clock);
+            reservationService = new CouponReservationService(couponService, properties(), clock);
+            createLimitedCoupon(2L); // ID 1
+            ReservationResponse committed = reservationService.reserveCoupon(couponService.snapshot(), 1L, cart(), null);
+            reservationService.reserveCoupon(couponService.snapshot(), 1L, cart(), null);
+            reservationService.commitReservation(committed.getReservationId());
+        }
+
+        // Only the committed redemption was saved; the one still held is free again
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService restarted = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()),
+                    new ApplicableCouponCache(new CouponCacheProperties(), new SimpleMeterRegistry()), repository, clock);
+
+            restarted.applyCoupon(restarted.snapshot(), 1L, cart(), null);
+            assertThrows(RedemptionLimitReachedException.class, () -> restarted.applyCoupon(restarted.snapshot(), 1L, cart(), null));
+        }
+    }
+
+    private void createLimitedCoupon(long maxRedemptions) {
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("HOLD").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptions(maxRedemptions).build());
+    }
+
+    private static Cart cart() {
+        return Cart.builder().items(List.of(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(100)).build())).build();
+    }
+
+    private static CouponReservationProperties properties() {
+        CouponReservationProperties properties = new CouponReservationProperties();
+        properties.setTtl(Duration.ofMinutes(5));
+        properties.setTick(Duration.ofSeconds(1));
+        properties.setWheelSize(64);
+        return properties;
+    }
+}
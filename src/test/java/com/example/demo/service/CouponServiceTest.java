@@ -1,84 +1,71 @@
 package com.example.demo.service;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.*;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
+import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.junit.jupiter.api.io.TempDir;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import com.example.demo.config.CouponCacheProperties;
+import com.example.demo.config.CouponEvaluationProperties;
 import com.example.demo.dto.ApplicableCouponResponse;
 import com.example.demo.dto.BxGyCouponRequest;
 import com.example.demo.dto.Cart;
+import com.example.demo.dto.CartEvaluationResult;
 import com.example.demo.dto.CartItem;
 import com.example.demo.dto.CartWiseCouponRequest;
+import com.example.demo.dto.CartWiseCouponResponse;
+import com.example.demo.dto.CouponPage;
 import com.example.demo.dto.CouponResponseDTO;
 import com.example.demo.dto.ProductWiseCouponRequest;
 import com.example.demo.exception.CouponExpiredException;
 import com.example.demo.exception.CouponNotApplicableException;
 import com.example.demo.exception.CouponNotFoundException;
+import com.example.demo.exception.DuplicateCouponCodeException;
 import com.example.demo.exception.InvalidCouponRequestException;
+import com.example.demo.exception.RedemptionLimitReachedException;
 import com.example.demo.model.BxGyCoupon;
 import com.example.demo.model.BxGyProductDetail;
 import com.example.demo.model.CartWiseCoupon;
-import com.example.demo.model.Coupon;
 import com.example.demo.model.CouponType;
-import com.example.demo.model.ProductWiseCoupon;
-import com.example.demo.strategy.CouponStrategy;
+import com.example.demo.persistence.CouponMutation;
+import com.example.demo.persistence.FileCouponRepository;
+import com.example.demo.persistence.InMemoryCouponRepository;
+import com.example.demo.persistence.JdbcCouponRepository;
 
-@ExtendWith(MockitoExtension.class)
 class CouponServiceTest {
 
-    @Mock
-    private CouponStrategyFactory couponStrategyFactory;
-
-    @Mock
-    private CouponStrategy cartWiseCouponStrategy;
-    @Mock
-    private CouponStrategy productWiseCouponStrategy;
-    @Mock
-    private CouponStrategy bxGyCouponStrategy;
-
-    @InjectMocks
     private CouponService couponService;
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
-        // Reset the internal state of couponService for each test
-        // This is a workaround for in-memory storage in a singleton service
-        try {
-            java.lang.reflect.Field couponsField = CouponService.class.getDeclaredField("coupons");
-            couponsField.setAccessible(true);
-            Map<?, ?> coupons = (Map<?, ?>) couponsField.get(couponService);
-            coupons.clear();
-
-            java.lang.reflect.Field idCounterField = CouponService.class.getDeclaredField("idCounter");
-            idCounterField.setAccessible(true);
-            AtomicLong idCounter = (AtomicLong) idCounterField.get(couponService);
-            idCounter.set(0);
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            e.printStackTrace();
-        }
-
-        // Use lenient() to avoid UnnecessaryStubbingException for unused stubs
-        lenient().when(cartWiseCouponStrategy.getCouponType()).thenReturn(CouponType.CART_WISE);
-        lenient().when(productWiseCouponStrategy.getCouponType()).thenReturn(CouponType.PRODUCT_WISE);
-        lenient().when(bxGyCouponStrategy.getCouponType()).thenReturn(CouponType.BXGY);
-
-        lenient().when(couponStrategyFactory.getStrategy(CouponType.CART_WISE)).thenReturn(cartWiseCouponStrategy);
-        lenient().when(couponStrategyFactory.getStrategy(CouponType.PRODUCT_WISE)).thenReturn(productWiseCouponStrategy);
-        lenient().when(couponStrategyFactory.getStrategy(CouponType.BXGY)).thenReturn(bxGyCouponStrategy);
+        clock = new MutableClock(Instant.now());
+        meterRegistry = new SimpleMeterRegistry();
+        couponService = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), new InMemoryCouponRepository(), clock);
     }
 
     @Test
@@ -167,6 +154,331 @@ class CouponServiceTest {
         assertEquals(2, coupons.size());
     }
 
+    @Test
+    void getCouponPage_shouldWalkTheCatalogInIdOrderWithACursor() {
+        couponService.createCoupons(List.of(
+                CartWiseCouponRequest.builder().code("C1").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build(),
+                ProductWiseCouponRequest.builder().code("P2").productId(1L).discountPercentage(BigDecimal.TEN).build(),
+                CartWiseCouponRequest.builder().code("C3").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build(),
+                ProductWiseCouponRequest.builder().code("P4").productId(1L).discountPercentage(BigDecimal.TEN).build(),
+                CartWiseCouponRequest.builder().code("C5").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()));
+        CatalogSnapshot snapshot = couponService.snapshot();
+
+        CouponPage first = couponService.getCouponPage(snapshot, null, null, 2);
+        CouponPage second = couponService.getCouponPage(snapshot, first.getNextCursor(), null, 2);
+        CouponPage last = couponService.getCouponPage(snapshot, second.getNextCursor(), null, 2);
+
+        assertEquals(List.of(1L, 2L), pageIds(first));
+        assertEquals(List.of(3L, 4L), pageIds(second));
+        assertEquals(List.of(5L), pageIds(last));
+        assertNull(last.getNextCursor());
+
+        CouponPage cartWise = couponService.getCouponPage(snapshot, 1L, CouponType.CART_WISE, 10);
+        assertEquals(List.of(3L, 5L), pageIds(cartWise));
+        assertNull(cartWise.getNextCursor());
+    }
+
+    @Test
+    void getCouponPage_shouldRejectLimitsOutsideTheAllowedRange() {
+        CatalogSnapshot snapshot = couponService.snapshot();
+        assertThrows(InvalidCouponRequestException.class, () -> couponService.getCouponPage(snapshot, null, null, 0));
+        assertThrows(InvalidCouponRequestException.class, () -> couponService.getCouponPage(snapshot, null, null, CouponService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void streamCoupons_shouldIterateOneTypeInIdOrder() {
+        couponService.createCoupon(ProductWiseCouponRequest.builder().code("P1").productId(1L).discountPercentage(BigDecimal.TEN).build());
+        couponService.createCoupon(CartWiseCouponRequest.builder().code("C2").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+        couponService.createCoupon(ProductWiseCouponRequest.builder().code("P3").productId(2L).discountPercentage(BigDecimal.TEN).build());
+
+        List<String> codes = new ArrayList<>();
+        couponService.streamCoupons(couponService.snapshot(), CouponType.PRODUCT_WISE)
+                .forEachRemaining(coupon -> codes.add(coupon.getCode()));
+
+        assertEquals(List.of("P1", "P3"), codes);
+    }
+
+    @Test
+    void getCouponByCode_shouldIgnoreCaseAndSurroundingWhitespace() {
+        CouponResponseDTO created = couponService.createCoupon(
+                CartWiseCouponRequest.builder().code("Save10").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+
+        CouponResponseDTO found = couponService.getCouponByCode(couponService.snapshot(), " SAVE10 ");
+
+        assertEquals(created.getId(), found.getId());
+        assertEquals("Save10", found.getCode());
+        assertThrows(CouponNotFoundException.class, () -> couponService.getCouponByCode(couponService.snapshot(), "SAVE20"));
+    }
+
+    @Test
+    void createCoupon_shouldRejectACodeThatIsAlreadyInUse() {
+        couponService.createCoupon(CartWiseCouponRequest.builder().code("SAVE10").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+        long version = couponService.snapshot().getVersion();
+
+        assertThrows(DuplicateCouponCodeException.class, () -> couponService.createCoupon(
+                ProductWiseCouponRequest.builder().code("save10").productId(1L).discountPercentage(BigDecimal.TEN).build()));
+        assertThrows(DuplicateCouponCodeException.class, () -> couponService.createCoupons(List.of(
+                ProductWiseCouponRequest.builder().code("A").productId(1L).discountPercentage(BigDecimal.TEN).build(),
+                ProductWiseCouponRequest.builder().code("a").productId(1L).discountPercentage(BigDecimal.TEN).build())));
+        assertEquals(version, couponService.snapshot().getVersion());
+        assertEquals(1, couponService.getAllCoupons().size());
+    }
+
+    @Test
+    void updateCoupon_shouldKeepCodesUniqueAndReleaseTheOldCode() {
+        CouponResponseDTO first = couponService.createCoupon(
+                CartWiseCouponRequest.builder().code("FIRST").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+        couponService.createCoupon(CartWiseCouponRequest.builder().code("SECOND").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+
+        assertThrows(DuplicateCouponCodeException.class, () -> couponService.updateCoupon(first.getId(),
+                CartWiseCouponRequest.builder().code("second").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()));
+        couponService.updateCoupon(first.getId(),
+                CartWiseCouponRequest.builder().code("first").threshold(BigDecimal.TEN).discountPercentage(BigDecimal.TEN).build());
+        couponService.updateCoupon(first.getId(),
+                CartWiseCouponRequest.builder().code("RENAMED").threshold(BigDecimal.TEN).discountPercentage(BigDecimal.TEN).build());
+
+        CatalogSnapshot snapshot = couponService.snapshot();
+        assertEquals(first.getId(), couponService.getCouponByCode(snapshot, "renamed").getId());
+        assertThrows(CouponNotFoundException.class, () -> couponService.getCouponByCode(snapshot, "FIRST"));
+        couponService.createCoupon(CartWiseCouponRequest.builder().code("FIRST").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+    }
+
+    @Test
+    void applyCouponByCode_shouldApplyTheCouponWithThatCode() {
+        couponService.createCoupon(CartWiseCouponRequest.builder().code("CART10").threshold(BigDecimal.TEN).discountPercentage(BigDecimal.TEN).build());
+        CartItem item = CartItem.builder().productId(1L).quantity(2).price(new BigDecimal("50.00")).build();
+        Cart cart = Cart.builder().items(Collections.singletonList(item)).build();
+
+        Cart result = couponService.applyCouponByCode(couponService.snapshot(), "cart10", cart);
+
+        assertEquals(0, new BigDecimal("10.00").compareTo(result.getTotalDiscount()));
+    }
+
+    @Test
+    void constructor_shouldRecoverTheCatalogAndIdCounterFromTheRepository(@TempDir Path directory) throws IOException {
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService service = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+            service.createCoupon(CartWiseCouponRequest.builder().code("KEEP").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+            service.createCoupons(List.of(
+                    ProductWiseCouponRequest.builder().code("UPDATE").productId(1L).discountPercentage(BigDecimal.TEN).build(),
+                    ProductWiseCouponRequest.builder().code("DELETE").productId(1L).discountPercentage(BigDecimal.TEN).build()));
+            service.updateCoupon(2L, ProductWiseCouponRequest.builder().code("UPDATED").productId(2L).discountPercentage(BigDecimal.ONE).build());
+            service.deleteCoupon(3L);
+        }
+
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService restarted = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+
+            assertEquals(List.of(1L, 2L), restarted.getAllCoupons().stream().map(CouponResponseDTO::getId).toList());
+            assertEquals("UPDATED", restarted.getCouponById(2L).getCode());
+            assertThrows(CouponNotFoundException.class, () -> restarted.getCouponById(3L));
+            CouponResponseDTO next = restarted.createCoupon(
+                    CartWiseCouponRequest.builder().code("NEXT").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+            assertEquals(4L, next.getId());
+        }
+    }
+
+    @Test
+    void checkpoint_shouldLetRecoveryReplayOnlyTheLogWrittenAfterIt(@TempDir Path directory) throws IOException {
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService service = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+            service.createCoupon(CartWiseCouponRequest.builder().code("BEFORE").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+            service.createCoupon(CartWiseCouponRequest.builder().code("DELETED").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+            service.deleteCoupon(2L);
+
+            assertTrue(service.checkpoint());
+            assertFalse(service.checkpoint());
+            service.createCoupon(CartWiseCouponRequest.builder().code("AFTER").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+            service.updateCoupon(1L, CartWiseCouponRequest.builder().code("BEFORE").threshold(BigDecimal.TEN).discountPercentage(BigDecimal.TEN).build());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            // The segment the checkpoint covers has been discarded
+            assertEquals(1, files.filter(file -> file.getFileName().toString().startsWith("coupons-")).count());
+        }
+
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService restarted = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+
+            assertEquals(List.of(1L, 3L), restarted.getAllCoupons().stream().map(CouponResponseDTO::getId).toList());
+            assertEquals(0, BigDecimal.TEN.compareTo(((CartWiseCouponResponse) restarted.getCouponById(1L)).getThreshold()));
+            assertEquals(4L, restarted.createCoupon(
+                    CartWiseCouponRequest.builder().code("NEXT").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()).getId());
+        }
+    }
+
+    @Test
+    void constructor_shouldRecoverACodeReusedAfterItsCouponWasPurged(@TempDir Path directory) throws IOException {
+        LocalDate today = LocalDate.now(clock);
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService service = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+            service.createCoupon(CartWiseCouponRequest.builder()
+                    .code("SUMMER").expirationDate(today).threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 1
+            service.createCoupon(CartWiseCouponRequest.builder()
+                    .code("WINTER").expirationDate(today).threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 2
+            // The checkpoint still holds both coupons
+            assertTrue(service.checkpoint());
+
+            clock.advance(Duration.ofDays(1));
+            assertEquals(2, service.purgeExpired());
+            service.createCoupon(CartWiseCouponRequest.builder()
+                    .code("SUMMER").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 3
+        }
+
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService restarted = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+
+            assertEquals(List.of(3L), restarted.getAllCoupons().stream().map(CouponResponseDTO::getId).toList());
+            assertEquals(3L, restarted.getCouponByCode(restarted.snapshot(), "summer").getId());
+        }
+
+        // Back on a day the purged coupons were live: they stay deleted, because the purge was saved
+        clock.advance(Duration.ofDays(-2));
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService restarted = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+
+            assertEquals(List.of(3L), restarted.getAllCoupons().stream().map(CouponResponseDTO::getId).toList());
+        }
+    }
+
+    @Test
+    void purgeExpired_shouldDeleteThePurgedRowsFromTheJdbcRepository() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        LocalDate today = LocalDate.now(clock);
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000, clock)) {
+            CouponService service = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+            service.createCoupon(CartWiseCouponRequest.builder()
+                    .code("SUMMER").expirationDate(today).threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 1
+
+            clock.advance(Duration.ofDays(1));
+            assertEquals(1, service.purgeExpired());
+            service.createCoupon(CartWiseCouponRequest.builder()
+                    .code("SUMMER").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 2
+        }
+
+        // Back on a day the purged coupon was live: its row is gone, so only the new holder of the code loads
+        clock.advance(Duration.ofDays(-1));
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000, clock)) {
+            CouponService restarted = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+
+            assertEquals(List.of(2L), restarted.getAllCoupons().stream().map(CouponResponseDTO::getId).toList());
+            assertEquals(2L, restarted.getCouponByCode(restarted.snapshot(), "summer").getId());
+        }
+    }
+
+    @Test
+    void createCoupon_shouldSaveAgainOnceAFailedJdbcWriteHasBeenRolledBack() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000, clock)) {
+            CouponService service = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+            service.createCoupon(CartWiseCouponRequest.builder().code("FIRST").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("ALTER TABLE coupon RENAME TO coupon_moved");
+                assertThrows(IllegalStateException.class, () -> service.createCoupon(
+                        CartWiseCouponRequest.builder().code("LOST").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()));
+                statement.execute("ALTER TABLE coupon_moved RENAME TO coupon");
+            }
+
+            // The failed transaction left nothing behind, so once the catalog has rolled back writes go through again
+            service.createCoupon(CartWiseCouponRequest.builder().code("SECOND").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+            assertTrue(repository.failure().isEmpty());
+        }
+        try (JdbcCouponRepository repository = new JdbcCouponRepository(dataSource, 1000, clock)) {
+            CouponService restarted = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+
+            assertEquals(List.of("FIRST", "SECOND"), restarted.getAllCoupons().stream().map(CouponResponseDTO::getCode).toList());
+        }
+    }
+
+    @Test
+    void constructor_shouldLetALaterCouponTakeOverACodeInALogWithoutPurges(@TempDir Path directory) throws IOException {
+        // As written before purges were saved: the expired holder of the code was never deleted
+        LocalDate yesterday = LocalDate.now(clock).minusDays(1);
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            repository.load(mutation -> { });
+            repository.save(List.of(CouponMutation.put(CartWiseCoupon.builder().id(1L).type(CouponType.CART_WISE).code("SUMMER")
+                    .expirationDate(yesterday).threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()))).join();
+            repository.save(List.of(CouponMutation.put(CartWiseCoupon.builder().id(2L).type(CouponType.CART_WISE).code("summer")
+                    .threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()))).join();
+        }
+
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService restarted = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+
+            assertEquals(List.of(2L), restarted.getAllCoupons().stream().map(CouponResponseDTO::getId).toList());
+            assertEquals(3L, restarted.createCoupon(
+                    CartWiseCouponRequest.builder().code("NEXT").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()).getId());
+        }
+    }
+
+    @Test
+    void createCoupon_shouldLeaveTheCatalogUnchangedWhenTheSaveFails() {
+        CouponService service = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(),
+                new InMemoryCouponRepository() {
+                    @Override
+                    public CompletableFuture<Void> save(List<CouponMutation> mutations) {
+                        return CompletableFuture.failedFuture(new IOException("No space left on device"));
+                    }
+                }, clock);
+        CatalogSnapshot before = service.snapshot();
+
+        assertThrows(IllegalStateException.class, () -> service.createCoupon(
+                CartWiseCouponRequest.builder().code("FIRST").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()));
+
+        assertSame(before, service.snapshot());
+        assertTrue(service.getAllCoupons().isEmpty());
+    }
+
+    @Test
+    void createCoupon_shouldOnlyPublishOnceDurableAndRollBackWritesMadeOnAFailedOne() throws Exception {
+        List<CompletableFuture<Void>> saves = new CopyOnWriteArrayList<>();
+        CouponService service = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(),
+                new InMemoryCouponRepository() {
+                    @Override
+                    public CompletableFuture<Void> save(List<CouponMutation> mutations) {
+                        CompletableFuture<Void> save = new CompletableFuture<>();
+                        saves.add(save);
+                        return save;
+                    }
+                }, clock);
+        CatalogSnapshot before = service.snapshot();
+
+        CompletableFuture<CouponResponseDTO> first = CompletableFuture.supplyAsync(() -> service.createCoupon(
+                CartWiseCouponRequest.builder().code("FIRST").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()));
+        awaitSaves(saves, 1);
+        CompletableFuture<CouponResponseDTO> second = CompletableFuture.supplyAsync(() -> service.createCoupon(
+                CartWiseCouponRequest.builder().code("SECOND").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()));
+        awaitSaves(saves, 2);
+
+        // Neither write is visible until it is durable
+        assertSame(before, service.snapshot());
+
+        // As the repositories do, a failed save fails every save queued after it
+        IOException failure = new IOException("fsync failed");
+        saves.forEach(save -> save.completeExceptionally(failure));
+        assertTrue(assertThrows(ExecutionException.class, first::get).getCause() instanceof IllegalStateException);
+        assertTrue(assertThrows(ExecutionException.class, second::get).getCause() instanceof IllegalStateException);
+        assertSame(before, service.snapshot());
+
+        // The next write starts again from the last durable catalog, where the code is still free
+        CompletableFuture<CouponResponseDTO> retried = CompletableFuture.supplyAsync(() -> service.createCoupon(
+                CartWiseCouponRequest.builder().code("FIRST").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()));
+        awaitSaves(saves, 3);
+        saves.get(2).complete(null);
+        CouponResponseDTO created = retried.get();
+        assertEquals(List.of(created.getId()), service.getAllCoupons().stream().map(CouponResponseDTO::getId).toList());
+        assertEquals(before.getVersion() + 1, service.snapshot().getVersion());
+    }
+
+    private static void awaitSaves(List<CompletableFuture<Void>> saves, int count) throws InterruptedException {
+        for (int i = 0; i < 500 && saves.size() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, saves.size());
+    }
+
     @Test
     void updateCoupon_shouldUpdateExistingCoupon() {
         CartWiseCouponRequest createRequest = CartWiseCouponRequest.builder()
@@ -243,12 +555,6 @@ class CouponServiceTest {
                 .build();
         couponService.createCoupon(productWiseRequest); // ID 2
 
-        // Mock strategy behavior
-        when(cartWiseCouponStrategy.isApplicable(any(Cart.class), any(CartWiseCoupon.class))).thenReturn(true);
-        when(cartWiseCouponStrategy.calculateDiscount(any(Cart.class), any(CartWiseCoupon.class))).thenReturn(BigDecimal.valueOf(10));
-        when(productWiseCouponStrategy.isApplicable(any(Cart.class), any(ProductWiseCoupon.class))).thenReturn(true);
-        when(productWiseCouponStrategy.calculateDiscount(any(Cart.class), any(ProductWiseCoupon.class))).thenReturn(BigDecimal.valueOf(20));
-
         List<ApplicableCouponResponse> applicableCoupons = couponService.getApplicableCoupons(cart);
 
         assertNotNull(applicableCoupons);
@@ -257,6 +563,132 @@ class CouponServiceTest {
         assertTrue(applicableCoupons.stream().anyMatch(c -> c.getCouponId() == 2L && c.getDiscountAmount().compareTo(BigDecimal.valueOf(20)) == 0));
     }
 
+    @Test
+    void getApplicableCoupons_shouldServeIdenticalCartsFromTheCacheUntilTheCatalogChanges() {
+        couponService.createCoupon(ProductWiseCouponRequest.builder().code("P1").productId(1L).discountPercentage(BigDecimal.TEN).build());
+        CartItem item1 = CartItem.builder().productId(1L).quantity(2).price(BigDecimal.valueOf(100)).build();
+        CartItem item2 = CartItem.builder().productId(2L).quantity(1).price(BigDecimal.valueOf(5)).build();
+
+        List<ApplicableCouponResponse> first = couponService.getApplicableCoupons(Cart.builder().items(List.of(item1, item2)).build());
+        Cart reordered = Cart.builder().items(List.of(item2, item1)).build();
+        List<ApplicableCouponResponse> second = couponService.getApplicableCoupons(reordered);
+
+        assertSame(first, second);
+        assertEquals(0, BigDecimal.valueOf(205).compareTo(reordered.getTotalOriginalPrice()));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+
+        couponService.createCoupon(ProductWiseCouponRequest.builder().code("P2").productId(2L).discountPercentage(BigDecimal.TEN).build());
+        List<ApplicableCouponResponse> afterChange = couponService.getApplicableCoupons(Cart.builder().items(List.of(item1, item2)).build());
+
+        assertEquals(2, afterChange.size());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void getApplicableCoupons_shouldSkipCouponsForProductsNotInCart() {
+        CartItem item1 = CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(100)).build();
+        Cart cart = Cart.builder().items(Collections.singletonList(item1)).build();
+
+        couponService.createCoupon(ProductWiseCouponRequest.builder()
+                .code("PROD2")
+                .expirationDate(LocalDate.now().plusDays(10))
+                .productId(2L)
+                .discountPercentage(BigDecimal.valueOf(20))
+                .build());
+
+        List<ApplicableCouponResponse> applicableCoupons = couponService.getApplicableCoupons(cart);
+
+        assertTrue(applicableCoupons.isEmpty());
+    }
+
+    @Test
+    void getApplicableCoupons_shouldNotReturnDeletedOrUpdatedAwayCoupons() {
+        CartItem item1 = CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(100)).build();
+        Cart cart = Cart.builder().items(Collections.singletonList(item1)).build();
+
+        couponService.createCoupon(ProductWiseCouponRequest.builder()
+                .code("PROD1").expirationDate(LocalDate.now().plusDays(10)).productId(1L).discountPercentage(BigDecimal.TEN).build()); // ID 1
+        couponService.createCoupon(ProductWiseCouponRequest.builder()
+                .code("PROD1B").expirationDate(LocalDate.now().plusDays(10)).productId(1L).discountPercentage(BigDecimal.TEN).build()); // ID 2
+
+        couponService.deleteCoupon(1L);
+        couponService.updateCoupon(2L, ProductWiseCouponRequest.builder()
+                .code("PROD3").expirationDate(LocalDate.now().plusDays(10)).productId(3L).discountPercentage(BigDecimal.TEN).build());
+
+        assertTrue(couponService.getApplicableCoupons(cart).isEmpty());
+    }
+
+    @Test
+    void getBestCoupons_shouldReturnLargestDiscountsFirst() {
+        CartItem item1 = CartItem.builder().productId(1L).quantity(2).price(BigDecimal.valueOf(50)).build();
+        CartItem item2 = CartItem.builder().productId(2L).quantity(1).price(BigDecimal.valueOf(30)).build();
+        Cart cart = Cart.builder().items(Arrays.asList(item1, item2)).build(); // Total 130
+
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("CART10").threshold(BigDecimal.valueOf(50)).discountPercentage(BigDecimal.TEN).build()); // ID 1: 13
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("CART50CAP").threshold(BigDecimal.valueOf(50)).discountPercentage(BigDecimal.valueOf(50))
+                .maxDiscountAmount(BigDecimal.valueOf(20)).build()); // ID 2: 20
+        couponService.createCoupon(ProductWiseCouponRequest.builder()
+                .code("PROD1").productId(1L).fixedDiscountAmount(BigDecimal.valueOf(10)).build()); // ID 3: 20
+        couponService.createCoupon(ProductWiseCouponRequest.builder()
+                .code("PROD2").productId(2L).discountPercentage(BigDecimal.TEN).build()); // ID 4: 3
+        couponService.createCoupon(BxGyCouponRequest.builder()
+                .code("B2G1")
+                .buyProducts(Collections.singletonList(BxGyProductDetail.builder().productId(1L).quantity(2).build()))
+                .getProducts(Collections.singletonList(BxGyProductDetail.builder().productId(2L).quantity(1).build()))
+                .repetitionLimit(3)
+                .build()); // ID 5: 30
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("CART500").threshold(BigDecimal.valueOf(500)).discountPercentage(BigDecimal.valueOf(90)).build()); // ID 6: not applicable
+
+        List<ApplicableCouponResponse> best = couponService.getBestCoupons(cart, 3);
+
+        assertEquals(List.of(5L, 2L, 3L), best.stream().map(ApplicableCouponResponse::getCouponId).toList());
+        assertEquals(0, BigDecimal.valueOf(30).compareTo(best.get(0).getDiscountAmount()));
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(best.get(2).getDiscountAmount()));
+
+        List<ApplicableCouponResponse> all = couponService.getBestCoupons(cart, Integer.MAX_VALUE);
+        assertEquals(List.of(5L, 2L, 3L, 1L, 4L), all.stream().map(ApplicableCouponResponse::getCouponId).toList());
+    }
+
+    @Test
+    void getApplicableCoupons_batch_shouldEvaluateEveryCartInRequestOrder() {
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("CART10").threshold(BigDecimal.valueOf(50)).discountPercentage(BigDecimal.TEN).build()); // ID 1
+        couponService.createCoupon(ProductWiseCouponRequest.builder()
+                .code("PROD2").productId(2L).fixedDiscountAmount(BigDecimal.ONE).build()); // ID 2
+        List<Cart> carts = List.of(
+                Cart.builder().items(List.of(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(100)).build())).build(),
+                Cart.builder().items(List.of(CartItem.builder().productId(2L).quantity(3).price(BigDecimal.TEN).build())).build(),
+                Cart.builder().items(List.of(CartItem.builder().productId(2L).quantity(6).price(BigDecimal.TEN).build())).build());
+
+        List<CartEvaluationResult> results = couponService.getApplicableCoupons(couponService.snapshot(), carts);
+
+        assertEquals(List.of(0, 1, 2), results.stream().map(CartEvaluationResult::getCartIndex).toList());
+        assertEquals(List.of(1L), couponIds(results.get(0).getApplicableCoupons()));
+        assertEquals(List.of(2L), couponIds(results.get(1).getApplicableCoupons()));
+        assertEquals(List.of(1L, 2L), couponIds(results.get(2).getApplicableCoupons()));
+        assertEquals(0, BigDecimal.valueOf(6).compareTo(results.get(2).getApplicableCoupons().get(1).getDiscountAmount()));
+    }
+
+    @Test
+    void getApplicableCoupons_batch_shouldRejectBatchesOverTheConfiguredSize() {
+        CouponEvaluationProperties properties = new CouponEvaluationProperties();
+        properties.setMaxBatchSize(1);
+        CouponService service = new CouponService(new CouponEvaluationExecutor(properties), resultCache(), new InMemoryCouponRepository(), clock);
+        Cart cart = Cart.builder().items(List.of(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.TEN).build())).build();
+
+        assertThrows(InvalidCouponRequestException.class, () -> service.getApplicableCoupons(service.snapshot(), List.of(cart, cart)));
+    }
+
+    @Test
+    void getBestCoupons_shouldRejectNonPositiveLimit() {
+        Cart cart = Cart.builder().items(Collections.emptyList()).build();
+        assertThrows(InvalidCouponRequestException.class, () -> couponService.getBestCoupons(cart, 0));
+    }
+
     @Test
     void applyCoupon_shouldApplyDiscountAndReturnUpdatedCart() {
         // Setup cart
@@ -273,21 +705,124 @@ class CouponServiceTest {
                 .build();
         couponService.createCoupon(cartWiseRequest); // ID 1
 
-        // Mock strategy behavior
-        when(cartWiseCouponStrategy.isApplicable(any(Cart.class), any(CartWiseCoupon.class))).thenReturn(true);
-        Cart updatedCartMock = Cart.builder()
-                .items(Collections.singletonList(item1))
-                .totalOriginalPrice(BigDecimal.valueOf(100))
-                .totalDiscount(BigDecimal.valueOf(10))
-                .finalPrice(BigDecimal.valueOf(90))
-                .build();
-        when(cartWiseCouponStrategy.applyDiscount(any(Cart.class), any(CartWiseCoupon.class))).thenReturn(updatedCartMock);
-
         Cart resultCart = couponService.applyCoupon(1L, cart);
 
         assertNotNull(resultCart);
-        assertEquals(BigDecimal.valueOf(10), resultCart.getTotalDiscount());
-        assertEquals(BigDecimal.valueOf(90), resultCart.getFinalPrice());
+        assertEquals(0, BigDecimal.valueOf(10).compareTo(resultCart.getTotalDiscount()));
+        assertEquals(0, BigDecimal.valueOf(90).compareTo(resultCart.getFinalPrice()));
+    }
+
+    @Test
+    void applyCoupon_shouldRefuseRedemptionsBeyondTheCouponsLimit() {
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("FIRST2").threshold(BigDecimal.valueOf(50)).discountPercentage(BigDecimal.TEN).maxRedemptions(2L).build()); // ID 1
+        Cart small = Cart.builder().items(List.of(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.TEN).build())).build();
+        CatalogSnapshot snapshot = couponService.snapshot();
+
+        assertThrows(CouponNotApplicableException.class, () -> couponService.applyCoupon(snapshot, 1L, small, "alice"));
+        couponService.applyCoupon(snapshot, 1L, limitCart(), "alice");
+        couponService.applyCoupon(snapshot, 1L, limitCart(), "bob");
+        // The cart that did not qualify used up nothing
+        assertThrows(RedemptionLimitReachedException.class, () -> couponService.applyCoupon(snapshot, 1L, limitCart(), "carol"));
+    }
+
+    @Test
+    void applyCoupon_shouldLimitRedemptionsPerCustomer() {
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("ONCE").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptionsPerCustomer(1).build()); // ID 1
+        CatalogSnapshot snapshot = couponService.snapshot();
+
+        couponService.applyCoupon(snapshot, 1L, limitCart(), "alice");
+        assertThrows(RedemptionLimitReachedException.class, () -> couponService.applyCoupon(snapshot, 1L, limitCart(), "alice"));
+        couponService.applyCoupon(snapshot, 1L, limitCart(), "bob");
+        assertThrows(InvalidCouponRequestException.class, () -> couponService.applyCoupon(snapshot, 1L, limitCart(), null));
+    }
+
+    @Test
+    void applyCoupon_shouldNotUseUpTheTotalWhenTheCustomerLimitRefuses() {
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("TWO").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN)
+                .maxRedemptions(2L).maxRedemptionsPerCustomer(1).build()); // ID 1
+        CatalogSnapshot snapshot = couponService.snapshot();
+
+        couponService.applyCoupon(snapshot, 1L, limitCart(), "alice");
+        assertThrows(RedemptionLimitReachedException.class, () -> couponService.applyCoupon(snapshot, 1L, limitCart(), "alice"));
+        couponService.applyCoupon(snapshot, 1L, limitCart(), "bob");
+        assertThrows(RedemptionLimitReachedException.class, () -> couponService.applyCoupon(snapshot, 1L, limitCart(), "carol"));
+    }
+
+    @Test
+    void updateCoupon_shouldKeepTheRedemptionsMadeWhenTheLimitChanges() {
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("LIMITED").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptions(1L).build()); // ID 1
+        couponService.applyCoupon(couponService.snapshot(), 1L, limitCart(), null);
+
+        couponService.updateCoupon(1L, CartWiseCouponRequest.builder()
+                .code("LIMITED").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptions(2L).build());
+
+        assertEquals(2L, couponService.getCouponById(1L).getMaxRedemptions());
+        couponService.applyCoupon(couponService.snapshot(), 1L, limitCart(), null);
+        assertThrows(RedemptionLimitReachedException.class, () -> couponService.applyCoupon(couponService.snapshot(), 1L, limitCart(), null));
+    }
+
+    @Test
+    void applyCoupon_shouldTakeTheLimitFromTheCurrentCatalogWhenPinnedToAnOlderOne() {
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("LIMITED").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptions(1L).build()); // ID 1
+        CatalogSnapshot pinned = couponService.snapshot();
+        couponService.updateCoupon(1L, CartWiseCouponRequest.builder()
+                .code("LIMITED").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptions(3L).build());
+
+        // The pinned version still says 1, which must not shrink the counter back
+        couponService.applyCoupon(pinned, 1L, limitCart(), null);
+        couponService.applyCoupon(pinned, 1L, limitCart(), null);
+        couponService.applyCoupon(couponService.snapshot(), 1L, limitCart(), null);
+        assertThrows(RedemptionLimitReachedException.class, () -> couponService.applyCoupon(pinned, 1L, limitCart(), null));
+    }
+
+    @Test
+    void constructor_shouldRecoverTheRedemptionsMadeBeforeARestart(@TempDir Path directory) throws IOException {
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService service = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+            service.createCoupon(CartWiseCouponRequest.builder()
+                    .code("FIRST3").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN)
+                    .maxRedemptions(3L).maxRedemptionsPerCustomer(1).build()); // ID 1
+            service.createCoupon(CartWiseCouponRequest.builder()
+                    .code("GONE").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptions(1L).build()); // ID 2
+            service.applyCoupon(service.snapshot(), 1L, limitCart(), "alice");
+            service.applyCoupon(service.snapshot(), 2L, limitCart(), null);
+            // The checkpoint drops the log holding alice's redemption, so it has to carry it
+            assertTrue(service.checkpoint());
+            service.applyCoupon(service.snapshot(), 1L, limitCart(), "bob");
+            service.deleteCoupon(2L);
+        }
+
+        try (FileCouponRepository repository = new FileCouponRepository(directory)) {
+            CouponService restarted = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(), repository, clock);
+
+            assertThrows(RedemptionLimitReachedException.class, () -> restarted.applyCoupon(restarted.snapshot(), 1L, limitCart(), "alice"));
+            assertThrows(RedemptionLimitReachedException.class, () -> restarted.applyCoupon(restarted.snapshot(), 1L, limitCart(), "bob"));
+            restarted.applyCoupon(restarted.snapshot(), 1L, limitCart(), "carol");
+            assertThrows(RedemptionLimitReachedException.class, () -> restarted.applyCoupon(restarted.snapshot(), 1L, limitCart(), "dave"));
+        }
+    }
+
+    @Test
+    void applyCoupon_shouldGiveTheRedemptionBackWhenItCannotBeSaved() {
+        CouponService service = new CouponService(new CouponEvaluationExecutor(new CouponEvaluationProperties()), resultCache(),
+                new InMemoryCouponRepository() {
+                    @Override
+                    public CompletableFuture<Void> save(List<CouponMutation> mutations) {
+                        return mutations.get(0).kind() == CouponMutation.Kind.REDEEM
+                                ? CompletableFuture.failedFuture(new IOException("No space left on device"))
+                                : CompletableFuture.completedFuture(null);
+                    }
+                }, clock);
+        service.createCoupon(CartWiseCouponRequest.builder()
+                .code("ONCE").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).maxRedemptions(1L).build()); // ID 1
+
+        assertThrows(IllegalStateException.class, () -> service.applyCoupon(service.snapshot(), 1L, limitCart(), null));
+        assertThrows(IllegalStateException.class, () -> service.applyCoupon(service.snapshot(), 1L, limitCart(), null));
     }
 
     @Test
@@ -311,21 +846,118 @@ class CouponServiceTest {
         assertThrows(CouponExpiredException.class, () -> couponService.applyCoupon(1L, cart));
     }
 
+    @Test
+    void purgeExpired_shouldDropCouponsOnceTheirExpirationDatePasses() {
+        LocalDate today = LocalDate.now(clock);
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("TODAY").expirationDate(today).threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 1
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("NEXTWEEK").expirationDate(today.plusDays(7)).threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 2
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("FOREVER").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 3
+        Cart cart = Cart.builder().items(Collections.singletonList(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(100)).build())).build();
+
+        assertEquals(0, couponService.purgeExpired());
+        assertEquals(3, couponService.getApplicableCoupons(cart).size());
+
+        clock.advance(Duration.ofDays(1));
+        // Until the purge runs, the service still works with the previous day
+        assertEquals(3, couponService.getApplicableCoupons(cart).size());
+
+        assertEquals(1, couponService.purgeExpired());
+        assertEquals(List.of(2L, 3L), couponService.getApplicableCoupons(cart).stream().map(ApplicableCouponResponse::getCouponId).toList());
+        assertThrows(CouponNotFoundException.class, () -> couponService.getCouponById(1L));
+    }
+
+    @Test
+    void purgeExpired_shouldKeepCouponsExtendedByUpdate() {
+        LocalDate today = LocalDate.now(clock);
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("CART10").expirationDate(today).threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 1
+        couponService.updateCoupon(1L, CartWiseCouponRequest.builder()
+                .code("CART10").expirationDate(today.plusDays(30)).threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build());
+
+        clock.advance(Duration.ofDays(1));
+
+        assertEquals(0, couponService.purgeExpired());
+        assertNotNull(couponService.getCouponById(1L));
+    }
+
+    @Test
+    void snapshot_shouldNotSeeWritesPublishedAfterItWasPinned() {
+        Cart cart = Cart.builder().items(Collections.singletonList(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(100)).build())).build();
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("CART10").threshold(BigDecimal.valueOf(50)).discountPercentage(BigDecimal.TEN).build()); // ID 1
+        CatalogSnapshot pinned = couponService.snapshot();
+
+        couponService.updateCoupon(1L, CartWiseCouponRequest.builder()
+                .code("CART10").threshold(BigDecimal.valueOf(500)).discountPercentage(BigDecimal.valueOf(50)).build());
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("CART5").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.valueOf(5)).build()); // ID 2
+
+        List<ApplicableCouponResponse> pinnedResult = couponService.getApplicableCoupons(pinned, cart);
+        assertEquals(1, pinnedResult.size());
+        assertEquals(0, BigDecimal.TEN.compareTo(pinnedResult.get(0).getDiscountAmount()));
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(((CartWiseCouponResponse) couponService.getCouponById(pinned, 1L)).getThreshold()));
+
+        assertEquals(List.of(2L), couponService.getApplicableCoupons(cart).stream().map(ApplicableCouponResponse::getCouponId).toList());
+        assertEquals(pinned.getVersion() + 2, couponService.snapshot().getVersion());
+    }
+
+    @Test
+    void createCoupons_shouldPublishTheWholeBatchAsOneVersion() {
+        long before = couponService.snapshot().getVersion();
+
+        List<CouponResponseDTO> created = couponService.createCoupons(List.of(
+                CartWiseCouponRequest.builder().code("A").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build(),
+                ProductWiseCouponRequest.builder().code("B").productId(1L).discountPercentage(BigDecimal.TEN).build()));
+
+        assertEquals(List.of(1L, 2L), created.stream().map(CouponResponseDTO::getId).toList());
+        assertEquals(before + 1, couponService.snapshot().getVersion());
+        assertEquals(2, couponService.getAllCoupons().size());
+    }
+
+    @Test
+    void failedWrite_shouldNotPublishANewVersion() {
+        couponService.createCoupon(CartWiseCouponRequest.builder()
+                .code("CART10").threshold(BigDecimal.ONE).discountPercentage(BigDecimal.TEN).build()); // ID 1
+        CatalogSnapshot before = couponService.snapshot();
+
+        assertThrows(InvalidCouponRequestException.class, () -> couponService.updateCoupon(1L, ProductWiseCouponRequest.builder()
+                .code("PROD").productId(1L).discountPercentage(BigDecimal.TEN).build()));
+
+        assertSame(before, couponService.snapshot());
+    }
+
     @Test
     void applyCoupon_shouldThrowException_whenCouponNotApplicable() {
         CartWiseCouponRequest cartWiseRequest = CartWiseCouponRequest.builder()
                 .code("CART10")
                 .description("10% off cart")
                 .expirationDate(LocalDate.now().plusDays(10))
-                .threshold(BigDecimal.valueOf(50))
+                .threshold(BigDecimal.valueOf(150))
                 .discountPercentage(BigDecimal.valueOf(10))
                 .build();
         couponService.createCoupon(cartWiseRequest); // ID 1
 
         Cart cart = Cart.builder().items(Collections.singletonList(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(100)).build())).build();
 
-        when(cartWiseCouponStrategy.isApplicable(any(Cart.class), any(CartWiseCoupon.class))).thenReturn(false);
-
         assertThrows(CouponNotApplicableException.class, () -> couponService.applyCoupon(1L, cart));
     }
+
+    private ApplicableCouponCache resultCache() {
+        return new ApplicableCouponCache(new CouponCacheProperties(), meterRegistry);
+    }
+
+    private static List<Long> pageIds(CouponPage page) {
+        return page.getItems().stream().map(CouponResponseDTO::getId).toList();
+    }
+
+    private static List<Long> couponIds(List<ApplicableCouponResponse> coupons) {
+        return coupons.stream().map(ApplicableCouponResponse::getCouponId).toList();
+    }
+
+    private static Cart limitCart() {
+        return Cart.builder().items(List.of(CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(100)).build())).build();
+    }
 }
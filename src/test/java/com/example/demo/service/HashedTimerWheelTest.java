@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class HashedTimerWheelTest {
+
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    void advance_shouldFireATimeoutAtTheEndOfItsTickAndNeverBeforeItsDeadline() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(100, 8, 0, fired::add);
+        wheel.schedule("a", 250);
+
+        assertEquals(0, wheel.advance(299));
+        assertEquals(List.of(), fired);
+        assertEquals(1, wheel.advance(300));
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.advance(1000));
+    }
+
+    @Test
+    void advance_shouldWaitOutWholeTurnsForDistantDeadlines() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(100, 8, 0, fired::add);
+        // Same bucket as tick 3, but two turns of the wheel later
+        wheel.schedule("far", 1900);
+        wheel.schedule("near", 300);
+
+        wheel.advance(300);
+        assertEquals(List.of("near"), fired);
+        wheel.advance(1800);
+        assertEquals(List.of("near"), fired);
+        wheel.advance(1900);
+        assertEquals(List.of("near", "far"), fired);
+    }
+
+    @Test
+    void advance_shouldFireOverdueTimeoutsInTheNextTick() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(100, 8, 0, fired::add);
+        wheel.advance(500);
+        wheel.schedule("late", 200);
+
+        assertEquals(1, wheel.advance(600));
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void advance_shouldCatchUpOnEveryTickMissed() {
+        HashedTimerWheel<String> wheel = new HashedTimerWheel<>(100, 4, 0, fired::add);
+        for (int i = 1; i <= 20; i++) {
+            wheel.schedule("t" + i, i * 100L);
+        }
+
+        assertEquals(20, wheel.advance(5000));
+        assertEquals(20, fired.size());
+        assertEquals("t1", fired.get(0));
+        assertEquals("t20", fired.get(19));
+    }
+}
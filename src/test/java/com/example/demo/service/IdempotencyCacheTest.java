@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.CouponIdempotencyProperties;
+import com.example.demo.exception.IdempotencyKeyReusedException;
+import com.example.demo.exception.RedemptionLimitReachedException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class IdempotencyCacheTest {
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private CouponIdempotencyProperties properties;
+    private AtomicInteger computations;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+        properties = new CouponIdempotencyProperties();
+        properties.setTtl(Duration.ofMinutes(10));
+        computations = new AtomicInteger();
+    }
+
+    @Test
+    void execute_shouldReplayTheFirstResultWithoutComputingAgain() {
+        IdempotencyCache cache = new IdempotencyCache(properties, clock, meterRegistry);
+
+        assertEquals("result-1", cache.execute("key", "request", this::compute));
+        assertEquals("result-1", cache.execute("key", "request", this::compute));
+        assertEquals("result-2", cache.execute("other", "request", this::compute));
+
+        assertEquals(2, computations.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void execute_shouldRefuseAKeyReusedForADifferentRequest() {
+        IdempotencyCache cache = new IdempotencyCache(properties, clock, meterRegistry);
+        cache.execute("key", "request", this::compute);
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> cache.execute("key", "another request", this::compute));
+        assertEquals(1, computations.get());
+    }
+
+    @Test
+    void execute_shouldComputeAgainOnceTheKeyHasExpired() {
+        IdempotencyCache cache = new IdempotencyCache(properties, clock, meterRegistry);
+        cache.execute("key", "request", this::compute);
+
+        clock.advance(Duration.ofMinutes(9));
+        assertEquals("result-1", cache.execute("key", "request", this::compute));
+        clock.advance(Duration.ofMinutes(1));
+        assertEquals("result-2", cache.execute("key", "request", this::compute));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void execute_shouldDropTheOldestKeyOnceFull() {
+        properties.setMaxEntries(2);
+        IdempotencyCache cache = new IdempotencyCache(properties, clock, meterRegistry);
+        cache.execute("a", "request", this::compute);
+        cache.execute("b", "request", this::compute);
+        cache.execute("c", "request", this::compute);
+
+        assertEquals(2, cache.size());
+        assertEquals("result-4", cache.execute("a", "request", this::compute));
+        assertEquals("result-3", cache.execute("c", "request", this::compute));
+        assertEquals(2.0, meterRegistry.get("cache.evictions").counter().count());
+    }
+
+    @Test
+    void execute_shouldNotRememberAFailure() {
+        IdempotencyCache cache = new IdempotencyCache(properties, clock, meterRegistry);
+
+        assertThrows(RedemptionLimitReachedException.class, () -> cache.execute("key", "request", () -> {
+            throw new RedemptionLimitReachedException("limit reached");
+        }));
+
+        assertEquals(0, cache.size());
+        assertEquals("result-1", cache.execute("key", "request", this::compute));
+    }
+
+    @Test
+    void execute_shouldComputeOnceForConcurrentRequestsWithTheSameKey() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(properties, clock, meterRegistry);
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        int waiters = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(waiters + 1);
+        try {
+            Future<String> first = executor.submit(() -> cache.execute("key", "request", () -> {
+                computing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return compute();
+            }));
+            assertTrue(computing.await(5, TimeUnit.SECONDS));
+            List<Future<String>> retries = new ArrayList<>();
+            for (int i = 0; i < waiters; i++) {
+                retries.add(executor.submit(() -> cache.execute("key", "request", this::compute)));
+            }
+            release.countDown();
+
+            assertEquals("result-1", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> retry : retries) {
+                assertEquals("result-1", retry.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, computations.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void execute_shouldAlwaysComputeWhenDisabled() {
+        properties.setMaxEntries(0);
+        IdempotencyCache cache = new IdempotencyCache(properties, clock, meterRegistry);
+
+        cache.execute("key", "request", this::compute);
+        cache.execute("key", "request", this::compute);
+
+        assertEquals(2, computations.get());
+        assertEquals(0, cache.size());
+    }
+
+    private String compute() {
+        return "result-" + computations.incrementAndGet();
+    }
+}
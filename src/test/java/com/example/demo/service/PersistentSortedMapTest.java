@@ -0,0 +1,89 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+class PersistentSortedMapTest {
+
+    @Test
+    void put_shouldLeaveThePreviousMapUnchanged() {
+        PersistentSortedMap<Long, String> before = PersistentSortedMap.<Long, String>empty().put(1L, "a").put(2L, "b");
+
+        PersistentSortedMap<Long, String> after = before.put(2L, "B").put(3L, "c").remove(1L);
+
+        assertEquals(List.of("a", "b"), values(before.valuesAfter(null)));
+        assertEquals(2, before.size());
+        assertEquals(List.of("B", "c"), values(after.valuesAfter(null)));
+        assertEquals(2, after.size());
+    }
+
+    @Test
+    void putAndRemove_shouldReturnTheSameMapWhenNothingChanges() {
+        PersistentSortedMap<Long, String> map = PersistentSortedMap.<Long, String>empty().put(1L, "a");
+
+        assertSame(map, map.remove(2L));
+        assertSame(map, map.put(1L, map.get(1L)));
+    }
+
+    @Test
+    void valuesAfter_shouldStartAfterTheGivenKey() {
+        PersistentSortedMap<Long, Long> map = PersistentSortedMap.empty();
+        for (long key = 10; key >= 1; key--) {
+            map = map.put(key * 10, key * 10);
+        }
+
+        assertEquals(List.of(50L, 60L), values(map.valuesAfter(40L)).subList(0, 2));
+        assertEquals(List.of(50L, 60L), values(map.valuesAfter(45L)).subList(0, 2));
+        assertTrue(values(map.valuesAfter(100L)).isEmpty());
+        assertEquals(List.of(10L, 20L), map.valuesBefore(20L, true));
+        assertEquals(List.of(10L), map.valuesBefore(20L, false));
+    }
+
+    @Test
+    void shouldMatchTreeMapOverRandomOperations() {
+        Random random = new Random(42);
+        Comparator<Integer> descending = Comparator.reverseOrder();
+        TreeMap<Integer, Integer> expected = new TreeMap<>(descending);
+        PersistentSortedMap<Integer, Integer> map = PersistentSortedMap.empty(descending);
+        List<PersistentSortedMap<Integer, Integer>> versions = new ArrayList<>();
+        List<List<Integer>> versionValues = new ArrayList<>();
+
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+            assertEquals(expected.get(key), map.get(key));
+            if (i % 1_000 == 0) {
+                versions.add(map);
+                versionValues.add(new ArrayList<>(expected.values()));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), values(map.valuesAfter(null)));
+        assertEquals(new ArrayList<>(expected.tailMap(1_000, false).keySet()), values(map.keysAfter(1_000)));
+        assertEquals(new ArrayList<>(expected.headMap(1_000, true).values()), map.valuesBefore(1_000, true));
+        for (int i = 0; i < versions.size(); i++) {
+            assertEquals(versionValues.get(i), values(versions.get(i).valuesAfter(null)));
+        }
+    }
+
+    private static <T> List<T> values(Iterator<T> iterator) {
+        List<T> values = new ArrayList<>();
+        iterator.forEachRemaining(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class RedemptionCounterTest {
+
+    @Test
+    void tryAcquire_shouldNeverHandOutMoreThanTheLimitUnderContention() throws Exception {
+        int threads = 8;
+        RedemptionCounter counter = new RedemptionCounter(10_000, threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> acquired = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                acquired.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    while (counter.tryAcquire()) {
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> future : acquired) {
+                total += future.get();
+            }
+
+            assertEquals(10_000, total);
+            assertEquals(0, counter.remaining());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void tryAcquire_shouldFindPermitsOnOtherStripesWhenTheLimitIsSmall() {
+        RedemptionCounter counter = new RedemptionCounter(3, 16);
+
+        assertTrue(counter.tryAcquire());
+        assertTrue(counter.tryAcquire());
+        assertTrue(counter.tryAcquire());
+        assertFalse(counter.tryAcquire());
+    }
+
+    @Test
+    void release_shouldMakeARedemptionAvailableAgain() {
+        RedemptionCounter counter = new RedemptionCounter(1, 4);
+        assertTrue(counter.tryAcquire());
+        assertFalse(counter.tryAcquire());
+
+        counter.release();
+
+        assertEquals(1, counter.remaining());
+        assertTrue(counter.tryAcquire());
+    }
+
+    @Test
+    void resize_shouldKeepTheRedemptionsAlreadyMade() {
+        RedemptionCounter counter = new RedemptionCounter(10, 4);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(counter.tryAcquire());
+        }
+
+        counter.resize(5);
+        assertFalse(counter.tryAcquire());
+        // Eight made against a limit of five: only the fourth release frees a redemption
+        counter.release();
+        counter.release();
+        counter.release();
+        assertFalse(counter.tryAcquire());
+        counter.release();
+        assertTrue(counter.tryAcquire());
+
+        counter.resize(7);
+        assertEquals(7, counter.limit());
+        assertEquals(2, counter.remaining());
+    }
+
+    @Test
+    void restore_shouldCountRedemptionsMadeBeforeTheCounterExisted() {
+        RedemptionCounter counter = new RedemptionCounter(5, 4);
+
+        counter.restore(3);
+        assertEquals(2, counter.remaining());
+
+        // More than the limit, as after it was lowered: the surplus is paid back by releases first
+        RedemptionCounter over = new RedemptionCounter(2, 4);
+        over.restore(3);
+        assertFalse(over.tryAcquire());
+        over.release();
+        assertFalse(over.tryAcquire());
+        over.release();
+        assertTrue(over.tryAcquire());
+    }
+
+    @Test
+    void resize_shouldNotLetAConcurrentReleaseOvershootTheLowerLimit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 2_000; round++) {
+                RedemptionCounter counter = new RedemptionCounter(10, 4);
+                for (int i = 0; i < 10; i++) {
+                    assertTrue(counter.tryAcquire());
+                }
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> releases = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 10; i++) {
+                        counter.release();
+                    }
+                    return null;
+                });
+                Future<?> resize = executor.submit(() -> {
+                    start.await();
+                    counter.resize(5);
+                    return null;
+                });
+                start.countDown();
+                releases.get();
+                resize.get();
+
+                // Every redemption came back, so exactly the new limit is left whatever the order
+                int acquired = 0;
+                while (counter.tryAcquire()) {
+                    acquired++;
+                }
+                assertEquals(5, acquired, "round " + round);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -155,4 +155,22 @@ class BxGyCouponStrategyTest {
         assertEquals(0, BigDecimal.valueOf(100).compareTo(updatedCart.getItems().get(1).getTotalDiscount())); // Get product discounted
         assertEquals(BigDecimal.ZERO, updatedCart.getItems().get(1).getFinalPrice());
     }
+
+    @Test
+    void calculateDiscount_shouldMergeDuplicateProductLines() {
+        CartItem item1 = CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(50)).build();
+        CartItem item2 = CartItem.builder().productId(1L).quantity(1).price(BigDecimal.valueOf(50)).build(); // Same product on a second line
+        CartItem item3 = CartItem.builder().productId(2L).quantity(1).price(BigDecimal.valueOf(100)).build();
+        Cart cart = Cart.builder().items(Arrays.asList(item1, item2, item3)).build();
+
+        BxGyProductDetail buy1 = BxGyProductDetail.builder().productId(1L).quantity(2).build();
+        BxGyProductDetail get1 = BxGyProductDetail.builder().productId(2L).quantity(1).build();
+        BxGyCoupon coupon = BxGyCoupon.builder()
+                .buyProducts(Collections.singletonList(buy1))
+                .getProducts(Collections.singletonList(get1))
+                .repetitionLimit(1)
+                .build();
+        assertTrue(strategy.isApplicable(cart, coupon));
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(strategy.calculateDiscount(cart, coupon)));
+    }
 }